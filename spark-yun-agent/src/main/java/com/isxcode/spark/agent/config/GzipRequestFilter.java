@@ -0,0 +1,175 @@
+package com.isxcode.spark.agent.config;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 解压gzip请求体.
+ */
+@Component
+public class GzipRequestFilter extends OncePerRequestFilter {
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+
+        return !"gzip".equalsIgnoreCase(request.getHeader(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+
+        filterChain.doFilter(new GzipRequestWrapper(request), response);
+    }
+
+    private static class GzipRequestWrapper extends HttpServletRequestWrapper {
+
+        private final GzipInputStream gzipInputStream;
+
+        private GzipRequestWrapper(HttpServletRequest request) throws IOException {
+
+            super(request);
+            this.gzipInputStream = new GzipInputStream(new GZIPInputStream(request.getInputStream()));
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+
+            return gzipInputStream;
+        }
+
+        @Override
+        public BufferedReader getReader() {
+
+            return new BufferedReader(new InputStreamReader(gzipInputStream, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int getContentLength() {
+
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+
+            return -1;
+        }
+
+        @Override
+        public String getHeader(String name) {
+
+            if (isDecodedHeader(name)) {
+                return null;
+            }
+            return super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+
+            if (isDecodedHeader(name)) {
+                return Collections.emptyEnumeration();
+            }
+            return super.getHeaders(name);
+        }
+
+        /**
+         * 解压后请求体的编码和长度已经变化.
+         */
+        private boolean isDecodedHeader(String name) {
+
+            return HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name)
+                || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name);
+        }
+    }
+
+    /**
+     * 解压后的请求体，读到结尾时标记完成. 异步读取时先解压到内存，再通知监听器.
+     */
+    private static class GzipInputStream extends ServletInputStream {
+
+        private InputStream inputStream;
+
+        private boolean buffered;
+
+        private boolean finished;
+
+        private GzipInputStream(InputStream inputStream) {
+
+            this.inputStream = inputStream;
+        }
+
+        @Override
+        public int read() throws IOException {
+
+            int data = inputStream.read();
+            if (data == -1) {
+                finished = true;
+            }
+            return data;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+
+            int count = inputStream.read(b, off, len);
+            if (count == -1) {
+                finished = true;
+            }
+            return count;
+        }
+
+        @Override
+        public boolean isFinished() {
+
+            try {
+                return finished || buffered && inputStream.available() == 0;
+            } catch (IOException e) {
+                return true;
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+
+            try {
+                if (!buffered) {
+                    inputStream = new ByteArrayInputStream(StreamUtils.copyToByteArray(inputStream));
+                    buffered = true;
+                }
+                if (!isFinished()) {
+                    readListener.onDataAvailable();
+                }
+                readListener.onAllDataRead();
+            } catch (Throwable e) {
+                readListener.onError(e);
+            }
+        }
+    }
+}
@@ -3,10 +3,12 @@ package com.isxcode.spark.agent.controller;
 import com.isxcode.spark.agent.service.FlinkAgentBizService;
 import com.isxcode.spark.api.agent.constants.FlinkAgentUrl;
 import com.isxcode.spark.api.agent.req.flink.GetWorkInfoReq;
+import com.isxcode.spark.api.agent.req.flink.GetWorkInfosReq;
 import com.isxcode.spark.api.agent.req.flink.GetWorkLogReq;
 import com.isxcode.spark.api.agent.req.flink.StopWorkReq;
 import com.isxcode.spark.api.agent.req.flink.SubmitWorkReq;
 import com.isxcode.spark.api.agent.res.flink.GetWorkInfoRes;
+import com.isxcode.spark.api.agent.res.flink.GetWorkInfosRes;
 import com.isxcode.spark.api.agent.res.flink.GetWorkLogRes;
 import com.isxcode.spark.api.agent.res.flink.StopWorkRes;
 import com.isxcode.spark.api.agent.res.flink.SubmitWorkRes;
@@ -42,6 +44,14 @@ public class FlinkAgentController {
         return flinkAgentBizService.getWorkInfo(getWorkInfoReq);
     }
 
+    @Operation(summary = "批量获取作业信息")
+    @PostMapping(FlinkAgentUrl.GET_WORK_INFOS_URL)
+    @SuccessResponse("获取成功")
+    public GetWorkInfosRes getWorkInfos(@Value @RequestBody GetWorkInfosReq getWorkInfosReq) {
+
+        return flinkAgentBizService.getWorkInfos(getWorkInfosReq);
+    }
+
     @Operation(summary = "获取日志")
     @PostMapping(FlinkAgentUrl.GET_WORK_LOG_URL)
     @SuccessResponse("获取成功")
@@ -46,6 +46,14 @@ public class SparkAgentController {
         return sparkYunAgentBizService.getWorkInfo(getWorkStatusReq);
     }
 
+    @Operation(summary = "批量获取作业状态")
+    @PostMapping(SparkAgentUrl.GET_WORK_INFOS_URL)
+    @SuccessResponse("获取成功")
+    public GetWorkInfosRes getWorkInfos(@Valid @RequestBody GetWorkInfosReq getWorkInfosReq) {
+
+        return sparkYunAgentBizService.getWorkInfos(getWorkInfosReq);
+    }
+
     @Operation(summary = "获取返回数据")
     @PostMapping(SparkAgentUrl.GET_WORK_DATA_URL)
     @SuccessResponse("获取成功")
@@ -54,6 +62,22 @@ public class SparkAgentController {
         return sparkYunAgentBizService.getWorkData(getWorkDataReq);
     }
 
+    @Operation(summary = "获取节点监控")
+    @PostMapping(SparkAgentUrl.GET_NODE_MONITOR_URL)
+    @SuccessResponse("获取成功")
+    public GetNodeMonitorRes getNodeMonitor(@RequestBody GetNodeMonitorReq getNodeMonitorReq) {
+
+        return sparkYunAgentBizService.getNodeMonitor(getNodeMonitorReq);
+    }
+
+    @Operation(summary = "获取数据同步分区进度")
+    @PostMapping(SparkAgentUrl.GET_SYNC_PROGRESS_URL)
+    @SuccessResponse("获取成功")
+    public GetSyncProgressRes getSyncProgress(@Valid @RequestBody GetSyncProgressReq getSyncProgressReq) {
+
+        return sparkYunAgentBizService.getSyncProgress(getSyncProgressReq);
+    }
+
     @Operation(summary = "获取自定义Jar作业Stdout日志")
     @PostMapping(SparkAgentUrl.GET_CUSTOM_JAR_WORK_STDOUT_LOG_URL)
     @SuccessResponse("获取成功")
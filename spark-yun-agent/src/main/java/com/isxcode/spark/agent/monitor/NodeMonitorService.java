@@ -0,0 +1,256 @@
+package com.isxcode.spark.agent.monitor;
+
+import com.isxcode.spark.agent.properties.SparkYunAgentProperties;
+import com.isxcode.spark.api.monitor.dto.NodeMonitorSample;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 节点监控采集.
+ *
+ * <p>
+ * 定时读取/proc下的cpu、内存、磁盘、网络和进程信息，最近的采集数据保存在环形缓冲中，服务端一次请求取回多条.
+ * </p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class NodeMonitorService {
+
+    private static final List<String> STORAGE_TYPES = Arrays.asList("ext4", "xfs", "btrfs");
+
+    private static final List<String> APP_MAIN_CLASSES =
+        Arrays.asList("org.apache.spark.deploy.SparkSubmit", "org.apache.flink.client.cli.CliFrontend");
+
+    private static final int SECTOR_SIZE = 512;
+
+    private final SparkYunAgentProperties sparkYunAgentProperties;
+
+    private final Deque<NodeMonitorSample> samples = new ArrayDeque<>();
+
+    private ScheduledExecutorService monitorScheduler;
+
+    private long lastTimestamp;
+
+    private long[] lastCpu;
+
+    private long[] lastDisk;
+
+    private long[] lastNetwork;
+
+    @PostConstruct
+    public void start() {
+
+        // 只支持linux
+        if (!new File("/proc/stat").exists()) {
+            log.info("当前系统没有/proc，不采集节点监控");
+            return;
+        }
+
+        monitorScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "nodeMonitorScheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        monitorScheduler.scheduleWithFixedDelay(this::collect, 0, sparkYunAgentProperties.getMonitorInterval(),
+            TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+
+        if (monitorScheduler != null) {
+            monitorScheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 获取采集数据.
+     *
+     * @param since 只返回该时间之后的数据，为空时返回全部
+     */
+    public List<NodeMonitorSample> getSamples(Long since) {
+
+        synchronized (samples) {
+            return samples.stream().filter(e -> since == null || e.getTimestamp() > since)
+                .collect(Collectors.toList());
+        }
+    }
+
+    private void collect() {
+
+        try {
+            long timestamp = System.currentTimeMillis();
+            long[] cpu = readCpu();
+            long[] disk = readDisk();
+            long[] network = readNetwork();
+
+            // 第一次只记录累计值，从第二次开始计算速度
+            if (lastTimestamp > 0) {
+                double seconds = (timestamp - lastTimestamp) / 1000.0;
+                long totalDelta = cpu[1] - lastCpu[1];
+                double cpuPercent = totalDelta <= 0 ? 0 : 100.0 * (totalDelta - (cpu[0] - lastCpu[0])) / totalDelta;
+
+                NodeMonitorSample sample = NodeMonitorSample.builder().timestamp(timestamp)
+                    .cpuPercent(round(cpuPercent)).usedMemorySize(round(readUsedMemory()))
+                    .usedStorageSize(round(readUsedStorage()))
+                    .diskIoReadSpeed(speed(disk[0], lastDisk[0], seconds))
+                    .diskIoWriteSpeed(speed(disk[1], lastDisk[1], seconds))
+                    .networkIoReadSpeed(speed(network[0], lastNetwork[0], seconds))
+                    .networkIoWriteSpeed(speed(network[1], lastNetwork[1], seconds)).runningAppNum(countRunningApp())
+                    .build();
+
+                synchronized (samples) {
+                    samples.addLast(sample);
+                    while (samples.size() > sparkYunAgentProperties.getMonitorBufferSize()) {
+                        samples.removeFirst();
+                    }
+                }
+            }
+
+            lastTimestamp = timestamp;
+            lastCpu = cpu;
+            lastDisk = disk;
+            lastNetwork = network;
+        } catch (Exception e) {
+            log.debug("采集节点监控异常: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 返回cpu空闲和总的累计时间，iowait算作空闲.
+     */
+    private long[] readCpu() throws IOException {
+
+        String[] fields = Files.readAllLines(Paths.get("/proc/stat")).get(0).trim().split("\\s+");
+        long total = 0;
+        for (int i = 1; i <= 8 && i < fields.length; i++) {
+            total += Long.parseLong(fields[i]);
+        }
+        return new long[] {Long.parseLong(fields[4]) + Long.parseLong(fields[5]), total};
+    }
+
+    /**
+     * 返回已用内存，单位GB.
+     */
+    private double readUsedMemory() throws IOException {
+
+        Map<String, Long> memInfo = new HashMap<>();
+        for (String line : Files.readAllLines(Paths.get("/proc/meminfo"))) {
+            String[] fields = line.split("[:\\s]+");
+            memInfo.put(fields[0], Long.parseLong(fields[1]));
+        }
+        long available = memInfo.containsKey("MemAvailable") ? memInfo.get("MemAvailable")
+            : memInfo.get("MemFree") + memInfo.getOrDefault("Buffers", 0L) + memInfo.getOrDefault("Cached", 0L);
+        return (memInfo.get("MemTotal") - available) / 1024.0 / 1024.0;
+    }
+
+    /**
+     * 返回本地文件系统的已用存储，单位GB.
+     */
+    private double readUsedStorage() throws IOException {
+
+        Set<String> devices = new HashSet<>();
+        long used = 0;
+        for (String line : Files.readAllLines(Paths.get("/proc/mounts"))) {
+            String[] fields = line.split("\\s+");
+            if (STORAGE_TYPES.contains(fields[2]) && devices.add(fields[0])) {
+                File mountPoint = new File(fields[1]);
+                used += mountPoint.getTotalSpace() - mountPoint.getFreeSpace();
+            }
+        }
+        return used / 1024.0 / 1024.0 / 1024.0;
+    }
+
+    /**
+     * 返回磁盘读写的累计字节数，只统计物理磁盘，不统计分区和虚拟设备.
+     */
+    private long[] readDisk() throws IOException {
+
+        long read = 0;
+        long write = 0;
+        for (String line : Files.readAllLines(Paths.get("/proc/diskstats"))) {
+            String[] fields = line.trim().split("\\s+");
+            String device = fields[2];
+            if (device.startsWith("loop") || device.startsWith("ram") || device.startsWith("dm-")
+                || !new File("/sys/block/" + device).exists()) {
+                continue;
+            }
+            read += Long.parseLong(fields[5]) * SECTOR_SIZE;
+            write += Long.parseLong(fields[9]) * SECTOR_SIZE;
+        }
+        return new long[] {read, write};
+    }
+
+    /**
+     * 返回网卡接收和发送的累计字节数，不统计lo.
+     */
+    private long[] readNetwork() throws IOException {
+
+        long receive = 0;
+        long transmit = 0;
+        List<String> lines = Files.readAllLines(Paths.get("/proc/net/dev"));
+        for (String line : lines.subList(2, lines.size())) {
+            String[] parts = line.split(":", 2);
+            if ("lo".equals(parts[0].trim())) {
+                continue;
+            }
+            String[] fields = parts[1].trim().split("\\s+");
+            receive += Long.parseLong(fields[0]);
+            transmit += Long.parseLong(fields[8]);
+        }
+        return new long[] {receive, transmit};
+    }
+
+    /**
+     * 统计spark-submit和flink客户端进程数.
+     */
+    private int countRunningApp() {
+
+        int count = 0;
+        try (DirectoryStream<Path> processes = Files.newDirectoryStream(Paths.get("/proc"), "[0-9]*")) {
+            for (Path process : processes) {
+                try {
+                    String cmdline = new String(Files.readAllBytes(process.resolve("cmdline")), StandardCharsets.UTF_8);
+                    if (APP_MAIN_CLASSES.stream().anyMatch(cmdline::contains)) {
+                        count++;
+                    }
+                } catch (IOException e) {
+                    // 进程已退出
+                }
+            }
+        } catch (IOException e) {
+            log.debug(e.getMessage(), e);
+        }
+        return count;
+    }
+
+    /**
+     * 计算速度，单位KB/s.
+     */
+    private static double speed(long current, long last, double seconds) {
+
+        return seconds <= 0 || current < last ? 0 : round((current - last) / 1024.0 / seconds);
+    }
+
+    private static double round(double value) {
+
+        return Math.round(value * 10) / 10.0;
+    }
+}
@@ -15,4 +15,34 @@ public class SparkYunAgentProperties {
      * 提交作业的超时时间，默认120s
      */
     private Integer submitTimeout = 120;
+
+    /**
+     * yarn作业的状态、日志和中止方式，client使用常驻的yarn客户端，cli使用yarn命令
+     */
+    private String yarnMode = "client";
+
+    /**
+     * 查询作业结果文件的目录，支持hdfs和共享目录，为空时通过日志返回结果
+     */
+    private String resultPath;
+
+    /**
+     * 查询作业结果文件的保留时间，单位小时
+     */
+    private Integer resultTtl = 24;
+
+    /**
+     * 数据同步分区进度的目录，支持hdfs和共享目录，为空时不支持断点续跑
+     */
+    private String progressPath;
+
+    /**
+     * 节点监控的采集间隔，单位秒
+     */
+    private Integer monitorInterval = 10;
+
+    /**
+     * 节点监控保留的采集条数
+     */
+    private Integer monitorBufferSize = 60;
 }
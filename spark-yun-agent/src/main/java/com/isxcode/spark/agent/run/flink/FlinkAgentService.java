@@ -2,6 +2,7 @@ package com.isxcode.spark.agent.run.flink;
 
 
 import com.isxcode.spark.api.agent.req.flink.GetWorkInfoReq;
+import com.isxcode.spark.api.agent.req.flink.GetWorkInfosReq;
 import com.isxcode.spark.api.agent.req.flink.GetWorkLogReq;
 import com.isxcode.spark.api.agent.req.flink.StopWorkReq;
 import com.isxcode.spark.api.agent.req.flink.SubmitWorkReq;
@@ -10,6 +11,9 @@ import com.isxcode.spark.api.agent.res.flink.GetWorkLogRes;
 import com.isxcode.spark.api.agent.res.flink.StopWorkRes;
 import com.isxcode.spark.api.agent.res.flink.SubmitWorkRes;
 
+import java.util.Collections;
+import java.util.Map;
+
 public interface FlinkAgentService {
 
     String getAgentType();
@@ -18,6 +22,14 @@ public interface FlinkAgentService {
 
     GetWorkInfoRes getWorkInfo(GetWorkInfoReq getWorkInfoReq) throws Exception;
 
+    /**
+     * 一次查询批量获取作业状态，没有查到的作业会单独查询.
+     */
+    default Map<String, GetWorkInfoRes> getWorkInfos(GetWorkInfosReq getWorkInfosReq) throws Exception {
+
+        return Collections.emptyMap();
+    }
+
     GetWorkLogRes getWorkLog(GetWorkLogReq getWorkLogReq) throws Exception;
 
     StopWorkRes stopWork(StopWorkReq stopWorkReq) throws Exception;
@@ -2,8 +2,10 @@ package com.isxcode.spark.agent.run.flink.impl;
 
 import com.alibaba.fastjson2.JSON;
 import com.isxcode.spark.agent.run.flink.FlinkAgentService;
+import com.isxcode.spark.agent.utils.KubernetesUtils;
 import com.isxcode.spark.api.agent.constants.AgentType;
 import com.isxcode.spark.api.agent.req.flink.GetWorkInfoReq;
+import com.isxcode.spark.api.agent.req.flink.GetWorkInfosReq;
 import com.isxcode.spark.api.agent.req.flink.GetWorkLogReq;
 import com.isxcode.spark.api.agent.req.flink.StopWorkReq;
 import com.isxcode.spark.api.agent.req.flink.SubmitWorkReq;
@@ -289,6 +291,18 @@ public class FlinkKubernetesAgentService implements FlinkAgentService {
         throw new Exception("获取状态异常");
     }
 
+    @Override
+    public Map<String, GetWorkInfoRes> getWorkInfos(GetWorkInfosReq getWorkInfosReq) throws Exception {
+
+        // 一次按标签查询所有作业的pod，pod不存在说明作业已经结束
+        Map<String, String> podStatus = KubernetesUtils
+            .getPodStatus("app in (" + String.join(",", getWorkInfosReq.getAppIds()) + ")", "app");
+        Map<String, GetWorkInfoRes> workInfos = new HashMap<>();
+        getWorkInfosReq.getAppIds().forEach(appId -> workInfos.put(appId,
+            GetWorkInfoRes.builder().appId(appId).finalState(podStatus.getOrDefault(appId, "Over")).build()));
+        return workInfos;
+    }
+
     @Override
     public GetWorkLogRes getWorkLog(GetWorkLogReq getWorkLogReq) throws Exception {
 
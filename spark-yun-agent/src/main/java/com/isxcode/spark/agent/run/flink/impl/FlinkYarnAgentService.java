@@ -4,6 +4,7 @@ import com.alibaba.fastjson2.JSON;
 import com.isxcode.spark.agent.run.flink.FlinkAgentService;
 import com.isxcode.spark.api.agent.constants.AgentType;
 import com.isxcode.spark.api.agent.req.flink.GetWorkInfoReq;
+import com.isxcode.spark.api.agent.req.flink.GetWorkInfosReq;
 import com.isxcode.spark.api.agent.req.flink.GetWorkLogReq;
 import com.isxcode.spark.api.agent.req.flink.StopWorkReq;
 import com.isxcode.spark.api.agent.req.flink.SubmitWorkReq;
@@ -168,15 +169,7 @@ public class FlinkYarnAgentService implements FlinkAgentService {
     @Override
     public GetWorkInfoRes getWorkInfo(GetWorkInfoReq getWorkInfoReq) throws Exception {
 
-        Configuration flinkConfig = GlobalConfiguration.loadConfiguration();
-        flinkConfig.set(DeploymentOptionsInternal.CONF_DIR, getWorkInfoReq.getFlinkHome() + "/conf");
-        Path path = new Path(System.getenv("HADOOP_CONF_DIR") + "/yarn-site.xml");
-        org.apache.hadoop.conf.Configuration conf = new org.apache.hadoop.conf.Configuration();
-        conf.addResource(path);
-        Map<String, String> yarn = conf.getPropsWithPrefix("yarn");
-        yarn.forEach((k, v) -> {
-            flinkConfig.setString("flink.yarn" + k, v);
-        });
+        Configuration flinkConfig = getYarnFlinkConfig(getWorkInfoReq.getFlinkHome());
 
         YarnClusterClientFactory yarnClusterClientFactory = new YarnClusterClientFactory();
         try (YarnClusterDescriptor clusterDescriptor = yarnClusterClientFactory.createClusterDescriptor(flinkConfig)) {
@@ -188,6 +181,31 @@ public class FlinkYarnAgentService implements FlinkAgentService {
         }
     }
 
+    @Override
+    public Map<String, GetWorkInfoRes> getWorkInfos(GetWorkInfosReq getWorkInfosReq) throws Exception {
+
+        Configuration flinkConfig = getYarnFlinkConfig(getWorkInfosReq.getFlinkHome());
+        Set<String> appIds = new HashSet<>(getWorkInfosReq.getAppIds());
+
+        // 一次请求resourceManager获取所有flink作业，按作业类型过滤，不拉取集群上其他类型的作业
+        Set<String> applicationTypes = Collections.singleton(flinkConfig.get(YarnConfigOptions.APPLICATION_TYPE));
+        YarnClusterClientFactory yarnClusterClientFactory = new YarnClusterClientFactory();
+        try (YarnClusterDescriptor clusterDescriptor = yarnClusterClientFactory.createClusterDescriptor(flinkConfig)) {
+            Map<String, GetWorkInfoRes> workInfos = new HashMap<>();
+            for (ApplicationReport applicationReport : clusterDescriptor.getYarnClient()
+                .getApplications(applicationTypes)) {
+                String appId = applicationReport.getApplicationId().toString();
+                if (appIds.contains(appId)) {
+                    workInfos.put(appId,
+                        GetWorkInfoRes.builder().appId(appId)
+                            .appState(applicationReport.getYarnApplicationState().name())
+                            .finalState(applicationReport.getFinalApplicationStatus().name()).build());
+                }
+            }
+            return workInfos;
+        }
+    }
+
     @Override
     public GetWorkLogRes getWorkLog(GetWorkLogReq getWorkLogReq) throws Exception {
 
@@ -262,4 +280,18 @@ public class FlinkYarnAgentService implements FlinkAgentService {
             return StopWorkRes.builder().build();
         }
     }
+
+    private Configuration getYarnFlinkConfig(String flinkHome) {
+
+        Configuration flinkConfig = GlobalConfiguration.loadConfiguration();
+        flinkConfig.set(DeploymentOptionsInternal.CONF_DIR, flinkHome + "/conf");
+        Path path = new Path(System.getenv("HADOOP_CONF_DIR") + "/yarn-site.xml");
+        org.apache.hadoop.conf.Configuration conf = new org.apache.hadoop.conf.Configuration();
+        conf.addResource(path);
+        Map<String, String> yarn = conf.getPropsWithPrefix("yarn");
+        yarn.forEach((k, v) -> {
+            flinkConfig.setString("flink.yarn" + k, v);
+        });
+        return flinkConfig;
+    }
 }
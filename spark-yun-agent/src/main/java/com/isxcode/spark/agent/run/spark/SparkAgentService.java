@@ -4,6 +4,8 @@ import com.isxcode.spark.api.agent.req.spark.SubmitWorkReq;
 import com.isxcode.spark.api.agent.res.spark.GetWorkInfoRes;
 import org.apache.spark.launcher.SparkLauncher;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 public interface SparkAgentService {
@@ -20,10 +22,34 @@ public interface SparkAgentService {
 
     GetWorkInfoRes getWorkInfo(String appId, String sparkHomePath) throws Exception;
 
+    /**
+     * 一次查询批量获取作业状态，没有查到的作业会单独查询.
+     */
+    default Map<String, GetWorkInfoRes> getWorkInfos(List<String> appIds, String sparkHomePath) throws Exception {
+
+        return Collections.emptyMap();
+    }
+
     String getStderrLog(String appId, String sparkHomePath) throws Exception;
 
+    /**
+     * 按字节范围读取日志，logBytes为负数时读取末尾，不支持时读取全部.
+     */
+    default String getStderrLog(String appId, String sparkHomePath, Long logBytes) throws Exception {
+
+        return getStderrLog(appId, sparkHomePath);
+    }
+
     String getStdoutLog(String appId, String sparkHomePath) throws Exception;
 
+    /**
+     * 按字节范围读取日志，logBytes为负数时读取末尾，不支持时读取全部.
+     */
+    default String getStdoutLog(String appId, String sparkHomePath, Long logBytes) throws Exception {
+
+        return getStdoutLog(appId, sparkHomePath);
+    }
+
     String getCustomJarStdoutLog(String appId, String sparkHomePath) throws Exception;
 
     String getWorkDataStr(String appId, String sparkHomePath) throws Exception;
@@ -0,0 +1,319 @@
+package com.isxcode.spark.agent.run.spark;
+
+import com.alibaba.fastjson.JSON;
+import com.isxcode.spark.agent.properties.SparkYunAgentProperties;
+import com.isxcode.spark.agent.run.yarn.YarnClientService;
+import com.isxcode.spark.api.agent.req.spark.SubmitWorkReq;
+import com.isxcode.spark.api.agent.res.spark.GetWorkDataRes;
+import com.isxcode.spark.api.work.constants.WorkType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.logging.log4j.util.Strings;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 查询作业的结果文件.
+ *
+ * <p>
+ * 查询插件把结果写到resultPath/实例id下，每行一个json数组，表头在_columns中，代理按行分页返回，不再解析驱动日志.
+ * 每个实例保留读取位置，顺序翻页时从上次的位置继续读取. 结果文件超过保留时间后由后台线程删除.
+ * </p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SparkResultService {
+
+    private static final String COLUMNS_FILE = "_columns";
+
+    /**
+     * 读取位置的空闲时间，超过后关闭文件.
+     */
+    private static final long CURSOR_IDLE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final SparkYunAgentProperties sparkYunAgentProperties;
+
+    private final YarnClientService yarnClientService;
+
+    private final Map<String, ResultCursor> cursors = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService cleanScheduler;
+
+    @PostConstruct
+    public void start() {
+
+        if (Strings.isEmpty(sparkYunAgentProperties.getResultPath())) {
+            return;
+        }
+
+        cleanScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sparkResultCleaner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cleanScheduler.scheduleWithFixedDelay(this::clean, 1, 10, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+
+        if (cleanScheduler != null) {
+            cleanScheduler.shutdownNow();
+        }
+        cursors.keySet().forEach(this::closeCursor);
+    }
+
+    /**
+     * 查询作业提交前配置结果目录，并清理上次运行的结果.
+     */
+    public void prepare(SubmitWorkReq submitWorkReq) throws IOException {
+
+        if (Strings.isEmpty(sparkYunAgentProperties.getResultPath()) || submitWorkReq.getPluginReq() == null
+            || !WorkType.QUERY_SPARK_SQL.equals(submitWorkReq.getWorkType())) {
+            return;
+        }
+
+        closeCursor(submitWorkReq.getWorkInstanceId());
+        Path resultPath = getResultPath(submitWorkReq.getWorkInstanceId());
+        FileSystem fileSystem = getFileSystem(resultPath);
+        if (fileSystem.exists(resultPath)) {
+            fileSystem.delete(resultPath, true);
+        }
+        submitWorkReq.getPluginReq().setResultPath(resultPath.toString());
+    }
+
+    /**
+     * 结果文件是否已经写完.
+     */
+    public boolean hasResult(String workInstanceId) throws IOException {
+
+        if (Strings.isEmpty(sparkYunAgentProperties.getResultPath()) || Strings.isEmpty(workInstanceId)) {
+            return false;
+        }
+
+        Path columnsPath = new Path(getResultPath(workInstanceId), COLUMNS_FILE);
+        return getFileSystem(columnsPath).exists(columnsPath);
+    }
+
+    /**
+     * 读取指定页，第一行为表头.
+     */
+    public GetWorkDataRes getResultPage(String workInstanceId, int page, int pageSize) throws IOException {
+
+        Path resultPath = getResultPath(workInstanceId);
+        FileSystem fileSystem = getFileSystem(resultPath);
+
+        List<List> data = new ArrayList<>(pageSize + 1);
+        data.add(JSON.parseArray(readFirstLine(fileSystem, new Path(resultPath, COLUMNS_FILE), false)));
+
+        // 顺序翻页时从上次的位置继续读，否则从头读取
+        long rowStart = (long) page * pageSize;
+        ResultCursor cursor = cursors.compute(workInstanceId, (k, v) -> {
+            if (v != null && v.nextRow <= rowStart) {
+                return v;
+            }
+            if (v != null) {
+                v.close();
+            }
+            return new ResultCursor(fileSystem, resultPath);
+        });
+
+        boolean hasMore;
+        synchronized (cursor) {
+            cursor.lastAccessTime = System.currentTimeMillis();
+            while (cursor.nextRow < rowStart) {
+                if (cursor.readLine() == null) {
+                    break;
+                }
+            }
+            String line;
+            while (data.size() <= pageSize && (line = cursor.readLine()) != null) {
+                data.add(JSON.parseArray(line));
+            }
+            hasMore = cursor.peekLine() != null;
+        }
+
+        // 最后一页读完后关闭文件，结果文件保留到过期
+        if (!hasMore) {
+            closeCursor(workInstanceId);
+        }
+        return GetWorkDataRes.builder().data(data).hasMore(hasMore).build();
+    }
+
+    /**
+     * 关闭空闲的读取位置，删除超过保留时间的结果文件.
+     */
+    private void clean() {
+
+        long now = System.currentTimeMillis();
+        cursors.forEach((k, v) -> {
+            if (now - v.lastAccessTime > CURSOR_IDLE_MILLIS) {
+                closeCursor(k);
+            }
+        });
+
+        try {
+            Path rootPath = new Path(sparkYunAgentProperties.getResultPath());
+            FileSystem fileSystem = getFileSystem(rootPath);
+            if (!fileSystem.exists(rootPath)) {
+                return;
+            }
+            long expireTime = now - TimeUnit.HOURS.toMillis(sparkYunAgentProperties.getResultTtl());
+            for (FileStatus fileStatus : fileSystem.listStatus(rootPath)) {
+                if (fileStatus.isDirectory() && fileStatus.getModificationTime() < expireTime
+                    && !cursors.containsKey(fileStatus.getPath().getName())) {
+                    fileSystem.delete(fileStatus.getPath(), true);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("清理查询结果文件异常: {}", e.getMessage(), e);
+        }
+    }
+
+    private void closeCursor(String workInstanceId) {
+
+        ResultCursor cursor = cursors.remove(workInstanceId);
+        if (cursor != null) {
+            cursor.close();
+        }
+    }
+
+    private List<FileStatus> listPartFiles(FileSystem fileSystem, Path resultPath) throws IOException {
+
+        List<FileStatus> partFiles = new ArrayList<>();
+        for (FileStatus fileStatus : fileSystem.listStatus(resultPath)) {
+            if (fileStatus.isFile() && fileStatus.getPath().getName().startsWith("part-")) {
+                partFiles.add(fileStatus);
+            }
+        }
+        partFiles.sort(Comparator.comparing(e -> e.getPath().getName()));
+        return partFiles;
+    }
+
+    private String readFirstLine(FileSystem fileSystem, Path path, boolean gzip) throws IOException {
+
+        try (BufferedReader reader = openReader(fileSystem, path, gzip)) {
+            return reader.readLine();
+        }
+    }
+
+    private BufferedReader openReader(FileSystem fileSystem, Path path) throws IOException {
+
+        return openReader(fileSystem, path, path.getName().endsWith(".gz"));
+    }
+
+    private BufferedReader openReader(FileSystem fileSystem, Path path, boolean gzip) throws IOException {
+
+        InputStream inputStream = fileSystem.open(path);
+        if (gzip) {
+            inputStream = new GZIPInputStream(inputStream);
+        }
+        return new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    private Path getResultPath(String workInstanceId) {
+
+        return new Path(sparkYunAgentProperties.getResultPath(), workInstanceId);
+    }
+
+    private FileSystem getFileSystem(Path path) throws IOException {
+
+        return path.getFileSystem(yarnClientService.getYarnConfiguration());
+    }
+
+    /**
+     * 实例结果的读取位置，记录当前分片文件和下一行的行号.
+     */
+    private class ResultCursor {
+
+        private final FileSystem fileSystem;
+
+        private final List<FileStatus> partFiles;
+
+        private int fileIndex = -1;
+
+        private BufferedReader reader;
+
+        private String nextLine;
+
+        private long nextRow;
+
+        private long lastAccessTime = System.currentTimeMillis();
+
+        private ResultCursor(FileSystem fileSystem, Path resultPath) {
+
+            this.fileSystem = fileSystem;
+            try {
+                this.partFiles = listPartFiles(fileSystem, resultPath);
+            } catch (IOException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        }
+
+        private String readLine() throws IOException {
+
+            String line = peekLine();
+            if (line != null) {
+                nextLine = null;
+                nextRow++;
+            }
+            return line;
+        }
+
+        /**
+         * 按文件名顺序读取分片，跳过空行.
+         */
+        private String peekLine() throws IOException {
+
+            while (nextLine == null) {
+                if (reader == null) {
+                    if (fileIndex + 1 >= partFiles.size()) {
+                        return null;
+                    }
+                    reader = openReader(fileSystem, partFiles.get(++fileIndex).getPath());
+                }
+                String line = reader.readLine();
+                if (line == null) {
+                    reader.close();
+                    reader = null;
+                } else if (!line.isEmpty()) {
+                    nextLine = line;
+                }
+            }
+            return nextLine;
+        }
+
+        private synchronized void close() {
+
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    log.debug("关闭查询结果文件异常: {}", e.getMessage());
+                }
+                reader = null;
+            }
+            fileIndex = partFiles.size();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.isxcode.spark.agent.run.spark;
+
+import com.alibaba.fastjson.JSON;
+import com.isxcode.spark.agent.properties.SparkYunAgentProperties;
+import com.isxcode.spark.agent.run.yarn.YarnClientService;
+import com.isxcode.spark.api.agent.req.spark.GetSyncProgressReq;
+import com.isxcode.spark.api.agent.req.spark.SubmitWorkReq;
+import com.isxcode.spark.api.agent.res.spark.GetSyncProgressRes;
+import com.isxcode.spark.api.work.constants.WorkType;
+import com.isxcode.spark.api.work.dto.SyncPartition;
+import lombok.RequiredArgsConstructor;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.logging.log4j.util.Strings;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.stream.Collectors;
+
+/**
+ * 数据同步的分区进度.
+ *
+ * <p>
+ * 同步插件把分区条件写到progressPath/实例id/_partitions，每完成一批分区写一个partition-序号文件，重跑时跳过已完成的分区.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+public class SparkSyncProgressService {
+
+    private static final String PARTITIONS_FILE = "_partitions";
+
+    private static final String PARTITION_PREFIX = "partition-";
+
+    private final SparkYunAgentProperties sparkYunAgentProperties;
+
+    private final YarnClientService yarnClientService;
+
+    /**
+     * 数据同步作业提交前配置进度目录，不续跑时清理上次的进度.
+     */
+    public void prepare(SubmitWorkReq submitWorkReq) throws IOException {
+
+        if (Strings.isEmpty(sparkYunAgentProperties.getProgressPath()) || submitWorkReq.getPluginReq() == null
+            || !WorkType.DATA_SYNC_JDBC.equals(submitWorkReq.getWorkType())) {
+            return;
+        }
+
+        Path progressPath = getProgressPath(submitWorkReq.getWorkInstanceId());
+        FileSystem fileSystem = getFileSystem(progressPath);
+        if (!Boolean.TRUE.equals(submitWorkReq.getPluginReq().getResume()) && fileSystem.exists(progressPath)) {
+            fileSystem.delete(progressPath, true);
+        }
+        submitWorkReq.getPluginReq().setProgressPath(progressPath.toString());
+    }
+
+    /**
+     * 读取已完成的分区，没有进度文件时分区总数为0.
+     */
+    public GetSyncProgressRes getProgress(GetSyncProgressReq getSyncProgressReq) throws IOException {
+
+        GetSyncProgressRes res = GetSyncProgressRes.builder().partitionTotal(0).partitions(new ArrayList<>()).build();
+        if (Strings.isEmpty(sparkYunAgentProperties.getProgressPath())
+            || Strings.isEmpty(getSyncProgressReq.getWorkInstanceId())) {
+            return res;
+        }
+
+        Path progressPath = getProgressPath(getSyncProgressReq.getWorkInstanceId());
+        FileSystem fileSystem = getFileSystem(progressPath);
+        Path partitionsPath = new Path(progressPath, PARTITIONS_FILE);
+        if (!fileSystem.exists(partitionsPath)) {
+            return res;
+        }
+
+        res.setPartitionTotal(JSON.parseObject(readFile(fileSystem, partitionsPath)).getJSONArray("predicates").size());
+        for (FileStatus fileStatus : fileSystem.listStatus(progressPath)) {
+            if (fileStatus.isFile() && fileStatus.getPath().getName().startsWith(PARTITION_PREFIX)) {
+                res.getPartitions()
+                    .add(JSON.parseObject(readFile(fileSystem, fileStatus.getPath()), SyncPartition.class));
+            }
+        }
+        res.getPartitions().sort(Comparator.comparing(SyncPartition::getIndex));
+
+        if (Boolean.TRUE.equals(getSyncProgressReq.getClean())) {
+            fileSystem.delete(progressPath, true);
+        }
+        return res;
+    }
+
+    private String readFile(FileSystem fileSystem, Path path) throws IOException {
+
+        try (BufferedReader reader =
+            new BufferedReader(new InputStreamReader(fileSystem.open(path), StandardCharsets.UTF_8))) {
+            return reader.lines().collect(Collectors.joining("\n"));
+        }
+    }
+
+    private Path getProgressPath(String workInstanceId) {
+
+        return new Path(sparkYunAgentProperties.getProgressPath(), workInstanceId);
+    }
+
+    private FileSystem getFileSystem(Path path) throws IOException {
+
+        return path.getFileSystem(yarnClientService.getYarnConfiguration());
+    }
+}
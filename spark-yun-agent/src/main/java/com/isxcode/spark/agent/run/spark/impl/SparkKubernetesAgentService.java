@@ -3,6 +3,7 @@ package com.isxcode.spark.agent.run.spark.impl;
 import cn.hutool.core.io.FileUtil;
 import com.alibaba.fastjson2.JSON;
 import com.isxcode.spark.agent.run.spark.SparkAgentService;
+import com.isxcode.spark.agent.utils.KubernetesUtils;
 import com.isxcode.spark.api.agent.constants.AgentKubernetes;
 import com.isxcode.spark.api.agent.constants.AgentType;
 import com.isxcode.spark.api.agent.req.spark.SubmitWorkReq;
@@ -359,6 +360,17 @@ public class SparkKubernetesAgentService implements SparkAgentService {
         throw new Exception("获取状态异常");
     }
 
+    @Override
+    public Map<String, GetWorkInfoRes> getWorkInfos(List<String> podNames, String sparkHomePath) throws Exception {
+
+        // 一次查询命名空间下所有pod，pod不存在说明已经被删除
+        Map<String, String> podStatus = KubernetesUtils.getPodStatus(null, null);
+        Map<String, GetWorkInfoRes> workInfos = new HashMap<>();
+        podNames.forEach(podName -> workInfos.put(podName, GetWorkInfoRes.builder().appId(podName)
+            .finalState(podStatus.getOrDefault(podName, "KILLED")).build()));
+        return workInfos;
+    }
+
     @Override
     public String getStderrLog(String appId, String sparkHomePath) throws Exception {
 
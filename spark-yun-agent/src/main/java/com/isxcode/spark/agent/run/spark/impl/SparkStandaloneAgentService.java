@@ -30,6 +30,7 @@ import java.net.MalformedURLException;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -211,6 +212,24 @@ public class SparkStandaloneAgentService implements SparkAgentService {
     @Override
     public GetWorkInfoRes getWorkInfo(String submissionId, String sparkHomePath) throws Exception {
 
+        Map<String, String> apps = getDriverStates(sparkHomePath);
+        return GetWorkInfoRes.builder().appId(submissionId).finalState(apps.get(submissionId)).build();
+    }
+
+    @Override
+    public Map<String, GetWorkInfoRes> getWorkInfos(List<String> submissionIds, String sparkHomePath)
+        throws Exception {
+
+        // 一次获取master页面的所有driver状态
+        Map<String, String> apps = getDriverStates(sparkHomePath);
+        Map<String, GetWorkInfoRes> workInfos = new HashMap<>();
+        submissionIds.forEach(submissionId -> workInfos.put(submissionId,
+            GetWorkInfoRes.builder().appId(submissionId).finalState(apps.get(submissionId)).build()));
+        return workInfos;
+    }
+
+    private Map<String, String> getDriverStates(String sparkHomePath) throws Exception {
+
         Document doc = Jsoup.connect(getMasterWebUrl(sparkHomePath)).get();
 
         Element completedDriversTable = doc.selectFirst(".aggregated-completedDrivers table");
@@ -232,7 +251,7 @@ public class SparkStandaloneAgentService implements SparkAgentService {
             apps.put(row.selectFirst("td:nth-child(1)").text().replace(" (kill)", ""), row.select("td").get(3).text());
         }
 
-        return GetWorkInfoRes.builder().appId(submissionId).finalState(apps.get(submissionId)).build();
+        return apps;
     }
 
     @Override
@@ -3,12 +3,15 @@ package com.isxcode.spark.agent.run.spark.impl;
 import com.alibaba.fastjson2.JSON;
 import com.isxcode.spark.agent.properties.SparkYunAgentProperties;
 import com.isxcode.spark.agent.run.spark.SparkAgentService;
+import com.isxcode.spark.agent.run.yarn.YarnClientService;
+import com.isxcode.spark.agent.utils.YarnUtils;
 import com.isxcode.spark.api.agent.constants.AgentType;
 import com.isxcode.spark.api.agent.req.spark.SubmitWorkReq;
 import com.isxcode.spark.api.agent.res.spark.GetWorkInfoRes;
 import com.isxcode.spark.api.work.constants.WorkType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.yarn.api.records.ApplicationReport;
 import org.apache.logging.log4j.util.Strings;
 import org.apache.spark.launcher.SparkLauncher;
 import org.springframework.stereotype.Service;
@@ -18,6 +21,8 @@ import java.net.MalformedURLException;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -29,6 +34,8 @@ public class SparkYarnAgentService implements SparkAgentService {
 
     private final SparkYunAgentProperties sparkYunAgentProperties;
 
+    private final YarnClientService yarnClientService;
+
     public static String YARN_LOG_STDOUT_REGEX = "\nLogType:stdout\\s*([\\s\\S]*?)\\s*End of LogType:stdout";
 
     public static String YARN_LOG_STDERR_REGEX = "\nLogType:stderr\\s*([\\s\\S]*?)\\s*End of LogType:stderr";
@@ -195,6 +202,16 @@ public class SparkYarnAgentService implements SparkAgentService {
     @Override
     public GetWorkInfoRes getWorkInfo(String appId, String sparkHomePath) throws Exception {
 
+        if (useYarnClient()) {
+            try {
+                ApplicationReport report = yarnClientService.getApplicationReport(appId);
+                return GetWorkInfoRes.builder().appId(appId).finalState(report.getFinalApplicationStatus().name())
+                    .appState(report.getYarnApplicationState().name()).build();
+            } catch (Exception e) {
+                log.warn("yarn客户端获取作业状态异常，改用yarn命令: {}", e.getMessage());
+            }
+        }
+
         String getStatusCmdFormat = "yarn application -status %s";
 
         Process process = Runtime.getRuntime().exec(String.format(getStatusCmdFormat, appId));
@@ -247,79 +264,66 @@ public class SparkYarnAgentService implements SparkAgentService {
     }
 
     @Override
-    public String getStdoutLog(String appId, String sparkHomePath) throws Exception {
+    public Map<String, GetWorkInfoRes> getWorkInfos(List<String> appIds, String sparkHomePath) throws Exception {
+
+        Map<String, GetWorkInfoRes> workInfos = new HashMap<>();
+        if (useYarnClient()) {
+            try {
+                yarnClientService.getApplicationReports(appIds, "SPARK")
+                    .forEach((appId, report) -> workInfos.put(appId,
+                        GetWorkInfoRes.builder().appId(appId).finalState(report.getFinalApplicationStatus().name())
+                            .appState(report.getYarnApplicationState().name()).build()));
+                return workInfos;
+            } catch (Exception e) {
+                log.warn("yarn客户端获取作业状态异常，改用yarn命令: {}", e.getMessage());
+            }
+        }
 
-        String getLogCmdFormat = "yarn logs -applicationId %s";
-        Process process = Runtime.getRuntime().exec(String.format(getLogCmdFormat, appId));
+        YarnUtils.getAppStatus(appIds, "SPARK").forEach((appId, status) -> workInfos.put(appId, GetWorkInfoRes.builder()
+            .appId(appId).finalState(status.getFinalState()).appState(status.getAppState()).build()));
+        return workInfos;
+    }
 
-        InputStream inputStream = process.getInputStream();
-        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    @Override
+    public String getStdoutLog(String appId, String sparkHomePath) throws Exception {
 
-        StringBuilder errLog = new StringBuilder();
-        String line;
-        while ((line = reader.readLine()) != null) {
-            errLog.append(line).append("\n");
-        }
+        return getStdoutLog(appId, sparkHomePath, null);
+    }
 
-        try {
-            int exitCode = process.waitFor();
-            if (exitCode == 1) {
-                throw new Exception(errLog.toString());
-            } else {
-                Pattern regex = Pattern.compile(YARN_LOG_STDOUT_REGEX);
-                Matcher matcher = regex.matcher(errLog);
-                String log = "";
-                while (matcher.find()) {
-                    String tmpLog = matcher.group();
-                    if (tmpLog.contains("ERROR")) {
-                        log = tmpLog;
-                        break;
-                    }
-                    if (tmpLog.length() > log.length()) {
-                        log = tmpLog;
-                    }
-                }
-                return log;
+    @Override
+    public String getStdoutLog(String appId, String sparkHomePath, Long logBytes) throws Exception {
+
+        String errLog = getYarnLog(appId, "stdout", logBytes);
+
+        Pattern regex = Pattern.compile(YARN_LOG_STDOUT_REGEX);
+        Matcher matcher = regex.matcher(errLog);
+        String log = "";
+        while (matcher.find()) {
+            String tmpLog = matcher.group();
+            if (tmpLog.contains("ERROR")) {
+                log = tmpLog;
+                break;
+            }
+            if (tmpLog.length() > log.length()) {
+                log = tmpLog;
             }
-        } catch (InterruptedException e) {
-            log.error(e.getMessage(), e);
-            throw new Exception(e.getMessage());
         }
+        return log;
     }
 
     @Override
     public String getCustomJarStdoutLog(String appId, String sparkHomePath) throws Exception {
 
-        String getLogCmdFormat = "yarn logs -applicationId %s";
-        Process process = Runtime.getRuntime().exec(String.format(getLogCmdFormat, appId));
-
-        InputStream inputStream = process.getInputStream();
-        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
-
-        StringBuilder errLog = new StringBuilder();
-        String line;
-        while ((line = reader.readLine()) != null) {
-            errLog.append(line).append("\n");
-        }
+        String errLog = getYarnLog(appId, "stdout");
 
-        try {
-            int exitCode = process.waitFor();
-            if (exitCode == 1) {
-                throw new Exception(errLog.toString());
-            } else {
-                Pattern regex = Pattern.compile(YARN_LOG_STDOUT_REGEX);
-                Matcher matcher = regex.matcher(errLog);
-                while (matcher.find()) {
-                    String matchedContent = matcher.group(1);
-                    if (matchedContent.contains("LogLength:0")) {
-                        continue;
-                    }
-                    return matchedContent.replace("LogType:stdout\n", "").replace("\nEnd of LogType:stdout", "");
-                }
+        Pattern regex = Pattern.compile(YARN_LOG_STDOUT_REGEX);
+        Matcher matcher = regex.matcher(errLog);
+        while (matcher.find()) {
+            String matchedContent = matcher.group(1);
+            if (matchedContent.contains("LogLength:0")) {
+                continue;
             }
-        } catch (InterruptedException e) {
-            log.error(e.getMessage(), e);
-            throw new Exception(e.getMessage());
+            return matchedContent.replace("LogType:stdout\n", "").replace("\nEnd of LogType:stdout", "");
         }
         return "日志未生成";
     }
@@ -327,50 +331,58 @@ public class SparkYarnAgentService implements SparkAgentService {
     @Override
     public String getStderrLog(String appId, String sparkHomePath) throws Exception {
 
-        String getLogCmdFormat = "yarn logs -applicationId %s";
-        Process process = Runtime.getRuntime().exec(String.format(getLogCmdFormat, appId));
-
-        InputStream inputStream = process.getInputStream();
-        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
-
-        StringBuilder errLog = new StringBuilder();
-        String line;
-        while ((line = reader.readLine()) != null) {
-            errLog.append(line).append("\n");
-        }
+        return getStderrLog(appId, sparkHomePath, null);
+    }
 
-        try {
-            int exitCode = process.waitFor();
-            if (exitCode == 1) {
-                throw new Exception(errLog.toString());
-            } else {
-                Pattern regex = Pattern.compile(YARN_LOG_STDERR_REGEX);
-                Matcher matcher = regex.matcher(errLog);
-                String log = "";
-                while (matcher.find()) {
-                    String tmpLog = matcher.group();
-                    if (tmpLog.contains("ERROR")) {
-                        log = tmpLog;
-                        break;
-                    }
-                    if (tmpLog.length() > log.length()) {
-                        log = tmpLog;
-                    }
-                }
-                return log;
+    @Override
+    public String getStderrLog(String appId, String sparkHomePath, Long logBytes) throws Exception {
+
+        String errLog = getYarnLog(appId, "stderr", logBytes);
+
+        Pattern regex = Pattern.compile(YARN_LOG_STDERR_REGEX);
+        Matcher matcher = regex.matcher(errLog);
+        String log = "";
+        while (matcher.find()) {
+            String tmpLog = matcher.group();
+            if (tmpLog.contains("ERROR")) {
+                log = tmpLog;
+                break;
+            }
+            if (tmpLog.length() > log.length()) {
+                log = tmpLog;
             }
-        } catch (InterruptedException e) {
-            log.error(e.getMessage(), e);
-            throw new Exception(e.getMessage());
         }
+        return log;
     }
 
     @Override
     public String getWorkDataStr(String appId, String sparkHomePath) throws Exception {
 
-        String getLogCmdFormat = "yarn logs -applicationId %s";
+        String errLog = getYarnLog(appId, "spark-yun");
 
-        Process process = Runtime.getRuntime().exec(String.format(getLogCmdFormat, appId));
+        Pattern regex = Pattern.compile(YARN_LOG_RESULT_REGEX);
+        Matcher matcher = regex.matcher(errLog);
+        String log = "";
+        while (matcher.find() && Strings.isEmpty(log)) {
+            log = matcher.group().replace("LogType:spark-yun\n", "").replace("\nEnd of LogType:spark-yun", "");
+        }
+        return log;
+    }
+
+    @Override
+    public void stopWork(String appId, String sparkHomePath, String agentHomePath) throws Exception {
+
+        if (useYarnClient()) {
+            try {
+                yarnClientService.killApplication(appId);
+                return;
+            } catch (Exception e) {
+                log.warn("yarn客户端中止作业异常，改用yarn命令: {}", e.getMessage());
+            }
+        }
+
+        String killAppCmdFormat = "yarn application -kill %s";
+        Process process = Runtime.getRuntime().exec(String.format(killAppCmdFormat, appId));
 
         InputStream inputStream = process.getInputStream();
         BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
@@ -385,14 +397,6 @@ public class SparkYarnAgentService implements SparkAgentService {
             int exitCode = process.waitFor();
             if (exitCode == 1) {
                 throw new Exception(errLog.toString());
-            } else {
-                Pattern regex = Pattern.compile(YARN_LOG_RESULT_REGEX);
-                Matcher matcher = regex.matcher(errLog);
-                String log = "";
-                while (matcher.find() && Strings.isEmpty(log)) {
-                    log = matcher.group().replace("LogType:spark-yun\n", "").replace("\nEnd of LogType:spark-yun", "");
-                }
-                return log;
             }
         } catch (InterruptedException e) {
             log.error(e.getMessage(), e);
@@ -401,10 +405,39 @@ public class SparkYarnAgentService implements SparkAgentService {
     }
 
     @Override
-    public void stopWork(String appId, String sparkHomePath, String agentHomePath) throws Exception {
+    public Map<String, String> submitWorkForPySpark(SparkLauncher sparkLauncher) throws Exception {
+        return Collections.emptyMap();
+    }
 
-        String killAppCmdFormat = "yarn application -kill %s";
-        Process process = Runtime.getRuntime().exec(String.format(killAppCmdFormat, appId));
+    private boolean useYarnClient() {
+
+        return !"cli".equalsIgnoreCase(sparkYunAgentProperties.getYarnMode());
+    }
+
+    private String getYarnLog(String appId, String logType) throws Exception {
+
+        return getYarnLog(appId, logType, null);
+    }
+
+    /**
+     * 获取yarn日志，yarn客户端只读取指定类型和字节范围的聚合日志，日志未聚合时使用yarn命令获取全部日志.
+     */
+    private String getYarnLog(String appId, String logType, Long logBytes) throws Exception {
+
+        if (useYarnClient()) {
+            try {
+                String aggregatedLog = yarnClientService.getAggregatedLog(appId, logType, null,
+                    logBytes == null ? Long.MAX_VALUE : logBytes);
+                if (aggregatedLog != null) {
+                    return aggregatedLog;
+                }
+            } catch (Exception e) {
+                log.warn("yarn客户端获取日志异常，改用yarn命令: {}", e.getMessage());
+            }
+        }
+
+        String getLogCmdFormat = "yarn logs -applicationId %s";
+        Process process = Runtime.getRuntime().exec(String.format(getLogCmdFormat, appId));
 
         InputStream inputStream = process.getInputStream();
         BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
@@ -424,10 +457,6 @@ public class SparkYarnAgentService implements SparkAgentService {
             log.error(e.getMessage(), e);
             throw new Exception(e.getMessage());
         }
-    }
-
-    @Override
-    public Map<String, String> submitWorkForPySpark(SparkLauncher sparkLauncher) throws Exception {
-        return Collections.emptyMap();
+        return errLog.toString();
     }
 }
@@ -0,0 +1,157 @@
+package com.isxcode.spark.agent.run.yarn;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.ApplicationReport;
+import org.apache.hadoop.yarn.api.records.YarnApplicationState;
+import org.apache.hadoop.yarn.client.api.YarnClient;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.logaggregation.ContainerLogsRequest;
+import org.apache.hadoop.yarn.logaggregation.filecontroller.LogAggregationFileController;
+import org.apache.hadoop.yarn.logaggregation.filecontroller.LogAggregationFileControllerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 常驻的yarn客户端.
+ *
+ * <p>
+ * 直接请求resourceManager获取状态和中止作业，日志只读取聚合日志中指定的容器和类型，避免每次启动yarn命令.
+ * </p>
+ */
+@Slf4j
+@Service
+public class YarnClientService {
+
+    private volatile YarnConfiguration yarnConfiguration;
+
+    private volatile YarnClient yarnClient;
+
+    @PreDestroy
+    public synchronized void close() {
+
+        if (yarnClient != null) {
+            yarnClient.stop();
+            yarnClient = null;
+        }
+    }
+
+    /**
+     * 获取作业报告.
+     */
+    public ApplicationReport getApplicationReport(String appId) throws Exception {
+
+        return getYarnClient().getApplicationReport(ApplicationId.fromString(appId));
+    }
+
+    /**
+     * 一次请求获取多个作业的报告，只拉取指定类型的作业，key为appId.
+     */
+    public Map<String, ApplicationReport> getApplicationReports(Collection<String> appIds, String appType)
+        throws Exception {
+
+        Set<String> appIdSet = new HashSet<>(appIds);
+        Map<String, ApplicationReport> reports = new HashMap<>();
+        for (ApplicationReport report : getYarnClient().getApplications(Collections.singleton(appType))) {
+            String appId = report.getApplicationId().toString();
+            if (appIdSet.contains(appId)) {
+                reports.put(appId, report);
+            }
+        }
+        return reports;
+    }
+
+    /**
+     * 中止作业.
+     */
+    public void killApplication(String appId) throws Exception {
+
+        getYarnClient().killApplication(ApplicationId.fromString(appId));
+    }
+
+    /**
+     * 读取聚合日志，格式和yarn logs命令一致.
+     *
+     * @param appId 作业id
+     * @param logType 日志类型，比如stdout
+     * @param containerId 容器id，为空时读取所有容器
+     * @param bytes 读取的字节数，负数表示读取末尾
+     * @return 日志还未聚合时返回null
+     */
+    public String getAggregatedLog(String appId, String logType, String containerId, long bytes) throws Exception {
+
+        ApplicationReport report = getApplicationReport(appId);
+        if (!isFinished(report.getYarnApplicationState())) {
+            return null;
+        }
+
+        ApplicationId applicationId = report.getApplicationId();
+        ContainerLogsRequest logsRequest = new ContainerLogsRequest();
+        logsRequest.setAppId(applicationId);
+        logsRequest.setAppOwner(report.getUser());
+        logsRequest.setAppFinished(true);
+        logsRequest.setContainerId(containerId);
+        logsRequest.setLogTypes(Collections.singleton(logType));
+        logsRequest.setBytes(bytes);
+
+        LogAggregationFileController fileController = new LogAggregationFileControllerFactory(getYarnConfiguration())
+            .getFileControllerForRead(applicationId, report.getUser());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        if (!fileController.readAggregatedLogs(logsRequest, outputStream)) {
+            return null;
+        }
+        return "\n" + new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private boolean isFinished(YarnApplicationState state) {
+
+        return YarnApplicationState.FINISHED.equals(state) || YarnApplicationState.FAILED.equals(state)
+            || YarnApplicationState.KILLED.equals(state);
+    }
+
+    private YarnClient getYarnClient() {
+
+        if (yarnClient == null) {
+            synchronized (this) {
+                if (yarnClient == null) {
+                    YarnClient client = YarnClient.createYarnClient();
+                    client.init(getYarnConfiguration());
+                    client.start();
+                    yarnClient = client;
+                }
+            }
+        }
+        return yarnClient;
+    }
+
+    /**
+     * 读取HADOOP_CONF_DIR下的hadoop配置.
+     */
+    public YarnConfiguration getYarnConfiguration() {
+
+        if (yarnConfiguration == null) {
+            synchronized (this) {
+                if (yarnConfiguration == null) {
+                    YarnConfiguration conf = new YarnConfiguration();
+                    String hadoopConfDir = System.getenv("HADOOP_CONF_DIR");
+                    if (hadoopConfDir != null) {
+                        for (String siteFile : Arrays.asList("core-site.xml", "hdfs-site.xml", "yarn-site.xml")) {
+                            File file = new File(hadoopConfDir, siteFile);
+                            if (file.exists()) {
+                                conf.addResource(new Path(file.getAbsolutePath()));
+                            }
+                        }
+                    }
+                    yarnConfiguration = conf;
+                }
+            }
+        }
+        return yarnConfiguration;
+    }
+}
@@ -3,10 +3,12 @@ package com.isxcode.spark.agent.service;
 import com.isxcode.spark.agent.run.flink.FlinkAgentFactory;
 import com.isxcode.spark.agent.run.flink.FlinkAgentService;
 import com.isxcode.spark.api.agent.req.flink.GetWorkInfoReq;
+import com.isxcode.spark.api.agent.req.flink.GetWorkInfosReq;
 import com.isxcode.spark.api.agent.req.flink.GetWorkLogReq;
 import com.isxcode.spark.api.agent.req.flink.StopWorkReq;
 import com.isxcode.spark.api.agent.req.flink.SubmitWorkReq;
 import com.isxcode.spark.api.agent.res.flink.GetWorkInfoRes;
+import com.isxcode.spark.api.agent.res.flink.GetWorkInfosRes;
 import com.isxcode.spark.api.agent.res.flink.GetWorkLogRes;
 import com.isxcode.spark.api.agent.res.flink.StopWorkRes;
 import com.isxcode.spark.api.agent.res.flink.SubmitWorkRes;
@@ -17,6 +19,9 @@ import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 @Slf4j
@@ -48,6 +53,38 @@ public class FlinkAgentBizService {
         }
     }
 
+    public GetWorkInfosRes getWorkInfos(GetWorkInfosReq getWorkInfosReq) {
+
+        FlinkAgentService agentService = agentFactory.getAgentService(getWorkInfosReq.getClusterType());
+
+        // 优先一次查询所有作业
+        Map<String, GetWorkInfoRes> workInfoMap;
+        try {
+            workInfoMap = agentService.getWorkInfos(getWorkInfosReq);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            throw new IsxAppException(e.getMessage());
+        }
+
+        // 没有查到的作业单独查询，查询失败的不返回
+        List<GetWorkInfoRes> workInfos = new ArrayList<>();
+        for (String appId : getWorkInfosReq.getAppIds()) {
+            GetWorkInfoRes workInfo = workInfoMap.get(appId);
+            if (workInfo == null) {
+                try {
+                    workInfo = agentService.getWorkInfo(GetWorkInfoReq.builder().appId(appId)
+                        .agentHome(getWorkInfosReq.getAgentHome()).clusterType(getWorkInfosReq.getClusterType())
+                        .flinkHome(getWorkInfosReq.getFlinkHome()).build());
+                } catch (Exception e) {
+                    log.error(e.getMessage(), e);
+                    continue;
+                }
+            }
+            workInfos.add(workInfo);
+        }
+        return GetWorkInfosRes.builder().workInfos(workInfos).build();
+    }
+
     public GetWorkLogRes getWorkLog(GetWorkLogReq getWorkLogReq) {
 
         try {
@@ -1,8 +1,11 @@
 package com.isxcode.spark.agent.service;
 
 import com.alibaba.fastjson.JSON;
+import com.isxcode.spark.agent.monitor.NodeMonitorService;
 import com.isxcode.spark.agent.run.spark.SparkAgentFactory;
 import com.isxcode.spark.agent.run.spark.SparkAgentService;
+import com.isxcode.spark.agent.run.spark.SparkResultService;
+import com.isxcode.spark.agent.run.spark.SparkSyncProgressService;
 import com.isxcode.spark.api.agent.req.spark.*;
 import com.isxcode.spark.api.agent.res.spark.*;
 import com.isxcode.spark.backend.api.base.exceptions.IsxAppException;
@@ -15,6 +18,7 @@ import org.springframework.web.client.RestTemplate;
 
 import java.io.IOException;
 import java.net.ServerSocket;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -24,12 +28,25 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class SparkAgentBizService {
 
+    /**
+     * 只打印最后一行日志时读取的日志末尾字节数.
+     */
+    private static final long LAST_LINE_LOG_BYTES = 8192;
+
     private final SparkAgentFactory agentFactory;
 
+    private final SparkResultService sparkResultService;
+
+    private final SparkSyncProgressService sparkSyncProgressService;
+
+    private final NodeMonitorService nodeMonitorService;
+
     public SubmitWorkRes submitWork(SubmitWorkReq submitWorkReq) {
 
         try {
             SparkAgentService agentService = agentFactory.getAgentService(submitWorkReq.getClusterType());
+            sparkResultService.prepare(submitWorkReq);
+            sparkSyncProgressService.prepare(submitWorkReq);
             SparkLauncher sparkLauncher = agentService.getSparkLauncher(submitWorkReq);
             String appId = agentService.submitWork(sparkLauncher);
             return SubmitWorkRes.builder().appId(appId).build();
@@ -63,12 +80,42 @@ public class SparkAgentBizService {
         }
     }
 
+    public GetWorkInfosRes getWorkInfos(GetWorkInfosReq getWorkInfosReq) {
+
+        SparkAgentService agentService = agentFactory.getAgentService(getWorkInfosReq.getClusterType());
+
+        // 优先一次查询所有作业
+        Map<String, GetWorkInfoRes> workInfoMap;
+        try {
+            workInfoMap = agentService.getWorkInfos(getWorkInfosReq.getAppIds(), getWorkInfosReq.getSparkHomePath());
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            throw new IsxAppException(e.getMessage());
+        }
+
+        // 没有查到的作业单独查询，查询失败的不返回
+        List<GetWorkInfoRes> workInfos = new ArrayList<>();
+        for (String appId : getWorkInfosReq.getAppIds()) {
+            GetWorkInfoRes workInfo = workInfoMap.get(appId);
+            if (workInfo == null) {
+                try {
+                    workInfo = agentService.getWorkInfo(appId, getWorkInfosReq.getSparkHomePath());
+                } catch (Exception e) {
+                    log.error(e.getMessage(), e);
+                    continue;
+                }
+            }
+            workInfos.add(workInfo);
+        }
+        return GetWorkInfosRes.builder().workInfos(workInfos).build();
+    }
+
     public GetWorkStderrLogRes getWorkStderrLog(GetWorkStderrLogReq getWorkStderrLogReq) {
 
         try {
             SparkAgentService agentService = agentFactory.getAgentService(getWorkStderrLogReq.getClusterType());
-            String appLog =
-                agentService.getStderrLog(getWorkStderrLogReq.getAppId(), getWorkStderrLogReq.getSparkHomePath());
+            String appLog = agentService.getStderrLog(getWorkStderrLogReq.getAppId(),
+                getWorkStderrLogReq.getSparkHomePath(), getWorkStderrLogReq.getLogBytes());
             return GetWorkStderrLogRes.builder().log(appLog).build();
         } catch (Exception e) {
             log.error(e.getMessage(), e);
@@ -80,8 +127,8 @@ public class SparkAgentBizService {
 
         try {
             SparkAgentService agentService = agentFactory.getAgentService(getWorkStdoutLogReq.getClusterType());
-            String appLog =
-                agentService.getStdoutLog(getWorkStdoutLogReq.getAppId(), getWorkStdoutLogReq.getSparkHomePath());
+            String appLog = agentService.getStdoutLog(getWorkStdoutLogReq.getAppId(),
+                getWorkStdoutLogReq.getSparkHomePath(), getWorkStdoutLogReq.getLogBytes());
             return GetWorkStdoutLogRes.builder().log(appLog).build();
         } catch (Exception e) {
             log.error(e.getMessage(), e);
@@ -107,8 +154,11 @@ public class SparkAgentBizService {
 
         try {
             SparkAgentService agentService = agentFactory.getAgentService(getWorkStdoutLogReq.getClusterType());
-            String appLog =
-                agentService.getStdoutLog(getWorkStdoutLogReq.getAppId(), getWorkStdoutLogReq.getSparkHomePath());
+            // 只需要最后一行，默认只读取日志末尾
+            Long logBytes = getWorkStdoutLogReq.getLogBytes() == null ? -LAST_LINE_LOG_BYTES
+                : getWorkStdoutLogReq.getLogBytes();
+            String appLog = agentService.getStdoutLog(getWorkStdoutLogReq.getAppId(),
+                getWorkStdoutLogReq.getSparkHomePath(), logBytes);
 
             // 只截取后1行的日志,用于打印
             appLog = appLog.replace("End of LogType:stdout", "").replace("LogType:stdout-start", "");
@@ -129,6 +179,13 @@ public class SparkAgentBizService {
     public GetWorkDataRes getWorkData(GetWorkDataReq getWorkDataReq) {
 
         try {
+            // 优先分页读取结果文件，没有结果文件再解析日志
+            if (sparkResultService.hasResult(getWorkDataReq.getWorkInstanceId())) {
+                return sparkResultService.getResultPage(getWorkDataReq.getWorkInstanceId(),
+                    getWorkDataReq.getPage() == null ? 0 : getWorkDataReq.getPage(),
+                    getWorkDataReq.getPageSize() == null ? 1000 : getWorkDataReq.getPageSize());
+            }
+
             SparkAgentService agentService = agentFactory.getAgentService(getWorkDataReq.getClusterType());
             String workDataStr =
                 agentService.getWorkDataStr(getWorkDataReq.getAppId(), getWorkDataReq.getSparkHomePath());
@@ -139,6 +196,22 @@ public class SparkAgentBizService {
         }
     }
 
+    public GetSyncProgressRes getSyncProgress(GetSyncProgressReq getSyncProgressReq) {
+
+        try {
+            return sparkSyncProgressService.getProgress(getSyncProgressReq);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            throw new IsxAppException(e.getMessage());
+        }
+    }
+
+    public GetNodeMonitorRes getNodeMonitor(GetNodeMonitorReq getNodeMonitorReq) {
+
+        return GetNodeMonitorRes.builder().monitors(nodeMonitorService.getSamples(getNodeMonitorReq.getSince()))
+            .build();
+    }
+
     public void stopWork(StopWorkReq stopWorkReq) {
 
         try {
@@ -0,0 +1,63 @@
+package com.isxcode.spark.agent.utils;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * kubectl命令工具类.
+ */
+public class KubernetesUtils {
+
+    public static final String NAMESPACE = "zhiqingyun-space";
+
+    /**
+     * 一次kubectl命令查询pod的状态，key为pod名称，labelSelector为空时查询命名空间下所有pod.
+     */
+    public static Map<String, String> getPodStatus(String labelSelector, String labelColumn) throws Exception {
+
+        List<String> command = new ArrayList<>();
+        command.add("kubectl");
+        command.add("get");
+        command.add("pods");
+        command.add("-n");
+        command.add(NAMESPACE);
+        command.add("--no-headers");
+        if (labelSelector != null) {
+            command.add("-l");
+            command.add(labelSelector);
+        }
+        if (labelColumn != null) {
+            command.add("-L");
+            command.add(labelColumn);
+        }
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        Map<String, String> podStatus = new HashMap<>();
+        StringBuilder inputLog = new StringBuilder();
+        try (BufferedReader reader =
+            new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+
+            // NAME READY STATUS RESTARTS AGE [LABEL]
+            String line;
+            while ((line = reader.readLine()) != null) {
+                inputLog.append(line).append("\n");
+                String[] columns = line.trim().split("\\s+");
+                if (columns.length < 5 || !columns[1].matches("\\d+/\\d+")) {
+                    continue;
+                }
+                String key = labelColumn == null ? columns[0] : columns[columns.length - 1];
+                podStatus.putIfAbsent(key, columns[2]);
+            }
+        }
+
+        if (process.waitFor() == 1) {
+            throw new Exception("获取pod状态异常:" + inputLog);
+        }
+        return podStatus;
+    }
+}
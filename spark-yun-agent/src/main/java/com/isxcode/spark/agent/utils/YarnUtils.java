@@ -0,0 +1,60 @@
+package com.isxcode.spark.agent.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * yarn命令工具类.
+ */
+public class YarnUtils {
+
+    /**
+     * 一次yarn命令查询指定类型作业的状态，只返回需要的作业.
+     */
+    public static Map<String, AppStatus> getAppStatus(Collection<String> appIds, String appType) throws Exception {
+
+        Set<String> appIdSet = new HashSet<>(appIds);
+        Map<String, AppStatus> appStatus = new HashMap<>();
+
+        Process process = Runtime.getRuntime().exec(new String[] {"yarn", "application", "-list", "-appTypes",
+            appType, "-appStates", "ALL"});
+        StringBuilder inputLog = new StringBuilder();
+        try (BufferedReader reader =
+            new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+
+            // Application-Id Application-Name Application-Type User Queue State Final-State Progress Tracking-URL
+            String line;
+            while ((line = reader.readLine()) != null) {
+                inputLog.append(line).append("\n");
+                String[] columns = line.split("\t");
+                if (columns.length < 7 || !appIdSet.contains(columns[0].trim())) {
+                    continue;
+                }
+                appStatus.put(columns[0].trim(), new AppStatus(columns[5].trim(), columns[6].trim()));
+            }
+        }
+
+        if (process.waitFor() == 1) {
+            throw new Exception("获取作业状态异常:" + inputLog);
+        }
+        return appStatus;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class AppStatus {
+
+        private String appState;
+
+        private String finalState;
+    }
+}
@@ -0,0 +1,144 @@
+package com.isxcode.spark.agent.config;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.StreamUtils;
+
+/**
+ * gzip请求体解压测试.
+ */
+@Slf4j
+class GzipRequestFilterTest {
+
+    private static final int TIMES = 200;
+
+    private final GzipRequestFilter gzipRequestFilter = new GzipRequestFilter();
+
+    private byte[] body;
+
+    private byte[] gzipBody;
+
+    @BeforeEach
+    void setUp() throws IOException {
+
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 20000; i++) {
+            json.append("{\"appId\":\"application_").append(i).append("\",\"status\":\"RUNNING\"},");
+        }
+        body = json.append("{}]").toString().getBytes(StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+            gzipOutputStream.write(body);
+        }
+        gzipBody = outputStream.toByteArray();
+    }
+
+    @Test
+    void testReadInputStream() throws Exception {
+
+        HttpServletRequest request = filter(gzipBody);
+
+        ServletInputStream inputStream = request.getInputStream();
+        assertFalse(inputStream.isFinished());
+        assertArrayEquals(body, StreamUtils.copyToByteArray(inputStream));
+        assertTrue(inputStream.isFinished());
+        assertNull(request.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(-1, request.getContentLengthLong());
+    }
+
+    @Test
+    void testReadReader() throws Exception {
+
+        HttpServletRequest request = filter(gzipBody);
+
+        assertEquals(new String(body, StandardCharsets.UTF_8), FileCopyUtils.copyToString(request.getReader()));
+        assertTrue(request.getInputStream().isFinished());
+    }
+
+    @Test
+    void testReadListener() throws Exception {
+
+        ServletInputStream inputStream = filter(gzipBody).getInputStream();
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        AtomicBoolean allDataRead = new AtomicBoolean();
+        inputStream.setReadListener(new ReadListener() {
+
+            @Override
+            public void onDataAvailable() throws IOException {
+                byte[] buffer = new byte[4096];
+                int count;
+                while (inputStream.isReady() && !inputStream.isFinished()
+                    && (count = inputStream.read(buffer)) != -1) {
+                    outputStream.write(buffer, 0, count);
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                allDataRead.set(true);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                throw new IllegalStateException(throwable);
+            }
+        });
+
+        assertTrue(allDataRead.get());
+        assertTrue(inputStream.isFinished());
+        assertArrayEquals(body, outputStream.toByteArray());
+    }
+
+    @Test
+    void testThroughput() throws Exception {
+
+        // 预热
+        for (int i = 0; i < TIMES / 10; i++) {
+            StreamUtils.copyToByteArray(filter(gzipBody).getInputStream());
+        }
+
+        long startTime = System.nanoTime();
+        for (int i = 0; i < TIMES; i++) {
+            StreamUtils.copyToByteArray(filter(gzipBody).getInputStream());
+        }
+        long costMillis = Math.max(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), 1);
+
+        log.info("gzip请求体解压吞吐: {}次/秒, 解压后{}MB/秒, 压缩比{}%", TIMES * 1000L / costMillis,
+            (long) body.length * TIMES * 1000 / costMillis / 1024 / 1024, gzipBody.length * 100L / body.length);
+    }
+
+    private HttpServletRequest filter(byte[] content) throws Exception {
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/yag/getStatus");
+        request.addHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        request.setContent(content);
+
+        AtomicReference<HttpServletRequest> filteredRequest = new AtomicReference<>();
+        gzipRequestFilter.doFilter(request, new MockHttpServletResponse(),
+            (req, res) -> filteredRequest.set((HttpServletRequest) req));
+        return filteredRequest.get();
+    }
+}
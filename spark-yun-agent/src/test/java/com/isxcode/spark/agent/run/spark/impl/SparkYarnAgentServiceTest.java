@@ -0,0 +1,78 @@
+package com.isxcode.spark.agent.run.spark.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.isxcode.spark.agent.properties.SparkYunAgentProperties;
+import com.isxcode.spark.agent.run.yarn.YarnClientService;
+import com.isxcode.spark.api.agent.res.spark.GetWorkInfoRes;
+import java.util.Collections;
+import java.util.Map;
+import org.apache.hadoop.yarn.api.records.ApplicationReport;
+import org.apache.hadoop.yarn.api.records.FinalApplicationStatus;
+import org.apache.hadoop.yarn.api.records.YarnApplicationState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * yarn代理服务测试，resourceManager使用mock的YarnClientService代替.
+ */
+class SparkYarnAgentServiceTest {
+
+    private static final String APP_ID = "application_1700000000000_0001";
+
+    private YarnClientService yarnClientService;
+
+    private SparkYarnAgentService sparkYarnAgentService;
+
+    @BeforeEach
+    void setUp() {
+
+        yarnClientService = mock(YarnClientService.class);
+        sparkYarnAgentService = new SparkYarnAgentService(new SparkYunAgentProperties(), yarnClientService);
+    }
+
+    @Test
+    void testGetStdoutLogWithByteRange() throws Exception {
+
+        when(yarnClientService.getAggregatedLog(APP_ID, "stdout", null, -8192L))
+            .thenReturn("\nLogType:stdout\nLog Contents:\nlast line\nEnd of LogType:stdout\n");
+
+        String log = sparkYarnAgentService.getStdoutLog(APP_ID, null, -8192L);
+
+        assertTrue(log.contains("last line"));
+        verify(yarnClientService).getAggregatedLog(eq(APP_ID), eq("stdout"), isNull(), eq(-8192L));
+    }
+
+    @Test
+    void testGetStderrLogWithoutByteRange() throws Exception {
+
+        when(yarnClientService.getAggregatedLog(APP_ID, "stderr", null, Long.MAX_VALUE))
+            .thenReturn("\nLogType:stderr\nLog Contents:\nERROR failed\nEnd of LogType:stderr\n");
+
+        String log = sparkYarnAgentService.getStderrLog(APP_ID, null);
+
+        assertTrue(log.contains("ERROR failed"));
+    }
+
+    @Test
+    void testGetWorkInfosByType() throws Exception {
+
+        ApplicationReport report = mock(ApplicationReport.class);
+        when(report.getYarnApplicationState()).thenReturn(YarnApplicationState.RUNNING);
+        when(report.getFinalApplicationStatus()).thenReturn(FinalApplicationStatus.UNDEFINED);
+        when(yarnClientService.getApplicationReports(Collections.singletonList(APP_ID), "SPARK"))
+            .thenReturn(Collections.singletonMap(APP_ID, report));
+
+        Map<String, GetWorkInfoRes> workInfos =
+            sparkYarnAgentService.getWorkInfos(Collections.singletonList(APP_ID), null);
+
+        assertEquals("RUNNING", workInfos.get(APP_ID).getAppState());
+        assertEquals("UNDEFINED", workInfos.get(APP_ID).getFinalState());
+    }
+}
@@ -0,0 +1,84 @@
+package com.isxcode.spark.agent.run.yarn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.ApplicationReport;
+import org.apache.hadoop.yarn.api.records.YarnApplicationState;
+import org.apache.hadoop.yarn.client.api.YarnClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * yarn客户端测试，resourceManager使用mock的YarnClient代替.
+ */
+class YarnClientServiceTest {
+
+    private YarnClient yarnClient;
+
+    private YarnClientService yarnClientService;
+
+    @BeforeEach
+    void setUp() {
+
+        yarnClient = mock(YarnClient.class);
+        yarnClientService = new YarnClientService();
+        ReflectionTestUtils.setField(yarnClientService, "yarnClient", yarnClient);
+    }
+
+    @Test
+    void testGetApplicationReportsFilterByType() throws Exception {
+
+        when(yarnClient.getApplications(Collections.singleton("SPARK"))).thenReturn(Arrays
+            .asList(report(1, YarnApplicationState.RUNNING), report(2, YarnApplicationState.FINISHED),
+                report(3, YarnApplicationState.FAILED)));
+
+        Map<String, ApplicationReport> reports = yarnClientService.getApplicationReports(
+            Arrays.asList(appId(1).toString(), appId(3).toString(), appId(4).toString()), "SPARK");
+
+        assertEquals(2, reports.size());
+        assertEquals(YarnApplicationState.RUNNING, reports.get(appId(1).toString()).getYarnApplicationState());
+        assertEquals(YarnApplicationState.FAILED, reports.get(appId(3).toString()).getYarnApplicationState());
+        verify(yarnClient, never()).getApplications();
+    }
+
+    @Test
+    void testGetAggregatedLogBeforeFinished() throws Exception {
+
+        ApplicationReport report = report(1, YarnApplicationState.RUNNING);
+        when(yarnClient.getApplicationReport(any())).thenReturn(report);
+
+        assertNull(yarnClientService.getAggregatedLog(appId(1).toString(), "stdout", null, -4096));
+    }
+
+    @Test
+    void testKillApplication() throws Exception {
+
+        yarnClientService.killApplication(appId(1).toString());
+
+        verify(yarnClient).killApplication(appId(1));
+    }
+
+    private ApplicationId appId(int id) {
+
+        return ApplicationId.newInstance(1700000000000L, id);
+    }
+
+    private ApplicationReport report(int id, YarnApplicationState state) {
+
+        ApplicationReport report = mock(ApplicationReport.class);
+        when(report.getApplicationId()).thenReturn(appId(id));
+        when(report.getYarnApplicationState()).thenReturn(state);
+        return report;
+    }
+}
@@ -44,6 +44,16 @@ public class IsxAppProperties {
      */
     private Integer expirationMin = 1440;
 
+    /**
+     * 认证缓存的最大个数，0表示不缓存.
+     */
+    private Integer authCacheSize = 10000;
+
+    /**
+     * 认证缓存的有效时间.(秒)
+     */
+    private Integer authCacheSeconds = 60;
+
     /**
      * 资源目录.
      */
@@ -59,6 +69,31 @@ public class IsxAppProperties {
      */
     private boolean logAdvice = false;
 
+    /**
+     * 用户操作日志的抽样比例，1表示全部记录.
+     */
+    private Double logAdviceSampleRate = 1.0;
+
+    /**
+     * 用户操作日志缓冲区大小，缓冲区满时丢弃.
+     */
+    private Integer logAdviceBufferSize = 8192;
+
+    /**
+     * 用户操作日志请求头的最大长度.
+     */
+    private Integer logAdviceHeaderMaxLength = 2000;
+
+    /**
+     * 用户操作日志请求体和响应体的最大长度.
+     */
+    private Integer logAdviceBodyMaxLength = 10000;
+
+    /**
+     * 用户操作日志的写库周期.(毫秒)
+     */
+    private Long logAdviceFlushInterval = 1000L;
+
     /**
      * 使用https协议访问接口.
      */
@@ -93,4 +128,144 @@ public class IsxAppProperties {
      * 节点信息.
      */
     private Map<String, String> nodes;
+
+    /**
+     * 作业运行调度模式. memory 内存延迟队列调度. quartz 每秒定时器调度.
+     */
+    private String workRunMode = "memory";
+
+    /**
+     * 内存调度的作业执行线程数.
+     */
+    private Integer workRunThreads = 50;
+
+    /**
+     * 远程轮询步骤的初始重试间隔.(毫秒)
+     */
+    private Long workRunBackoff = 1000L;
+
+    /**
+     * 远程轮询步骤的最大重试间隔.(毫秒)
+     */
+    private Long workRunMaxBackoff = 5000L;
+
+    /**
+     * 租约锁的有效时长，节点宕机后超时自动释放.(毫秒)
+     */
+    private Long lockerLeaseTtl = 30000L;
+
+    /**
+     * 开启数据源连接池.
+     */
+    private boolean datasourcePoolEnabled = true;
+
+    /**
+     * 每个数据源连接池的最大连接数.
+     */
+    private Integer datasourcePoolMaxSize = 10;
+
+    /**
+     * 数据源连接的最大空闲时间，超时后关闭连接.(毫秒)
+     */
+    private Long datasourcePoolIdleTimeout = 600000L;
+
+    /**
+     * 从数据源连接池获取连接的最大等待时间.(毫秒)
+     */
+    private Long datasourcePoolConnectionTimeout = 30000L;
+
+    /**
+     * http连接池的最大连接数.
+     */
+    private Integer httpMaxConnections = 200;
+
+    /**
+     * http连接池每个地址的最大连接数.
+     */
+    private Integer httpMaxConnectionsPerRoute = 20;
+
+    /**
+     * http连接超时时间.(毫秒)
+     */
+    private Integer httpConnectTimeout = 10000;
+
+    /**
+     * http读取超时时间.(毫秒)
+     */
+    private Integer httpReadTimeout = 600000;
+
+    /**
+     * 请求代理时压缩请求体，代理版本需要支持gzip请求.
+     */
+    private boolean agentGzipEnabled = false;
+
+    /**
+     * 合并同一个代理的作业状态查询.
+     */
+    private boolean agentStatusBatchEnabled = true;
+
+    /**
+     * 合并作业状态查询的周期.(毫秒)
+     */
+    private Long agentStatusBatchInterval = 500L;
+
+    /**
+     * 作业运行中间步骤延迟合并写库，只在内存调度模式下生效.
+     */
+    private boolean workWriteBehindEnabled = true;
+
+    /**
+     * 作业运行中间步骤的写库周期.(毫秒)
+     */
+    private Long workWriteBehindInterval = 1000L;
+
+    /**
+     * 查询结果每页保存的行数，同时作为查询的fetchSize，mysql数据源需要配置useCursorFetch=true.
+     */
+    private Integer workResultPageSize = 1000;
+
+    /**
+     * 查询结果最多保存的行数，SparkSQL未开启条数限制时也按这个行数截断.
+     */
+    private Long workResultMaxRows = 200000L;
+
+    /**
+     * 查询结果最多保存的字节数.
+     */
+    private Long workResultMaxBytes = 64L * 1024 * 1024;
+
+    /**
+     * Excel推断字段类型时抽样的行数.
+     */
+    private Integer excelSampleRows = 1000;
+
+    /**
+     * 节点监控原始数据保留的天数，更早的数据只保留汇总.
+     */
+    private Integer monitorRetentionDays = 7;
+
+    /**
+     * 清理节点监控原始数据时，每批删除的条数.
+     */
+    private Integer monitorPurgeBatchSize = 1000;
+
+    /**
+     * 告警队列最多缓存的事件数.
+     */
+    private Integer alarmQueueSize = 10000;
+
+    /**
+     * 告警聚合窗口，同一个接收人在窗口内的同类告警合并发送.(秒)
+     */
+    private Integer alarmAggregateWindow = 10;
+
+    /**
+     * 每个消息体每分钟最多发送的消息数.
+     */
+    private Integer alarmRateLimit = 30;
+
+    /**
+     * 告警和消息体配置的缓存时间.(秒)
+     */
+    private Integer alarmCacheSeconds = 60;
 }
@@ -8,6 +8,8 @@ public interface FlinkAgentUrl {
 
     String GET_WORK_INFO_URL = "/" + ModuleCode.FLINK_YUN_AGENT + "/getWorkInfo";
 
+    String GET_WORK_INFOS_URL = "/" + ModuleCode.FLINK_YUN_AGENT + "/getWorkInfos";
+
     String GET_WORK_LOG_URL = "/" + ModuleCode.FLINK_YUN_AGENT + "/getWorkLog";
 
     String STOP_WORK_URL = "/" + ModuleCode.FLINK_YUN_AGENT + "/stopWork";
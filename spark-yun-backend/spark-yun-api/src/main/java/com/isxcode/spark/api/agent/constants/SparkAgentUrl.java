@@ -10,8 +10,14 @@ public interface SparkAgentUrl {
 
     String GET_WORK_INFO_URL = "/" + ModuleCode.SPARK_YUN_AGENT + "/getWorkInfo";
 
+    String GET_WORK_INFOS_URL = "/" + ModuleCode.SPARK_YUN_AGENT + "/getWorkInfos";
+
     String GET_WORK_DATA_URL = "/" + ModuleCode.SPARK_YUN_AGENT + "/getWorkData";
 
+    String GET_NODE_MONITOR_URL = "/" + ModuleCode.SPARK_YUN_AGENT + "/monitor";
+
+    String GET_SYNC_PROGRESS_URL = "/" + ModuleCode.SPARK_YUN_AGENT + "/getSyncProgress";
+
     String GET_LAST_LINE_WORK_STDOUT_LOG_URL = "/" + ModuleCode.SPARK_YUN_AGENT + "/getLastLineWorkStdoutLog";
 
     String GET_CUSTOM_JAR_WORK_STDOUT_LOG_URL = "/" + ModuleCode.SPARK_YUN_AGENT + "/getCustomJarWorkStdoutLog";
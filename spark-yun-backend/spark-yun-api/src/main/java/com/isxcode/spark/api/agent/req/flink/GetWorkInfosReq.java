@@ -0,0 +1,23 @@
+package com.isxcode.spark.api.agent.req.flink;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class GetWorkInfosReq {
+
+    private List<String> appIds;
+
+    private String agentHome;
+
+    private String clusterType;
+
+    private String flinkHome;
+}
@@ -0,0 +1,18 @@
+package com.isxcode.spark.api.agent.req.spark;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class GetNodeMonitorReq {
+
+    /**
+     * 只返回该时间之后的采集数据，毫秒时间戳，为空时返回全部.
+     */
+    private Long since;
+}
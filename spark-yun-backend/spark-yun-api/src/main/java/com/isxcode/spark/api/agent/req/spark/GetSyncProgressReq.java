@@ -0,0 +1,20 @@
+package com.isxcode.spark.api.agent.req.spark;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class GetSyncProgressReq {
+
+    private String workInstanceId;
+
+    /**
+     * 读取后是否删除进度文件.
+     */
+    private Boolean clean;
+}
@@ -12,4 +12,16 @@ public class GetWorkDataReq {
     private String clusterType;
 
     private String sparkHomePath;
+
+    /**
+     * 作业实例id，用于定位结果文件.
+     */
+    private String workInstanceId;
+
+    /**
+     * 结果文件的页码，从0开始.
+     */
+    private Integer page;
+
+    private Integer pageSize;
 }
@@ -12,4 +12,9 @@ public class GetWorkStderrLogReq {
     private String clusterType;
 
     private String sparkHomePath;
+
+    /**
+     * 读取的日志字节数，负数表示读取末尾，为空时读取全部.
+     */
+    private Long logBytes;
 }
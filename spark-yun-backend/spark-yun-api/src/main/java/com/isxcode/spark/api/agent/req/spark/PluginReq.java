@@ -46,7 +46,37 @@ public class PluginReq {
 
     private String csvFileName;
 
+    /**
+     * csv文件由ExcelCsvService转换，单元格内的换行和反斜杠已经转义，引号按双写转义.
+     */
+    private Boolean csvEscaped;
+
     private String agentType;
 
     private DbMigrateConfig dbMigrateConfig;
+
+    /**
+     * 查询结果写入的目录，为空时通过日志返回结果.
+     */
+    private String resultPath;
+
+    /**
+     * 增量同步的上次水位线，为空时全量同步.
+     */
+    private String lastWatermark;
+
+    /**
+     * 数据同步分区进度的目录，为空时不记录进度.
+     */
+    private String progressPath;
+
+    /**
+     * 是否跳过已完成的分区继续同步.
+     */
+    private Boolean resume;
+
+    /**
+     * 作业实例id，用于生成stream load的label.
+     */
+    private String workInstanceId;
 }
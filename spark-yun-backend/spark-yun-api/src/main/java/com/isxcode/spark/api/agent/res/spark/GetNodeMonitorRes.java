@@ -0,0 +1,23 @@
+package com.isxcode.spark.api.agent.res.spark;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.isxcode.spark.api.monitor.dto.NodeMonitorSample;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class GetNodeMonitorRes {
+
+    /**
+     * 按时间排序的采集数据.
+     */
+    private List<NodeMonitorSample> monitors;
+}
@@ -0,0 +1,28 @@
+package com.isxcode.spark.api.agent.res.spark;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.isxcode.spark.api.work.dto.SyncPartition;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class GetSyncProgressRes {
+
+    /**
+     * 分区总数，没有进度文件时为0.
+     */
+    private Integer partitionTotal;
+
+    /**
+     * 已完成的分区.
+     */
+    private List<SyncPartition> partitions;
+}
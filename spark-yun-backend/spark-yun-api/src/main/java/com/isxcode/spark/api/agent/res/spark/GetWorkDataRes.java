@@ -17,4 +17,9 @@ public class GetWorkDataRes {
     private List<List> data;
 
     private String applicationId;
+
+    /**
+     * 结果文件是否还有下一页，通过日志返回结果时为null.
+     */
+    private Boolean hasMore;
 }
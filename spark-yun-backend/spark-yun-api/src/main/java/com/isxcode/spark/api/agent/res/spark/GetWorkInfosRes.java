@@ -0,0 +1,20 @@
+package com.isxcode.spark.api.agent.res.spark;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class GetWorkInfosRes {
+
+    /**
+     * 查询到的作业状态，查询失败的作业不返回.
+     */
+    private List<GetWorkInfoRes> workInfos;
+}
@@ -0,0 +1,39 @@
+package com.isxcode.spark.api.datasource.res;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class GetDatasourcePoolStatsRes {
+
+    private String datasourceId;
+
+    private String datasourceName;
+
+    private Integer activeConnections;
+
+    private Integer idleConnections;
+
+    private Integer totalConnections;
+
+    private Integer pendingThreads;
+
+    private Integer maxConnections;
+
+    private Long acquireCount;
+
+    private Long hitCount;
+
+    private Long missCount;
+
+    private Long timeoutCount;
+
+    private Long avgWaitMillis;
+
+    private Long maxWaitMillis;
+}
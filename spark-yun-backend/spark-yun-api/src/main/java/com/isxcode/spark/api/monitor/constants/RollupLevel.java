@@ -0,0 +1,22 @@
+package com.isxcode.spark.api.monitor.constants;
+
+/**
+ * 节点监控的汇总粒度.
+ */
+public interface RollupLevel {
+
+    /**
+     * 5分钟.
+     */
+    String FIVE_MIN = "FIVE_MIN";
+
+    /**
+     * 1小时.
+     */
+    String HOUR = "HOUR";
+
+    /**
+     * 1天.
+     */
+    String DAY = "DAY";
+}
@@ -1,12 +1,16 @@
 package com.isxcode.spark.api.monitor.dto;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
 
 @Data
 @Builder
+@AllArgsConstructor
+@NoArgsConstructor
 public class NodeMonitorInfo {
 
     private String status;
@@ -27,6 +31,8 @@ public class NodeMonitorInfo {
 
     private Double cpuPercent;
 
+    private Integer runningAppNum;
+
     private String clusterNodeId;
 
     private String clusterId;
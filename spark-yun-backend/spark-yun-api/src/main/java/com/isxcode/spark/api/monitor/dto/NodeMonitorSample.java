@@ -0,0 +1,58 @@
+package com.isxcode.spark.api.monitor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 代理采集的节点监控数据.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class NodeMonitorSample {
+
+    /**
+     * 采集时间，毫秒时间戳.
+     */
+    private Long timestamp;
+
+    /**
+     * 已用存储，单位GB.
+     */
+    private Double usedStorageSize;
+
+    /**
+     * 已用内存，单位GB.
+     */
+    private Double usedMemorySize;
+
+    /**
+     * 网络读速度，单位KB/s.
+     */
+    private Double networkIoReadSpeed;
+
+    /**
+     * 网络写速度，单位KB/s.
+     */
+    private Double networkIoWriteSpeed;
+
+    /**
+     * 磁盘读速度，单位KB/s.
+     */
+    private Double diskIoReadSpeed;
+
+    /**
+     * 磁盘写速度，单位KB/s.
+     */
+    private Double diskIoWriteSpeed;
+
+    private Double cpuPercent;
+
+    /**
+     * 节点上运行中的spark和flink提交进程数.
+     */
+    private Integer runningAppNum;
+}
@@ -20,4 +20,7 @@ public class GetSystemMonitorRes {
 
     @Schema(title = "接口监控信息")
     private SystemMonitorDto apiMonitor;
+
+    @Schema(title = "当前节点缓冲区满时丢弃的用户操作日志数")
+    private Long userActionDroppedNum;
 }
@@ -6,4 +6,9 @@ public interface OverModeType {
 
     String OVERWRITE = "OVERWRITE";
 
+    /**
+     * 按主键更新或者插入.
+     */
+    String UPSERT = "UPSERT";
+
 }
@@ -12,4 +12,9 @@ public interface LockerPrefix {
      */
     String WORK_EVENT_THREAD = "work_event_thread_";
 
+    /**
+     * 运行作业事件的服务节点.
+     */
+    String WORK_RUN_NODE = "work_run_node_";
+
 }
@@ -0,0 +1,22 @@
+package com.isxcode.spark.api.work.constants;
+
+/**
+ * 数据同步的分区策略.
+ */
+public interface PartitionStrategy {
+
+    /**
+     * 自动选择，来源表有数值主键时按主键范围分区，否则按hash分区.
+     */
+    String AUTO = "AUTO";
+
+    /**
+     * 按分区键hash取模分区.
+     */
+    String HASH = "HASH";
+
+    /**
+     * 按分区键的取值范围分区，支持数值、日期和时间类型.
+     */
+    String RANGE = "RANGE";
+}
@@ -0,0 +1,17 @@
+package com.isxcode.spark.api.work.constants;
+
+/**
+ * 数据同步的同步方式.
+ */
+public interface SyncMode {
+
+    /**
+     * 全量同步.
+     */
+    String FULL = "FULL";
+
+    /**
+     * 按水位线字段增量同步，只同步大于上次水位线的数据.
+     */
+    String INCREMENTAL = "INCREMENTAL";
+}
@@ -0,0 +1,37 @@
+package com.isxcode.spark.api.work.constants;
+
+/**
+ * 数据同步写入去向表的方式.
+ */
+public interface SyncWriter {
+
+    /**
+     * 按去向数据库类型自动选择.
+     */
+    String AUTO = "AUTO";
+
+    /**
+     * 通过spark sql插入jdbc视图.
+     */
+    String SQL = "SQL";
+
+    /**
+     * jdbc批量写入.
+     */
+    String JDBC_BATCH = "JDBC_BATCH";
+
+    /**
+     * doris和starRocks的stream load.
+     */
+    String STREAM_LOAD = "STREAM_LOAD";
+
+    /**
+     * postgres和greenplum的copy from stdin.
+     */
+    String COPY = "COPY";
+
+    /**
+     * clickhouse大批量写入.
+     */
+    String CLICKHOUSE_BATCH = "CLICKHOUSE_BATCH";
+}
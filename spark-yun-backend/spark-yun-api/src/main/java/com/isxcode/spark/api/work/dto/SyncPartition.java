@@ -0,0 +1,31 @@
+package com.isxcode.spark.api.work.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 数据同步已完成的分区.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SyncPartition {
+
+    /**
+     * 分区序号，从0开始.
+     */
+    private Integer index;
+
+    /**
+     * 来源表的分区条件.
+     */
+    private String predicate;
+
+    /**
+     * 同步行数.
+     */
+    private Long rowCount;
+}
@@ -5,6 +5,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -22,10 +23,61 @@ public class SyncRule {
 
     private Integer numConcurrency;
 
+    /**
+     * 分区策略，为空时自动选择.
+     */
+    private String partitionStrategy;
+
+    /**
+     * 分区键，为空时使用来源表的分区键.
+     */
+    private String partitionColumn;
+
+    /**
+     * 范围分区的下界，为空时查询分区键的最小值.
+     */
     private String lowerBound;
 
+    /**
+     * 范围分区的上界，为空时查询分区键的最大值.
+     */
     private String upperBound;
 
+    /**
+     * 同步方式，为空时全量同步.
+     */
+    private String syncMode;
+
+    /**
+     * 增量同步的水位线字段，递增的id或者更新时间.
+     */
+    private String watermarkColumn;
+
+    /**
+     * 增量同步时忽略已保存的水位线，重新全量同步.
+     */
+    private Boolean fullResync;
+
+    /**
+     * 更新写入时的主键字段，为空时使用去向表的主键.
+     */
+    private List<String> mergeColumns;
+
+    /**
+     * 写入方式，为空时按去向数据库类型选择.
+     */
+    private String writer;
+
+    /**
+     * 批量写入的条数，为空时使用各写入方式的默认值.
+     */
+    private Integer batchSize;
+
+    /**
+     * stream load的地址，例如http://fe:8030，为空时使用jdbc地址的主机和8030端口.
+     */
+    private String loadUrl;
+
     private Map<String, String> sqlConfig;
 
     private String sqlConfigJson;
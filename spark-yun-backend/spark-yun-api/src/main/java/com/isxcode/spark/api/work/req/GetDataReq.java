@@ -10,4 +10,7 @@ public class GetDataReq {
     @Schema(description = "实例唯一id", example = "sy_12baf74d710c43a78858e547bf41a586")
     @NotEmpty(message = "实例id不能为空")
     private String instanceId;
+
+    @Schema(description = "查询结果页码，从0开始，不传返回第一页", example = "0")
+    private Integer page;
 }
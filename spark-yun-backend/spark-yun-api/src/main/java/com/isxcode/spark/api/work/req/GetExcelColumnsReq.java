@@ -16,4 +16,7 @@ public class GetExcelColumnsReq {
     @Schema(title = "是否有表头", example = "默认true")
     @NotNull(message = "是否存在表头")
     private boolean hasHeader;
+
+    @Schema(title = "是否按抽样数据推断字段类型，不推断时都是String", example = "false")
+    private boolean inferType;
 }
@@ -10,4 +10,7 @@ public class GetSubmitLogReq {
     @Schema(description = "实例唯一id", example = "sy_12baf74d710c43a78858e547bf41a586")
     @NotEmpty(message = "实例id不能为空")
     private String instanceId;
+
+    @Schema(description = "日志偏移量，只返回该位置之后的日志，不传返回完整日志", example = "0")
+    private Long offset;
 }
@@ -1,6 +1,8 @@
 package com.isxcode.spark.api.work.res;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.isxcode.spark.api.monitor.dto.NodeMonitorSample;
+import com.isxcode.spark.api.work.dto.SyncPartition;
 
 import java.util.List;
 import java.util.Map;
@@ -43,4 +45,29 @@ public class AgentLinkResponse {
     private int port;
 
     private String code;
+
+    /**
+     * 批量查询的作业状态.
+     */
+    private List<AgentLinkResponse> workInfos;
+
+    /**
+     * 结果文件是否还有下一页.
+     */
+    private Boolean hasMore;
+
+    /**
+     * 数据同步的分区总数.
+     */
+    private Integer partitionTotal;
+
+    /**
+     * 数据同步已完成的分区.
+     */
+    private List<SyncPartition> partitions;
+
+    /**
+     * 节点监控的采集数据.
+     */
+    private List<NodeMonitorSample> monitors;
 }
@@ -17,4 +17,19 @@ public class GetDataRes {
     private String jsonData;
 
     private String strData;
+
+    /**
+     * 当前页码.
+     */
+    private Integer page;
+
+    /**
+     * 每页行数，不含表头.
+     */
+    private Integer pageSize;
+
+    /**
+     * 查询结果总行数，不含表头.
+     */
+    private Long total;
 }
@@ -10,4 +10,9 @@ public class GetSubmitLogRes {
     private String log;
 
     private String status;
+
+    /**
+     * 下次增量拉取的日志偏移量.
+     */
+    private Long offset;
 }
@@ -10,4 +10,7 @@ public class ReRunFlowReq {
     @Schema(description = "作业流实例唯一id", example = "sy_ba1f12b5c8154f999a02a5be2373a438")
     @NotEmpty(message = "作业流实例id不能为空")
     private String workflowInstanceId;
+
+    @Schema(description = "是否断点续跑，数据同步作业跳过已完成的分区，默认从头重跑", example = "false")
+    private Boolean resume;
 }
@@ -0,0 +1,203 @@
+package com.isxcode.spark.common.locker;
+
+import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 租约锁.
+ *
+ * <p>
+ * 同进程内的竞争由本地ReentrantLock处理，跨节点通过租约行的条件更新互斥，节点宕机后租约过期自动失效.
+ * </p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LeaseLocker {
+
+    /**
+     * 跨节点等待的最小间隔.(毫秒)
+     */
+    private static final long MIN_WAIT = 10;
+
+    /**
+     * 跨节点等待的最大间隔.(毫秒)
+     */
+    private static final long MAX_WAIT = 200;
+
+    /**
+     * 已释放的租约行保留时间.(毫秒)
+     */
+    private static final long PURGE_AFTER = TimeUnit.HOURS.toMillis(1);
+
+    private final LockerLeaseRepository lockerLeaseRepository;
+
+    private final IsxAppProperties isxAppProperties;
+
+    private final Map<String, LocalLock> localLocks = new ConcurrentHashMap<>();
+
+    private String owner;
+
+    @PostConstruct
+    public void initOwner() {
+
+        // 每次启动都是新的持有者，上次宕机遗留的租约只能等待过期
+        owner = isxAppProperties.getAppName() + "-" + UUID.randomUUID();
+    }
+
+    /**
+     * 加锁，支持同线程重入.
+     */
+    public void lock(String name) {
+
+        LocalLock localLock = localLocks.compute(name, (k, v) -> {
+            LocalLock lock = v == null ? new LocalLock() : v;
+            lock.users++;
+            return lock;
+        });
+
+        // 同进程内的等待直接由本地锁唤醒
+        localLock.lock.lock();
+        if (localLock.lock.getHoldCount() > 1) {
+            return;
+        }
+
+        try {
+            acquireLease(name);
+        } catch (RuntimeException e) {
+            localLock.lock.unlock();
+            releaseLocalLock(name);
+            throw e;
+        }
+    }
+
+    /**
+     * 尝试加锁，锁被占用时立即返回false，不等待.
+     */
+    public boolean tryLock(String name) {
+
+        LocalLock localLock = localLocks.compute(name, (k, v) -> {
+            LocalLock lock = v == null ? new LocalLock() : v;
+            lock.users++;
+            return lock;
+        });
+
+        if (!localLock.lock.tryLock()) {
+            releaseLocalLock(name);
+            return false;
+        }
+        if (localLock.lock.getHoldCount() > 1) {
+            return true;
+        }
+
+        boolean acquired = false;
+        try {
+            acquired = tryAcquireLease(name);
+            return acquired;
+        } finally {
+            if (!acquired) {
+                localLock.lock.unlock();
+                releaseLocalLock(name);
+            }
+        }
+    }
+
+    /**
+     * 解锁.
+     */
+    public void unlock(String name) {
+
+        LocalLock localLock = localLocks.get(name);
+        if (localLock == null || !localLock.lock.isHeldByCurrentThread()) {
+            log.warn("当前线程未持有锁，忽略解锁: {}", name);
+            return;
+        }
+
+        try {
+            if (localLock.lock.getHoldCount() == 1) {
+                lockerLeaseRepository.release(name, owner);
+            }
+        } finally {
+            localLock.lock.unlock();
+            releaseLocalLock(name);
+        }
+    }
+
+    /**
+     * 续约当前进程持有的所有租约，并清理长期未使用的租约行.
+     */
+    @Scheduled(fixedDelay = 5000)
+    public void heartbeat() {
+
+        try {
+            long now = System.currentTimeMillis();
+            if (localLocks.values().stream().anyMatch(e -> e.lock.isLocked())) {
+                lockerLeaseRepository.renew(owner, now, now + isxAppProperties.getLockerLeaseTtl());
+            }
+            lockerLeaseRepository.purge(now - PURGE_AFTER);
+        } catch (Exception e) {
+            log.warn("租约锁续约异常: {}", e.getMessage());
+        }
+    }
+
+    private void acquireLease(String name) {
+
+        long wait = MIN_WAIT;
+        while (!tryAcquireLease(name)) {
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待锁被中断: " + name, e);
+            }
+            wait = Math.min(wait * 2, MAX_WAIT);
+        }
+    }
+
+    private boolean tryAcquireLease(String name) {
+
+        long now = System.currentTimeMillis();
+        long expireTime = now + isxAppProperties.getLockerLeaseTtl();
+
+        // 已释放或者租约过期，条件更新直接抢占
+        if (lockerLeaseRepository.acquire(name, owner, now, expireTime) == 1) {
+            return true;
+        }
+
+        // 第一次使用的锁，插入租约行
+        if (!lockerLeaseRepository.existsById(name)) {
+            try {
+                return lockerLeaseRepository.create(name, owner, now, expireTime) == 1;
+            } catch (DataIntegrityViolationException ignored) {
+                // 其他节点同时插入
+            }
+        }
+        return false;
+    }
+
+    private void releaseLocalLock(String name) {
+
+        localLocks.computeIfPresent(name, (k, v) -> --v.users == 0 ? null : v);
+    }
+
+    private static class LocalLock {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * 正在使用该锁的次数，为0时回收.
+         */
+        private int users;
+    }
+}
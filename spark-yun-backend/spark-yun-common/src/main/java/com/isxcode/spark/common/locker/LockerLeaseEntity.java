@@ -0,0 +1,40 @@
+package com.isxcode.spark.common.locker;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Entity
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "SY_LOCKER_LEASE")
+public class LockerLeaseEntity {
+
+    /**
+     * 锁名称.
+     */
+    @Id
+    private String name;
+
+    /**
+     * 持有锁的服务进程，为空表示已释放.
+     */
+    private String owner;
+
+    /**
+     * 租约过期时间戳.
+     */
+    private Long expireTime;
+
+    /**
+     * 最近一次续约时间戳.
+     */
+    private Long heartbeatTime;
+}
@@ -0,0 +1,59 @@
+package com.isxcode.spark.common.locker;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 租约锁，所有语句都在独立事务中提交，保证其他节点立即可见.
+ */
+@Repository
+public interface LockerLeaseRepository extends JpaRepository<LockerLeaseEntity, String> {
+
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = "update LockerLeaseEntity L set L.owner = :owner, L.expireTime = :expireTime, L.heartbeatTime = :now "
+        + "where L.name = :name and (L.owner is null or L.expireTime < :now)")
+    int acquire(@Param("name") String name, @Param("owner") String owner, @Param("now") Long now,
+        @Param("expireTime") Long expireTime);
+
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(
+        value = "insert into SY_LOCKER_LEASE (name, owner, expire_time, heartbeat_time) "
+            + "values (:name, :owner, :expireTime, :now)",
+        nativeQuery = true)
+    int create(@Param("name") String name, @Param("owner") String owner, @Param("now") Long now,
+        @Param("expireTime") Long expireTime);
+
+    /**
+     * 持有或者续约租约，同一个持有者重启后可以直接续用.
+     */
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = "update LockerLeaseEntity L set L.owner = :owner, L.expireTime = :expireTime, L.heartbeatTime = :now "
+        + "where L.name = :name and (L.owner is null or L.owner = :owner or L.expireTime < :now)")
+    int hold(@Param("name") String name, @Param("owner") String owner, @Param("now") Long now,
+        @Param("expireTime") Long expireTime);
+
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = "update LockerLeaseEntity L set L.owner = null, L.expireTime = 0 "
+        + "where L.name = :name and L.owner = :owner")
+    int release(@Param("name") String name, @Param("owner") String owner);
+
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = "update LockerLeaseEntity L set L.expireTime = :expireTime, L.heartbeatTime = :now "
+        + "where L.owner = :owner")
+    int renew(@Param("owner") String owner, @Param("now") Long now, @Param("expireTime") Long expireTime);
+
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = "delete from LockerLeaseEntity L where L.owner is null and L.heartbeatTime < :time")
+    int purge(@Param("time") Long time);
+}
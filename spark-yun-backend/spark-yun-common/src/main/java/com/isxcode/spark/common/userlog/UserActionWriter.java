@@ -0,0 +1,208 @@
+package com.isxcode.spark.common.userlog;
+
+import cn.hutool.core.util.IdUtil;
+import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 用户操作日志异步写库.
+ *
+ * <p>
+ * 请求线程只把日志放入定长的无锁环形缓冲区，缓冲区满时丢弃并计数，不会阻塞请求. 后台线程按周期批量写库，关闭时写完剩余的日志.
+ * </p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserActionWriter {
+
+    private static final int BATCH_SIZE = 200;
+
+    private static final String INSERT_SQL = "insert into SY_USER_ACTION (id, user_id, tenant_id, req_path, "
+        + "req_method, req_header, req_body, res_body, start_timestamp, end_timestamp, create_by, create_date_time) "
+        + "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final IsxAppProperties isxAppProperties;
+
+    /**
+     * 缓冲区满时丢弃的日志数.
+     */
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private long reportedDroppedCount;
+
+    private RingBuffer buffer;
+
+    private ScheduledExecutorService flushScheduler;
+
+    @PostConstruct
+    public void start() {
+
+        if (!isxAppProperties.isLogAdvice()) {
+            return;
+        }
+
+        buffer = new RingBuffer(isxAppProperties.getLogAdviceBufferSize());
+        flushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "userActionWriter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = isxAppProperties.getLogAdviceFlushInterval();
+        flushScheduler.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+
+        if (flushScheduler != null) {
+            flushScheduler.shutdown();
+            flushScheduler.awaitTermination(10, TimeUnit.SECONDS);
+            flushQuietly();
+        }
+    }
+
+    /**
+     * 放入缓冲区，缓冲区满或者未开启时返回false.
+     */
+    public boolean offer(UserActionEntity userAction) {
+
+        if (buffer == null) {
+            return false;
+        }
+        if (!buffer.offer(userAction)) {
+            droppedCount.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public long getDroppedCount() {
+
+        return droppedCount.get();
+    }
+
+    /**
+     * 写入缓冲区中的所有日志，写库失败的日志丢弃.
+     */
+    public synchronized void flush() {
+
+        if (buffer == null) {
+            return;
+        }
+
+        List<UserActionEntity> userActions = new ArrayList<>(BATCH_SIZE);
+        UserActionEntity userAction;
+        while ((userAction = buffer.poll()) != null) {
+            userActions.add(userAction);
+            if (userActions.size() == BATCH_SIZE) {
+                write(userActions);
+                userActions.clear();
+            }
+        }
+        if (!userActions.isEmpty()) {
+            write(userActions);
+        }
+
+        long dropped = droppedCount.get();
+        if (dropped > reportedDroppedCount) {
+            log.warn("用户操作日志缓冲区已满，累计丢弃{}条", dropped);
+            reportedDroppedCount = dropped;
+        }
+    }
+
+    private void flushQuietly() {
+
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("用户操作日志写库异常: {}", e.getMessage(), e);
+        }
+    }
+
+    private void write(List<UserActionEntity> userActions) {
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, userActions, BATCH_SIZE, (ps, e) -> {
+                ps.setString(1, "sy_" + IdUtil.getSnowflake().nextIdStr());
+                ps.setString(2, e.getUserId());
+                ps.setString(3, e.getTenantId());
+                ps.setString(4, e.getReqPath());
+                ps.setString(5, e.getReqMethod());
+                ps.setString(6, e.getReqHeader());
+                ps.setString(7, e.getReqBody());
+                ps.setString(8, e.getResBody());
+                ps.setObject(9, e.getStartTimestamp());
+                ps.setObject(10, e.getEndTimestamp());
+                ps.setString(11, e.getCreateBy());
+                ps.setTimestamp(12, now);
+            });
+        } catch (Exception e) {
+            log.error("用户操作日志写库异常，丢弃{}条: {}", userActions.size(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 多生产者单消费者的环形缓冲区，生产者通过cas占位，消费者按顺序读取已经写入的位置.
+     */
+    private static class RingBuffer {
+
+        private final AtomicReferenceArray<UserActionEntity> slots;
+
+        private final AtomicLong head = new AtomicLong();
+
+        private final AtomicLong tail = new AtomicLong();
+
+        private RingBuffer(int capacity) {
+
+            this.slots = new AtomicReferenceArray<>(Math.max(capacity, 1));
+        }
+
+        private boolean offer(UserActionEntity userAction) {
+
+            long index;
+            do {
+                index = tail.get();
+                if (index - head.get() >= slots.length()) {
+                    return false;
+                }
+            } while (!tail.compareAndSet(index, index + 1));
+            slots.lazySet((int) (index % slots.length()), userAction);
+            return true;
+        }
+
+        /**
+         * 只能由一个线程调用，占位后还没写入的位置返回null，下次再读.
+         */
+        private UserActionEntity poll() {
+
+            long index = head.get();
+            int slot = (int) (index % slots.length());
+            UserActionEntity userAction = slots.get(slot);
+            if (userAction == null) {
+                return null;
+            }
+            slots.lazySet(slot, null);
+            head.set(index + 1);
+            return userAction;
+        }
+    }
+}
@@ -4,10 +4,16 @@ import static com.isxcode.spark.common.config.CommonConfig.TENANT_ID;
 import static com.isxcode.spark.common.config.CommonConfig.USER_ID;
 
 import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson.JSONObject;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.isxcode.spark.backend.api.base.exceptions.SuccessResponseException;
 import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Enumeration;
+import java.util.concurrent.ThreadLocalRandom;
 import javax.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -21,6 +27,7 @@ import org.aspectj.lang.annotation.Pointcut;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.multipart.MultipartFile;
 
 @Aspect
 @Slf4j
@@ -28,23 +35,31 @@ import org.springframework.web.context.request.ServletRequestAttributes;
 @RequiredArgsConstructor
 public class UserLogAdvice {
 
-    private final UserActionRepository userActionRepository;
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().findAndRegisterModules()
+        .setSerializationInclusion(JsonInclude.Include.NON_NULL).disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
 
-    private UserActionEntity userActionEntity;
+    private final UserActionWriter userActionWriter;
 
     private final IsxAppProperties isxAppProperties;
 
+    /**
+     * 当前请求的日志，未抽中时为空.
+     */
+    private final ThreadLocal<UserActionEntity> currentUserAction = new ThreadLocal<>();
+
     @Pointcut("@annotation(com.isxcode.spark.common.userlog.UserLog)")
     public void operateUserLog() {}
 
     @Before(value = "operateUserLog()")
     public void before(JoinPoint joinPoint) {
 
-        if (!isxAppProperties.isLogAdvice()) {
+        currentUserAction.remove();
+        if (!isxAppProperties.isLogAdvice()
+            || ThreadLocalRandom.current().nextDouble() >= isxAppProperties.getLogAdviceSampleRate()) {
             return;
         }
 
-        userActionEntity = new UserActionEntity();
+        UserActionEntity userActionEntity = new UserActionEntity();
         userActionEntity.setStartTimestamp(System.currentTimeMillis());
         if (Strings.isEmpty(USER_ID.get())) {
             userActionEntity.setUserId("anonymous");
@@ -65,51 +80,145 @@ public class UserLogAdvice {
 
         userActionEntity.setReqMethod(request.getMethod());
 
-        JSONObject jsonObject = new JSONObject();
-        Enumeration<String> headerNames = request.getHeaderNames();
-        while (headerNames.hasMoreElements()) {
-            String name = headerNames.nextElement();
-            String value = request.getHeader(name);
-            jsonObject.put(name, value);
-        }
-        userActionEntity.setReqHeader(jsonObject.toJSONString());
+        userActionEntity.setReqHeader(toHeaderString(request, isxAppProperties.getLogAdviceHeaderMaxLength()));
 
         if ("GET".equals(request.getMethod())) {
-            userActionEntity.setReqBody(request.getQueryString());
+            userActionEntity
+                .setReqBody(truncate(request.getQueryString(), isxAppProperties.getLogAdviceBodyMaxLength()));
         }
 
         if ("POST".equals(request.getMethod())) {
             if (joinPoint.getArgs().length > 0) {
-                userActionEntity.setReqBody(JSON.toJSONString(joinPoint.getArgs()[0]));
+                userActionEntity
+                    .setReqBody(toBodyString(joinPoint.getArgs()[0], isxAppProperties.getLogAdviceBodyMaxLength()));
             }
         }
+        currentUserAction.set(userActionEntity);
     }
 
     @After(value = "operateUserLog()")
     public void after(JoinPoint joinPoint) {
 
-        if (!isxAppProperties.isLogAdvice()) {
+        UserActionEntity userActionEntity = currentUserAction.get();
+        if (userActionEntity == null) {
             return;
         }
+        currentUserAction.remove();
 
         if (Strings.isEmpty(USER_ID.get())) {
             userActionEntity.setCreateBy("anonymous");
+        } else {
+            userActionEntity.setCreateBy(USER_ID.get());
         }
         userActionEntity.setEndTimestamp(System.currentTimeMillis());
-        try {
-            userActionRepository.save(userActionEntity);
-        } catch (Exception e) {
-            log.error(e.getMessage());
-        }
+        userActionWriter.offer(userActionEntity);
     }
 
     @AfterThrowing(value = "operateUserLog()", throwing = "successResponseException")
     public void afterThrowing(JoinPoint joinPoint, SuccessResponseException successResponseException) {
 
-        if (!isxAppProperties.isLogAdvice()) {
+        UserActionEntity userActionEntity = currentUserAction.get();
+        if (userActionEntity == null) {
             return;
         }
 
-        userActionEntity.setResBody(JSON.toJSONString(successResponseException.getBaseResponse()));
+        userActionEntity.setResBody(
+            toJsonString(successResponseException.getBaseResponse(), isxAppProperties.getLogAdviceBodyMaxLength()));
+    }
+
+    /**
+     * 上传的文件只记录文件名和大小.
+     */
+    private String toBodyString(Object body, int maxLength) {
+
+        if (body instanceof MultipartFile) {
+            MultipartFile file = (MultipartFile) body;
+            return truncate(file.getOriginalFilename() + "(" + file.getSize() + ")", maxLength);
+        }
+        return toJsonString(body, maxLength);
+    }
+
+    /**
+     * 请求头逐个写入，超过长度后不再读取.
+     */
+    private String toHeaderString(HttpServletRequest request, int maxLength) {
+
+        LimitedWriter writer = new LimitedWriter(maxLength);
+        try (JsonGenerator generator = OBJECT_MAPPER.getFactory().createGenerator(writer)) {
+            generator.writeStartObject();
+            Enumeration<String> headerNames = request.getHeaderNames();
+            while (headerNames.hasMoreElements()) {
+                String name = headerNames.nextElement();
+                generator.writeStringField(name, request.getHeader(name));
+            }
+            generator.writeEndObject();
+        } catch (IOException ignored) {
+            // 超过长度，保留已经写入的部分
+        }
+        return writer.toString();
+    }
+
+    /**
+     * 流式序列化，超过长度后中止，不生成完整的json.
+     */
+    private String toJsonString(Object value, int maxLength) {
+
+        LimitedWriter writer = new LimitedWriter(maxLength);
+        try {
+            OBJECT_MAPPER.writeValue(writer, value);
+        } catch (IOException e) {
+            if (!writer.isFull()) {
+                // jackson无法序列化的对象，使用fastjson
+                return truncate(JSON.toJSONString(value), maxLength);
+            }
+        }
+        return writer.toString();
+    }
+
+    private String truncate(String value, int maxLength) {
+
+        return value == null || value.length() <= maxLength ? value : value.substring(0, maxLength);
+    }
+
+    /**
+     * 只保留前maxLength个字符，写满后抛出异常中止序列化.
+     */
+    private static class LimitedWriter extends Writer {
+
+        private final StringBuilder content = new StringBuilder();
+
+        private final int maxLength;
+
+        private LimitedWriter(int maxLength) {
+
+            this.maxLength = maxLength;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+
+            int remaining = maxLength - content.length();
+            content.append(cbuf, off, Math.min(len, remaining));
+            if (len > remaining) {
+                throw new IOException("exceed max length " + maxLength);
+            }
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+
+        private boolean isFull() {
+
+            return content.length() >= maxLength;
+        }
+
+        @Override
+        public String toString() {
+
+            return content.toString();
+        }
     }
 }
@@ -2,20 +2,57 @@ package com.isxcode.spark.common.utils.http;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 
 import com.isxcode.spark.backend.api.base.exceptions.IsxAppException;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 /** 网络请求工具类. */
 @Slf4j
 public class HttpUtils {
 
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * 共享的连接池客户端，通过init按配置重建.
+     */
+    private static volatile RestTemplate restTemplate = createRestTemplate(200, 20, 10000, 600000);
+
+    /**
+     * 初始化连接池.
+     *
+     * @param maxConnections 最大连接数
+     * @param maxConnectionsPerRoute 每个地址的最大连接数
+     * @param connectTimeout 连接超时时间(毫秒)
+     * @param readTimeout 读取超时时间(毫秒)
+     */
+    public static synchronized void init(int maxConnections, int maxConnectionsPerRoute, int connectTimeout,
+        int readTimeout) {
+
+        RestTemplate oldRestTemplate = restTemplate;
+        restTemplate = createRestTemplate(maxConnections, maxConnectionsPerRoute, connectTimeout, readTimeout);
+        closeRestTemplate(oldRestTemplate);
+    }
+
+    public static RestTemplate getRestTemplate() {
+
+        return restTemplate;
+    }
+
     public static <A> A doGet(String url, Map<String, String> requestParams, Map<String, String> headerParams,
         Class<A> targetClass) {
 
@@ -35,7 +72,7 @@ public class HttpUtils {
             requestEntity = new HttpEntity<>(null, headers);
         }
 
-        return new RestTemplate().exchange(requestUrl.toString(), HttpMethod.GET, requestEntity, targetClass).getBody();
+        return restTemplate.exchange(requestUrl.toString(), HttpMethod.GET, requestEntity, targetClass).getBody();
     }
 
     public static <A> A doGet(String url, Class<A> targetClass) {
@@ -50,6 +87,33 @@ public class HttpUtils {
 
     public static <T> T doPost(String url, Map<String, String> headerParams, Object requestParams, Class<T> targetCls) {
 
+        return restTemplate.exchange(url, HttpMethod.POST, createPostEntity(headerParams, requestParams, false),
+            targetCls).getBody();
+    }
+
+    public static <T> T doPost(String url, Object requestParams, Class<T> targetCls) {
+
+        return doPost(url, null, requestParams, targetCls);
+    }
+
+    public static String doPost(String url, Map<String, String> headerParams, Object requestParams) throws IOException {
+
+        return doPost(url, headerParams, requestParams, String.class);
+    }
+
+    /**
+     * 直接反序列化成泛型对象，gzip为true时压缩请求体.
+     */
+    public static <T> T doPost(String url, Object requestParams, ParameterizedTypeReference<T> targetType,
+        boolean gzip) {
+
+        return restTemplate.exchange(url, HttpMethod.POST, createPostEntity(null, requestParams, gzip), targetType)
+            .getBody();
+    }
+
+    private static HttpEntity<byte[]> createPostEntity(Map<String, String> headerParams, Object requestParams,
+        boolean gzip) {
+
         HttpHeaders headers = new HttpHeaders();
 
         if (headerParams == null || headerParams.get(HttpHeaders.CONTENT_TYPE) == null) {
@@ -60,23 +124,56 @@ public class HttpUtils {
             headerParams.forEach(headers::add);
         }
 
-        HttpEntity<String> requestEntity;
         try {
-            requestEntity = new HttpEntity<>(new ObjectMapper().writeValueAsString(requestParams), headers);
+            byte[] body = OBJECT_MAPPER.writeValueAsBytes(requestParams);
+            if (gzip) {
+                headers.add(HttpHeaders.CONTENT_ENCODING, "gzip");
+                body = gzip(body);
+            }
+            return new HttpEntity<>(body, headers);
         } catch (JsonProcessingException e) {
             log.error(e.getMessage(), e);
             throw new IsxAppException(e.getMessage());
         }
-        return new RestTemplate().exchange(url, HttpMethod.POST, requestEntity, targetCls).getBody();
     }
 
-    public static <T> T doPost(String url, Object requestParams, Class<T> targetCls) {
+    private static byte[] gzip(byte[] body) {
 
-        return doPost(url, null, requestParams, targetCls);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+            gzipOutputStream.write(body);
+        } catch (IOException e) {
+            throw new IsxAppException(e.getMessage());
+        }
+        return outputStream.toByteArray();
     }
 
-    public static String doPost(String url, Map<String, String> headerParams, Object requestParams) throws IOException {
+    private static RestTemplate createRestTemplate(int maxConnections, int maxConnectionsPerRoute,
+        int connectTimeout, int readTimeout) {
 
-        return doPost(url, headerParams, requestParams, String.class);
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        connectionManager.setValidateAfterInactivity(2000);
+
+        RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout(connectTimeout)
+            .setConnectionRequestTimeout(connectTimeout).setSocketTimeout(readTimeout).build();
+
+        // 默认开启keep-alive和响应gzip解压，空闲连接定时清理
+        // 所有租户的接口作业共用一个客户端，不保存cookie，避免响应的cookie带到其他请求中
+        CloseableHttpClient httpClient = HttpClientBuilder.create().setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(requestConfig).disableCookieManagement().evictExpiredConnections()
+            .evictIdleConnections(60, TimeUnit.SECONDS).build();
+
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+
+    private static void closeRestTemplate(RestTemplate restTemplate) {
+
+        try {
+            ((HttpComponentsClientHttpRequestFactory) restTemplate.getRequestFactory()).destroy();
+        } catch (Exception e) {
+            log.warn("关闭http连接池异常: {}", e.getMessage());
+        }
     }
 }
@@ -1,11 +1,13 @@
 package com.isxcode.spark.common.utils.jwt;
 
 import cn.hutool.crypto.SecureUtil;
+import cn.hutool.crypto.symmetric.AES;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.isxcode.spark.backend.api.base.exceptions.IsxAppException;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtBuilder;
-import io.jsonwebtoken.JwtParserBuilder;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -18,6 +20,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /** jwt加密工具类. */
 @Slf4j
@@ -25,6 +28,15 @@ public class JwtUtils {
 
     private static final Key key = Keys.secretKeyFor(SignatureAlgorithm.HS256);
 
+    /** 解析器、aes和ObjectMapper都是线程安全的，按密钥复用. */
+    private static final JwtParser DEFAULT_PARSER = Jwts.parserBuilder().setSigningKey(key).build();
+
+    private static final Map<String, JwtParser> PARSERS = new ConcurrentHashMap<>();
+
+    private static final Map<String, AES> AES_MAP = new ConcurrentHashMap<>();
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
     /** jwt加密. */
     public static String encrypt(String aesKey, Object obj, String jwtKey, Integer minutes) {
 
@@ -32,13 +44,13 @@ public class JwtUtils {
 
         String claimsStr = null;
         try {
-            claimsStr = new ObjectMapper().writeValueAsString(obj);
+            claimsStr = OBJECT_MAPPER.writeValueAsString(obj);
         } catch (JsonProcessingException e) {
             log.error(e.getMessage(), e);
             throw new IsxAppException("jwt加密异常");
         }
         if (aesKey != null) {
-            claimsStr = SecureUtil.aes(Arrays.copyOf(aesKey.getBytes(), 1 << 5)).encryptBase64(claimsStr);
+            claimsStr = getAes(aesKey).encryptBase64(claimsStr);
         }
         claims.put("CLAIM", claimsStr);
 
@@ -64,28 +76,36 @@ public class JwtUtils {
     /** jwt解密. */
     public static <A> A decrypt(String aesKey, String jwtString, String jwtKey, Class<A> targetClass) {
 
-        JwtParserBuilder jwtParserBuilder = Jwts.parserBuilder();
-
-        if (jwtKey == null) {
-            jwtParserBuilder = jwtParserBuilder.setSigningKey(key);
-        } else {
-            jwtParserBuilder =
-                jwtParserBuilder.setSigningKey(Keys.hmacShaKeyFor(Arrays.copyOf(jwtKey.getBytes(), 1 << 5)));
-        }
-
-        String claimStr = jwtParserBuilder.build().parseClaimsJws(jwtString).getBody().get("CLAIM", String.class);
+        String claimStr = parseClaims(jwtString, jwtKey).get("CLAIM", String.class);
 
         String targetJsonStr = claimStr;
         if (aesKey != null) {
-            targetJsonStr = SecureUtil.aes(Arrays.copyOf(aesKey.getBytes(), 1 << 5)).decryptStr(claimStr);
+            targetJsonStr = getAes(aesKey).decryptStr(claimStr);
         }
 
-        ObjectMapper objectMapper = new ObjectMapper();
         try {
-            return objectMapper.readValue(targetJsonStr, targetClass);
+            return OBJECT_MAPPER.readValue(targetJsonStr, targetClass);
         } catch (JsonProcessingException e) {
             log.error(e.getMessage(), e);
             throw new IsxAppException("jwt解密异常");
         }
     }
+
+    /** jwt过期时间，没有过期时间返回null. */
+    public static Date getExpiration(String jwtString, String jwtKey) {
+
+        return parseClaims(jwtString, jwtKey).getExpiration();
+    }
+
+    private static Claims parseClaims(String jwtString, String jwtKey) {
+
+        JwtParser jwtParser = jwtKey == null ? DEFAULT_PARSER : PARSERS.computeIfAbsent(jwtKey,
+            k -> Jwts.parserBuilder().setSigningKey(Keys.hmacShaKeyFor(Arrays.copyOf(k.getBytes(), 1 << 5))).build());
+        return jwtParser.parseClaimsJws(jwtString).getBody();
+    }
+
+    private static AES getAes(String aesKey) {
+
+        return AES_MAP.computeIfAbsent(aesKey, k -> SecureUtil.aes(Arrays.copyOf(k.getBytes(), 1 << 5)));
+    }
 }
@@ -0,0 +1,272 @@
+package com.isxcode.spark.common.utils.ssh;
+
+import cn.hutool.crypto.SecureUtil;
+import com.isxcode.spark.api.cluster.dto.ScpFileEngineNodeDto;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+
+import java.util.Deque;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ssh会话池.
+ *
+ * <p>
+ * 按用户、地址、端口和密钥区分会话，每个主机限制最大会话数，空闲会话定时关闭. 远程命令可能执行很久，不占用上传文件的会话，
+ * 每个主机的命令共用一个会话，单独限制同时执行的命令数.
+ * </p>
+ */
+class SshSessionPool {
+
+    /**
+     * 每个主机的最大会话数.
+     */
+    private static final int MAX_SESSIONS_PER_HOST = 8;
+
+    /**
+     * 每个主机同时执行的远程命令数，命令共用一个会话，不能超过sshd的MaxSessions(默认10).
+     */
+    private static final int MAX_EXEC_CHANNELS_PER_HOST = 8;
+
+    /**
+     * 等待可用会话的最大时间.(秒)
+     */
+    private static final long BORROW_TIMEOUT = 120;
+
+    /**
+     * 会话最大空闲时间.(毫秒)
+     */
+    private static final long IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+
+    private static final Map<String, HostSessions> HOST_SESSIONS = new ConcurrentHashMap<>();
+
+    static {
+        ScheduledExecutorService cleaner = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sshSessionPoolCleaner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cleaner.scheduleWithFixedDelay(SshSessionPool::closeIdleSessions, 1, 1, TimeUnit.MINUTES);
+    }
+
+    private SshSessionPool() {}
+
+    /**
+     * 获取会话，没有空闲会话时新建.
+     */
+    static PooledSession borrow(ScpFileEngineNodeDto engineNode) throws JSchException, InterruptedException {
+
+        HostSessions hostSessions = HOST_SESSIONS.computeIfAbsent(getKey(engineNode), k -> new HostSessions());
+
+        if (!hostSessions.permits.tryAcquire(BORROW_TIMEOUT, TimeUnit.SECONDS)) {
+            throw new JSchException("ssh连接数已满，等待超时: " + engineNode.getHost());
+        }
+
+        try {
+            PooledSession pooledSession;
+            while ((pooledSession = hostSessions.idleSessions.pollFirst()) != null) {
+                if (pooledSession.getSession().isConnected()) {
+                    return pooledSession;
+                }
+                pooledSession.getSession().disconnect();
+            }
+            return new PooledSession(hostSessions, createSession(engineNode), false);
+        } catch (JSchException | RuntimeException e) {
+            hostSessions.permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 获取执行远程命令的共用会话，只占用命令数，不占用会话数.
+     */
+    static PooledSession borrowExec(ScpFileEngineNodeDto engineNode) throws JSchException, InterruptedException {
+
+        HostSessions hostSessions = HOST_SESSIONS.computeIfAbsent(getKey(engineNode), k -> new HostSessions());
+
+        if (!hostSessions.execPermits.tryAcquire(BORROW_TIMEOUT, TimeUnit.SECONDS)) {
+            throw new JSchException("ssh执行命令数已满，等待超时: " + engineNode.getHost());
+        }
+
+        try {
+            return new PooledSession(hostSessions, hostSessions.getExecSession(engineNode), true);
+        } catch (JSchException | RuntimeException e) {
+            hostSessions.execPermits.release();
+            throw e;
+        }
+    }
+
+    private static Session createSession(ScpFileEngineNodeDto engineNode) throws JSchException {
+
+        // 初始化jsch
+        JSch jsch = new JSch();
+
+        if (engineNode.getPasswd().length() > 1000) {
+            jsch.addIdentity(engineNode.getUsername(), engineNode.getPasswd().getBytes(), null, null);
+        }
+
+        Session session =
+            jsch.getSession(engineNode.getUsername(), engineNode.getHost(), Integer.parseInt(engineNode.getPort()));
+
+        // 连接远程服务器
+        if (engineNode.getPasswd().length() < 1000) {
+            session.setPassword(engineNode.getPasswd());
+        }
+
+        Properties config = new Properties();
+        config.put("StrictHostKeyChecking", "no");
+        config.put("ConnectTimeout", "30000");
+        config.put("ServerAliveInterval", "30000");
+        config.put("ServerAliveCountMax", "3");
+        session.setConfig(config);
+        session.setTimeout(30000);
+        session.connect();
+        return session;
+    }
+
+    private static String getKey(ScpFileEngineNodeDto engineNode) {
+
+        return engineNode.getUsername() + "@" + engineNode.getHost() + ":" + engineNode.getPort() + "#"
+            + SecureUtil.md5(engineNode.getPasswd());
+    }
+
+    private static void closeIdleSessions() {
+
+        long idleTime = System.currentTimeMillis() - IDLE_TIMEOUT;
+        HOST_SESSIONS.values().forEach(hostSessions -> {
+            hostSessions.idleSessions.removeIf(e -> {
+                if (e.lastUsedTime < idleTime || !e.getSession().isConnected()) {
+                    e.getSession().disconnect();
+                    return true;
+                }
+                return false;
+            });
+            hostSessions.closeIdleExecSession(idleTime);
+        });
+    }
+
+    private static class HostSessions {
+
+        private final Semaphore permits = new Semaphore(MAX_SESSIONS_PER_HOST);
+
+        private final Deque<PooledSession> idleSessions = new ConcurrentLinkedDeque<>();
+
+        private final Semaphore execPermits = new Semaphore(MAX_EXEC_CHANNELS_PER_HOST);
+
+        private Session execSession;
+
+        private volatile long execLastUsedTime;
+
+        private synchronized Session getExecSession(ScpFileEngineNodeDto engineNode) throws JSchException {
+
+            if (execSession == null || !execSession.isConnected()) {
+                execSession = createSession(engineNode);
+            }
+            return execSession;
+        }
+
+        private synchronized void closeExecSession(Session session) {
+
+            session.disconnect();
+            if (execSession == session) {
+                execSession = null;
+            }
+        }
+
+        /**
+         * 会话异常时，其他命令还在执行且会话未断开则保留，避免中断其他命令.
+         */
+        private synchronized void closeBrokenExecSession(Session session) {
+
+            if (!session.isConnected() || execPermits.availablePermits() == MAX_EXEC_CHANNELS_PER_HOST - 1) {
+                closeExecSession(session);
+            }
+        }
+
+        /**
+         * 没有正在执行的命令且长时间未使用时关闭，获取会话前已经占用了命令数，不会关闭正在使用的会话.
+         */
+        private synchronized void closeIdleExecSession(long idleTime) {
+
+            if (execSession != null && execPermits.availablePermits() == MAX_EXEC_CHANNELS_PER_HOST
+                && (execLastUsedTime < idleTime || !execSession.isConnected())) {
+                closeExecSession(execSession);
+            }
+        }
+    }
+
+    /**
+     * 池化的会话，关闭时放回会话池.
+     */
+    static class PooledSession implements AutoCloseable {
+
+        private final HostSessions hostSessions;
+
+        private final Session session;
+
+        /**
+         * 执行命令的共用会话.
+         */
+        private final boolean shared;
+
+        private volatile long lastUsedTime;
+
+        private boolean broken;
+
+        private PooledSession(HostSessions hostSessions, Session session, boolean shared) {
+
+            this.hostSessions = hostSessions;
+            this.session = session;
+            this.shared = shared;
+        }
+
+        Session getSession() {
+
+            return session;
+        }
+
+        /**
+         * 会话异常，关闭时直接断开.
+         */
+        void invalidate() {
+
+            broken = true;
+        }
+
+        @Override
+        public void close() {
+
+            if (shared) {
+                try {
+                    if (broken) {
+                        hostSessions.closeBrokenExecSession(session);
+                    } else {
+                        hostSessions.execLastUsedTime = System.currentTimeMillis();
+                    }
+                } finally {
+                    hostSessions.execPermits.release();
+                }
+                return;
+            }
+
+            try {
+                if (broken || !session.isConnected()) {
+                    session.disconnect();
+                } else {
+                    lastUsedTime = System.currentTimeMillis();
+                    hostSessions.idleSessions.offerFirst(this);
+                }
+            } finally {
+                hostSessions.permits.release();
+            }
+        }
+    }
+}
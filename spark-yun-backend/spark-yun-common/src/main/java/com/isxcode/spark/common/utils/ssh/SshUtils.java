@@ -1,9 +1,10 @@
 package com.isxcode.spark.common.utils.ssh;
 
+import cn.hutool.crypto.SecureUtil;
 import com.isxcode.spark.api.cluster.dto.ScpFileEngineNodeDto;
+import com.isxcode.spark.common.utils.ssh.SshSessionPool.PooledSession;
 import com.jcraft.jsch.ChannelExec;
 import com.jcraft.jsch.ChannelSftp;
-import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.Session;
 import com.jcraft.jsch.SftpATTRS;
@@ -12,10 +13,14 @@ import com.jcraft.jsch.SftpException;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.FileSystemResourceLoader;
+import org.springframework.core.io.Resource;
 
 /**
  * ssh连接工具类.
@@ -23,128 +28,80 @@ import org.springframework.core.io.FileSystemResourceLoader;
 @Slf4j
 public class SshUtils {
 
+    /**
+     * 本地文件的md5缓存，key为文件路径，value为 大小:修改时间:md5.
+     */
+    private static final Map<String, String> LOCAL_MD5_CACHE = new ConcurrentHashMap<>();
+
     /**
      * scp传递文件.
      */
     public static void scpFile(ScpFileEngineNodeDto engineNode, String srcPath, String dstPath)
         throws JSchException, SftpException, InterruptedException, IOException {
 
-        // 初始化jsch
-        JSch jsch = new JSch();
-
-        if (engineNode.getPasswd().length() > 1000) {
-            jsch.addIdentity(engineNode.getUsername(), engineNode.getPasswd().getBytes(), null, null);
-        }
+        FileSystemResourceLoader resourceLoader = new FileSystemResourceLoader();
+        Resource resource = resourceLoader.getResource(srcPath);
 
-        Session session =
-            jsch.getSession(engineNode.getUsername(), engineNode.getHost(), Integer.parseInt(engineNode.getPort()));
+        try (PooledSession pooledSession = SshSessionPool.borrow(engineNode)) {
 
-        // 连接远程服务器
-        if (engineNode.getPasswd().length() < 1000) {
-            session.setPassword(engineNode.getPasswd());
-        }
+            // 上传文件
+            ChannelSftp channel = openSftpChannel(pooledSession);
+            try (InputStream inputStream = resource.getInputStream()) {
+                channel.put(inputStream, dstPath);
 
-        java.util.Properties config = new java.util.Properties();
-        config.put("StrictHostKeyChecking", "no");
-        config.put("ConnectTimeout", "30000");
-        config.put("ServerAliveInterval", "30000");
-        config.put("ServerAliveCountMax", "3");
-        session.setConfig(config);
-        session.setTimeout(30000);
-        session.connect();
-
-        // 上传文件
-        ChannelSftp channel;
-        channel = (ChannelSftp) session.openChannel("sftp");
-        channel.connect(120000);
-        FileSystemResourceLoader resourceLoader = new FileSystemResourceLoader();
-        channel.put(resourceLoader.getResource(srcPath).getInputStream(), dstPath);
-
-        // 文件校验
-        SftpATTRS attrs;
-        while (true) {
-            attrs = channel.stat(dstPath);
-            if (attrs != null) {
-                long remoteFileSize = attrs.getSize();
-                long localFileSize = resourceLoader.getResource(srcPath).contentLength();
-                if (remoteFileSize == localFileSize) {
-                    break;
-                }
+                // 文件校验
+                checkFileSize(channel, dstPath, resource.contentLength());
+            } finally {
+                channel.disconnect();
             }
-            Thread.sleep(2000);
         }
-
-        channel.disconnect();
-        session.disconnect();
     }
 
     /**
-     * 执行远程命令.
+     * 执行远程命令，使用命令的共用会话，长时间的命令不会占满上传文件的会话.
      */
     public static String executeCommand(ScpFileEngineNodeDto engineNode, String command, boolean pty)
         throws JSchException, InterruptedException, IOException {
 
-        JSch jsch = new JSch();
-
-        if (engineNode.getPasswd().length() > 1000) {
-            jsch.addIdentity(engineNode.getUsername(), engineNode.getPasswd().getBytes(), null, null);
-        }
-
-        Session session;
-
-        session =
-            jsch.getSession(engineNode.getUsername(), engineNode.getHost(), Integer.parseInt(engineNode.getPort()));
-
-        if (engineNode.getPasswd().length() < 1000) {
-            session.setPassword(engineNode.getPasswd());
-        }
-
-        java.util.Properties config = new java.util.Properties();
-        config.put("StrictHostKeyChecking", "no");
-        config.put("ConnectTimeout", "30000");
-        config.put("ServerAliveInterval", "30000");
-        config.put("ServerAliveCountMax", "3");
-        session.setConfig(config);
-        session.setTimeout(30000);
-        session.connect();
-
-        ChannelExec channel = (ChannelExec) session.openChannel("exec");
-        channel.setPty(pty);
-        channel.setCommand(command);
-        channel.setInputStream(null);
-        channel.setErrStream(null);
-
-        InputStream in = channel.getInputStream();
-        InputStream err = channel.getErrStream();
-        channel.connect();
-        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
-        String line;
-        StringBuilder output = new StringBuilder();
-        while ((line = reader.readLine()) != null) {
-            output.append(line).append("\n");
-        }
+        try (PooledSession pooledSession = SshSessionPool.borrowExec(engineNode)) {
+
+            ChannelExec channel = openExecChannel(pooledSession);
+            channel.setPty(pty);
+            channel.setCommand(command);
+            channel.setInputStream(null);
+            channel.setErrStream(null);
+
+            InputStream in = channel.getInputStream();
+            InputStream err = channel.getErrStream();
+            channel.connect();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            StringBuilder output = new StringBuilder();
+            while ((line = reader.readLine()) != null) {
+                output.append(line).append("\n");
+            }
 
-        BufferedReader errReader = new BufferedReader(new InputStreamReader(err, StandardCharsets.UTF_8));
-        String errLine;
-        StringBuilder errOutput = new StringBuilder();
-        while ((errLine = errReader.readLine()) != null) {
-            errOutput.append(errLine).append("\n");
-        }
+            BufferedReader errReader = new BufferedReader(new InputStreamReader(err, StandardCharsets.UTF_8));
+            String errLine;
+            StringBuilder errOutput = new StringBuilder();
+            while ((errLine = errReader.readLine()) != null) {
+                errOutput.append(errLine).append("\n");
+            }
 
-        while (!channel.isClosed()) {
-            Thread.sleep(2000);
-        }
+            while (!channel.isClosed()) {
+                Thread.sleep(100);
+            }
 
-        // 判断命令是否执行完成
-        int exitStatus = channel.getExitStatus();
-        channel.disconnect();
-        session.disconnect();
+            // 判断命令是否执行完成
+            int exitStatus = channel.getExitStatus();
+            channel.disconnect();
 
-        if (exitStatus != 0) {
-            return "{\n" + "        \"execStatus\":\"ERROR\",\n" + "        \"log\":\"" + errOutput + "\"\n"
-                + "      }";
-        } else {
-            return output.toString();
+            if (exitStatus != 0) {
+                return "{\n" + "        \"execStatus\":\"ERROR\",\n" + "        \"log\":\"" + errOutput + "\"\n"
+                    + "      }";
+            } else {
+                return output.toString();
+            }
         }
     }
 
@@ -154,107 +111,132 @@ public class SshUtils {
     public static void scpText(ScpFileEngineNodeDto engineNode, String content, String dstPath)
         throws JSchException, SftpException, InterruptedException {
 
-        // 初始化jsch
-        JSch jsch = new JSch();
+        byte[] bytes = content.getBytes();
 
-        if (engineNode.getPasswd().length() > 1000) {
-            jsch.addIdentity(engineNode.getUsername(), engineNode.getPasswd().getBytes(), null, null);
-        }
+        try (PooledSession pooledSession = SshSessionPool.borrow(engineNode)) {
 
-        Session session =
-            jsch.getSession(engineNode.getUsername(), engineNode.getHost(), Integer.parseInt(engineNode.getPort()));
+            // 上传文件
+            ChannelSftp channel = openSftpChannel(pooledSession);
+            try {
+                channel.put(new ByteArrayInputStream(bytes), dstPath);
 
-        // 连接远程服务器
-        if (engineNode.getPasswd().length() < 1000) {
-            session.setPassword(engineNode.getPasswd());
-        }
-
-        java.util.Properties config = new java.util.Properties();
-        config.put("StrictHostKeyChecking", "no");
-        config.put("ConnectTimeout", "30000");
-        config.put("ServerAliveInterval", "30000");
-        config.put("ServerAliveCountMax", "3");
-        session.setConfig(config);
-        session.setTimeout(30000);
-        session.connect();
-
-        // 上传文件
-        ChannelSftp channel;
-        channel = (ChannelSftp) session.openChannel("sftp");
-        channel.connect(120000);
-        InputStream inputStream = new ByteArrayInputStream(content.getBytes());
-        channel.put(inputStream, dstPath);
-
-        // 文件校验
-        SftpATTRS attrs;
-        while (true) {
-            attrs = channel.stat(dstPath);
-            if (attrs != null) {
-                long remoteFileSize = attrs.getSize();
-                long localFileSize = content.getBytes().length;
-                if (remoteFileSize == localFileSize) {
-                    break;
-                }
+                // 文件校验
+                checkFileSize(channel, dstPath, bytes.length);
+            } finally {
+                channel.disconnect();
             }
-            Thread.sleep(2000);
         }
-
-        channel.disconnect();
-        session.disconnect();
     }
 
     /**
-     * scp传递Jar.
+     * scp传递Jar，远程文件md5一致时跳过上传.
      */
     public static void scpJar(ScpFileEngineNodeDto engineNode, String srcPath, String dstPath)
         throws JSchException, SftpException, InterruptedException, IOException {
 
-        // 初始化jsch
-        JSch jsch = new JSch();
+        Path localPath = Paths.get(srcPath);
+        String localMd5 = getLocalMd5(localPath);
+
+        try (PooledSession pooledSession = SshSessionPool.borrow(engineNode)) {
+
+            // 远程文件已存在且内容一致，不需要重复上传
+            if (localMd5.equals(getRemoteMd5(pooledSession, dstPath))) {
+                log.debug("远程文件未变化，跳过上传: {}", dstPath);
+                return;
+            }
+
+            // 上传文件
+            ChannelSftp channel = openSftpChannel(pooledSession);
+            try (InputStream inputStream = Files.newInputStream(localPath)) {
+                channel.put(inputStream, dstPath);
+
+                // 优先使用md5校验，远程没有md5sum命令时校验文件大小
+                String remoteMd5 = getRemoteMd5(pooledSession, dstPath);
+                if (remoteMd5 == null) {
+                    checkFileSize(channel, dstPath, Files.size(localPath));
+                } else if (!localMd5.equals(remoteMd5)) {
+                    throw new IOException("文件上传校验失败: " + dstPath);
+                }
+            } finally {
+                channel.disconnect();
+            }
+        }
+    }
+
+    private static ChannelSftp openSftpChannel(PooledSession pooledSession) throws JSchException {
 
-        if (engineNode.getPasswd().length() > 1000) {
-            jsch.addIdentity(engineNode.getUsername(), engineNode.getPasswd().getBytes(), null, null);
+        try {
+            ChannelSftp channel = (ChannelSftp) pooledSession.getSession().openChannel("sftp");
+            channel.connect(120000);
+            return channel;
+        } catch (JSchException e) {
+            pooledSession.invalidate();
+            throw e;
         }
+    }
 
-        Session session =
-            jsch.getSession(engineNode.getUsername(), engineNode.getHost(), Integer.parseInt(engineNode.getPort()));
+    private static ChannelExec openExecChannel(PooledSession pooledSession) throws JSchException {
 
-        // 连接远程服务器
-        if (engineNode.getPasswd().length() < 1000) {
-            session.setPassword(engineNode.getPasswd());
+        try {
+            return (ChannelExec) pooledSession.getSession().openChannel("exec");
+        } catch (JSchException e) {
+            pooledSession.invalidate();
+            throw e;
         }
+    }
 
-        java.util.Properties config = new java.util.Properties();
-        config.put("StrictHostKeyChecking", "no");
-        config.put("ConnectTimeout", "30000");
-        config.put("ServerAliveInterval", "30000");
-        config.put("ServerAliveCountMax", "3");
-        session.setConfig(config);
-        session.setTimeout(30000);
-        session.connect();
-
-        // 上传文件
-        ChannelSftp channel;
-        channel = (ChannelSftp) session.openChannel("sftp");
-        channel.connect(120000);
-        FileSystemResourceLoader resourceLoader = new FileSystemResourceLoader();
-        channel.put(Files.newInputStream(Paths.get(srcPath)), dstPath);
-
-        // 文件校验
-        SftpATTRS attrs;
-        while (true) {
-            attrs = channel.stat(dstPath);
-            if (attrs != null) {
-                long remoteFileSize = attrs.getSize();
-                long localFileSize = Files.size(Paths.get(srcPath));
-                if (remoteFileSize == localFileSize) {
-                    break;
-                }
+    private static void checkFileSize(ChannelSftp channel, String dstPath, long localFileSize)
+        throws SftpException {
+
+        SftpATTRS attrs = channel.stat(dstPath);
+        if (attrs == null || attrs.getSize() != localFileSize) {
+            throw new SftpException(ChannelSftp.SSH_FX_FAILURE, "文件上传校验失败: " + dstPath);
+        }
+    }
+
+    /**
+     * 获取远程文件的md5，文件不存在或者没有md5sum命令返回null.
+     */
+    private static String getRemoteMd5(PooledSession pooledSession, String dstPath)
+        throws JSchException, IOException, InterruptedException {
+
+        Session session = pooledSession.getSession();
+        ChannelExec channel = openExecChannel(pooledSession);
+        try {
+            channel.setCommand("md5sum '" + dstPath.replace("'", "'\\''") + "' 2>/dev/null");
+            channel.setInputStream(null);
+            InputStream in = channel.getInputStream();
+            channel.connect();
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line = reader.readLine();
+            while (!channel.isClosed() && session.isConnected()) {
+                Thread.sleep(10);
+            }
+            if (channel.getExitStatus() != 0 || line == null || line.trim().isEmpty()) {
+                return null;
             }
-            Thread.sleep(2000);
+            return line.trim().split("\\s+")[0];
+        } finally {
+            channel.disconnect();
+        }
+    }
+
+    /**
+     * 获取本地文件的md5，文件未变化时使用缓存.
+     */
+    private static String getLocalMd5(Path localPath) throws IOException {
+
+        String key = localPath.toAbsolutePath().toString();
+        String version = Files.size(localPath) + ":" + Files.getLastModifiedTime(localPath).toMillis() + ":";
+
+        String cache = LOCAL_MD5_CACHE.get(key);
+        if (cache != null && cache.startsWith(version)) {
+            return cache.substring(version.length());
         }
 
-        channel.disconnect();
-        session.disconnect();
+        String md5 = SecureUtil.md5(localPath.toFile());
+        LOCAL_MD5_CACHE.put(key, version + md5);
+        return md5;
     }
 }
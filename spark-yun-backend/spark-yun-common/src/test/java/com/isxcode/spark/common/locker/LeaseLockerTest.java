@@ -0,0 +1,244 @@
+package com.isxcode.spark.common.locker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+/**
+ * 租约锁的并发测试，租约表用内存实现代替.
+ */
+@Slf4j
+class LeaseLockerTest {
+
+    private static final int THREADS = 16;
+
+    private static final int TIMES = 2000;
+
+    /**
+     * 对比改造前后的吞吐时，每个线程的加锁次数，改造前的锁每次加锁至少等待500毫秒.
+     */
+    private static final int COMPARE_TIMES = 2;
+
+    private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+
+    /**
+     * 改造前的锁表，按id排序.
+     */
+    private final Map<Integer, String> legacyLocks = new ConcurrentSkipListMap<>();
+
+    private LockerLeaseRepository lockerLeaseRepository;
+
+    private IsxAppProperties isxAppProperties;
+
+    private int counter;
+
+    @BeforeEach
+    void setUp() {
+
+        isxAppProperties = new IsxAppProperties();
+        isxAppProperties.setAppName("test");
+
+        lockerLeaseRepository = mock(LockerLeaseRepository.class);
+        when(lockerLeaseRepository.acquire(anyString(), anyString(), anyLong(), anyLong())).thenAnswer(i -> {
+            Lease lease = leases.get(i.<String>getArgument(0));
+            if (lease == null) {
+                return 0;
+            }
+            synchronized (lease) {
+                if (lease.owner != null && lease.expireTime >= i.<Long>getArgument(2)) {
+                    return 0;
+                }
+                lease.owner = i.getArgument(1);
+                lease.expireTime = i.getArgument(3);
+                return 1;
+            }
+        });
+        when(lockerLeaseRepository.existsById(anyString()))
+            .thenAnswer(i -> leases.containsKey(i.<String>getArgument(0)));
+        when(lockerLeaseRepository.create(anyString(), anyString(), anyLong(), anyLong())).thenAnswer(i -> {
+            Lease lease = new Lease(i.getArgument(1), i.getArgument(3));
+            if (leases.putIfAbsent(i.getArgument(0), lease) != null) {
+                throw new DataIntegrityViolationException("duplicate");
+            }
+            return 1;
+        });
+        when(lockerLeaseRepository.release(anyString(), anyString())).thenAnswer(i -> {
+            Lease lease = leases.get(i.<String>getArgument(0));
+            synchronized (lease) {
+                if (!i.getArgument(1).equals(lease.owner)) {
+                    return 0;
+                }
+                lease.owner = null;
+                lease.expireTime = 0;
+                return 1;
+            }
+        });
+    }
+
+    @Test
+    void testMutualExclusionAcrossNodes() throws Exception {
+
+        // 两个节点竞争同一把锁
+        LeaseLocker node1 = newLocker();
+        LeaseLocker node2 = newLocker();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            LeaseLocker locker = i % 2 == 0 ? node1 : node2;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < TIMES / 10; j++) {
+                    locker.lock("work_event_thread_1");
+                    try {
+                        counter++;
+                    } finally {
+                        locker.unlock("work_event_thread_1");
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(THREADS * TIMES / 10, counter);
+    }
+
+    @Test
+    void testThroughputComparedWithLegacyLocker() throws Exception {
+
+        // 改造前，每次加锁插入一行，按最小id排队，每次轮询等待500毫秒
+        Locker legacyLocker = newLegacyLocker();
+        long legacyRps = measure(name -> legacyLocker.unlock(legacyLocker.lock(name)));
+
+        // 改造后，进程内先竞争本地锁，再续用租约
+        LeaseLocker locker = newLocker();
+        long leaseRps = measure(name -> {
+            locker.lock(name);
+            locker.unlock(name);
+        });
+
+        log.info("锁吞吐，改造前: {}次/秒，改造后: {}次/秒", legacyRps, leaseRps);
+        assertTrue(leaseRps > legacyRps * 10, legacyRps + " / " + leaseRps);
+        assertTrue(legacyLocks.isEmpty());
+        assertTrue(leases.values().stream().allMatch(e -> e.owner == null));
+    }
+
+    @Test
+    void testReentrantAndTryLock() throws Exception {
+
+        LeaseLocker locker = newLocker();
+        LeaseLocker otherNode = newLocker();
+
+        locker.lock("work_event_thread_2");
+        locker.lock("work_event_thread_2");
+        assertFalse(otherNode.tryLock("work_event_thread_2"));
+
+        // 其他线程不能解锁
+        Thread thread = new Thread(() -> locker.unlock("work_event_thread_2"));
+        thread.start();
+        thread.join();
+        assertFalse(otherNode.tryLock("work_event_thread_2"));
+
+        locker.unlock("work_event_thread_2");
+        assertFalse(otherNode.tryLock("work_event_thread_2"));
+        locker.unlock("work_event_thread_2");
+        assertTrue(otherNode.tryLock("work_event_thread_2"));
+        otherNode.unlock("work_event_thread_2");
+    }
+
+    /**
+     * 多线程竞争4把锁，每个线程加锁解锁COMPARE_TIMES次，返回每秒加锁次数.
+     */
+    private long measure(Consumer<String> lockAndUnlock) throws Exception {
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        long startTime = System.nanoTime();
+        for (int i = 0; i < THREADS; i++) {
+            String name = "work_event_thread_" + (i % 4);
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < COMPARE_TIMES; j++) {
+                    lockAndUnlock.accept(name);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        long costMillis = Math.max(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), 1);
+        return THREADS * COMPARE_TIMES * 1000L / costMillis;
+    }
+
+    /**
+     * 改造前的锁，锁表用内存实现代替.
+     */
+    private Locker newLegacyLocker() {
+
+        AtomicInteger ids = new AtomicInteger();
+        LockerRepository lockerRepository = mock(LockerRepository.class);
+        when(lockerRepository.save(any(LockerEntity.class))).thenAnswer(i -> {
+            LockerEntity lockerEntity = i.getArgument(0);
+            lockerEntity.setId(ids.incrementAndGet());
+            legacyLocks.put(lockerEntity.getId(), lockerEntity.getName());
+            return lockerEntity;
+        });
+        when(lockerRepository.getMinId(anyString())).thenAnswer(i -> legacyLocks.entrySet().stream()
+            .filter(e -> e.getValue().equals(i.getArgument(0))).map(Map.Entry::getKey).findFirst().orElse(null));
+        doAnswer(i -> legacyLocks.remove(i.<Integer>getArgument(0))).when(lockerRepository).deleteById(anyInt());
+        return new Locker(lockerRepository);
+    }
+
+    private LeaseLocker newLocker() {
+
+        LeaseLocker locker = new LeaseLocker(lockerLeaseRepository, isxAppProperties);
+        locker.initOwner();
+        return locker;
+    }
+
+    private static class Lease {
+
+        private String owner;
+
+        private long expireTime;
+
+        private Lease(String owner, long expireTime) {
+
+            this.owner = owner;
+            this.expireTime = expireTime;
+        }
+    }
+}
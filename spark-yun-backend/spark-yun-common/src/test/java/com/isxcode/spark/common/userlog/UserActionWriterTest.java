@@ -0,0 +1,165 @@
+package com.isxcode.spark.common.userlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+/**
+ * 用户操作日志环形缓冲区的并发测试，写库用内存列表代替.
+ */
+class UserActionWriterTest {
+
+    private static final int PRODUCERS = 8;
+
+    private static final int TIMES = 20000;
+
+    /**
+     * 只由消费线程写入.
+     */
+    private final List<UserActionEntity> written = new ArrayList<>();
+
+    private JdbcTemplate jdbcTemplate;
+
+    private ExecutorService executor;
+
+    private UserActionWriter userActionWriter;
+
+    @BeforeEach
+    void setUp() {
+
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(),
+            any(ParameterizedPreparedStatementSetter.class))).thenAnswer(i -> {
+                written.addAll(i.<Collection<UserActionEntity>>getArgument(1));
+                return new int[0][];
+            });
+        executor = Executors.newFixedThreadPool(PRODUCERS + 1);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+
+        executor.shutdownNow();
+        userActionWriter.stop();
+    }
+
+    @Test
+    void testConcurrentOfferAndFlush() throws Exception {
+
+        userActionWriter = newWriter(1024);
+
+        // 多个生产者写入的同时，消费者不停写库
+        AtomicBoolean producing = new AtomicBoolean(true);
+        Future<?> consumer = executor.submit(() -> {
+            while (producing.get()) {
+                userActionWriter.flush();
+            }
+            return null;
+        });
+        List<Set<String>> accepted = offerConcurrently(TIMES);
+        producing.set(false);
+        consumer.get(60, TimeUnit.SECONDS);
+        userActionWriter.flush();
+
+        // 放入成功的日志不丢失、不重复，放入失败的都计入丢弃数
+        Set<String> acceptedPaths = new HashSet<>();
+        accepted.forEach(acceptedPaths::addAll);
+        Set<String> writtenPaths = new HashSet<>();
+        written.forEach(e -> assertTrue(writtenPaths.add(e.getReqPath()), "重复写入: " + e.getReqPath()));
+        assertEquals(acceptedPaths, writtenPaths);
+        assertEquals(PRODUCERS * TIMES - acceptedPaths.size(), userActionWriter.getDroppedCount());
+    }
+
+    @Test
+    void testDroppedCountWhenFull() throws Exception {
+
+        userActionWriter = newWriter(100);
+
+        // 没有消费者，缓冲区写满后全部丢弃
+        List<Set<String>> accepted = offerConcurrently(1000);
+        int acceptedCount = accepted.stream().mapToInt(Set::size).sum();
+
+        assertEquals(100, acceptedCount);
+        assertEquals(PRODUCERS * 1000 - 100, userActionWriter.getDroppedCount());
+
+        userActionWriter.flush();
+        assertEquals(100, written.size());
+        assertEquals(100, written.stream().map(UserActionEntity::getReqPath).distinct().count());
+
+        // 写库后腾出的位置可以继续使用
+        assertTrue(userActionWriter.offer(newUserAction("after_flush")));
+    }
+
+    /**
+     * 生产者同时开始，每个生产者写入times条，返回每个生产者放入成功的日志.
+     */
+    private List<Set<String>> offerConcurrently(int times) throws Exception {
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Set<String>>> futures = new ArrayList<>();
+        for (int i = 0; i < PRODUCERS; i++) {
+            int producer = i;
+            futures.add(executor.submit(() -> {
+                Set<String> accepted = new HashSet<>();
+                start.await();
+                for (int j = 0; j < times; j++) {
+                    String reqPath = "/producer_" + producer + "/" + j;
+                    if (userActionWriter.offer(newUserAction(reqPath))) {
+                        accepted.add(reqPath);
+                    }
+                }
+                return accepted;
+            }));
+        }
+        start.countDown();
+
+        List<Set<String>> accepted = new ArrayList<>();
+        for (Future<Set<String>> future : futures) {
+            accepted.add(future.get(60, TimeUnit.SECONDS));
+        }
+        return accepted;
+    }
+
+    private UserActionWriter newWriter(int bufferSize) {
+
+        IsxAppProperties isxAppProperties = new IsxAppProperties();
+        isxAppProperties.setLogAdvice(true);
+        isxAppProperties.setLogAdviceBufferSize(bufferSize);
+        // 测试中手动写库
+        isxAppProperties.setLogAdviceFlushInterval(TimeUnit.HOURS.toMillis(1));
+
+        UserActionWriter writer = new UserActionWriter(jdbcTemplate, isxAppProperties);
+        writer.start();
+        return writer;
+    }
+
+    private static UserActionEntity newUserAction(String reqPath) {
+
+        UserActionEntity userAction = new UserActionEntity();
+        userAction.setReqPath(reqPath);
+        return userAction;
+    }
+}
@@ -0,0 +1,109 @@
+package com.isxcode.spark.common.userlog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.aspectj.lang.JoinPoint;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * 用户操作日志的请求头和请求体在序列化时截断.
+ */
+class UserLogAdviceTest {
+
+    private static final int ITEMS = 100000;
+
+    private final AtomicInteger getterCount = new AtomicInteger();
+
+    private UserActionWriter userActionWriter;
+
+    private UserLogAdvice userLogAdvice;
+
+    @BeforeEach
+    void setUp() {
+
+        IsxAppProperties isxAppProperties = new IsxAppProperties();
+        isxAppProperties.setLogAdvice(true);
+        isxAppProperties.setLogAdviceHeaderMaxLength(50);
+        isxAppProperties.setLogAdviceBodyMaxLength(100);
+
+        userActionWriter = mock(UserActionWriter.class);
+        userLogAdvice = new UserLogAdvice(userActionWriter, isxAppProperties);
+    }
+
+    @AfterEach
+    void tearDown() {
+
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void testTruncateWhileSerializing() {
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/work/addWork");
+        for (int i = 0; i < 100; i++) {
+            request.addHeader("x-header-" + i, "value_" + i);
+        }
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        List<Item> body = new ArrayList<>();
+        for (int i = 0; i < ITEMS; i++) {
+            body.add(new Item());
+        }
+        JoinPoint joinPoint = mock(JoinPoint.class);
+        when(joinPoint.getArgs()).thenReturn(new Object[] {body});
+
+        userLogAdvice.before(joinPoint);
+        userLogAdvice.after(joinPoint);
+
+        ArgumentCaptor<UserActionEntity> userAction = ArgumentCaptor.forClass(UserActionEntity.class);
+        verify(userActionWriter).offer(userAction.capture());
+        assertEquals(50, userAction.getValue().getReqHeader().length());
+        assertTrue(userAction.getValue().getReqHeader().startsWith("{\"x-header-0\":\"value_0\""));
+        assertEquals(100, userAction.getValue().getReqBody().length());
+        assertTrue(userAction.getValue().getReqBody().startsWith("[{\"value\":\"item\"}"));
+
+        // 写满后中止序列化，不会读取整个请求体
+        assertTrue(getterCount.get() < ITEMS / 10, String.valueOf(getterCount.get()));
+    }
+
+    @Test
+    void testShortBodyIsComplete() {
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/work/addWork");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        JoinPoint joinPoint = mock(JoinPoint.class);
+        when(joinPoint.getArgs()).thenReturn(new Object[] {Collections.singletonMap("name", "work")});
+
+        userLogAdvice.before(joinPoint);
+        userLogAdvice.after(joinPoint);
+
+        ArgumentCaptor<UserActionEntity> userAction = ArgumentCaptor.forClass(UserActionEntity.class);
+        verify(userActionWriter).offer(userAction.capture());
+        assertEquals("{}", userAction.getValue().getReqHeader());
+        assertEquals("{\"name\":\"work\"}", userAction.getValue().getReqBody());
+    }
+
+    public class Item {
+
+        public String getValue() {
+
+            getterCount.incrementAndGet();
+            return "item";
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.isxcode.spark.common.utils.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alibaba.fastjson.JSON;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.isxcode.spark.api.work.res.AgentLinkResponse;
+import com.isxcode.spark.backend.api.base.pojos.BaseResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * http工具类测试，使用jdk自带的http服务模拟代理接口.
+ */
+@Slf4j
+class HttpUtilsTest {
+
+    private static final int THREADS = 8;
+
+    private static final int REQUESTS = 2000;
+
+    private static final String AGENT_RESPONSE =
+        "{\"code\":\"200\",\"msg\":\"ok\",\"data\":{\"appId\":\"application_1\",\"appState\":\"RUNNING\"}}";
+
+    private static final ParameterizedTypeReference<BaseResponse<AgentLinkResponse>> AGENT_LINK_RESPONSE_TYPE =
+        new ParameterizedTypeReference<BaseResponse<AgentLinkResponse>>() {};
+
+    /**
+     * 服务端看到的客户端地址，每个地址是一个tcp连接.
+     */
+    private final Set<String> connections = ConcurrentHashMap.newKeySet();
+
+    private HttpServer httpServer;
+
+    private ExecutorService serverExecutor;
+
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+
+        httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        httpServer.createContext("/yag/getStatus", exchange -> {
+            connections.add(exchange.getRemoteAddress().toString());
+            drain(exchange);
+            respond(exchange, "application/json", AGENT_RESPONSE);
+        });
+        httpServer.createContext("/login", exchange -> {
+            drain(exchange);
+            exchange.getResponseHeaders().add("Set-Cookie", "SESSION=tenant_a; Path=/");
+            respond(exchange, "text/plain", "ok");
+        });
+        httpServer.createContext("/cookie", exchange -> {
+            drain(exchange);
+            String cookie = exchange.getRequestHeaders().getFirst("Cookie");
+            respond(exchange, "text/plain", cookie == null ? "none" : cookie);
+        });
+        serverExecutor = Executors.newFixedThreadPool(THREADS * 2);
+        httpServer.setExecutor(serverExecutor);
+        httpServer.start();
+        baseUrl = "http://127.0.0.1:" + httpServer.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+
+        httpServer.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void testCookiesAreNotShared() {
+
+        // 一个租户的接口返回的cookie，不能带到其他租户的请求中
+        HttpUtils.doGet(baseUrl + "/login", String.class);
+
+        assertEquals("none", HttpUtils.doGet(baseUrl + "/cookie", String.class));
+    }
+
+    @Test
+    void testRequestsPerSecond() throws Exception {
+
+        Map<String, String> body = Collections.singletonMap("appId", "application_1");
+
+        // 改造前，每次请求新建RestTemplate和ObjectMapper，响应再通过fastjson转换一次
+        Callable<AgentLinkResponse> legacy = () -> {
+            HttpHeaders headers = new HttpHeaders();
+            headers.add(HttpHeaders.CONTENT_TYPE, "application/json;charset=UTF-8");
+            HttpEntity<String> requestEntity = new HttpEntity<>(new ObjectMapper().writeValueAsString(body), headers);
+            BaseResponse<?> baseResponse = new RestTemplate()
+                .exchange(baseUrl + "/yag/getStatus", HttpMethod.POST, requestEntity, BaseResponse.class).getBody();
+            return JSON.parseObject(JSON.toJSONString(baseResponse.getData()), AgentLinkResponse.class);
+        };
+
+        // 改造后，共享连接池客户端，直接反序列化成目标对象
+        Callable<AgentLinkResponse> pooled = () -> HttpUtils
+            .doPost(baseUrl + "/yag/getStatus", body, AGENT_LINK_RESPONSE_TYPE, false).getData();
+
+        long legacyRps = measure(legacy);
+        connections.clear();
+        long pooledRps = measure(pooled);
+
+        log.info("代理请求吞吐，改造前: {}次/秒，改造后: {}次/秒", legacyRps, pooledRps);
+
+        // 连接池复用连接，连接数不超过并发数
+        assertTrue(connections.size() <= THREADS, String.valueOf(connections.size()));
+    }
+
+    /**
+     * 多线程请求，预热后返回每秒请求数.
+     */
+    private long measure(Callable<AgentLinkResponse> request) throws Exception {
+
+        for (int i = 0; i < REQUESTS / 10; i++) {
+            assertEquals("RUNNING", request.call().getAppState());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            long startTime = System.nanoTime();
+            List<Future<AgentLinkResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                futures.add(executor.submit(request));
+            }
+            for (Future<AgentLinkResponse> future : futures) {
+                assertEquals("application_1", future.get().getAppId());
+            }
+            long costMillis = Math.max(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), 1);
+            return REQUESTS * 1000L / costMillis;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void drain(HttpExchange exchange) throws IOException {
+
+        try (InputStream inputStream = exchange.getRequestBody()) {
+            byte[] buffer = new byte[4096];
+            while (inputStream.read(buffer) != -1) {
+                // 读完请求体，连接才能复用
+            }
+        }
+    }
+
+    private static void respond(HttpExchange exchange, String contentType, String body) throws IOException {
+
+        byte[] response = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add(HttpHeaders.CONTENT_TYPE, contentType);
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(response);
+        }
+    }
+}
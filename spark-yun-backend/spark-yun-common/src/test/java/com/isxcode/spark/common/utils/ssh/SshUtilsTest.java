@@ -0,0 +1,161 @@
+package com.isxcode.spark.common.utils.ssh;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.isxcode.spark.api.cluster.dto.ScpFileEngineNodeDto;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.sshd.common.file.nativefs.NativeFileSystemFactory;
+import org.apache.sshd.common.session.Session;
+import org.apache.sshd.common.session.SessionListener;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.apache.sshd.server.shell.ProcessShellFactory;
+import org.apache.sshd.sftp.server.SftpSubsystemFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * ssh工具类测试，使用MINA SSHD启动本地ssh服务.
+ */
+class SshUtilsTest {
+
+    private final AtomicInteger sessionCount = new AtomicInteger();
+
+    @TempDir
+    Path tempDir;
+
+    private SshServer sshServer;
+
+    private ScpFileEngineNodeDto engineNode;
+
+    @BeforeEach
+    void setUp() throws Exception {
+
+        sshServer = SshServer.setUpDefaultServer();
+        sshServer.setHost("127.0.0.1");
+        sshServer.setPort(0);
+        sshServer.setKeyPairProvider(new SimpleGeneratorHostKeyProvider());
+        sshServer.setPasswordAuthenticator((username, password, session) -> "test".equals(password));
+        sshServer.setCommandFactory(
+            (channel, command) -> new ProcessShellFactory(command, "/bin/sh", "-c", command).createShell(channel));
+        sshServer.setFileSystemFactory(NativeFileSystemFactory.INSTANCE);
+        sshServer.setSubsystemFactories(Collections.singletonList(new SftpSubsystemFactory()));
+        sshServer.addSessionListener(new SessionListener() {
+
+            @Override
+            public void sessionCreated(Session session) {
+                sessionCount.incrementAndGet();
+            }
+        });
+        sshServer.start();
+
+        engineNode = ScpFileEngineNodeDto.builder().host("127.0.0.1").port(String.valueOf(sshServer.getPort()))
+            .username("test").passwd("test").build();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+
+        sshServer.stop(true);
+    }
+
+    @Test
+    void testExecuteCommandReusesSession() throws Exception {
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("hello\n", SshUtils.executeCommand(engineNode, "echo hello", false));
+        }
+        assertEquals(1, sessionCount.get());
+    }
+
+    @Test
+    void testExecuteCommandError() throws Exception {
+
+        String result = SshUtils.executeCommand(engineNode, "echo boom 1>&2; exit 3", false);
+        assertTrue(result.contains("\"execStatus\":\"ERROR\""));
+        assertTrue(result.contains("boom"));
+    }
+
+    @Test
+    void testLongCommandDoesNotHoldUploadSessions() throws Exception {
+
+        // 占满所有命令数的长命令，开始后写入标记文件，直到释放文件出现才结束
+        Path releasePath = tempDir.resolve("release");
+        ExecutorService executor = Executors.newFixedThreadPool(9);
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            String command = "touch " + tempDir.resolve("started_" + i) + "; while [ ! -f " + releasePath
+                + " ]; do sleep 0.1; done; echo done";
+            futures.add(executor.submit(() -> SshUtils.executeCommand(engineNode, command, false)));
+        }
+        for (int i = 0; i < 8; i++) {
+            waitForFile(tempDir.resolve("started_" + i));
+        }
+
+        // 命令都在执行时，上传文件仍然可以获取会话
+        Future<?> uploads = executor.submit(() -> {
+            for (int i = 0; i < 8; i++) {
+                Path dstPath = tempDir.resolve("text_" + i + ".txt");
+                SshUtils.scpText(engineNode, "text_" + i, dstPath.toString());
+                assertEquals("text_" + i, new String(Files.readAllBytes(dstPath), StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+        uploads.get(60, TimeUnit.SECONDS);
+        assertTrue(futures.stream().noneMatch(Future::isDone));
+
+        // 8个命令共用一个会话，上传复用一个会话
+        assertEquals(2, sessionCount.get());
+
+        Files.createFile(releasePath);
+        for (Future<String> future : futures) {
+            assertEquals("done\n", future.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    void testScpJarSkipsUnchangedFile() throws Exception {
+
+        Path localPath = tempDir.resolve("local.jar");
+        Path remotePath = tempDir.resolve("remote.jar");
+        Files.write(localPath, "jar_v1".getBytes(StandardCharsets.UTF_8));
+
+        SshUtils.scpJar(engineNode, localPath.toString(), remotePath.toString());
+        assertArrayEquals(Files.readAllBytes(localPath), Files.readAllBytes(remotePath));
+
+        // 内容一致时不重新上传
+        FileTime uploadTime = FileTime.fromMillis(1000);
+        Files.setLastModifiedTime(remotePath, uploadTime);
+        SshUtils.scpJar(engineNode, localPath.toString(), remotePath.toString());
+        assertEquals(uploadTime, Files.getLastModifiedTime(remotePath));
+
+        // 内容变化时重新上传
+        Files.write(localPath, "jar_v2".getBytes(StandardCharsets.UTF_8));
+        SshUtils.scpJar(engineNode, localPath.toString(), remotePath.toString());
+        assertArrayEquals(Files.readAllBytes(localPath), Files.readAllBytes(remotePath));
+    }
+
+    private static void waitForFile(Path path) throws InterruptedException {
+
+        for (int i = 0; i < 600 && !Files.exists(path); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(Files.exists(path), path.toString());
+    }
+}
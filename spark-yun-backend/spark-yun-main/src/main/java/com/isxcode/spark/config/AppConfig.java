@@ -53,6 +53,24 @@ public class AppConfig {
         return threadPoolTaskExecutor;
     }
 
+    /**
+     * 节点监控专用的线程池，有界队列，避免节点多时占满公共线程池.
+     */
+    @Bean("sparkYunMonitorThreadPool")
+    public Executor sparkYunMonitorThreadPool() {
+
+        ThreadPoolTaskExecutor threadPoolTaskExecutor = new ThreadPoolTaskExecutor();
+        threadPoolTaskExecutor.setCorePoolSize(10);
+        threadPoolTaskExecutor.setMaxPoolSize(20);
+        threadPoolTaskExecutor.setQueueCapacity(1000);
+        threadPoolTaskExecutor.setKeepAliveSeconds(60);
+        threadPoolTaskExecutor.setAllowCoreThreadTimeOut(true);
+        threadPoolTaskExecutor.setThreadNamePrefix("sparkYunMonitorThreadPool-");
+        threadPoolTaskExecutor.setRejectedExecutionHandler(
+            (r, executor) -> log.warn("节点监控任务积压，跳过本次采集，排队任务数: {}", executor.getQueue().size()));
+        return threadPoolTaskExecutor;
+    }
+
     @Bean("springEventThreadPool")
     public Executor springEventThreadPool() {
 
@@ -0,0 +1,27 @@
+package com.isxcode.spark.config;
+
+import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
+import com.isxcode.spark.common.utils.http.HttpUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * 按配置初始化http连接池.
+ */
+@Configuration
+@EnableConfigurationProperties(IsxAppProperties.class)
+@RequiredArgsConstructor
+public class HttpClientConfig {
+
+    private final IsxAppProperties isxAppProperties;
+
+    @PostConstruct
+    public void initHttpClient() {
+
+        HttpUtils.init(isxAppProperties.getHttpMaxConnections(), isxAppProperties.getHttpMaxConnectionsPerRoute(),
+            isxAppProperties.getHttpConnectTimeout(), isxAppProperties.getHttpReadTimeout());
+    }
+}
@@ -0,0 +1,3 @@
+-- 作业事件绑定运行的服务节点
+alter table SY_WORK_EVENT
+    add app_name varchar(200);
@@ -0,0 +1,8 @@
+-- 租约锁表
+create table SY_LOCKER_LEASE
+(
+    name           varchar(200) not null comment '锁名称' primary key,
+    owner          varchar(200) null comment '持有者',
+    expire_time    bigint       not null comment '租约过期时间戳',
+    heartbeat_time bigint       not null comment '最近续约时间戳'
+);
@@ -0,0 +1,11 @@
+-- 作业提交日志片段表
+create table SY_WORK_LOG_CHUNK
+(
+    id               varchar(200) not null comment '日志片段id' primary key,
+    instance_id      varchar(200) not null comment '作业实例id',
+    log_offset       bigint       not null comment '片段在完整日志中的起始位置',
+    content          text         null comment '日志片段内容',
+    create_date_time datetime     null comment '创建时间'
+);
+
+create unique index UK_WORK_LOG_CHUNK_OFFSET on SY_WORK_LOG_CHUNK (instance_id, log_offset);
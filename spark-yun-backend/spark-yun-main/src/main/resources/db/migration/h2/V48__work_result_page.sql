@@ -0,0 +1,13 @@
+-- 作业查询结果分页表
+create table SY_WORK_RESULT_PAGE
+(
+    id               varchar(200) not null comment '结果分页id' primary key,
+    instance_id      varchar(200) not null comment '作业实例id',
+    page_index       int          not null comment '页码，从0开始',
+    row_start        bigint       not null comment '本页首行在结果中的行号，不含表头',
+    row_count        int          not null comment '本页行数，不含表头',
+    content          text         null comment '表头和本页数据',
+    create_date_time datetime     null comment '创建时间'
+);
+
+create unique index UK_WORK_RESULT_PAGE_INDEX on SY_WORK_RESULT_PAGE (instance_id, page_index);
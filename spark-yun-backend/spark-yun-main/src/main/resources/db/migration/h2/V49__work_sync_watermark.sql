@@ -0,0 +1,13 @@
+-- 数据同步水位线表
+create table SY_WORK_SYNC_WATERMARK
+(
+    id                      varchar(200)  not null comment '水位线id' primary key,
+    work_id                 varchar(200)  not null comment '作业id',
+    watermark_column        varchar(200)  not null comment '水位线字段',
+    watermark_value         varchar(2000) null comment '已同步的最大值',
+    instance_id             varchar(200)  null comment '最后更新水位线的作业实例id',
+    create_date_time        datetime      null comment '创建时间',
+    last_modified_date_time datetime      null comment '更新时间'
+);
+
+create unique index UK_WORK_SYNC_WATERMARK_WORK on SY_WORK_SYNC_WATERMARK (work_id);
@@ -0,0 +1,12 @@
+-- 数据同步分区进度表
+create table SY_WORK_SYNC_PROGRESS
+(
+    id                      varchar(200)  not null comment '进度id' primary key,
+    instance_id             varchar(200)  not null comment '作业实例id',
+    partition_index         int           not null comment '分区序号',
+    predicate               varchar(2000) null comment '分区条件',
+    row_count               bigint        null comment '同步行数',
+    create_date_time        datetime      null comment '创建时间'
+);
+
+create unique index UK_WORK_SYNC_PROGRESS_PARTITION on SY_WORK_SYNC_PROGRESS (instance_id, partition_index);
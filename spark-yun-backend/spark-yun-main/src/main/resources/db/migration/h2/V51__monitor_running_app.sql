@@ -0,0 +1,3 @@
+-- 系统监控添加运行中作业数
+alter table SY_MONITOR
+    add running_app_num int;
@@ -0,0 +1,49 @@
+-- 节点监控汇总表
+create table SY_MONITOR_ROLLUP
+(
+    id                          varchar(200)  not null comment '汇总id' primary key,
+    cluster_id                  varchar(200)  not null comment '集群id',
+    cluster_node_id             varchar(200)  not null comment '集群节点id',
+    rollup_level                varchar(20)   not null comment '汇总粒度',
+    bucket_date_time            datetime      not null comment '时间段开始时间',
+    sample_count                int           not null comment '采集次数',
+    cpu_percent_min             double        null comment 'cpu占用最小值',
+    cpu_percent_avg             double        null comment 'cpu占用平均值',
+    cpu_percent_max             double        null comment 'cpu占用最大值',
+    cpu_percent_last            double        null comment 'cpu占用最新值',
+    used_memory_size_min        double        null comment '已使用内存最小值',
+    used_memory_size_avg        double        null comment '已使用内存平均值',
+    used_memory_size_max        double        null comment '已使用内存最大值',
+    used_memory_size_last       double        null comment '已使用内存最新值',
+    used_storage_size_min       double        null comment '已使用存储最小值',
+    used_storage_size_avg       double        null comment '已使用存储平均值',
+    used_storage_size_max       double        null comment '已使用存储最大值',
+    used_storage_size_last      double        null comment '已使用存储最新值',
+    disk_io_read_speed_min      double        null comment '磁盘读速度最小值',
+    disk_io_read_speed_avg      double        null comment '磁盘读速度平均值',
+    disk_io_read_speed_max      double        null comment '磁盘读速度最大值',
+    disk_io_read_speed_last     double        null comment '磁盘读速度最新值',
+    disk_io_write_speed_min     double        null comment '磁盘写速度最小值',
+    disk_io_write_speed_avg     double        null comment '磁盘写速度平均值',
+    disk_io_write_speed_max     double        null comment '磁盘写速度最大值',
+    disk_io_write_speed_last    double        null comment '磁盘写速度最新值',
+    network_io_read_speed_min   double        null comment '网络读速度最小值',
+    network_io_read_speed_avg   double        null comment '网络读速度平均值',
+    network_io_read_speed_max   double        null comment '网络读速度最大值',
+    network_io_read_speed_last  double        null comment '网络读速度最新值',
+    network_io_write_speed_min  double        null comment '网络写速度最小值',
+    network_io_write_speed_avg  double        null comment '网络写速度平均值',
+    network_io_write_speed_max  double        null comment '网络写速度最大值',
+    network_io_write_speed_last double        null comment '网络写速度最新值',
+    tenant_id                   varchar(200)  not null comment '租户id',
+    create_date_time            datetime      null comment '创建时间'
+);
+
+create unique index UK_MONITOR_ROLLUP_BUCKET on SY_MONITOR_ROLLUP (cluster_node_id, rollup_level, bucket_date_time);
+
+create index IDX_MONITOR_ROLLUP_CLUSTER on SY_MONITOR_ROLLUP (cluster_id, rollup_level, bucket_date_time);
+
+-- 系统监控按集群和时间查询，按时间清理
+create index IDX_MONITOR_CLUSTER_TIME on SY_MONITOR (cluster_id, create_date_time);
+
+create index IDX_MONITOR_CREATE_TIME on SY_MONITOR (create_date_time);
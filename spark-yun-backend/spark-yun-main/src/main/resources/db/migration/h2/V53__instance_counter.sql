@@ -0,0 +1,14 @@
+-- 作业流实例按小时的状态统计表
+create table SY_INSTANCE_COUNTER
+(
+    id                      varchar(200)  not null comment '统计id' primary key,
+    tenant_id               varchar(200)  not null comment '租户id',
+    count_date_time         datetime      not null comment '统计的小时',
+    start_num               bigint        not null comment '开始运行的实例数',
+    end_num                 bigint        not null comment '运行结束的实例数',
+    success_num             bigint        not null comment '运行成功的实例数',
+    fail_num                bigint        not null comment '运行失败的实例数',
+    create_date_time        datetime      null comment '创建时间'
+);
+
+create unique index UK_INSTANCE_COUNTER_HOUR on SY_INSTANCE_COUNTER (tenant_id, count_date_time);
@@ -0,0 +1,3 @@
+-- 作业事件绑定运行的服务节点
+ALTER TABLE SY_WORK_EVENT
+    ADD COLUMN app_name VARCHAR(200) COMMENT '运行的服务节点';
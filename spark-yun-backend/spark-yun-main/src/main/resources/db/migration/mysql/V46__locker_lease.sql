@@ -0,0 +1,9 @@
+-- 租约锁表
+CREATE TABLE SY_LOCKER_LEASE
+(
+    name           VARCHAR(200) NOT NULL COMMENT '锁名称',
+    owner          VARCHAR(200) NULL COMMENT '持有者',
+    expire_time    BIGINT       NOT NULL COMMENT '租约过期时间戳',
+    heartbeat_time BIGINT       NOT NULL COMMENT '最近续约时间戳',
+    PRIMARY KEY (name)
+) COMMENT = '租约锁表';
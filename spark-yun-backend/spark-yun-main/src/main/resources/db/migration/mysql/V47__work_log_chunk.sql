@@ -0,0 +1,11 @@
+-- 作业提交日志片段表
+CREATE TABLE SY_WORK_LOG_CHUNK
+(
+    id               VARCHAR(200) NOT NULL COMMENT '日志片段id',
+    instance_id      VARCHAR(200) NOT NULL COMMENT '作业实例id',
+    log_offset       BIGINT       NOT NULL COMMENT '片段在完整日志中的起始位置',
+    content          LONGTEXT     NULL COMMENT '日志片段内容',
+    create_date_time DATETIME     NULL COMMENT '创建时间',
+    PRIMARY KEY (id),
+    UNIQUE KEY UK_WORK_LOG_CHUNK_OFFSET (instance_id, log_offset)
+) COMMENT = '作业提交日志片段表';
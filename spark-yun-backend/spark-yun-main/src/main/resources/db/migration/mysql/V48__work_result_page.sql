@@ -0,0 +1,13 @@
+-- 作业查询结果分页表
+CREATE TABLE SY_WORK_RESULT_PAGE
+(
+    id               VARCHAR(200) NOT NULL COMMENT '结果分页id',
+    instance_id      VARCHAR(200) NOT NULL COMMENT '作业实例id',
+    page_index       INT          NOT NULL COMMENT '页码，从0开始',
+    row_start        BIGINT       NOT NULL COMMENT '本页首行在结果中的行号，不含表头',
+    row_count        INT          NOT NULL COMMENT '本页行数，不含表头',
+    content          LONGTEXT     NULL COMMENT '表头和本页数据',
+    create_date_time DATETIME     NULL COMMENT '创建时间',
+    PRIMARY KEY (id),
+    UNIQUE KEY UK_WORK_RESULT_PAGE_INDEX (instance_id, page_index)
+) COMMENT = '作业查询结果分页表';
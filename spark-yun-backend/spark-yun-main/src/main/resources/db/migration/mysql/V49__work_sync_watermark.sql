@@ -0,0 +1,13 @@
+-- 数据同步水位线表
+CREATE TABLE SY_WORK_SYNC_WATERMARK
+(
+    id                      VARCHAR(200)  NOT NULL COMMENT '水位线id',
+    work_id                 VARCHAR(200)  NOT NULL COMMENT '作业id',
+    watermark_column        VARCHAR(200)  NOT NULL COMMENT '水位线字段',
+    watermark_value         VARCHAR(2000) NULL COMMENT '已同步的最大值',
+    instance_id             VARCHAR(200)  NULL COMMENT '最后更新水位线的作业实例id',
+    create_date_time        DATETIME      NULL COMMENT '创建时间',
+    last_modified_date_time DATETIME      NULL COMMENT '更新时间',
+    PRIMARY KEY (id),
+    UNIQUE KEY UK_WORK_SYNC_WATERMARK_WORK (work_id)
+) COMMENT = '数据同步水位线表';
@@ -0,0 +1,12 @@
+-- 数据同步分区进度表
+CREATE TABLE SY_WORK_SYNC_PROGRESS
+(
+    id                      VARCHAR(200)  NOT NULL COMMENT '进度id',
+    instance_id             VARCHAR(200)  NOT NULL COMMENT '作业实例id',
+    partition_index         INT           NOT NULL COMMENT '分区序号',
+    predicate               VARCHAR(2000) NULL COMMENT '分区条件',
+    row_count               BIGINT        NULL COMMENT '同步行数',
+    create_date_time        DATETIME      NULL COMMENT '创建时间',
+    PRIMARY KEY (id),
+    UNIQUE KEY UK_WORK_SYNC_PROGRESS_PARTITION (instance_id, partition_index)
+) COMMENT = '数据同步分区进度表';
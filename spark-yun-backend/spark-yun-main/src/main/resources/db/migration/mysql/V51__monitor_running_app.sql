@@ -0,0 +1,3 @@
+-- 系统监控添加运行中作业数
+ALTER TABLE SY_MONITOR
+    ADD COLUMN running_app_num INT COMMENT '运行中作业数';
@@ -0,0 +1,48 @@
+-- 节点监控汇总表
+CREATE TABLE SY_MONITOR_ROLLUP
+(
+    id                          VARCHAR(200)  NOT NULL COMMENT '汇总id',
+    cluster_id                  VARCHAR(200)  NOT NULL COMMENT '集群id',
+    cluster_node_id             VARCHAR(200)  NOT NULL COMMENT '集群节点id',
+    rollup_level                VARCHAR(20)   NOT NULL COMMENT '汇总粒度',
+    bucket_date_time            DATETIME      NOT NULL COMMENT '时间段开始时间',
+    sample_count                INT           NOT NULL COMMENT '采集次数',
+    cpu_percent_min             DOUBLE        NULL COMMENT 'cpu占用最小值',
+    cpu_percent_avg             DOUBLE        NULL COMMENT 'cpu占用平均值',
+    cpu_percent_max             DOUBLE        NULL COMMENT 'cpu占用最大值',
+    cpu_percent_last            DOUBLE        NULL COMMENT 'cpu占用最新值',
+    used_memory_size_min        DOUBLE        NULL COMMENT '已使用内存最小值',
+    used_memory_size_avg        DOUBLE        NULL COMMENT '已使用内存平均值',
+    used_memory_size_max        DOUBLE        NULL COMMENT '已使用内存最大值',
+    used_memory_size_last       DOUBLE        NULL COMMENT '已使用内存最新值',
+    used_storage_size_min       DOUBLE        NULL COMMENT '已使用存储最小值',
+    used_storage_size_avg       DOUBLE        NULL COMMENT '已使用存储平均值',
+    used_storage_size_max       DOUBLE        NULL COMMENT '已使用存储最大值',
+    used_storage_size_last      DOUBLE        NULL COMMENT '已使用存储最新值',
+    disk_io_read_speed_min      DOUBLE        NULL COMMENT '磁盘读速度最小值',
+    disk_io_read_speed_avg      DOUBLE        NULL COMMENT '磁盘读速度平均值',
+    disk_io_read_speed_max      DOUBLE        NULL COMMENT '磁盘读速度最大值',
+    disk_io_read_speed_last     DOUBLE        NULL COMMENT '磁盘读速度最新值',
+    disk_io_write_speed_min     DOUBLE        NULL COMMENT '磁盘写速度最小值',
+    disk_io_write_speed_avg     DOUBLE        NULL COMMENT '磁盘写速度平均值',
+    disk_io_write_speed_max     DOUBLE        NULL COMMENT '磁盘写速度最大值',
+    disk_io_write_speed_last    DOUBLE        NULL COMMENT '磁盘写速度最新值',
+    network_io_read_speed_min   DOUBLE        NULL COMMENT '网络读速度最小值',
+    network_io_read_speed_avg   DOUBLE        NULL COMMENT '网络读速度平均值',
+    network_io_read_speed_max   DOUBLE        NULL COMMENT '网络读速度最大值',
+    network_io_read_speed_last  DOUBLE        NULL COMMENT '网络读速度最新值',
+    network_io_write_speed_min  DOUBLE        NULL COMMENT '网络写速度最小值',
+    network_io_write_speed_avg  DOUBLE        NULL COMMENT '网络写速度平均值',
+    network_io_write_speed_max  DOUBLE        NULL COMMENT '网络写速度最大值',
+    network_io_write_speed_last DOUBLE        NULL COMMENT '网络写速度最新值',
+    tenant_id                   VARCHAR(200)  NOT NULL COMMENT '租户id',
+    create_date_time            DATETIME      NULL COMMENT '创建时间',
+    PRIMARY KEY (id),
+    UNIQUE KEY UK_MONITOR_ROLLUP_BUCKET (cluster_node_id, rollup_level, bucket_date_time),
+    KEY IDX_MONITOR_ROLLUP_CLUSTER (cluster_id, rollup_level, bucket_date_time)
+) COMMENT = '节点监控汇总表';
+
+-- 系统监控按集群和时间查询，按时间清理
+CREATE INDEX IDX_MONITOR_CLUSTER_TIME ON SY_MONITOR (cluster_id, create_date_time);
+
+CREATE INDEX IDX_MONITOR_CREATE_TIME ON SY_MONITOR (create_date_time);
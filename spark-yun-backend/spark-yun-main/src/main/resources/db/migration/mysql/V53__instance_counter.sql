@@ -0,0 +1,14 @@
+-- 作业流实例按小时的状态统计表
+CREATE TABLE SY_INSTANCE_COUNTER
+(
+    id                      VARCHAR(200)  NOT NULL COMMENT '统计id',
+    tenant_id               VARCHAR(200)  NOT NULL COMMENT '租户id',
+    count_date_time         DATETIME      NOT NULL COMMENT '统计的小时',
+    start_num               BIGINT        NOT NULL COMMENT '开始运行的实例数',
+    end_num                 BIGINT        NOT NULL COMMENT '运行结束的实例数',
+    success_num             BIGINT        NOT NULL COMMENT '运行成功的实例数',
+    fail_num                BIGINT        NOT NULL COMMENT '运行失败的实例数',
+    create_date_time        DATETIME      NULL COMMENT '创建时间',
+    PRIMARY KEY (id),
+    UNIQUE KEY UK_INSTANCE_COUNTER_HOUR (tenant_id, count_date_time)
+) COMMENT = '作业流实例按小时的状态统计表';
@@ -0,0 +1,5 @@
+-- 作业事件绑定运行的服务节点
+ALTER TABLE SY_WORK_EVENT
+    ADD COLUMN app_name VARCHAR(200);
+
+COMMENT ON COLUMN SY_WORK_EVENT.app_name IS '运行的服务节点';
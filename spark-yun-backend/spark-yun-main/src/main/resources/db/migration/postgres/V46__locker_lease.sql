@@ -0,0 +1,15 @@
+-- 租约锁表
+CREATE TABLE SY_LOCKER_LEASE
+(
+    name           VARCHAR(200) NOT NULL,
+    owner          VARCHAR(200) NULL,
+    expire_time    BIGINT       NOT NULL,
+    heartbeat_time BIGINT       NOT NULL,
+    PRIMARY KEY (name)
+);
+
+COMMENT ON TABLE SY_LOCKER_LEASE IS '租约锁表';
+COMMENT ON COLUMN SY_LOCKER_LEASE.name IS '锁名称';
+COMMENT ON COLUMN SY_LOCKER_LEASE.owner IS '持有者';
+COMMENT ON COLUMN SY_LOCKER_LEASE.expire_time IS '租约过期时间戳';
+COMMENT ON COLUMN SY_LOCKER_LEASE.heartbeat_time IS '最近续约时间戳';
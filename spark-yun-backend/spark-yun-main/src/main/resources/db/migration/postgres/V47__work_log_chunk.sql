@@ -0,0 +1,19 @@
+-- 作业提交日志片段表
+CREATE TABLE SY_WORK_LOG_CHUNK
+(
+    id               VARCHAR(200) NOT NULL,
+    instance_id      VARCHAR(200) NOT NULL,
+    log_offset       BIGINT       NOT NULL,
+    content          TEXT         NULL,
+    create_date_time TIMESTAMP    NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE UNIQUE INDEX UK_WORK_LOG_CHUNK_OFFSET ON SY_WORK_LOG_CHUNK (instance_id, log_offset);
+
+COMMENT ON TABLE SY_WORK_LOG_CHUNK IS '作业提交日志片段表';
+COMMENT ON COLUMN SY_WORK_LOG_CHUNK.id IS '日志片段id';
+COMMENT ON COLUMN SY_WORK_LOG_CHUNK.instance_id IS '作业实例id';
+COMMENT ON COLUMN SY_WORK_LOG_CHUNK.log_offset IS '片段在完整日志中的起始位置';
+COMMENT ON COLUMN SY_WORK_LOG_CHUNK.content IS '日志片段内容';
+COMMENT ON COLUMN SY_WORK_LOG_CHUNK.create_date_time IS '创建时间';
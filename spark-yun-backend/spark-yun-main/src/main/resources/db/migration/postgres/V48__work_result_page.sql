@@ -0,0 +1,23 @@
+-- 作业查询结果分页表
+CREATE TABLE SY_WORK_RESULT_PAGE
+(
+    id               VARCHAR(200) NOT NULL,
+    instance_id      VARCHAR(200) NOT NULL,
+    page_index       INT          NOT NULL,
+    row_start        BIGINT       NOT NULL,
+    row_count        INT          NOT NULL,
+    content          TEXT         NULL,
+    create_date_time TIMESTAMP    NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE UNIQUE INDEX UK_WORK_RESULT_PAGE_INDEX ON SY_WORK_RESULT_PAGE (instance_id, page_index);
+
+COMMENT ON TABLE SY_WORK_RESULT_PAGE IS '作业查询结果分页表';
+COMMENT ON COLUMN SY_WORK_RESULT_PAGE.id IS '结果分页id';
+COMMENT ON COLUMN SY_WORK_RESULT_PAGE.instance_id IS '作业实例id';
+COMMENT ON COLUMN SY_WORK_RESULT_PAGE.page_index IS '页码，从0开始';
+COMMENT ON COLUMN SY_WORK_RESULT_PAGE.row_start IS '本页首行在结果中的行号，不含表头';
+COMMENT ON COLUMN SY_WORK_RESULT_PAGE.row_count IS '本页行数，不含表头';
+COMMENT ON COLUMN SY_WORK_RESULT_PAGE.content IS '表头和本页数据';
+COMMENT ON COLUMN SY_WORK_RESULT_PAGE.create_date_time IS '创建时间';
@@ -0,0 +1,23 @@
+-- 数据同步水位线表
+CREATE TABLE SY_WORK_SYNC_WATERMARK
+(
+    id                      VARCHAR(200)  NOT NULL,
+    work_id                 VARCHAR(200)  NOT NULL,
+    watermark_column        VARCHAR(200)  NOT NULL,
+    watermark_value         VARCHAR(2000) NULL,
+    instance_id             VARCHAR(200)  NULL,
+    create_date_time        TIMESTAMP     NULL,
+    last_modified_date_time TIMESTAMP     NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE UNIQUE INDEX UK_WORK_SYNC_WATERMARK_WORK ON SY_WORK_SYNC_WATERMARK (work_id);
+
+COMMENT ON TABLE SY_WORK_SYNC_WATERMARK IS '数据同步水位线表';
+COMMENT ON COLUMN SY_WORK_SYNC_WATERMARK.id IS '水位线id';
+COMMENT ON COLUMN SY_WORK_SYNC_WATERMARK.work_id IS '作业id';
+COMMENT ON COLUMN SY_WORK_SYNC_WATERMARK.watermark_column IS '水位线字段';
+COMMENT ON COLUMN SY_WORK_SYNC_WATERMARK.watermark_value IS '已同步的最大值';
+COMMENT ON COLUMN SY_WORK_SYNC_WATERMARK.instance_id IS '最后更新水位线的作业实例id';
+COMMENT ON COLUMN SY_WORK_SYNC_WATERMARK.create_date_time IS '创建时间';
+COMMENT ON COLUMN SY_WORK_SYNC_WATERMARK.last_modified_date_time IS '更新时间';
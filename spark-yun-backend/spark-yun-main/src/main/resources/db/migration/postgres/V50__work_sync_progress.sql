@@ -0,0 +1,21 @@
+-- 数据同步分区进度表
+CREATE TABLE SY_WORK_SYNC_PROGRESS
+(
+    id                      VARCHAR(200)  NOT NULL,
+    instance_id             VARCHAR(200)  NOT NULL,
+    partition_index         INT           NOT NULL,
+    predicate               VARCHAR(2000) NULL,
+    row_count               BIGINT        NULL,
+    create_date_time        TIMESTAMP     NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE UNIQUE INDEX UK_WORK_SYNC_PROGRESS_PARTITION ON SY_WORK_SYNC_PROGRESS (instance_id, partition_index);
+
+COMMENT ON TABLE SY_WORK_SYNC_PROGRESS IS '数据同步分区进度表';
+COMMENT ON COLUMN SY_WORK_SYNC_PROGRESS.id IS '进度id';
+COMMENT ON COLUMN SY_WORK_SYNC_PROGRESS.instance_id IS '作业实例id';
+COMMENT ON COLUMN SY_WORK_SYNC_PROGRESS.partition_index IS '分区序号';
+COMMENT ON COLUMN SY_WORK_SYNC_PROGRESS.predicate IS '分区条件';
+COMMENT ON COLUMN SY_WORK_SYNC_PROGRESS.row_count IS '同步行数';
+COMMENT ON COLUMN SY_WORK_SYNC_PROGRESS.create_date_time IS '创建时间';
@@ -0,0 +1,5 @@
+-- 系统监控添加运行中作业数
+ALTER TABLE SY_MONITOR
+    ADD COLUMN running_app_num INTEGER;
+
+COMMENT ON COLUMN SY_MONITOR.running_app_num IS '运行中作业数';
@@ -0,0 +1,88 @@
+-- 节点监控汇总表
+CREATE TABLE SY_MONITOR_ROLLUP
+(
+    id                          VARCHAR(200)     NOT NULL,
+    cluster_id                  VARCHAR(200)     NOT NULL,
+    cluster_node_id             VARCHAR(200)     NOT NULL,
+    rollup_level                VARCHAR(20)      NOT NULL,
+    bucket_date_time            TIMESTAMP        NOT NULL,
+    sample_count                INT              NOT NULL,
+    cpu_percent_min             DOUBLE PRECISION NULL,
+    cpu_percent_avg             DOUBLE PRECISION NULL,
+    cpu_percent_max             DOUBLE PRECISION NULL,
+    cpu_percent_last            DOUBLE PRECISION NULL,
+    used_memory_size_min        DOUBLE PRECISION NULL,
+    used_memory_size_avg        DOUBLE PRECISION NULL,
+    used_memory_size_max        DOUBLE PRECISION NULL,
+    used_memory_size_last       DOUBLE PRECISION NULL,
+    used_storage_size_min       DOUBLE PRECISION NULL,
+    used_storage_size_avg       DOUBLE PRECISION NULL,
+    used_storage_size_max       DOUBLE PRECISION NULL,
+    used_storage_size_last      DOUBLE PRECISION NULL,
+    disk_io_read_speed_min      DOUBLE PRECISION NULL,
+    disk_io_read_speed_avg      DOUBLE PRECISION NULL,
+    disk_io_read_speed_max      DOUBLE PRECISION NULL,
+    disk_io_read_speed_last     DOUBLE PRECISION NULL,
+    disk_io_write_speed_min     DOUBLE PRECISION NULL,
+    disk_io_write_speed_avg     DOUBLE PRECISION NULL,
+    disk_io_write_speed_max     DOUBLE PRECISION NULL,
+    disk_io_write_speed_last    DOUBLE PRECISION NULL,
+    network_io_read_speed_min   DOUBLE PRECISION NULL,
+    network_io_read_speed_avg   DOUBLE PRECISION NULL,
+    network_io_read_speed_max   DOUBLE PRECISION NULL,
+    network_io_read_speed_last  DOUBLE PRECISION NULL,
+    network_io_write_speed_min  DOUBLE PRECISION NULL,
+    network_io_write_speed_avg  DOUBLE PRECISION NULL,
+    network_io_write_speed_max  DOUBLE PRECISION NULL,
+    network_io_write_speed_last DOUBLE PRECISION NULL,
+    tenant_id                   VARCHAR(200)     NOT NULL,
+    create_date_time            TIMESTAMP        NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE UNIQUE INDEX UK_MONITOR_ROLLUP_BUCKET ON SY_MONITOR_ROLLUP (cluster_node_id, rollup_level, bucket_date_time);
+
+CREATE INDEX IDX_MONITOR_ROLLUP_CLUSTER ON SY_MONITOR_ROLLUP (cluster_id, rollup_level, bucket_date_time);
+
+COMMENT ON TABLE SY_MONITOR_ROLLUP IS '节点监控汇总表';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.id IS '汇总id';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.cluster_id IS '集群id';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.cluster_node_id IS '集群节点id';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.rollup_level IS '汇总粒度';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.bucket_date_time IS '时间段开始时间';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.sample_count IS '采集次数';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.cpu_percent_min IS 'cpu占用最小值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.cpu_percent_avg IS 'cpu占用平均值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.cpu_percent_max IS 'cpu占用最大值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.cpu_percent_last IS 'cpu占用最新值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.used_memory_size_min IS '已使用内存最小值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.used_memory_size_avg IS '已使用内存平均值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.used_memory_size_max IS '已使用内存最大值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.used_memory_size_last IS '已使用内存最新值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.used_storage_size_min IS '已使用存储最小值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.used_storage_size_avg IS '已使用存储平均值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.used_storage_size_max IS '已使用存储最大值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.used_storage_size_last IS '已使用存储最新值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.disk_io_read_speed_min IS '磁盘读速度最小值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.disk_io_read_speed_avg IS '磁盘读速度平均值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.disk_io_read_speed_max IS '磁盘读速度最大值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.disk_io_read_speed_last IS '磁盘读速度最新值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.disk_io_write_speed_min IS '磁盘写速度最小值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.disk_io_write_speed_avg IS '磁盘写速度平均值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.disk_io_write_speed_max IS '磁盘写速度最大值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.disk_io_write_speed_last IS '磁盘写速度最新值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.network_io_read_speed_min IS '网络读速度最小值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.network_io_read_speed_avg IS '网络读速度平均值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.network_io_read_speed_max IS '网络读速度最大值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.network_io_read_speed_last IS '网络读速度最新值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.network_io_write_speed_min IS '网络写速度最小值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.network_io_write_speed_avg IS '网络写速度平均值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.network_io_write_speed_max IS '网络写速度最大值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.network_io_write_speed_last IS '网络写速度最新值';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.tenant_id IS '租户id';
+COMMENT ON COLUMN SY_MONITOR_ROLLUP.create_date_time IS '创建时间';
+
+-- 系统监控按集群和时间查询，按时间清理
+CREATE INDEX IDX_MONITOR_CLUSTER_TIME ON SY_MONITOR (cluster_id, create_date_time);
+
+CREATE INDEX IDX_MONITOR_CREATE_TIME ON SY_MONITOR (create_date_time);
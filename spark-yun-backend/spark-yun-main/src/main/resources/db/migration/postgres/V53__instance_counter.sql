@@ -0,0 +1,25 @@
+-- 作业流实例按小时的状态统计表
+CREATE TABLE SY_INSTANCE_COUNTER
+(
+    id                      VARCHAR(200)  NOT NULL,
+    tenant_id               VARCHAR(200)  NOT NULL,
+    count_date_time         TIMESTAMP     NOT NULL,
+    start_num               BIGINT        NOT NULL,
+    end_num                 BIGINT        NOT NULL,
+    success_num             BIGINT        NOT NULL,
+    fail_num                BIGINT        NOT NULL,
+    create_date_time        TIMESTAMP     NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE UNIQUE INDEX UK_INSTANCE_COUNTER_HOUR ON SY_INSTANCE_COUNTER (tenant_id, count_date_time);
+
+COMMENT ON TABLE SY_INSTANCE_COUNTER IS '作业流实例按小时的状态统计表';
+COMMENT ON COLUMN SY_INSTANCE_COUNTER.id IS '统计id';
+COMMENT ON COLUMN SY_INSTANCE_COUNTER.tenant_id IS '租户id';
+COMMENT ON COLUMN SY_INSTANCE_COUNTER.count_date_time IS '统计的小时';
+COMMENT ON COLUMN SY_INSTANCE_COUNTER.start_num IS '开始运行的实例数';
+COMMENT ON COLUMN SY_INSTANCE_COUNTER.end_num IS '运行结束的实例数';
+COMMENT ON COLUMN SY_INSTANCE_COUNTER.success_num IS '运行成功的实例数';
+COMMENT ON COLUMN SY_INSTANCE_COUNTER.fail_num IS '运行失败的实例数';
+COMMENT ON COLUMN SY_INSTANCE_COUNTER.create_date_time IS '创建时间';
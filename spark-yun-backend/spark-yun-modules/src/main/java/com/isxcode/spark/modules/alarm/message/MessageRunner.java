@@ -17,22 +17,24 @@ public abstract class MessageRunner implements MessageAction {
     public void send(MessageContext messageContext) {
 
         TENANT_ID.set(messageContext.getTenantId());
+        alarmInstanceRepository.save(execute(messageContext));
+    }
+
+    /**
+     * 发送消息，返回待写入的告警实例.
+     */
+    public AlarmInstanceEntity execute(MessageContext messageContext) {
 
+        AlarmInstanceEntity alarmInstanceEntity = messageContextToAlarmInstanceEntity(messageContext);
         try {
             Object sendResponse = sendMessage(messageContext);
-            // 发送成功，写入实例
-            AlarmInstanceEntity alarmInstanceEntity = messageContextToAlarmInstanceEntity(messageContext);
             alarmInstanceEntity.setSendStatus(AlarmSendStatus.SUCCESS);
             alarmInstanceEntity.setResponse(String.valueOf(sendResponse));
-            alarmInstanceRepository.save(alarmInstanceEntity);
         } catch (Exception e) {
-
-            // 发送失败，写入实例
-            AlarmInstanceEntity alarmInstanceEntity = messageContextToAlarmInstanceEntity(messageContext);
             alarmInstanceEntity.setSendStatus(AlarmSendStatus.FAIL);
             alarmInstanceEntity.setResponse(String.valueOf(e.getMessage()));
-            alarmInstanceRepository.save(alarmInstanceEntity);
         }
+        return alarmInstanceEntity;
     }
 
     protected AlarmInstanceEntity messageContextToAlarmInstanceEntity(MessageContext messageContext) {
@@ -47,6 +47,8 @@ public class AlarmBizService {
 
     private final AlarmService alarmService;
 
+    private final AlarmDispatcher alarmDispatcher;
+
     private final AlarmMapper alarmMapper;
 
     private final MessageFactory messageFactory;
@@ -82,6 +84,7 @@ public class AlarmBizService {
         message.setMsgType(updateMessageReq.getMsgType());
         message.setStatus(MessageStatus.UN_CHECK);
         messageRepository.save(message);
+        alarmDispatcher.evictMessage(message.getId());
     }
 
     public Page<PageMessageRes> pageMessage(PageMessageReq pageMessageReq) {
@@ -106,6 +109,7 @@ public class AlarmBizService {
 
         MessageEntity message = alarmService.getMessage(deleteMessageReq.getId());
         messageRepository.delete(message);
+        alarmDispatcher.evictMessage(message.getId());
     }
 
     public void enableMessage(EnableMessageReq enableMessageReq) {
@@ -120,6 +124,7 @@ public class AlarmBizService {
 
         message.setStatus(MessageStatus.ACTIVE);
         messageRepository.save(message);
+        alarmDispatcher.evictMessage(message.getId());
     }
 
     public void disableMessage(DisableMessageReq disableMessageReq) {
@@ -127,6 +132,7 @@ public class AlarmBizService {
         MessageEntity message = alarmService.getMessage(disableMessageReq.getId());
         message.setStatus(MessageStatus.DISABLE);
         messageRepository.save(message);
+        alarmDispatcher.evictMessage(message.getId());
     }
 
     public CheckMessageRes checkMessage(CheckMessageReq checkMessageReq) {
@@ -146,11 +152,13 @@ public class AlarmBizService {
             message.setStatus(MessageStatus.ACTIVE);
             message.setResponse(null);
             messageRepository.save(message);
+            alarmDispatcher.evictMessage(message.getId());
             return CheckMessageRes.builder().checkStatus(AlarmSendStatus.SUCCESS).log("检测成功").build();
         } catch (Exception e) {
             message.setStatus(MessageStatus.CHECK_FAIL);
             message.setResponse(e.getMessage());
             messageRepository.save(message);
+            alarmDispatcher.evictMessage(message.getId());
             return CheckMessageRes.builder().checkStatus(AlarmSendStatus.FAIL).log(e.getMessage()).build();
         }
     }
@@ -180,6 +188,7 @@ public class AlarmBizService {
         alarm.setReceiverList(JSON.toJSONString(updateAlarmReq.getReceiverList()));
         alarm.setMsgId(updateAlarmReq.getMsgId());
         alarmRepository.save(alarm);
+        alarmDispatcher.evictAlarm(alarm.getId());
     }
 
     public Page<PageAlarmRes> pageAlarm(PageAlarmReq pageAlarmReq) {
@@ -205,6 +214,7 @@ public class AlarmBizService {
 
         AlarmEntity alarm = alarmService.getAlarm(deleteAlarmReq.getId());
         alarmRepository.delete(alarm);
+        alarmDispatcher.evictAlarm(alarm.getId());
     }
 
     public void enableAlarm(EnableAlarmReq enableAlarmReq) {
@@ -212,6 +222,7 @@ public class AlarmBizService {
         AlarmEntity alarm = alarmService.getAlarm(enableAlarmReq.getId());
         alarm.setStatus(AlarmStatus.ENABLE);
         alarmRepository.save(alarm);
+        alarmDispatcher.evictAlarm(alarm.getId());
     }
 
     public void disableAlarm(DisableAlarmReq disableAlarmReq) {
@@ -219,6 +230,7 @@ public class AlarmBizService {
         AlarmEntity alarm = alarmService.getAlarm(disableAlarmReq.getId());
         alarm.setStatus(AlarmStatus.DISABLE);
         alarmRepository.save(alarm);
+        alarmDispatcher.evictAlarm(alarm.getId());
     }
 
     public Page<PageAlarmInstanceRes> pageAlarmInstance(PageAlarmInstanceReq pageAlarmInstanceReq) {
@@ -0,0 +1,593 @@
+package com.isxcode.spark.modules.alarm.service;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.TimedCache;
+import cn.hutool.core.util.IdUtil;
+import com.alibaba.fastjson.JSON;
+import com.isxcode.spark.api.alarm.constants.AlarmSendStatus;
+import com.isxcode.spark.api.alarm.constants.AlarmStatus;
+import com.isxcode.spark.api.alarm.constants.AlarmType;
+import com.isxcode.spark.api.alarm.constants.MessageStatus;
+import com.isxcode.spark.api.alarm.dto.MessageConfig;
+import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
+import com.isxcode.spark.modules.alarm.entity.AlarmEntity;
+import com.isxcode.spark.modules.alarm.entity.AlarmInstanceEntity;
+import com.isxcode.spark.modules.alarm.entity.MessageEntity;
+import com.isxcode.spark.modules.alarm.message.MessageContext;
+import com.isxcode.spark.modules.alarm.message.MessageFactory;
+import com.isxcode.spark.modules.alarm.message.MessageRunner;
+import com.isxcode.spark.modules.alarm.repository.AlarmRepository;
+import com.isxcode.spark.modules.alarm.repository.MessageRepository;
+import com.isxcode.spark.modules.user.service.UserService;
+import com.isxcode.spark.modules.work.entity.VipWorkVersionEntity;
+import com.isxcode.spark.modules.work.entity.WorkEntity;
+import com.isxcode.spark.modules.work.entity.WorkInstanceEntity;
+import com.isxcode.spark.modules.work.repository.VipWorkVersionRepository;
+import com.isxcode.spark.modules.work.service.WorkService;
+import com.isxcode.spark.modules.workflow.entity.WorkflowEntity;
+import com.isxcode.spark.modules.workflow.entity.WorkflowInstanceEntity;
+import com.isxcode.spark.modules.workflow.entity.WorkflowVersionEntity;
+import com.isxcode.spark.modules.workflow.repository.WorkflowVersionRepository;
+import com.isxcode.spark.modules.workflow.service.WorkflowService;
+import com.isxcode.spark.security.user.UserEntity;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.logging.log4j.util.Strings;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.isxcode.spark.common.config.CommonConfig.TENANT_ID;
+
+/**
+ * 告警发送队列.
+ *
+ * <p>
+ * 告警事件先放入内存队列，由单线程按周期处理. 告警、消息体和模板按id缓存，修改时清除. 同一个接收人、同一个告警在同一个作业流实例内的消息，
+ * 在聚合窗口内合并为一条发送，窗口内重复的事件只发一次. 每个消息体按令牌桶限流，超出时留到下个周期，发送结果按实例批量写库.
+ * </p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AlarmDispatcher {
+
+    private static final int BATCH_SIZE = 200;
+
+    private static final long DISPATCH_INTERVAL = 1000L;
+
+    /**
+     * 合并消息时，每个变量最多展示的值.
+     */
+    private static final int MERGE_SHOW_NUM = 3;
+
+    private static final String INSERT_SQL = "insert into SY_ALARM_INSTANCE (id, alarm_id, send_status, alarm_type, "
+        + "alarm_event, msg_id, content, response, instance_id, receiver, send_date_time, create_date_time, deleted, "
+        + "tenant_id) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final AlarmRepository alarmRepository;
+
+    private final MessageRepository messageRepository;
+
+    private final MessageFactory messageFactory;
+
+    private final UserService userService;
+
+    private final VipWorkVersionRepository vipWorkVersionRepository;
+
+    private final WorkflowVersionRepository workflowVersionRepository;
+
+    private final WorkService workService;
+
+    private final WorkflowService workflowService;
+
+    private final IsxAppProperties isxAppProperties;
+
+    private BlockingQueue<AlarmEvent> queue;
+
+    private TimedCache<String, Optional<AlarmDefinition>> alarmCache;
+
+    private TimedCache<String, Optional<MessageDefinition>> messageCache;
+
+    /**
+     * 作业版本的告警列表、作业名称和接收人等.
+     */
+    private TimedCache<String, Object> valueCache;
+
+    /**
+     * 以下只在发送线程中访问.
+     */
+    private final Map<String, AlarmGroup> groups = new LinkedHashMap<>();
+
+    private final Map<String, TokenBucket> buckets = new HashMap<>();
+
+    private ScheduledExecutorService dispatchScheduler;
+
+    @PostConstruct
+    public void start() {
+
+        init();
+        dispatchScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "alarmDispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatchScheduler.scheduleWithFixedDelay(() -> dispatchQuietly(false), DISPATCH_INTERVAL, DISPATCH_INTERVAL,
+            TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 创建队列和缓存，不启动发送线程.
+     */
+    void init() {
+
+        queue = new LinkedBlockingQueue<>(isxAppProperties.getAlarmQueueSize());
+        long cacheMillis = isxAppProperties.getAlarmCacheSeconds() * 1000L;
+        alarmCache = CacheUtil.newTimedCache(cacheMillis);
+        messageCache = CacheUtil.newTimedCache(cacheMillis);
+        valueCache = CacheUtil.newTimedCache(cacheMillis);
+        Arrays.asList(alarmCache, messageCache, valueCache).forEach(e -> e.schedulePrune(cacheMillis));
+    }
+
+    @PreDestroy
+    public void stop() {
+
+        dispatchScheduler.shutdownNow();
+        dispatchQuietly(true);
+        Arrays.asList(alarmCache, messageCache, valueCache).forEach(TimedCache::cancelPruneSchedule);
+    }
+
+    public void offerWork(WorkInstanceEntity workInstance, String alarmEvent) {
+
+        offer(new AlarmEvent(AlarmType.WORK, alarmEvent, workInstance.getTenantId(), workInstance.getVersionId(),
+            workInstance.getId(), Strings.isEmpty(workInstance.getWorkflowInstanceId()) ? workInstance.getId()
+                : workInstance.getWorkflowInstanceId()));
+    }
+
+    public void offerWorkflow(WorkflowInstanceEntity workflowInstance, String alarmEvent) {
+
+        offer(new AlarmEvent(AlarmType.WORKFLOW, alarmEvent, workflowInstance.getTenantId(),
+            workflowInstance.getVersionId(), workflowInstance.getId(), workflowInstance.getId()));
+    }
+
+    public void evictAlarm(String alarmId) {
+
+        alarmCache.remove(alarmId);
+    }
+
+    public void evictMessage(String messageId) {
+
+        messageCache.remove(messageId);
+    }
+
+    private void offer(AlarmEvent event) {
+
+        if (Strings.isEmpty(event.versionId)) {
+            return;
+        }
+        if (!queue.offer(event)) {
+            log.warn("告警队列已满，丢弃告警 {} {}", event.instanceId, event.alarmEvent);
+        }
+    }
+
+    private void dispatchQuietly(boolean force) {
+
+        try {
+            dispatch(force, System.currentTimeMillis());
+        } catch (Exception e) {
+            log.error("发送告警异常: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 处理队列中的事件，发送到期的消息.
+     *
+     * @param force 停机时不等待聚合窗口
+     * @param now 当前时间，聚合窗口和限流按这个时间计算
+     */
+    synchronized void dispatch(boolean force, long now) {
+
+        AlarmEvent event;
+        while ((event = queue.poll()) != null) {
+            try {
+                accept(event, now);
+            } catch (Exception e) {
+                log.error("解析告警异常: {}", e.getMessage(), e);
+            }
+        }
+
+        long window = isxAppProperties.getAlarmAggregateWindow() * 1000L;
+        List<AlarmInstanceEntity> records = new ArrayList<>();
+        Iterator<AlarmGroup> iterator = groups.values().iterator();
+        while (iterator.hasNext()) {
+            AlarmGroup group = iterator.next();
+            if (!force && now - group.firstTime < window) {
+                continue;
+            }
+            try {
+                List<AlarmInstanceEntity> groupRecords = send(group, now);
+                if (groupRecords == null) {
+                    continue;
+                }
+                records.addAll(groupRecords);
+            } catch (Exception e) {
+                log.error("发送告警异常: {}", e.getMessage(), e);
+            }
+            iterator.remove();
+        }
+
+        if (!records.isEmpty()) {
+            LocalDateTime createDateTime = LocalDateTime.now();
+            jdbcTemplate.batchUpdate(INSERT_SQL, records, BATCH_SIZE, (ps, e) -> {
+                ps.setString(1, "sy_" + IdUtil.getSnowflake().nextIdStr());
+                ps.setString(2, e.getAlarmId());
+                ps.setString(3, e.getSendStatus());
+                ps.setString(4, e.getAlarmType());
+                ps.setString(5, e.getAlarmEvent());
+                ps.setString(6, e.getMsgId());
+                ps.setString(7, e.getContent());
+                ps.setString(8, e.getResponse());
+                ps.setString(9, e.getInstanceId());
+                ps.setString(10, e.getReceiver());
+                ps.setTimestamp(11, Timestamp.valueOf(e.getSendDateTime()));
+                ps.setTimestamp(12, Timestamp.valueOf(createDateTime));
+                ps.setString(13, e.getTenantId());
+            });
+        }
+    }
+
+    /**
+     * 匹配事件对应的告警，按接收人放入聚合分组.
+     */
+    private void accept(AlarmEvent event, long now) {
+
+        TENANT_ID.set(event.tenantId);
+
+        Map<String, String> values = null;
+        for (String alarmId : getAlarmIds(event)) {
+
+            // 告警不存在、类型或事件不对、没有开启时跳过
+            AlarmDefinition alarm = getAlarm(alarmId);
+            if (alarm == null || !event.alarmType.equals(alarm.alarm.getAlarmType())
+                || !AlarmStatus.ENABLE.equals(alarm.alarm.getStatus())
+                || !event.alarmEvent.equals(alarm.alarm.getAlarmEvent()) || Strings.isEmpty(alarm.alarm.getMsgId())) {
+                continue;
+            }
+
+            if (values == null) {
+                values = getValues(event);
+            }
+            // 作业流重跑时实例id不变，只在聚合窗口内去重，窗口外的事件重新告警
+            for (String receiver : alarm.receivers) {
+                groups.computeIfAbsent(alarmId + "#" + receiver + "#" + event.scopeId,
+                    k -> new AlarmGroup(alarm, receiver, event, now)).add(event.instanceId, values);
+            }
+        }
+    }
+
+    /**
+     * 发送一组消息，每个实例一条发送记录，被限流时返回null.
+     */
+    private List<AlarmInstanceEntity> send(AlarmGroup group, long now) {
+
+        TENANT_ID.set(group.tenantId);
+
+        AlarmEntity alarm = group.alarm.alarm;
+        MessageDefinition message = getMessage(alarm.getMsgId());
+        boolean active = message != null && MessageStatus.ACTIVE.equals(message.message.getStatus());
+        TokenBucket bucket = buckets.computeIfAbsent(alarm.getMsgId(),
+            k -> new TokenBucket(isxAppProperties.getAlarmRateLimit(), now));
+        if (active && !bucket.tryAcquire(now)) {
+            return null;
+        }
+
+        Map<String, String> values = group.mergeValues();
+        values.put("${qing.current_datetime}",
+            LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+        values.put("${qing.current_date}", LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")));
+
+        MessageContext messageContext = MessageContext.builder().alarmType(alarm.getAlarmType()).alarmId(alarm.getId())
+            .alarmEvent(alarm.getAlarmEvent()).msgId(alarm.getMsgId()).tenantId(group.tenantId)
+            .content(group.alarm.template.render(values)).instanceId(group.values.keySet().iterator().next())
+            .receiver(group.receiver).sendDateTime(LocalDateTime.now()).build();
+
+        AlarmInstanceEntity record;
+        if (!active) {
+            record = failRecord(messageContext, message == null ? "消息体不存在" : "消息体不为激活状态");
+        } else {
+            try {
+                UserEntity user = getValue("user#" + group.receiver, () -> userService.getUser(group.receiver));
+                messageContext.setEmail(user.getEmail());
+                messageContext.setPhone(user.getPhone());
+                messageContext.setMessageConfig(message.messageConfig);
+                record = message.runner.execute(messageContext);
+            } catch (Exception e) {
+                record = failRecord(messageContext, e.getMessage());
+            }
+        }
+        record.setTenantId(group.tenantId);
+
+        List<AlarmInstanceEntity> records = new ArrayList<>();
+        for (String instanceId : group.values.keySet()) {
+            records.add(record.toBuilder().instanceId(instanceId).build());
+        }
+        return records;
+    }
+
+    private AlarmInstanceEntity failRecord(MessageContext messageContext, String response) {
+
+        return AlarmInstanceEntity.builder().alarmId(messageContext.getAlarmId())
+            .alarmType(messageContext.getAlarmType()).alarmEvent(messageContext.getAlarmEvent())
+            .msgId(messageContext.getMsgId()).content(messageContext.getContent())
+            .instanceId(messageContext.getInstanceId()).receiver(messageContext.getReceiver())
+            .sendDateTime(messageContext.getSendDateTime()).sendStatus(AlarmSendStatus.FAIL)
+            .response(String.valueOf(response)).build();
+    }
+
+    private List<String> getAlarmIds(AlarmEvent event) {
+
+        String alarmList = AlarmType.WORK.equals(event.alarmType)
+            ? getValue("workVersion#" + event.versionId,
+                () -> vipWorkVersionRepository.findById(event.versionId).get()).getAlarmList()
+            : getValue("workflowVersion#" + event.versionId,
+                () -> workflowVersionRepository.findById(event.versionId).get()).getAlarmList();
+        return Strings.isEmpty(alarmList) ? Collections.emptyList() : JSON.parseArray(alarmList, String.class);
+    }
+
+    private Map<String, String> getValues(AlarmEvent event) {
+
+        Map<String, String> valueMap = new HashMap<>();
+        WorkflowEntity workflow;
+        if (AlarmType.WORK.equals(event.alarmType)) {
+            VipWorkVersionEntity workVersion = getValue("workVersion#" + event.versionId,
+                () -> vipWorkVersionRepository.findById(event.versionId).get());
+            WorkEntity work =
+                getValue("work#" + workVersion.getWorkId(), () -> workService.getWorkEntity(workVersion.getWorkId()));
+            workflow =
+                getValue("workflow#" + work.getWorkflowId(), () -> workflowService.getWorkflow(work.getWorkflowId()));
+            valueMap.put("${qing.work_name}", work.getName());
+            valueMap.put("${qing.work_id}", work.getId());
+            valueMap.put("${qing.work_instance_id}", event.instanceId);
+            valueMap.put("${qing.workflow_instance_id}", event.scopeId);
+        } else {
+            WorkflowVersionEntity workflowVersion = getValue("workflowVersion#" + event.versionId,
+                () -> workflowVersionRepository.findById(event.versionId).get());
+            workflow = getValue("workflow#" + workflowVersion.getWorkflowId(),
+                () -> workflowService.getWorkflow(workflowVersion.getWorkflowId()));
+            valueMap.put("${qing.workflow_instance_id}", event.instanceId);
+        }
+        valueMap.put("${qing.workflow_name}", workflow.getName());
+        valueMap.put("${qing.workflow_id}", workflow.getId());
+        return valueMap;
+    }
+
+    private AlarmDefinition getAlarm(String alarmId) {
+
+        Optional<AlarmDefinition> alarm = alarmCache.get(alarmId);
+        if (alarm == null) {
+            alarm = alarmRepository.findById(alarmId).map(AlarmDefinition::new);
+            alarmCache.put(alarmId, alarm);
+        }
+        return alarm.orElse(null);
+    }
+
+    private MessageDefinition getMessage(String messageId) {
+
+        Optional<MessageDefinition> message = messageCache.get(messageId);
+        if (message == null) {
+            message = messageRepository.findById(messageId)
+                .map(e -> new MessageDefinition(e, JSON.parseObject(e.getMsgConfig(), MessageConfig.class),
+                    messageFactory.getMessageAction(e.getMsgType())));
+            messageCache.put(messageId, message);
+        }
+        return message.orElse(null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T getValue(String key, Supplier<T> loader) {
+
+        Object value = valueCache.get(key);
+        if (value == null) {
+            value = loader.get();
+            valueCache.put(key, value);
+        }
+        return (T) value;
+    }
+
+    private static class AlarmEvent {
+
+        private final String alarmType;
+
+        private final String alarmEvent;
+
+        private final String tenantId;
+
+        private final String versionId;
+
+        private final String instanceId;
+
+        /**
+         * 聚合的范围，作业为所在的作业流实例.
+         */
+        private final String scopeId;
+
+        private AlarmEvent(String alarmType, String alarmEvent, String tenantId, String versionId, String instanceId,
+            String scopeId) {
+
+            this.alarmType = alarmType;
+            this.alarmEvent = alarmEvent;
+            this.tenantId = tenantId;
+            this.versionId = versionId;
+            this.instanceId = instanceId;
+            this.scopeId = scopeId;
+        }
+    }
+
+    private static class AlarmDefinition {
+
+        private final AlarmEntity alarm;
+
+        private final AlarmTemplate template;
+
+        private final List<String> receivers;
+
+        private AlarmDefinition(AlarmEntity alarm) {
+
+            this.alarm = alarm;
+            this.template = new AlarmTemplate(alarm.getAlarmTemplate());
+            this.receivers = Strings.isEmpty(alarm.getReceiverList()) ? Collections.emptyList()
+                : JSON.parseArray(alarm.getReceiverList(), String.class);
+        }
+    }
+
+    private static class MessageDefinition {
+
+        private final MessageEntity message;
+
+        private final MessageConfig messageConfig;
+
+        private final MessageRunner runner;
+
+        private MessageDefinition(MessageEntity message, MessageConfig messageConfig, MessageRunner runner) {
+
+            this.message = message;
+            this.messageConfig = messageConfig;
+            this.runner = runner;
+        }
+    }
+
+    /**
+     * 预编译的消息模板，按变量切分，发送时只拼接.
+     */
+    static class AlarmTemplate {
+
+        private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\$\\{qing\\.[a-z_]+}");
+
+        private final List<String> parts = new ArrayList<>();
+
+        private final List<Boolean> variables = new ArrayList<>();
+
+        AlarmTemplate(String template) {
+
+            String text = template == null ? "" : template;
+            Matcher matcher = VARIABLE_PATTERN.matcher(text);
+            int start = 0;
+            while (matcher.find()) {
+                addPart(text.substring(start, matcher.start()), false);
+                addPart(matcher.group(), true);
+                start = matcher.end();
+            }
+            addPart(text.substring(start), false);
+        }
+
+        private void addPart(String part, boolean variable) {
+
+            if (!part.isEmpty()) {
+                parts.add(part);
+                variables.add(variable);
+            }
+        }
+
+        String render(Map<String, String> values) {
+
+            StringBuilder content = new StringBuilder();
+            for (int i = 0; i < parts.size(); i++) {
+                String part = parts.get(i);
+                content.append(variables.get(i) ? values.getOrDefault(part, part) : part);
+            }
+            return content.toString();
+        }
+    }
+
+    /**
+     * 同一个接收人在聚合窗口内的消息.
+     */
+    private static class AlarmGroup {
+
+        private final AlarmDefinition alarm;
+
+        private final String receiver;
+
+        private final String tenantId;
+
+        private final long firstTime;
+
+        /**
+         * 实例id和变量，同一个实例的重复事件只保留一个.
+         */
+        private final Map<String, Map<String, String>> values = new LinkedHashMap<>();
+
+        private AlarmGroup(AlarmDefinition alarm, String receiver, AlarmEvent event, long firstTime) {
+
+            this.alarm = alarm;
+            this.receiver = receiver;
+            this.tenantId = event.tenantId;
+            this.firstTime = firstTime;
+        }
+
+        private void add(String instanceId, Map<String, String> value) {
+
+            values.putIfAbsent(instanceId, value);
+        }
+
+        /**
+         * 合并多条消息的变量，值不同时展示前几个和总数，比如：作业A、作业B、作业C等12个.
+         */
+        private Map<String, String> mergeValues() {
+
+            Map<String, String> merged = new HashMap<>();
+            values.values().iterator().next().keySet().forEach(key -> {
+                Set<String> distinct = new LinkedHashSet<>();
+                values.values().forEach(e -> distinct.add(String.valueOf(e.get(key))));
+                StringJoiner joiner = new StringJoiner("、");
+                distinct.stream().limit(MERGE_SHOW_NUM).forEach(joiner::add);
+                merged.put(key,
+                    distinct.size() > MERGE_SHOW_NUM ? joiner + "等" + distinct.size() + "个" : joiner.toString());
+            });
+            return merged;
+        }
+    }
+
+    /**
+     * 令牌桶，每分钟补充指定个数.
+     */
+    private static class TokenBucket {
+
+        private final int capacity;
+
+        private double tokens;
+
+        private long refillTime;
+
+        private TokenBucket(int capacity, long now) {
+
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.refillTime = now;
+        }
+
+        private boolean tryAcquire(long now) {
+
+            tokens = Math.min(capacity, tokens + (now - refillTime) * capacity / 60000.0);
+            refillTime = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+    }
+}
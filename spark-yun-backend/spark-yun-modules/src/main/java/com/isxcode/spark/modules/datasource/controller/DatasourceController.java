@@ -10,6 +10,7 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
 import javax.validation.Valid;
+import java.util.List;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -85,6 +86,15 @@ public class DatasourceController {
         return datasourceBizService.getConnectLog(getConnectLogReq);
     }
 
+    @Secured({RoleType.TENANT_ADMIN})
+    @Operation(summary = "查询数据源连接池状态接口")
+    @PostMapping("/getDatasourcePoolStats")
+    @SuccessResponse("查询成功")
+    public List<GetDatasourcePoolStatsRes> getDatasourcePoolStats() {
+
+        return datasourceBizService.getDatasourcePoolStats();
+    }
+
     @PostMapping("/uploadDatabaseDriver")
     @Operation(summary = "上传数据源驱动接口(Swagger有Bug不能使用)")
     @SuccessResponse("上传成功")
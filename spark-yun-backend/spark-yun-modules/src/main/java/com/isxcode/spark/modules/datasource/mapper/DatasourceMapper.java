@@ -45,6 +45,7 @@ public interface DatasourceMapper {
     GetDefaultDatabaseDriverRes databaseDriverEntityToGetDefaultDatabaseDriverRes(
         DatabaseDriverEntity databaseDriverEntity);
 
+    @Mapping(target = "datasourceId", source = "id")
     ConnectInfo datasourceEntityToConnectInfo(DatasourceEntity datasourceEntity);
 
     CheckConnectReq addDatasourceReqToCheckConnectReq(AddDatasourceReq addDatasourceReq);
@@ -0,0 +1,99 @@
+package com.isxcode.spark.modules.datasource.pool;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.PoolStats;
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 数据源连接池统计.
+ */
+public class DatasourcePoolMetrics implements IMetricsTracker {
+
+    @Getter
+    private final PoolStats poolStats;
+
+    private final LongAdder acquireCount = new LongAdder();
+
+    private final LongAdder createCount = new LongAdder();
+
+    private final LongAdder timeoutCount = new LongAdder();
+
+    private final LongAdder totalWaitNanos = new LongAdder();
+
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+    private final AtomicLong lastAcquireTime = new AtomicLong(System.currentTimeMillis());
+
+    public DatasourcePoolMetrics(PoolStats poolStats) {
+
+        this.poolStats = poolStats;
+    }
+
+    @Override
+    public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+
+        createCount.increment();
+    }
+
+    @Override
+    public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+
+        acquireCount.increment();
+        totalWaitNanos.add(elapsedAcquiredNanos);
+        maxWaitNanos.accumulate(elapsedAcquiredNanos);
+        lastAcquireTime.set(System.currentTimeMillis());
+    }
+
+    @Override
+    public void recordConnectionTimeout() {
+
+        timeoutCount.increment();
+    }
+
+    public long getAcquireCount() {
+
+        return acquireCount.sum();
+    }
+
+    /**
+     * 新建物理连接的次数，即未命中连接池的次数.
+     */
+    public long getMissCount() {
+
+        return createCount.sum();
+    }
+
+    /**
+     * 复用已有连接的次数.
+     */
+    public long getHitCount() {
+
+        return Math.max(getAcquireCount() - getMissCount(), 0);
+    }
+
+    public long getTimeoutCount() {
+
+        return timeoutCount.sum();
+    }
+
+    public long getAvgWaitMillis() {
+
+        long count = getAcquireCount();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.sum() / count);
+    }
+
+    public long getMaxWaitMillis() {
+
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+
+    public long getLastAcquireTime() {
+
+        return lastAcquireTime.get();
+    }
+}
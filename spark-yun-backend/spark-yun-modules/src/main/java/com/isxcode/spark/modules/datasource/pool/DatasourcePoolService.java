@@ -0,0 +1,245 @@
+package com.isxcode.spark.modules.datasource.pool;
+
+import cn.hutool.crypto.SecureUtil;
+import com.isxcode.spark.api.datasource.dto.ConnectInfo;
+import com.isxcode.spark.backend.api.base.exceptions.IsxAppException;
+import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.logging.log4j.util.Strings;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * 数据源连接池管理.
+ *
+ * <p>
+ * 每个数据源一个连接池，数据源的驱动、地址、账号、密码任意变化都会生成新的配置版本，旧版本的连接池直接关闭.
+ * </p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DatasourcePoolService {
+
+    private final IsxAppProperties isxAppProperties;
+
+    private final Map<String, DatasourcePool> datasourcePools = new ConcurrentHashMap<>();
+
+    /**
+     * 所有连接池共用一个维护线程池.
+     */
+    private final ScheduledThreadPoolExecutor housekeeper = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread thread = new Thread(r, "datasourcePoolHousekeeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+
+        housekeeper.setRemoveOnCancelPolicy(true);
+    }
+
+    public boolean isEnabled() {
+
+        return isxAppProperties.isDatasourcePoolEnabled();
+    }
+
+    /**
+     * 从连接池获取连接，连接池不存在或者配置版本变化时新建.
+     */
+    public Connection getConnection(ConnectInfo connectInfo, Driver driver, Properties properties,
+        String validationQuery) throws IsxAppException {
+
+        String version = getVersion(connectInfo);
+        String poolKey = Strings.isEmpty(connectInfo.getDatasourceId()) ? version : connectInfo.getDatasourceId();
+
+        // 建池会连接数据库，不能放在map的compute中，并发建池时只保留先放入的，其余的直接关闭
+        DatasourcePool datasourcePool = datasourcePools.get(poolKey);
+        while (!isAvailable(datasourcePool, version)) {
+            DatasourcePool newPool = createPool(poolKey, version, connectInfo, driver, properties, validationQuery);
+            boolean stored = datasourcePool == null ? datasourcePools.putIfAbsent(poolKey, newPool) == null
+                : datasourcePools.replace(poolKey, datasourcePool, newPool);
+            if (stored) {
+                if (datasourcePool != null) {
+                    datasourcePool.close();
+                }
+                datasourcePool = newPool;
+            } else {
+                newPool.close();
+                datasourcePool = datasourcePools.get(poolKey);
+            }
+        }
+
+        try {
+            return datasourcePool.getDataSource().getConnection();
+        } catch (SQLException e) {
+            log.error(e.getMessage(), e);
+            throw new IsxAppException(e.getMessage());
+        }
+    }
+
+    /**
+     * 连接的会话状态被修改后，不再放回连接池.
+     */
+    public void evictConnection(ConnectInfo connectInfo, Connection connection) {
+
+        String poolKey =
+            Strings.isEmpty(connectInfo.getDatasourceId()) ? getVersion(connectInfo) : connectInfo.getDatasourceId();
+        DatasourcePool datasourcePool = datasourcePools.get(poolKey);
+        if (datasourcePool != null) {
+            datasourcePool.getDataSource().evictConnection(connection);
+        }
+    }
+
+    /**
+     * 数据源修改或者删除后，关闭连接池.
+     */
+    public void evict(String datasourceId) {
+
+        DatasourcePool datasourcePool = datasourcePools.remove(datasourceId);
+        if (datasourcePool != null) {
+            datasourcePool.close();
+        }
+    }
+
+    /**
+     * 驱动删除后，关闭使用该驱动的所有连接池.
+     */
+    public void evictByDriver(String driverId) {
+
+        datasourcePools.entrySet().removeIf(e -> {
+            if (driverId.equals(e.getValue().getDriverId())) {
+                e.getValue().close();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    public Map<String, DatasourcePool> getDatasourcePools() {
+
+        return datasourcePools;
+    }
+
+    /**
+     * 长期没有使用的连接池直接关闭.
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void closeIdlePools() {
+
+        long idleTime = System.currentTimeMillis() - isxAppProperties.getDatasourcePoolIdleTimeout() * 2;
+        datasourcePools.entrySet().removeIf(e -> {
+            DatasourcePool datasourcePool = e.getValue();
+            if (datasourcePool.getMetrics().getLastAcquireTime() < idleTime
+                && datasourcePool.getMetrics().getPoolStats().getActiveConnections() == 0) {
+                datasourcePool.close();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+
+        datasourcePools.values().forEach(DatasourcePool::close);
+        datasourcePools.clear();
+        housekeeper.shutdownNow();
+    }
+
+    private boolean isAvailable(DatasourcePool datasourcePool, String version) {
+
+        return datasourcePool != null && datasourcePool.getVersion().equals(version)
+            && !datasourcePool.getDataSource().isClosed();
+    }
+
+    private DatasourcePool createPool(String poolKey, String version, ConnectInfo connectInfo, Driver driver,
+        Properties properties, String validationQuery) {
+
+        int loginTimeout = connectInfo.getLoginTimeout() == null ? 600 : connectInfo.getLoginTimeout();
+
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setPoolName("datasource-" + poolKey);
+        hikariConfig.setDataSource(new DriverDataSource(driver, connectInfo.getJdbcUrl(), properties, loginTimeout));
+        hikariConfig.setMaximumPoolSize(isxAppProperties.getDatasourcePoolMaxSize());
+        hikariConfig.setMinimumIdle(0);
+        hikariConfig.setIdleTimeout(isxAppProperties.getDatasourcePoolIdleTimeout());
+        hikariConfig.setConnectionTimeout(
+            Math.max(isxAppProperties.getDatasourcePoolConnectionTimeout(), loginTimeout * 1000L));
+        hikariConfig.setConnectionTestQuery(validationQuery);
+        hikariConfig.setScheduledExecutor(housekeeper);
+
+        DatasourcePool datasourcePool = new DatasourcePool(version, connectInfo.getDriverId());
+        hikariConfig.setMetricsTrackerFactory((poolName, poolStats) -> {
+            DatasourcePoolMetrics metrics = new DatasourcePoolMetrics(poolStats);
+            datasourcePool.setMetrics(metrics);
+            return metrics;
+        });
+
+        try {
+            datasourcePool.setDataSource(new HikariDataSource(hikariConfig));
+        } catch (RuntimeException e) {
+            log.error(e.getMessage(), e);
+            throw new IsxAppException(e.getCause() == null ? e.getMessage() : e.getCause().getMessage());
+        }
+        return datasourcePool;
+    }
+
+    private String getVersion(ConnectInfo connectInfo) {
+
+        return SecureUtil.md5(connectInfo.getDriverId() + "|" + connectInfo.getJdbcUrl() + "|"
+            + connectInfo.getUsername() + "|" + connectInfo.getPasswd());
+    }
+
+    @Getter
+    public static class DatasourcePool {
+
+        private final String version;
+
+        private final String driverId;
+
+        private HikariDataSource dataSource;
+
+        private DatasourcePoolMetrics metrics;
+
+        DatasourcePool(String version, String driverId) {
+
+            this.version = version;
+            this.driverId = driverId;
+        }
+
+        void setDataSource(HikariDataSource dataSource) {
+
+            this.dataSource = dataSource;
+        }
+
+        void setMetrics(DatasourcePoolMetrics metrics) {
+
+            this.metrics = metrics;
+        }
+
+        void close() {
+
+            try {
+                dataSource.close();
+            } catch (Exception e) {
+                log.warn("关闭数据源连接池异常: {}", e.getMessage());
+            }
+        }
+    }
+}
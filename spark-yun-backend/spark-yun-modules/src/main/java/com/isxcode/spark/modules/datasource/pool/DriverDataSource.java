@@ -0,0 +1,97 @@
+package com.isxcode.spark.modules.datasource.pool;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * 使用隔离类加载器中的驱动创建连接，供连接池使用.
+ */
+public class DriverDataSource implements DataSource {
+
+    private final Driver driver;
+
+    private final String jdbcUrl;
+
+    private final Properties properties;
+
+    private int loginTimeout;
+
+    private PrintWriter logWriter;
+
+    public DriverDataSource(Driver driver, String jdbcUrl, Properties properties, int loginTimeout) {
+
+        this.driver = driver;
+        this.jdbcUrl = jdbcUrl;
+        this.properties = properties;
+        this.loginTimeout = loginTimeout;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+
+        DriverManager.setLoginTimeout(loginTimeout);
+        Connection connection = driver.connect(jdbcUrl, properties);
+        if (connection == null) {
+            throw new SQLException("请检查连接协议");
+        }
+        return connection;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+
+        return logWriter;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+
+        this.logWriter = out;
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+
+        this.loginTimeout = seconds;
+    }
+
+    @Override
+    public int getLoginTimeout() {
+
+        return loginTimeout;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("不支持的类型: " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+
+        return iface.isInstance(this);
+    }
+}
@@ -14,6 +14,8 @@ import com.isxcode.spark.common.utils.path.PathUtils;
 import com.isxcode.spark.modules.datasource.entity.DatabaseDriverEntity;
 import com.isxcode.spark.modules.datasource.entity.DatasourceEntity;
 import com.isxcode.spark.modules.datasource.mapper.DatasourceMapper;
+import com.isxcode.spark.modules.datasource.pool.DatasourcePoolMetrics;
+import com.isxcode.spark.modules.datasource.pool.DatasourcePoolService;
 import com.isxcode.spark.modules.datasource.repository.DatabaseDriverRepository;
 import com.isxcode.spark.modules.datasource.repository.DatasourceRepository;
 import com.isxcode.spark.modules.datasource.service.DatabaseDriverService;
@@ -28,8 +30,11 @@ import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.sql.Connection;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import javax.transaction.Transactional;
 
 import com.isxcode.spark.modules.datasource.source.DataSourceFactory;
@@ -68,6 +73,8 @@ public class DatasourceBizService {
     private final DatabaseDriverService databaseDriverService;
 
     private final DataSourceFactory dataSourceFactory;
+
+    private final DatasourcePoolService datasourcePoolService;
     private final UserService userService;
 
     public void addDatasource(AddDatasourceReq addDatasourceReq) {
@@ -148,6 +155,9 @@ public class DatasourceBizService {
         }
 
         datasourceRepository.save(datasource);
+
+        // 数据源配置变化，关闭旧的连接池
+        datasourcePoolService.evict(datasource.getId());
     }
 
     public Page<PageDatasourceRes> pageDatasource(PageDatasourceReq dasQueryDatasourceReq) {
@@ -179,6 +189,9 @@ public class DatasourceBizService {
     public void deleteDatasource(DeleteDatasourceReq deleteDatasourceReq) {
 
         datasourceRepository.deleteById(deleteDatasourceReq.getDatasourceId());
+
+        // 关闭连接池
+        datasourcePoolService.evict(deleteDatasourceReq.getDatasourceId());
     }
 
     public TestConnectRes testConnect(GetConnectLogReq testConnectReq) {
@@ -206,7 +219,7 @@ public class DatasourceBizService {
             ConnectInfo connectInfo = datasourceMapper.datasourceEntityToConnectInfo(datasourceEntity);
             Datasource datasource = dataSourceFactory.getDatasource(connectInfo.getDbType());
             connectInfo.setLoginTimeout(5);
-            try (Connection connection = datasource.getConnection(connectInfo)) {
+            try (Connection connection = datasource.getDirectConnection(connectInfo)) {
                 if (connection != null) {
                     datasourceEntity.setStatus(DatasourceStatus.ACTIVE);
                     datasourceEntity.setConnectLog("测试连接成功！");
@@ -255,7 +268,7 @@ public class DatasourceBizService {
         } else {
             ConnectInfo connectInfo = datasourceMapper.datasourceEntityToConnectInfo(datasourceEntity);
             Datasource datasource = dataSourceFactory.getDatasource(connectInfo.getDbType());
-            try (Connection connection = datasource.getConnection(connectInfo)) {
+            try (Connection connection = datasource.getDirectConnection(connectInfo)) {
                 if (connection != null) {
                     return new CheckConnectRes(true, "连接成功");
                 } else {
@@ -271,6 +284,32 @@ public class DatasourceBizService {
         }
     }
 
+    public List<GetDatasourcePoolStatsRes> getDatasourcePoolStats() {
+
+        // 只返回当前租户的数据源连接池
+        Map<String, String> datasourceNames = datasourceRepository.findAll().stream()
+            .collect(Collectors.toMap(DatasourceEntity::getId, DatasourceEntity::getName));
+
+        List<GetDatasourcePoolStatsRes> result = new ArrayList<>();
+        datasourcePoolService.getDatasourcePools().forEach((datasourceId, datasourcePool) -> {
+            if (!datasourceNames.containsKey(datasourceId)) {
+                return;
+            }
+            DatasourcePoolMetrics metrics = datasourcePool.getMetrics();
+            result.add(GetDatasourcePoolStatsRes.builder().datasourceId(datasourceId)
+                .datasourceName(datasourceNames.get(datasourceId))
+                .activeConnections(metrics.getPoolStats().getActiveConnections())
+                .idleConnections(metrics.getPoolStats().getIdleConnections())
+                .totalConnections(metrics.getPoolStats().getTotalConnections())
+                .pendingThreads(metrics.getPoolStats().getPendingThreads())
+                .maxConnections(metrics.getPoolStats().getMaxConnections()).acquireCount(metrics.getAcquireCount())
+                .hitCount(metrics.getHitCount()).missCount(metrics.getMissCount())
+                .timeoutCount(metrics.getTimeoutCount()).avgWaitMillis(metrics.getAvgWaitMillis())
+                .maxWaitMillis(metrics.getMaxWaitMillis()).build());
+        });
+        return result;
+    }
+
     public GetConnectLogRes getConnectLog(GetConnectLogReq getConnectLogReq) {
 
         DatasourceEntity datasource = datasourceService.getDatasource(getConnectLogReq.getDatasourceId());
@@ -354,8 +393,9 @@ public class DatasourceBizService {
             throw new IsxAppException("有数据源已使用当前驱动，无法删除");
         }
 
-        // 卸载Map中的驱动
+        // 卸载Map中的驱动，并关闭使用该驱动的连接池
         ALL_EXIST_DRIVER.remove(driver.getId());
+        datasourcePoolService.evictByDriver(driver.getId());
 
         // 将文件名改名字 xxx.jar ${driverId}_xxx.jar_bak
         try {
@@ -14,6 +14,7 @@ import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
 import com.isxcode.spark.common.utils.aes.AesUtils;
 import com.isxcode.spark.common.utils.path.PathUtils;
 import com.isxcode.spark.modules.datasource.entity.DatabaseDriverEntity;
+import com.isxcode.spark.modules.datasource.pool.DatasourcePoolService;
 import com.isxcode.spark.modules.datasource.service.DatabaseDriverService;
 import com.isxcode.spark.modules.datasource.service.DriverShim;
 import com.isxcode.spark.modules.model.entity.DataModelEntity;
@@ -51,6 +52,8 @@ public abstract class Datasource {
 
     private final AesUtils aesUtils;
 
+    private final DatasourcePoolService datasourcePoolService;
+
     public abstract String getDataSourceType();
 
     public abstract String getDriverName();
@@ -74,8 +77,63 @@ public abstract class Datasource {
 
     public abstract void refreshTableInfo(ConnectInfo connectInfo) throws IsxAppException;
 
+    /**
+     * 连接池的连接校验语句，为空时使用驱动自带的校验.
+     */
+    public String getValidationQuery() {
+
+        return null;
+    }
+
+    /**
+     * 获取连接，开启连接池时从连接池中获取.
+     */
     public Connection getConnection(ConnectInfo connectInfo) throws IsxAppException {
 
+        if (!datasourcePoolService.isEnabled()) {
+            return getDirectConnection(connectInfo);
+        }
+
+        return datasourcePoolService.getConnection(connectInfo, getDriver(connectInfo),
+            getConnectProperties(connectInfo), getValidationQuery());
+    }
+
+    /**
+     * 直接创建新连接，用于测试连接.
+     */
+    public Connection getDirectConnection(ConnectInfo connectInfo) throws IsxAppException {
+
+        DriverShim driver = getDriver(connectInfo);
+        Properties properties = getConnectProperties(connectInfo);
+
+        // 数据源连接超时时间设定，默认600秒，10分钟
+        DriverManager.setLoginTimeout(connectInfo.getLoginTimeout() == null ? 600 : connectInfo.getLoginTimeout());
+        try {
+            return driver.connect(connectInfo.getJdbcUrl(), properties);
+        } catch (SQLException e) {
+            log.error(e.getMessage(), e);
+            throw new IsxAppException(e.getMessage());
+        }
+    }
+
+    /**
+     * 执行的sql修改了会话状态，连接不再放回连接池.
+     */
+    public void evictIfSessionChanged(ConnectInfo connectInfo, Connection connection, List<String> sqls) {
+
+        if (!datasourcePoolService.isEnabled()) {
+            return;
+        }
+
+        boolean sessionChanged = sqls.stream().map(e -> e.trim().toUpperCase()).anyMatch(e -> e.startsWith("USE ")
+            || e.startsWith("SET ") || e.startsWith("ALTER SESSION") || e.contains("TEMPORARY"));
+        if (sessionChanged) {
+            datasourcePoolService.evictConnection(connectInfo, connection);
+        }
+    }
+
+    private DriverShim getDriver(ConnectInfo connectInfo) throws IsxAppException {
+
         // 判断驱动是否已经加载
         DriverShim driver = ALL_EXIST_DRIVER.get(connectInfo.getDriverId());
 
@@ -133,6 +191,11 @@ public abstract class Datasource {
             ALL_EXIST_DRIVER.put(connectInfo.getDriverId(), driver);
         }
 
+        return driver;
+    }
+
+    private Properties getConnectProperties(ConnectInfo connectInfo) {
+
         // 配置账号密码
         Properties properties = new Properties();
         if (connectInfo.getUsername() != null) {
@@ -141,15 +204,7 @@ public abstract class Datasource {
         if (connectInfo.getPasswd() != null) {
             properties.put("password", aesUtils.decrypt(connectInfo.getPasswd()));
         }
-
-        // 数据源连接超时时间设定，默认600秒，10分钟
-        DriverManager.setLoginTimeout(connectInfo.getLoginTimeout() == null ? 600 : connectInfo.getLoginTimeout());
-        try {
-            return driver.connect(connectInfo.getJdbcUrl(), properties);
-        } catch (SQLException e) {
-            log.error(e.getMessage(), e);
-            throw new IsxAppException(e.getMessage());
-        }
+        return properties;
     }
 
     public boolean isShowQueryStatement(String sql) {
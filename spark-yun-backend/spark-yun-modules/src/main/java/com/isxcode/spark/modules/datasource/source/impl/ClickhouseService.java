@@ -11,6 +11,7 @@ import com.isxcode.spark.api.work.res.GetDataSourceDataRes;
 import com.isxcode.spark.backend.api.base.exceptions.IsxAppException;
 import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
 import com.isxcode.spark.common.utils.aes.AesUtils;
+import com.isxcode.spark.modules.datasource.pool.DatasourcePoolService;
 import com.isxcode.spark.modules.datasource.service.DatabaseDriverService;
 import com.isxcode.spark.modules.datasource.source.Datasource;
 import com.isxcode.spark.modules.model.entity.DataModelEntity;
@@ -31,8 +32,8 @@ import java.util.List;
 public class ClickhouseService extends Datasource {
 
     public ClickhouseService(DatabaseDriverService dataDriverService, IsxAppProperties isxAppProperties,
-        AesUtils aesUtils) {
-        super(dataDriverService, isxAppProperties, aesUtils);
+        AesUtils aesUtils, DatasourcePoolService datasourcePoolService) {
+        super(dataDriverService, isxAppProperties, aesUtils, datasourcePoolService);
     }
 
     @Override
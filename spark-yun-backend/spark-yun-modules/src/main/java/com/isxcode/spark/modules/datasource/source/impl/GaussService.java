@@ -10,6 +10,7 @@ import com.isxcode.spark.api.work.res.GetDataSourceDataRes;
 import com.isxcode.spark.backend.api.base.exceptions.IsxAppException;
 import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
 import com.isxcode.spark.common.utils.aes.AesUtils;
+import com.isxcode.spark.modules.datasource.pool.DatasourcePoolService;
 import com.isxcode.spark.modules.datasource.service.DatabaseDriverService;
 import com.isxcode.spark.modules.datasource.source.Datasource;
 import com.isxcode.spark.modules.model.entity.DataModelEntity;
@@ -36,8 +37,9 @@ import java.util.List;
 @Slf4j
 public class GaussService extends Datasource {
 
-    public GaussService(DatabaseDriverService dataDriverService, IsxAppProperties isxAppProperties, AesUtils aesUtils) {
-        super(dataDriverService, isxAppProperties, aesUtils);
+    public GaussService(DatabaseDriverService dataDriverService, IsxAppProperties isxAppProperties, AesUtils aesUtils,
+        DatasourcePoolService datasourcePoolService) {
+        super(dataDriverService, isxAppProperties, aesUtils, datasourcePoolService);
     }
 
     @Override
@@ -10,6 +10,7 @@ import com.isxcode.spark.api.work.res.GetDataSourceDataRes;
 import com.isxcode.spark.backend.api.base.exceptions.IsxAppException;
 import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
 import com.isxcode.spark.common.utils.aes.AesUtils;
+import com.isxcode.spark.modules.datasource.pool.DatasourcePoolService;
 import com.isxcode.spark.modules.datasource.service.DatabaseDriverService;
 import com.isxcode.spark.modules.datasource.source.Datasource;
 import com.isxcode.spark.modules.model.entity.DataModelEntity;
@@ -30,8 +31,9 @@ import java.util.List;
 @Slf4j
 public class HanaService extends Datasource {
 
-    public HanaService(DatabaseDriverService dataDriverService, IsxAppProperties isxAppProperties, AesUtils aesUtils) {
-        super(dataDriverService, isxAppProperties, aesUtils);
+    public HanaService(DatabaseDriverService dataDriverService, IsxAppProperties isxAppProperties, AesUtils aesUtils,
+        DatasourcePoolService datasourcePoolService) {
+        super(dataDriverService, isxAppProperties, aesUtils, datasourcePoolService);
     }
 
     @Override
@@ -71,6 +73,11 @@ public class HanaService extends Datasource {
         return DatasourceDriver.HANA_SAP_DRIVER;
     }
 
+    @Override
+    public String getValidationQuery() {
+        return "SELECT 1 FROM DUMMY";
+    }
+
     @Override
     public List<QueryTableDto> queryTable(ConnectInfo connectInfo) {
         return Collections.emptyList();
@@ -0,0 +1,248 @@
+package com.isxcode.spark.modules.file.service;
+
+import cn.hutool.core.text.csv.CsvParser;
+import cn.hutool.core.text.csv.CsvReadConfig;
+import cn.hutool.core.text.csv.CsvRow;
+import cn.hutool.core.text.csv.CsvUtil;
+import cn.hutool.core.text.csv.CsvWriter;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.poi.excel.ExcelUtil;
+import com.isxcode.spark.backend.api.base.exceptions.IsxAppException;
+import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
+import com.isxcode.spark.common.utils.path.PathUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Excel文件转换的csv缓存.
+ *
+ * <p>
+ * 使用事件模式逐行解析Excel，内存中只保留当前行，转换结果gzip压缩后保存在原文件旁，原文件不变时重复使用.
+ * 单元格内的换行转义成\n，反斜杠转义成\\，每条记录只占一行，spark读取时不需要开启multiLine.
+ * </p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExcelCsvService {
+
+    public static final String CSV_SUFFIX = ".csv.gz";
+
+    private static final Pattern LONG_PATTERN = Pattern.compile("^-?\\d{1,18}$");
+
+    private static final Pattern DOUBLE_PATTERN = Pattern.compile("^-?\\d+\\.\\d+([eE]-?\\d+)?$");
+
+    private static final Pattern DATE_PATTERN = Pattern.compile("^\\d{4}-\\d{2}-\\d{2}$");
+
+    private static final Pattern TIMESTAMP_PATTERN =
+        Pattern.compile("^\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}(\\.\\d+)?$");
+
+    private final IsxAppProperties isxAppProperties;
+
+    /**
+     * 获取Excel对应的csv文件，没有转换过或者原文件已更新时重新转换.
+     */
+    public File getCsvFile(String tenantId, String fileId) {
+
+        File excelFile = new File(getFileDir(tenantId) + File.separator + fileId);
+        if (!excelFile.exists()) {
+            throw new IsxAppException("Excel文件不存在");
+        }
+
+        File csvFile = new File(excelFile.getPath() + CSV_SUFFIX);
+        if (!csvFile.exists() || csvFile.lastModified() < excelFile.lastModified()) {
+            convert(excelFile, csvFile);
+        }
+        return csvFile;
+    }
+
+    /**
+     * 读取csv的前几行，不读取整个文件.
+     */
+    public List<List<String>> readRows(File csvFile, int limit) {
+
+        List<List<String>> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+            new GZIPInputStream(Files.newInputStream(csvFile.toPath())), StandardCharsets.UTF_8));
+            CsvParser parser = new CsvParser(reader, CsvReadConfig.defaultConfig())) {
+            CsvRow row;
+            while (rows.size() < limit && (row = parser.nextRow()) != null) {
+                List<String> values = new ArrayList<>(row.size());
+                row.getRawList().forEach(e -> values.add(unescape(e)));
+                rows.add(values);
+            }
+        } catch (IOException e) {
+            log.debug(e.getMessage(), e);
+            throw new IsxAppException("读取Excel文件失败");
+        }
+        return rows;
+    }
+
+    /**
+     * 按抽样的行推断字段类型，空值不参与推断，无法推断时为String.
+     */
+    public List<String> inferTypes(List<List<String>> rows, int columnCount) {
+
+        List<String> types = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            String type = null;
+            for (List<String> row : rows) {
+                String value = i < row.size() ? row.get(i) : null;
+                if (value == null || value.isEmpty()) {
+                    continue;
+                }
+                type = mergeType(type, inferType(value));
+                if ("String".equals(type)) {
+                    break;
+                }
+            }
+            types.add(type == null ? "String" : type);
+        }
+        return types;
+    }
+
+    public void deleteCsvFile(String tenantId, String fileId) {
+
+        try {
+            Files.deleteIfExists(new File(getFileDir(tenantId) + File.separator + fileId + CSV_SUFFIX).toPath());
+        } catch (IOException e) {
+            log.debug(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 只转换第一个sheet，行宽不足时按表头补齐，先写临时文件再替换，避免读到写了一半的文件.
+     */
+    private void convert(File excelFile, File csvFile) {
+
+        File tmpFile = new File(csvFile.getPath() + "." + IdUtil.fastSimpleUUID() + ".tmp");
+        try (CsvWriter csvWriter = CsvUtil.getWriter(new BufferedWriter(new OutputStreamWriter(
+            new GZIPOutputStream(Files.newOutputStream(tmpFile.toPath())), StandardCharsets.UTF_8)))) {
+
+            int[] width = {0};
+            ExcelUtil.readBySax(excelFile, 0, (sheetIndex, rowIndex, rowCells) -> {
+                width[0] = Math.max(width[0], rowCells.size());
+                String[] row = new String[width[0]];
+                for (int i = 0; i < row.length; i++) {
+                    Object cell = i < rowCells.size() ? rowCells.get(i) : null;
+                    row[i] = cell == null ? "" : escape(String.valueOf(cell));
+                }
+                csvWriter.writeLine(row);
+            });
+        } catch (Exception e) {
+            log.debug(e.getMessage(), e);
+            tmpFile.delete();
+            throw new IsxAppException("Excel转换csv失败: " + e.getMessage());
+        }
+
+        try {
+            Files.move(tmpFile.toPath(), csvFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.debug(e.getMessage(), e);
+            throw new IsxAppException("Excel转换csv失败");
+        }
+    }
+
+    /**
+     * 转义单元格内的反斜杠和换行.
+     */
+    private static String escape(String value) {
+
+        if (value.indexOf('\\') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        StringBuilder escaped = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\') {
+                escaped.append("\\\\");
+            } else if (c == '\n') {
+                escaped.append("\\n");
+            } else if (c == '\r') {
+                escaped.append("\\r");
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * 还原转义的单元格，用于预览和推断类型.
+     */
+    private static String unescape(String value) {
+
+        if (value == null || value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder unescaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                unescaped.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                unescaped.append(c);
+            }
+        }
+        return unescaped.toString();
+    }
+
+    private String inferType(String value) {
+
+        if (LONG_PATTERN.matcher(value).matches()) {
+            return "Long";
+        }
+        if (DOUBLE_PATTERN.matcher(value).matches()) {
+            return "Double";
+        }
+        if (DATE_PATTERN.matcher(value).matches()) {
+            return "Date";
+        }
+        if (TIMESTAMP_PATTERN.matcher(value).matches()) {
+            return "Timestamp";
+        }
+        return "String";
+    }
+
+    /**
+     * 整数和小数合并为Double，日期和时间合并为Timestamp，其他不一致时为String.
+     */
+    private String mergeType(String type, String valueType) {
+
+        if (type == null || type.equals(valueType)) {
+            return valueType;
+        }
+        if ("Long".equals(type) && "Double".equals(valueType) || "Double".equals(type) && "Long".equals(valueType)) {
+            return "Double";
+        }
+        if ("Date".equals(type) && "Timestamp".equals(valueType)
+            || "Timestamp".equals(type) && "Date".equals(valueType)) {
+            return "Timestamp";
+        }
+        return "String";
+    }
+
+    private String getFileDir(String tenantId) {
+
+        return PathUtils.parseProjectPath(isxAppProperties.getResourcesPath()) + File.separator + "file"
+            + File.separator + tenantId;
+    }
+}
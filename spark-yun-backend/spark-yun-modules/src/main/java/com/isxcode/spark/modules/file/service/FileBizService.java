@@ -33,6 +33,8 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import static com.isxcode.spark.common.config.CommonConfig.TENANT_ID;
 
@@ -51,6 +53,10 @@ public class FileBizService {
     private final FileMapper fileMapper;
     private final UserService userService;
 
+    private final ExcelCsvService excelCsvService;
+
+    private final Executor sparkYunWorkThreadPool;
+
     public void uploadFile(MultipartFile file, String type, String remark) {
 
         // 判断文件是否重复
@@ -86,6 +92,9 @@ public class FileBizService {
             log.debug(e.getMessage(), e);
             throw new IsxAppException("上传资源文件失败");
         }
+
+        // Excel提前转换成csv
+        preConvertExcel(fileEntity);
     }
 
     public void uploadDuplicateFile(List<MultipartFile> fileList, String type, String remark) {
@@ -143,6 +152,10 @@ public class FileBizService {
 
             fileEntity.setFileName(file.getOriginalFilename());
             fileEntity.setFileSize(DataSizeUtil.format(file.getSize()));
+
+            // 删除旧文件的csv，重新转换
+            excelCsvService.deleteCsvFile(TENANT_ID.get(), fileEntity.getId());
+            preConvertExcel(fileEntity);
         }
 
         // 数据持久化
@@ -186,6 +199,7 @@ public class FileBizService {
             log.debug(e.getMessage(), e);
             throw new IsxAppException("本地文件无法获取");
         }
+        excelCsvService.deleteCsvFile(TENANT_ID.get(), file.getId());
 
         // 数据持久化
         fileRepository.delete(file);
@@ -202,4 +216,24 @@ public class FileBizService {
 
         return map;
     }
+
+    /**
+     * 异步转换，转换失败不影响上传，使用时会再次转换.
+     */
+    private void preConvertExcel(FileEntity fileEntity) {
+
+        if (!"EXCEL".equals(fileEntity.getFileType())) {
+            return;
+        }
+
+        String tenantId = TENANT_ID.get();
+        String fileId = fileEntity.getId();
+        CompletableFuture.runAsync(() -> {
+            try {
+                excelCsvService.getCsvFile(tenantId, fileId);
+            } catch (Exception e) {
+                log.warn("Excel预转换csv失败: {}", e.getMessage());
+            }
+        }, sparkYunWorkThreadPool);
+    }
 }
@@ -0,0 +1,50 @@
+package com.isxcode.spark.modules.monitor.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 作业流实例按小时的状态统计，成功和失败计在开始运行的小时.
+ */
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "SY_INSTANCE_COUNTER")
+@JsonIgnoreProperties({"hibernateLazyInitializer"})
+@EntityListeners(AuditingEntityListener.class)
+public class InstanceCounterEntity {
+
+    @Id
+    @GeneratedValue(generator = "sy-id-generator")
+    @GenericGenerator(name = "sy-id-generator", strategy = "com.isxcode.spark.config.GeneratedValueConfig")
+    private String id;
+
+    private String tenantId;
+
+    /**
+     * 统计的小时.
+     */
+    private LocalDateTime countDateTime;
+
+    private Long startNum;
+
+    private Long endNum;
+
+    private Long successNum;
+
+    private Long failNum;
+
+    @CreatedDate
+    private LocalDateTime createDateTime;
+}
@@ -52,6 +52,8 @@ public class MonitorEntity {
 
     private Double cpuPercent;
 
+    private Integer runningAppNum;
+
     private LocalDateTime createDateTime;
 
     @Transient
@@ -0,0 +1,25 @@
+package com.isxcode.spark.modules.monitor.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Embeddable;
+
+/**
+ * 一个监控指标在时间段内的汇总值.
+ */
+@Data
+@Embeddable
+@AllArgsConstructor
+@NoArgsConstructor
+public class MonitorMetric {
+
+    private Double min;
+
+    private Double avg;
+
+    private Double max;
+
+    private Double last;
+}
@@ -0,0 +1,107 @@
+package com.isxcode.spark.modules.monitor.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Where;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 节点监控按时间段的汇总，没有逻辑删除，只按租户过滤.
+ */
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Where(clause = "1 = 1 ${TENANT_FILTER} ")
+@Table(name = "SY_MONITOR_ROLLUP")
+@JsonIgnoreProperties({"hibernateLazyInitializer"})
+@EntityListeners(AuditingEntityListener.class)
+public class MonitorRollupEntity {
+
+    @Id
+    @GeneratedValue(generator = "sy-id-generator")
+    @GenericGenerator(name = "sy-id-generator", strategy = "com.isxcode.spark.config.GeneratedValueConfig")
+    private String id;
+
+    private String clusterId;
+
+    private String clusterNodeId;
+
+    /**
+     * 汇总粒度.
+     */
+    private String rollupLevel;
+
+    /**
+     * 时间段的开始时间.
+     */
+    private LocalDateTime bucketDateTime;
+
+    /**
+     * 时间段内成功采集的次数.
+     */
+    private Integer sampleCount;
+
+    @Embedded
+    @AttributeOverrides({@AttributeOverride(name = "min", column = @Column(name = "cpu_percent_min")),
+        @AttributeOverride(name = "avg", column = @Column(name = "cpu_percent_avg")),
+        @AttributeOverride(name = "max", column = @Column(name = "cpu_percent_max")),
+        @AttributeOverride(name = "last", column = @Column(name = "cpu_percent_last"))})
+    private MonitorMetric cpuPercent;
+
+    @Embedded
+    @AttributeOverrides({@AttributeOverride(name = "min", column = @Column(name = "used_memory_size_min")),
+        @AttributeOverride(name = "avg", column = @Column(name = "used_memory_size_avg")),
+        @AttributeOverride(name = "max", column = @Column(name = "used_memory_size_max")),
+        @AttributeOverride(name = "last", column = @Column(name = "used_memory_size_last"))})
+    private MonitorMetric usedMemorySize;
+
+    @Embedded
+    @AttributeOverrides({@AttributeOverride(name = "min", column = @Column(name = "used_storage_size_min")),
+        @AttributeOverride(name = "avg", column = @Column(name = "used_storage_size_avg")),
+        @AttributeOverride(name = "max", column = @Column(name = "used_storage_size_max")),
+        @AttributeOverride(name = "last", column = @Column(name = "used_storage_size_last"))})
+    private MonitorMetric usedStorageSize;
+
+    @Embedded
+    @AttributeOverrides({@AttributeOverride(name = "min", column = @Column(name = "disk_io_read_speed_min")),
+        @AttributeOverride(name = "avg", column = @Column(name = "disk_io_read_speed_avg")),
+        @AttributeOverride(name = "max", column = @Column(name = "disk_io_read_speed_max")),
+        @AttributeOverride(name = "last", column = @Column(name = "disk_io_read_speed_last"))})
+    private MonitorMetric diskIoReadSpeed;
+
+    @Embedded
+    @AttributeOverrides({@AttributeOverride(name = "min", column = @Column(name = "disk_io_write_speed_min")),
+        @AttributeOverride(name = "avg", column = @Column(name = "disk_io_write_speed_avg")),
+        @AttributeOverride(name = "max", column = @Column(name = "disk_io_write_speed_max")),
+        @AttributeOverride(name = "last", column = @Column(name = "disk_io_write_speed_last"))})
+    private MonitorMetric diskIoWriteSpeed;
+
+    @Embedded
+    @AttributeOverrides({@AttributeOverride(name = "min", column = @Column(name = "network_io_read_speed_min")),
+        @AttributeOverride(name = "avg", column = @Column(name = "network_io_read_speed_avg")),
+        @AttributeOverride(name = "max", column = @Column(name = "network_io_read_speed_max")),
+        @AttributeOverride(name = "last", column = @Column(name = "network_io_read_speed_last"))})
+    private MonitorMetric networkIoReadSpeed;
+
+    @Embedded
+    @AttributeOverrides({@AttributeOverride(name = "min", column = @Column(name = "network_io_write_speed_min")),
+        @AttributeOverride(name = "avg", column = @Column(name = "network_io_write_speed_avg")),
+        @AttributeOverride(name = "max", column = @Column(name = "network_io_write_speed_max")),
+        @AttributeOverride(name = "last", column = @Column(name = "network_io_write_speed_last"))})
+    private MonitorMetric networkIoWriteSpeed;
+
+    private String tenantId;
+
+    @CreatedDate
+    private LocalDateTime createDateTime;
+}
@@ -0,0 +1,42 @@
+package com.isxcode.spark.modules.monitor.repository;
+
+import com.isxcode.spark.modules.monitor.entity.InstanceCounterEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface InstanceCounterRepository extends JpaRepository<InstanceCounterEntity, String> {
+
+    @Query("select C from InstanceCounterEntity C where C.tenantId = :tenantId and C.countDateTime >= :startDateTime and C.countDateTime < :endDateTime")
+    List<InstanceCounterEntity> findAllInRange(@Param("tenantId") String tenantId,
+        @Param("startDateTime") LocalDateTime startDateTime, @Param("endDateTime") LocalDateTime endDateTime);
+
+    @Query("select C from InstanceCounterEntity C where C.countDateTime >= :startDateTime and C.countDateTime < :endDateTime")
+    List<InstanceCounterEntity> findAllInRange(@Param("startDateTime") LocalDateTime startDateTime,
+        @Param("endDateTime") LocalDateTime endDateTime);
+
+    @Modifying
+    @Transactional
+    @Query("update InstanceCounterEntity C set C.startNum = C.startNum + :startNum, C.endNum = C.endNum + :endNum, "
+        + "C.successNum = C.successNum + :successNum, C.failNum = C.failNum + :failNum "
+        + "where C.tenantId = :tenantId and C.countDateTime = :countDateTime")
+    int increase(@Param("tenantId") String tenantId, @Param("countDateTime") LocalDateTime countDateTime,
+        @Param("startNum") long startNum, @Param("endNum") long endNum, @Param("successNum") long successNum,
+        @Param("failNum") long failNum);
+
+    @Modifying
+    @Transactional
+    @Query("update InstanceCounterEntity C set C.startNum = :startNum, C.endNum = :endNum, "
+        + "C.successNum = :successNum, C.failNum = :failNum "
+        + "where C.tenantId = :tenantId and C.countDateTime = :countDateTime")
+    int replace(@Param("tenantId") String tenantId, @Param("countDateTime") LocalDateTime countDateTime,
+        @Param("startNum") long startNum, @Param("endNum") long endNum, @Param("successNum") long successNum,
+        @Param("failNum") long failNum);
+}
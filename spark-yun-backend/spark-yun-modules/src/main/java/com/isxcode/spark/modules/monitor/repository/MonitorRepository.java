@@ -5,14 +5,18 @@ import com.isxcode.spark.api.monitor.ao.MonitorLineAo;
 import com.isxcode.spark.modules.file.entity.FileEntity;
 import com.isxcode.spark.modules.monitor.entity.MonitorEntity;
 import org.springframework.cache.annotation.CacheConfig;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 @CacheConfig(cacheNames = {ModuleCode.FILE})
@@ -22,4 +26,18 @@ public interface MonitorRepository extends JpaRepository<MonitorEntity, String>,
     List<MonitorLineAo> queryMonitorLine(@Param("clusterId") String clusterId,
         @Param("startDateTime") LocalDateTime startDateTime, @Param("endDateTime") LocalDateTime endDateTime);
 
+    Optional<MonitorEntity> findTopByStatusAndCreateDateTimeGreaterThanEqualOrderByCreateDateTime(String status,
+        LocalDateTime createDateTime);
+
+    @Query("select M from MonitorEntity M where M.status = :status and M.createDateTime >= :startDateTime and M.createDateTime < :endDateTime")
+    List<MonitorEntity> findAllInRange(@Param("status") String status,
+        @Param("startDateTime") LocalDateTime startDateTime, @Param("endDateTime") LocalDateTime endDateTime);
+
+    @Query("select M.id from MonitorEntity M where M.createDateTime < :createDateTime")
+    List<String> findIdsBefore(@Param("createDateTime") LocalDateTime createDateTime, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("delete from MonitorEntity M where M.id in :ids")
+    int deleteAllByIdIn(@Param("ids") List<String> ids);
 }
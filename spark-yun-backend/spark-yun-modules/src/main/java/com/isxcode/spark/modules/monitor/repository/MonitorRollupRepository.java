@@ -0,0 +1,33 @@
+package com.isxcode.spark.modules.monitor.repository;
+
+import com.isxcode.spark.api.monitor.ao.MonitorLineAo;
+import com.isxcode.spark.modules.monitor.entity.MonitorRollupEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface MonitorRollupRepository extends JpaRepository<MonitorRollupEntity, String> {
+
+    Optional<MonitorRollupEntity> findTopByRollupLevelOrderByBucketDateTimeDesc(String rollupLevel);
+
+    Optional<MonitorRollupEntity> findTopByClusterIdAndRollupLevelOrderByBucketDateTimeDesc(String clusterId,
+        String rollupLevel);
+
+    Optional<MonitorRollupEntity> findTopByRollupLevelAndBucketDateTimeGreaterThanEqualOrderByBucketDateTime(
+        String rollupLevel, LocalDateTime bucketDateTime);
+
+    @Query("select R from MonitorRollupEntity R where R.rollupLevel = :rollupLevel and R.bucketDateTime >= :startDateTime and R.bucketDateTime < :endDateTime")
+    List<MonitorRollupEntity> findAllInRange(@Param("rollupLevel") String rollupLevel,
+        @Param("startDateTime") LocalDateTime startDateTime, @Param("endDateTime") LocalDateTime endDateTime);
+
+    @Query("select new com.isxcode.spark.api.monitor.ao.MonitorLineAo ( count(1), R.clusterId, R.bucketDateTime, avg(R.cpuPercent.avg), avg(R.diskIoReadSpeed.avg), avg(R.networkIoReadSpeed.avg), avg(R.diskIoWriteSpeed.avg), avg(R.networkIoWriteSpeed.avg), avg(R.usedMemorySize.avg), avg(R.usedStorageSize.avg) ) from MonitorRollupEntity R where R.clusterId = :clusterId and R.rollupLevel = :rollupLevel and R.bucketDateTime between :startDateTime and :endDateTime group by R.clusterId, R.bucketDateTime")
+    List<MonitorLineAo> queryMonitorLine(@Param("clusterId") String clusterId,
+        @Param("rollupLevel") String rollupLevel, @Param("startDateTime") LocalDateTime startDateTime,
+        @Param("endDateTime") LocalDateTime endDateTime);
+}
@@ -0,0 +1,339 @@
+package com.isxcode.spark.modules.monitor.service;
+
+import cn.hutool.core.date.DateUtil;
+import com.isxcode.spark.api.instance.constants.InstanceStatus;
+import com.isxcode.spark.api.instance.constants.InstanceType;
+import com.isxcode.spark.common.locker.LeaseLocker;
+import com.isxcode.spark.modules.monitor.entity.InstanceCounterEntity;
+import com.isxcode.spark.modules.monitor.repository.InstanceCounterRepository;
+import com.isxcode.spark.modules.work.repository.WorkInstanceRepository;
+import com.isxcode.spark.modules.workflow.entity.WorkflowInstanceEntity;
+import com.isxcode.spark.modules.workflow.repository.WorkflowInstanceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.isxcode.spark.common.config.CommonConfig.JPA_TENANT_MODE;
+
+/**
+ * 作业流实例按小时的状态统计.
+ *
+ * <p>
+ * 实例开始、结束和重跑时只修改内存中的增量，定时合并到数据库，不占用业务事务；成功和失败计在开始运行的小时，跨天结束的实例不计结束.
+ * 自动调度的实例创建时不计开始，第一个节点开始运行时才计入.
+ * 每小时按实例表重新统计今天和昨天，修正节点宕机丢失的增量；重新统计只合并本节点的增量，其他节点还没写入的增量(最多5秒)会在重新统计后再累加一次，
+ * 造成短暂的重复计数，在下次重新统计时修正.
+ * </p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InstanceCounterService {
+
+    private static final String LOCKER_NAME = "instanceCounterRebuild";
+
+    /**
+     * 查询缓存的有效时间.
+     */
+    private static final long CACHE_MILLIS = 30 * 1000L;
+
+    private static final int START = 0;
+
+    private static final int END = 1;
+
+    private static final int SUCCESS = 2;
+
+    private static final int FAIL = 3;
+
+    private final InstanceCounterRepository instanceCounterRepository;
+
+    private final WorkflowInstanceRepository workflowInstanceRepository;
+
+    private final WorkInstanceRepository workInstanceRepository;
+
+    private final LeaseLocker locker;
+
+    /**
+     * 未写入数据库的增量，key为租户id和小时.
+     */
+    private final Map<CounterKey, long[]> deltas = new ConcurrentHashMap<>();
+
+    /**
+     * 按租户和日期缓存的统计.
+     */
+    private final Map<String, CachedDay> cache = new ConcurrentHashMap<>();
+
+    /**
+     * 实例开始运行.
+     */
+    public void recordStart(WorkflowInstanceEntity instance) {
+
+        if (instance.getExecStartDateTime() == null) {
+            return;
+        }
+        add(instance.getTenantId(), instance.getExecStartDateTime(), START, 1);
+    }
+
+    /**
+     * 作业流节点开始运行，自动调度的实例在第一个节点开始运行时计入开始，调用方需要持有作业流实例的锁.
+     */
+    public void recordNodeStart(WorkflowInstanceEntity instance) {
+
+        if (InstanceType.AUTO.equals(instance.getInstanceType()) && !hasStartedNode(instance.getId())) {
+            recordStart(instance);
+        }
+    }
+
+    /**
+     * 自动调度的实例重跑后所有节点都重置了，撤销开始，由第一个节点重新计入.
+     */
+    public void reopenNodes(WorkflowInstanceEntity instance) {
+
+        if (InstanceType.AUTO.equals(instance.getInstanceType()) && instance.getExecStartDateTime() != null
+            && !hasStartedNode(instance.getId())) {
+            add(instance.getTenantId(), instance.getExecStartDateTime(), START, -1);
+        }
+    }
+
+    /**
+     * 实例运行结束.
+     */
+    public void recordEnd(WorkflowInstanceEntity instance) {
+
+        apply(instance, 1);
+    }
+
+    /**
+     * 实例重新运行前，撤销原来的结束状态，从头重跑时同时撤销开始.
+     */
+    public void reopen(WorkflowInstanceEntity instance, boolean restart) {
+
+        if (InstanceStatus.RUNNING.equals(instance.getStatus())) {
+            return;
+        }
+        apply(instance, -1);
+        if (restart && instance.getExecStartDateTime() != null) {
+            add(instance.getTenantId(), instance.getExecStartDateTime(), START, -1);
+        }
+    }
+
+    /**
+     * 查询租户一天内每小时的统计，返回值为开始、结束、成功和失败的个数.
+     */
+    public Map<LocalDateTime, long[]> getDayCounters(String tenantId, LocalDate day) {
+
+        String cacheKey = tenantId + "#" + day;
+        CachedDay cachedDay = cache.get(cacheKey);
+        if (cachedDay == null || System.currentTimeMillis() - cachedDay.loadTime > CACHE_MILLIS) {
+            Map<LocalDateTime, long[]> counters = new HashMap<>();
+            instanceCounterRepository
+                .findAllInRange(tenantId, day.atStartOfDay(), day.plusDays(1).atStartOfDay())
+                .forEach(e -> counters.put(e.getCountDateTime(),
+                    new long[] {e.getStartNum(), e.getEndNum(), e.getSuccessNum(), e.getFailNum()}));
+            cachedDay = new CachedDay(System.currentTimeMillis(), counters);
+            cache.put(cacheKey, cachedDay);
+        }
+
+        // 叠加本节点还没写入的增量
+        Map<LocalDateTime, long[]> result = new HashMap<>();
+        cachedDay.counters.forEach((k, v) -> result.put(k, v.clone()));
+        deltas.forEach((k, v) -> {
+            if (Objects.equals(k.tenantId, tenantId) && k.hour.toLocalDate().equals(day)) {
+                long[] counter = result.computeIfAbsent(k.hour, h -> new long[4]);
+                for (int i = 0; i < counter.length; i++) {
+                    counter[i] += v[i];
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 增量写入数据库，失败的增量放回下次再写.
+     */
+    @Scheduled(fixedDelay = 5000)
+    public void flush() {
+
+        for (CounterKey key : new ArrayList<>(deltas.keySet())) {
+            long[] delta = deltas.remove(key);
+            if (delta == null || Arrays.stream(delta).allMatch(e -> e == 0)) {
+                continue;
+            }
+            try {
+                if (instanceCounterRepository.increase(key.tenantId, key.hour, delta[START], delta[END],
+                    delta[SUCCESS], delta[FAIL]) == 0) {
+                    insert(key, delta);
+                }
+                cache.remove(key.tenantId + "#" + key.hour.toLocalDate());
+            } catch (Exception e) {
+                log.error("写入实例统计异常: {}", e.getMessage(), e);
+                for (int i = 0; i < delta.length; i++) {
+                    add(key, i, delta[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按实例表重新统计今天和昨天.
+     */
+    @Scheduled(cron = "0 7 * * * ?")
+    public void scheduleRebuild() {
+
+        JPA_TENANT_MODE.set(false);
+        locker.lock(LOCKER_NAME);
+        try {
+            flush();
+            LocalDate today = LocalDate.now();
+            rebuild(today.minusDays(1));
+            rebuild(today);
+        } catch (Exception e) {
+            log.error("重新统计实例异常: {}", e.getMessage(), e);
+        } finally {
+            locker.unlock(LOCKER_NAME);
+        }
+    }
+
+    private void rebuild(LocalDate day) {
+
+        LocalDateTime start = day.atStartOfDay();
+        LocalDateTime end = day.plusDays(1).atStartOfDay();
+
+        Map<CounterKey, long[]> counters = new HashMap<>();
+        workflowInstanceRepository
+            .findAllByExecStartDateTimeGreaterThanEqualAndExecStartDateTimeLessThan(DateUtil.date(start),
+                DateUtil.date(end))
+            .forEach(e -> {
+                counters.computeIfAbsent(new CounterKey(e.getTenantId(), toHour(e.getExecStartDateTime())),
+                    k -> new long[4])[START]++;
+                getEndKeys(e).forEach((index, key) -> counters.computeIfAbsent(key, k -> new long[4])[index]++);
+            });
+
+        // 原来有统计但已经没有实例的小时置零
+        instanceCounterRepository.findAllInRange(start, end)
+            .forEach(e -> counters.putIfAbsent(new CounterKey(e.getTenantId(), e.getCountDateTime()), new long[4]));
+
+        counters.forEach((key, counter) -> {
+            if (instanceCounterRepository.replace(key.tenantId, key.hour, counter[START], counter[END],
+                counter[SUCCESS], counter[FAIL]) == 0) {
+                insert(key, counter);
+            }
+            cache.remove(key.tenantId + "#" + day);
+        });
+        log.debug("重新统计实例 {}，共{}个小时", day, counters.size());
+    }
+
+    /**
+     * 其他节点同时插入时唯一索引冲突，改为累加.
+     */
+    private void insert(CounterKey key, long[] delta) {
+
+        try {
+            instanceCounterRepository.saveAndFlush(InstanceCounterEntity.builder().tenantId(key.tenantId)
+                .countDateTime(key.hour).startNum(delta[START]).endNum(delta[END]).successNum(delta[SUCCESS])
+                .failNum(delta[FAIL]).build());
+        } catch (DataIntegrityViolationException e) {
+            instanceCounterRepository.increase(key.tenantId, key.hour, delta[START], delta[END], delta[SUCCESS],
+                delta[FAIL]);
+        }
+    }
+
+    private boolean hasStartedNode(String workflowInstanceId) {
+
+        return workInstanceRepository.findAllByWorkflowInstanceId(workflowInstanceId).stream()
+            .anyMatch(e -> e.getExecStartDateTime() != null);
+    }
+
+    private void apply(WorkflowInstanceEntity instance, long value) {
+
+        getEndKeys(instance).forEach((index, key) -> add(key, index, value));
+    }
+
+    /**
+     * 实例结束时需要计数的位置，运行中的实例没有.
+     */
+    private Map<Integer, CounterKey> getEndKeys(WorkflowInstanceEntity instance) {
+
+        Map<Integer, CounterKey> keys = new HashMap<>();
+        if (instance.getExecStartDateTime() == null || instance.getExecEndDateTime() == null
+            || InstanceStatus.RUNNING.equals(instance.getStatus())) {
+            return keys;
+        }
+
+        CounterKey startKey = new CounterKey(instance.getTenantId(), toHour(instance.getExecStartDateTime()));
+        CounterKey endKey = new CounterKey(instance.getTenantId(), toHour(instance.getExecEndDateTime()));
+        if (endKey.hour.toLocalDate().equals(startKey.hour.toLocalDate())) {
+            keys.put(END, endKey);
+        }
+        if (InstanceStatus.SUCCESS.equals(instance.getStatus())) {
+            keys.put(SUCCESS, startKey);
+        } else if (InstanceStatus.FAIL.equals(instance.getStatus())) {
+            keys.put(FAIL, startKey);
+        }
+        return keys;
+    }
+
+    private void add(String tenantId, Date dateTime, int index, long value) {
+
+        add(new CounterKey(tenantId, toHour(dateTime)), index, value);
+    }
+
+    private void add(CounterKey key, int index, long value) {
+
+        deltas.compute(key, (k, v) -> {
+            long[] delta = v == null ? new long[4] : v;
+            delta[index] += value;
+            return delta;
+        });
+    }
+
+    private LocalDateTime toHour(Date dateTime) {
+
+        return DateUtil.toLocalDateTime(dateTime).truncatedTo(ChronoUnit.HOURS);
+    }
+
+    private static class CounterKey {
+
+        private final String tenantId;
+
+        private final LocalDateTime hour;
+
+        private CounterKey(String tenantId, LocalDateTime hour) {
+            this.tenantId = tenantId;
+            this.hour = hour;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CounterKey)) {
+                return false;
+            }
+            return Objects.equals(tenantId, ((CounterKey) o).tenantId) && hour.equals(((CounterKey) o).hour);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tenantId, hour);
+        }
+    }
+
+    private static class CachedDay {
+
+        private final long loadTime;
+
+        private final Map<LocalDateTime, long[]> counters;
+
+        private CachedDay(long loadTime, Map<LocalDateTime, long[]> counters) {
+            this.loadTime = loadTime;
+            this.counters = counters;
+        }
+    }
+}
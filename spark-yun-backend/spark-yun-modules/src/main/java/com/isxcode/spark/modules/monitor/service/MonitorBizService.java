@@ -1,23 +1,25 @@
 package com.isxcode.spark.modules.monitor.service;
 
-import cn.hutool.core.date.DateTime;
 import cn.hutool.core.date.DateUnit;
 import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.io.unit.DataSize;
 import cn.hutool.core.io.unit.DataUnit;
 import com.alibaba.fastjson.JSON;
+import com.isxcode.spark.api.agent.constants.SparkAgentUrl;
+import com.isxcode.spark.api.agent.req.spark.GetNodeMonitorReq;
 import com.isxcode.spark.api.api.constants.ApiStatus;
 import com.isxcode.spark.api.cluster.constants.ClusterNodeStatus;
 import com.isxcode.spark.api.cluster.constants.ClusterStatus;
 import com.isxcode.spark.api.cluster.dto.ScpFileEngineNodeDto;
 import com.isxcode.spark.api.datasource.constants.DatasourceStatus;
-import com.isxcode.spark.api.instance.constants.InstanceStatus;
 import com.isxcode.spark.api.main.properties.SparkYunProperties;
 import com.isxcode.spark.api.monitor.constants.MonitorStatus;
+import com.isxcode.spark.api.monitor.constants.RollupLevel;
 import com.isxcode.spark.api.monitor.ao.MonitorLineAo;
 import com.isxcode.spark.api.monitor.ao.WorkflowMonitorAo;
 import com.isxcode.spark.api.monitor.dto.MonitorLineDto;
 import com.isxcode.spark.api.monitor.dto.NodeMonitorInfo;
+import com.isxcode.spark.api.monitor.dto.NodeMonitorSample;
 import com.isxcode.spark.api.monitor.dto.SystemMonitorDto;
 import com.isxcode.spark.api.monitor.dto.WorkflowInstanceLineDto;
 import com.isxcode.spark.api.monitor.req.GetClusterMonitorReq;
@@ -27,8 +29,10 @@ import com.isxcode.spark.api.monitor.res.GetClusterMonitorRes;
 import com.isxcode.spark.api.monitor.res.GetInstanceMonitorRes;
 import com.isxcode.spark.api.monitor.res.GetSystemMonitorRes;
 import com.isxcode.spark.api.monitor.res.PageInstancesRes;
+import com.isxcode.spark.api.work.res.AgentLinkResponse;
 import com.isxcode.spark.api.workflow.constants.WorkflowStatus;
 import com.isxcode.spark.backend.api.base.exceptions.IsxAppException;
+import com.isxcode.spark.common.userlog.UserActionWriter;
 import com.isxcode.spark.common.utils.aes.AesUtils;
 import com.isxcode.spark.modules.api.repository.ApiRepository;
 import com.isxcode.spark.modules.cluster.entity.ClusterNodeEntity;
@@ -39,7 +43,7 @@ import com.isxcode.spark.modules.datasource.repository.DatasourceRepository;
 import com.isxcode.spark.modules.monitor.entity.MonitorEntity;
 import com.isxcode.spark.modules.monitor.mapper.MonitorMapper;
 import com.isxcode.spark.modules.monitor.repository.MonitorRepository;
-import com.isxcode.spark.modules.workflow.entity.WorkflowInstanceEntity;
+import com.isxcode.spark.modules.work.run.AgentLinkUtils;
 import com.isxcode.spark.modules.workflow.mapper.WorkflowMapper;
 import com.isxcode.spark.modules.workflow.repository.WorkflowInstanceRepository;
 import com.isxcode.spark.modules.workflow.repository.WorkflowRepository;
@@ -62,6 +66,10 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static com.isxcode.spark.common.config.CommonConfig.JPA_TENANT_MODE;
 import static com.isxcode.spark.common.config.CommonConfig.TENANT_ID;
@@ -98,6 +106,21 @@ public class MonitorBizService {
 
     private final WorkflowMapper workflowMapper;
 
+    private final AgentLinkUtils agentLinkUtils;
+
+    private final Executor sparkYunMonitorThreadPool;
+
+    private final MonitorRollupService monitorRollupService;
+
+    private final InstanceCounterService instanceCounterService;
+
+    private final UserActionWriter userActionWriter;
+
+    /**
+     * 每个节点上次取到的最新采集时间，使用代理的时钟，服务器和节点时间不一致时不会漏取或者重复取.
+     */
+    private final Map<String, Long> lastSampleTimes = new ConcurrentHashMap<>();
+
     public GetSystemMonitorRes getSystemMonitor() {
 
         // 集群信息
@@ -125,7 +148,8 @@ public class MonitorBizService {
 
         // 封装返回
         return GetSystemMonitorRes.builder().apiMonitor(apiMonitor).workflowMonitor(workMonitor)
-            .clusterMonitor(clusterMonitor).datasourceMonitor(datasourceMonitor).build();
+            .clusterMonitor(clusterMonitor).datasourceMonitor(datasourceMonitor)
+            .userActionDroppedNum(userActionWriter.getDroppedCount()).build();
     }
 
     public GetClusterMonitorRes getClusterMonitor(GetClusterMonitorReq getClusterMonitorReq) {
@@ -162,30 +186,25 @@ public class MonitorBizService {
                 throw new IsxAppException("时间类型不支持");
         }
 
-        // 查询记录数
-        List<MonitorLineAo> monitorLine =
-            monitorRepository.queryMonitorLine(getClusterMonitorReq.getClusterId(), startDateTime, endDateTime);
-
-        // 按照类型返回部分数据并转换单位
+        // 按时间区间选择汇总粒度，短时间查询原始数据
+        String rollupLevel = monitorRollupService.chooseRollupLevel(startDateTime, endDateTime);
+        List<MonitorLineAo> monitorLine = monitorRollupService.queryMonitorLine(getClusterMonitorReq.getClusterId(),
+            rollupLevel, startDateTime, endDateTime);
+
+        // 按照粒度格式化时间并转换单位
+        String pattern;
+        if (rollupLevel == null || RollupLevel.FIVE_MIN.equals(rollupLevel)) {
+            // 原始数据/5分钟 小时:分
+            pattern = "HH:mm";
+        } else if (RollupLevel.HOUR.equals(rollupLevel)) {
+            // 1小时 1天内为小时:00，超过1天为月-日 小时:00
+            pattern = endDateTime.minusDays(1).isAfter(startDateTime) ? "MM-dd HH:00" : "HH:00";
+        } else {
+            // 1天 月-日
+            pattern = "MM-dd";
+        }
         Map<String, MonitorLineAo> lineMap = new HashMap<>();
-        monitorLine.forEach(e -> {
-            String nowTime;
-            if (TimeType.THIRTY_MIN.equals(getClusterMonitorReq.getTimeType())
-                || TimeType.ONE_HOUR.equals(getClusterMonitorReq.getTimeType())
-                || TimeType.TWO_HOUR.equals(getClusterMonitorReq.getTimeType())
-                || TimeType.SIX_HOUR.equals(getClusterMonitorReq.getTimeType())) {
-                // 30分钟/1小时/2小时/6小时/ 小时:分
-                nowTime = DateUtil.format(e.getDateTime(), "HH:mm");
-            } else if (TimeType.TWELVE_HOUR.equals(getClusterMonitorReq.getTimeType())
-                || TimeType.ONE_DAY.equals(getClusterMonitorReq.getTimeType())) {
-                // 12小时/1天 小时:00
-                nowTime = DateUtil.format(e.getDateTime(), "HH:00");
-            } else {
-                // 7天/30天 月-日
-                nowTime = DateUtil.format(e.getDateTime(), "MM-dd");
-            }
-            lineMap.put(nowTime, e);
-        });
+        monitorLine.forEach(e -> lineMap.put(DateUtil.format(e.getDateTime(), pattern), e));
 
         // 收集map中的数据
         List<MonitorLineDto> line = new ArrayList<>();
@@ -216,12 +235,9 @@ public class MonitorBizService {
 
     public GetInstanceMonitorRes getInstanceMonitor(GetInstanceMonitorReq getInstanceMonitorReq) {
 
-        // 查询当天的实例
-        DateTime startDateTime = DateUtil.beginOfDay(getInstanceMonitorReq.getLocalDate());
-        DateTime endDateTime = DateUtil.endOfDay(getInstanceMonitorReq.getLocalDate());
-        List<WorkflowInstanceEntity> workflowInstances =
-            workflowInstanceRepository.findAllByExecStartDateTimeAfterAndLastModifiedDateTimeBefore(startDateTime,
-                DateUtil.toLocalDateTime(endDateTime));
+        // 查询当天每小时的统计
+        Map<LocalDateTime, long[]> counters = instanceCounterService.getDayCounters(TENANT_ID.get(),
+            DateUtil.toLocalDateTime(getInstanceMonitorReq.getLocalDate()).toLocalDate());
 
         // 初始化数组
         List<WorkflowInstanceLineDto> lines = new ArrayList<>();
@@ -231,37 +247,31 @@ public class MonitorBizService {
         } else {
             allNum = 24;
         }
-        for (int i = 0; i < allNum; i++) {
-            lines.add(WorkflowInstanceLineDto.builder().localTime(String.format("%02d", i + 1) + ":00").successNum(0L)
-                .failNum(0L).runningNum(0L).build());
-        }
 
-        // 逐条解析
-        workflowInstances.forEach(e -> {
-
-            // 开始小时和结束小时
-            int startHour = DateUtil.hour(e.getExecStartDateTime(), true) == 0 ? 0
-                : DateUtil.hour(e.getExecStartDateTime(), true) - 1;
-            int endHour = e.getExecEndDateTime() == null ? Integer.parseInt(String.valueOf(allNum))
-                : DateUtil.hour(e.getExecEndDateTime(), true) - 1;
-
-            // 补充运行中的个数
-            for (int i = startHour; i < endHour; i++) {
-                lines.get(i).setRunningNum(lines.get(i).getRunningNum() + 1);
-            }
-
-            // 成功和失败的实例叠加
-            if (InstanceStatus.FAIL.equals(e.getStatus())) {
-                for (int i = startHour; i < Integer.parseInt(String.valueOf(allNum)); i++) {
-                    lines.get(i).setFailNum(lines.get(i).getFailNum() + 1);
-                }
-            } else if (InstanceStatus.SUCCESS.equals(e.getStatus())) {
-                for (int i = startHour; i < Integer.parseInt(String.valueOf(allNum)); i++) {
-                    lines.get(i).setSuccessNum(lines.get(i).getSuccessNum() + 1);
-                }
-            }
+        // 按小时累计开始和结束的差值，成功和失败的实例叠加
+        long[] startNums = new long[24];
+        long[] endNums = new long[24];
+        long[] successNums = new long[24];
+        long[] failNums = new long[24];
+        counters.forEach((hour, counter) -> {
+            int index = hour.getHour() == 0 ? 0 : hour.getHour() - 1;
+            startNums[index] += counter[0];
+            endNums[index] += counter[1];
+            successNums[index] += counter[2];
+            failNums[index] += counter[3];
         });
 
+        long runningNum = 0;
+        long successNum = 0;
+        long failNum = 0;
+        for (int i = 0; i < allNum; i++) {
+            runningNum += startNums[i] - endNums[i];
+            successNum += successNums[i];
+            failNum += failNums[i];
+            lines.add(WorkflowInstanceLineDto.builder().localTime(String.format("%02d", i + 1) + ":00")
+                .successNum(successNum).failNum(failNum).runningNum(Math.max(runningNum, 0)).build());
+        }
+
         return GetInstanceMonitorRes.builder().instanceNumLine(lines).build();
     }
 
@@ -288,16 +298,21 @@ public class MonitorBizService {
         JPA_TENANT_MODE.set(false);
         List<ClusterNodeEntity> allNode = clusterNodeRepository.findAllByStatus(ClusterNodeStatus.RUNNING);
 
+        // 清理已经停止的节点
+        lastSampleTimes.keySet().retainAll(allNode.stream().map(ClusterNodeEntity::getId).collect(Collectors.toSet()));
+
         allNode.forEach(e -> {
             CompletableFuture.supplyAsync(() -> {
 
-                // 封装ScpFileEngineNodeDto对象
-                ScpFileEngineNodeDto scpFileEngineNodeDto = clusterNodeMapper.engineNodeEntityToScpFileEngineNodeDto(e);
-                scpFileEngineNodeDto.setPasswd(aesUtils.decrypt(scpFileEngineNodeDto.getPasswd()));
-
-                // 每个节点都抽取一次
+                // 每个节点都抽取一次，优先请求代理，旧版本代理使用ssh执行脚本
                 try {
-                    NodeMonitorInfo nodeMonitor = getNodeMonitor(scpFileEngineNodeDto);
+                    NodeMonitorInfo nodeMonitor = getAgentNodeMonitor(e);
+                    if (nodeMonitor == null) {
+                        ScpFileEngineNodeDto scpFileEngineNodeDto =
+                            clusterNodeMapper.engineNodeEntityToScpFileEngineNodeDto(e);
+                        scpFileEngineNodeDto.setPasswd(aesUtils.decrypt(scpFileEngineNodeDto.getPasswd()));
+                        nodeMonitor = getNodeMonitor(scpFileEngineNodeDto);
+                    }
                     nodeMonitor.setClusterNodeId(e.getId());
                     nodeMonitor.setClusterId(e.getClusterId());
                     nodeMonitor.setTenantId(e.getTenantId());
@@ -309,7 +324,7 @@ public class MonitorBizService {
                         .status(MonitorStatus.FAIL).log(ex.getMessage()).tenantId(e.getTenantId()).createDateTime(now)
                         .build();
                 }
-            }).whenComplete((result, throwable) -> {
+            }, sparkYunMonitorThreadPool).whenComplete((result, throwable) -> {
                 // 持久化到数据库
                 MonitorEntity monitorEntity = monitorMapper.nodeMonitorInfoToMonitorEntity(result);
                 if (Strings.isEmpty(monitorEntity.getLog())) {
@@ -320,6 +335,47 @@ public class MonitorBizService {
         });
     }
 
+    /**
+     * 通过代理获取节点监控，存储和作业数取最新值，其他取平均值，代理不支持时返回null.
+     *
+     * <p>
+     * 只取上次最新采集时间之后的数据，首次采集只取代理最新一条数据之前一分钟内的数据.
+     * </p>
+     */
+    public NodeMonitorInfo getAgentNodeMonitor(ClusterNodeEntity clusterNode) {
+
+        Long since = lastSampleTimes.get(clusterNode.getId());
+        List<NodeMonitorSample> monitors;
+        try {
+            AgentLinkResponse agentLinkResponse = agentLinkUtils.getAgentLinkResponse(clusterNode,
+                SparkAgentUrl.GET_NODE_MONITOR_URL, GetNodeMonitorReq.builder().since(since).build());
+            monitors = agentLinkResponse.getMonitors();
+        } catch (Exception e) {
+            log.debug("代理获取节点监控失败，改用ssh: {}", e.getMessage());
+            return null;
+        }
+        if (monitors == null || monitors.isEmpty()) {
+            return null;
+        }
+
+        NodeMonitorSample latest = monitors.get(monitors.size() - 1);
+        if (since == null) {
+            long from = latest.getTimestamp() - 60 * 1000;
+            monitors = monitors.stream().filter(e -> e.getTimestamp() > from).collect(Collectors.toList());
+        }
+        lastSampleTimes.put(clusterNode.getId(), latest.getTimestamp());
+
+        return NodeMonitorInfo.builder().status(MonitorStatus.SUCCESS).log("检测完成")
+            .cpuPercent(average(monitors, NodeMonitorSample::getCpuPercent))
+            .usedMemorySize(average(monitors, NodeMonitorSample::getUsedMemorySize))
+            .usedStorageSize(latest.getUsedStorageSize())
+            .diskIoReadSpeed(average(monitors, NodeMonitorSample::getDiskIoReadSpeed))
+            .diskIoWriteSpeed(average(monitors, NodeMonitorSample::getDiskIoWriteSpeed))
+            .networkIoReadSpeed(average(monitors, NodeMonitorSample::getNetworkIoReadSpeed))
+            .networkIoWriteSpeed(average(monitors, NodeMonitorSample::getNetworkIoWriteSpeed))
+            .runningAppNum(latest.getRunningAppNum()).build();
+    }
+
     public NodeMonitorInfo getNodeMonitor(ScpFileEngineNodeDto scpFileEngineNodeDto)
         throws JSchException, IOException, InterruptedException, SftpException {
 
@@ -344,4 +400,11 @@ public class MonitorBizService {
 
         return nodeMonitorInfo;
     }
+
+    private Double average(List<NodeMonitorSample> monitors, Function<NodeMonitorSample, Double> getter) {
+
+        OptionalDouble average =
+            monitors.stream().map(getter).filter(Objects::nonNull).mapToDouble(Double::doubleValue).average();
+        return average.isPresent() ? Math.round(average.getAsDouble() * 10) / 10.0 : null;
+    }
 }
@@ -0,0 +1,424 @@
+package com.isxcode.spark.modules.monitor.service;
+
+import com.isxcode.spark.api.monitor.ao.MonitorLineAo;
+import com.isxcode.spark.api.monitor.constants.MonitorStatus;
+import com.isxcode.spark.api.monitor.constants.RollupLevel;
+import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
+import com.isxcode.spark.common.locker.LeaseLocker;
+import com.isxcode.spark.modules.monitor.entity.MonitorEntity;
+import com.isxcode.spark.modules.monitor.entity.MonitorMetric;
+import com.isxcode.spark.modules.monitor.entity.MonitorRollupEntity;
+import com.isxcode.spark.modules.monitor.repository.MonitorRepository;
+import com.isxcode.spark.modules.monitor.repository.MonitorRollupRepository;
+import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.isxcode.spark.common.config.CommonConfig.JPA_TENANT_MODE;
+
+/**
+ * 节点监控汇总.
+ *
+ * <p>
+ * 原始数据按5分钟汇总，5分钟再汇总成小时，小时再汇总成天，每个节点每个时间段一条，记录各指标的最小值、平均值、最大值和最新值.
+ * 每次只汇总上次之后已结束的时间段，原始数据超过保留天数后分批删除.
+ * 查询曲线时，还没有汇总的时间段用下级数据补齐.
+ * </p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MonitorRollupService {
+
+    private static final String LOCKER_NAME = "monitorRollup";
+
+    /**
+     * 查询曲线至少需要的点数，按满足点数的最粗粒度查询.
+     */
+    private static final int MIN_LINE_POINTS = 24;
+
+    /**
+     * 单次最多汇总的时间段个数，停机后分多次追上.
+     */
+    private static final int MAX_BUCKETS = 288;
+
+    /**
+     * 时间段结束后，等待原始数据写入的时间.
+     */
+    private static final Duration DELAY = Duration.ofMinutes(1);
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final List<Metric> METRICS = Arrays.asList(
+        new Metric(MonitorEntity::getCpuPercent, MonitorRollupEntity::getCpuPercent,
+            MonitorRollupEntity::setCpuPercent),
+        new Metric(MonitorEntity::getUsedMemorySize, MonitorRollupEntity::getUsedMemorySize,
+            MonitorRollupEntity::setUsedMemorySize),
+        new Metric(MonitorEntity::getUsedStorageSize, MonitorRollupEntity::getUsedStorageSize,
+            MonitorRollupEntity::setUsedStorageSize),
+        new Metric(MonitorEntity::getDiskIoReadSpeed, MonitorRollupEntity::getDiskIoReadSpeed,
+            MonitorRollupEntity::setDiskIoReadSpeed),
+        new Metric(MonitorEntity::getDiskIoWriteSpeed, MonitorRollupEntity::getDiskIoWriteSpeed,
+            MonitorRollupEntity::setDiskIoWriteSpeed),
+        new Metric(MonitorEntity::getNetworkIoReadSpeed, MonitorRollupEntity::getNetworkIoReadSpeed,
+            MonitorRollupEntity::setNetworkIoReadSpeed),
+        new Metric(MonitorEntity::getNetworkIoWriteSpeed, MonitorRollupEntity::getNetworkIoWriteSpeed,
+            MonitorRollupEntity::setNetworkIoWriteSpeed));
+
+    private final MonitorRepository monitorRepository;
+
+    private final MonitorRollupRepository monitorRollupRepository;
+
+    private final IsxAppProperties isxAppProperties;
+
+    private final LeaseLocker locker;
+
+    @Scheduled(cron = "30 */5 * * * ?")
+    public void scheduleRollup() {
+
+        JPA_TENANT_MODE.set(false);
+        locker.lock(LOCKER_NAME);
+        try {
+            LocalDateTime now = LocalDateTime.now().minus(DELAY);
+
+            // 下级没有追上时不汇总上级，避免上级时间段数据不全
+            boolean caughtUp = rollup(RollupLevel.FIVE_MIN, now,
+                start -> monitorRepository
+                    .findTopByStatusAndCreateDateTimeGreaterThanEqualOrderByCreateDateTime(MonitorStatus.SUCCESS, start)
+                    .map(MonitorEntity::getCreateDateTime).orElse(null),
+                (start, end) -> monitorRepository.findAllInRange(MonitorStatus.SUCCESS, start, end).stream()
+                    .map(this::toSample).collect(Collectors.toList()));
+            if (caughtUp) {
+                caughtUp = rollup(RollupLevel.HOUR, now, start -> getFirstBucket(RollupLevel.FIVE_MIN, start),
+                    (start, end) -> getSamples(RollupLevel.FIVE_MIN, start, end));
+            }
+            if (caughtUp) {
+                rollup(RollupLevel.DAY, now, start -> getFirstBucket(RollupLevel.HOUR, start),
+                    (start, end) -> getSamples(RollupLevel.HOUR, start, end));
+            }
+
+            purge();
+        } catch (Exception e) {
+            log.error("汇总节点监控异常: {}", e.getMessage(), e);
+        } finally {
+            locker.unlock(LOCKER_NAME);
+        }
+    }
+
+    /**
+     * 选择满足点数的最粗粒度，返回null时查询原始数据.
+     */
+    public String chooseRollupLevel(LocalDateTime startDateTime, LocalDateTime endDateTime) {
+
+        Duration window = Duration.between(startDateTime, endDateTime);
+        for (String level : Arrays.asList(RollupLevel.DAY, RollupLevel.HOUR, RollupLevel.FIVE_MIN)) {
+            if (window.toMillis() / getStep(level).toMillis() >= MIN_LINE_POINTS) {
+                return level;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 查询集群曲线，粒度为null时查询原始数据.
+     *
+     * <p>
+     * 汇总只到最后一个已结束的时间段，之后的数据(包括未结束的时间段)用下级粒度查询，再按当前粒度合并.
+     * </p>
+     */
+    public List<MonitorLineAo> queryMonitorLine(String clusterId, String level, LocalDateTime startDateTime,
+        LocalDateTime endDateTime) {
+
+        if (level == null) {
+            return monitorRepository.queryMonitorLine(clusterId, startDateTime, endDateTime);
+        }
+
+        List<MonitorLineAo> line =
+            new ArrayList<>(monitorRollupRepository.queryMonitorLine(clusterId, level, startDateTime, endDateTime));
+
+        LocalDateTime covered = monitorRollupRepository
+            .findTopByClusterIdAndRollupLevelOrderByBucketDateTimeDesc(clusterId, level)
+            .map(e -> e.getBucketDateTime().plus(getStep(level))).orElse(startDateTime);
+        if (covered.isBefore(startDateTime)) {
+            covered = startDateTime;
+        }
+        if (covered.isBefore(endDateTime)) {
+            line.addAll(mergeLine(level, queryMonitorLine(clusterId, getFinerLevel(level), covered, endDateTime)));
+        }
+        return line;
+    }
+
+    /**
+     * 汇总一个粒度，返回是否已经追上当前时间.
+     *
+     * @param firstSourceTime 查询指定时间之后第一条下级数据的时间，用于跳过没有数据的时间段
+     * @param loadSamples 查询时间区间内的下级数据
+     */
+    private boolean rollup(String level, LocalDateTime now, Function<LocalDateTime, LocalDateTime> firstSourceTime,
+        BiFunction<LocalDateTime, LocalDateTime, List<Sample>> loadSamples) {
+
+        LocalDateTime closed = floor(level, now);
+        LocalDateTime start = monitorRollupRepository.findTopByRollupLevelOrderByBucketDateTimeDesc(level)
+            .map(e -> e.getBucketDateTime().plus(getStep(level))).orElse(EPOCH);
+
+        LocalDateTime first = firstSourceTime.apply(start);
+        if (first == null || !floor(level, first).isBefore(closed)) {
+            return true;
+        }
+        start = floor(level, first);
+        LocalDateTime end = start.plus(getStep(level).multipliedBy(MAX_BUCKETS));
+        if (end.isAfter(closed)) {
+            end = closed;
+        }
+
+        // 按节点和时间段分组累计
+        Map<String, Bucket> buckets = new HashMap<>();
+        for (Sample sample : loadSamples.apply(start, end)) {
+            LocalDateTime bucketDateTime = floor(level, sample.dateTime);
+            buckets.computeIfAbsent(sample.clusterNodeId + "#" + bucketDateTime,
+                k -> new Bucket(sample.clusterId, sample.clusterNodeId, sample.tenantId, bucketDateTime)).add(sample);
+        }
+
+        List<MonitorRollupEntity> rollups = buckets.values().stream().map(e -> e.toEntity(level))
+            .sorted(Comparator.comparing(MonitorRollupEntity::getBucketDateTime)).collect(Collectors.toList());
+        monitorRollupRepository.saveAll(rollups);
+        log.debug("汇总节点监控 {} : {} ~ {}，共{}条", level, start, end, rollups.size());
+
+        return !end.isBefore(closed);
+    }
+
+    private LocalDateTime getFirstBucket(String level, LocalDateTime start) {
+
+        return monitorRollupRepository
+            .findTopByRollupLevelAndBucketDateTimeGreaterThanEqualOrderByBucketDateTime(level, start)
+            .map(MonitorRollupEntity::getBucketDateTime).orElse(null);
+    }
+
+    private List<Sample> getSamples(String level, LocalDateTime start, LocalDateTime end) {
+
+        return monitorRollupRepository.findAllInRange(level, start, end).stream()
+            .map(e -> new Sample(e.getClusterId(), e.getClusterNodeId(), e.getTenantId(), e.getBucketDateTime(),
+                e.getSampleCount(), METRICS.stream().map(m -> m.getter.apply(e)).collect(Collectors.toList())))
+            .collect(Collectors.toList());
+    }
+
+    private Sample toSample(MonitorEntity monitor) {
+
+        return new Sample(monitor.getClusterId(), monitor.getClusterNodeId(), monitor.getTenantId(),
+            monitor.getCreateDateTime(), 1, METRICS.stream().map(m -> {
+                Double value = m.rawGetter.apply(monitor);
+                return value == null ? null : new MonitorMetric(value, value, value, value);
+            }).collect(Collectors.toList()));
+    }
+
+    /**
+     * 分批删除过期的原始数据，未汇总的数据不删除.
+     */
+    private void purge() {
+
+        Optional<MonitorRollupEntity> lastRollup =
+            monitorRollupRepository.findTopByRollupLevelOrderByBucketDateTimeDesc(RollupLevel.FIVE_MIN);
+        if (!lastRollup.isPresent()) {
+            return;
+        }
+
+        LocalDateTime before = LocalDateTime.now().minusDays(isxAppProperties.getMonitorRetentionDays());
+        if (lastRollup.get().getBucketDateTime().isBefore(before)) {
+            before = lastRollup.get().getBucketDateTime();
+        }
+
+        int batchSize = isxAppProperties.getMonitorPurgeBatchSize();
+        List<String> ids;
+        do {
+            ids = monitorRepository.findIdsBefore(before, PageRequest.of(0, batchSize));
+            if (!ids.isEmpty()) {
+                monitorRepository.deleteAllByIdIn(ids);
+            }
+        } while (ids.size() == batchSize);
+    }
+
+    /**
+     * 下级数据按时间段合并，节点数取最大值，指标取平均值.
+     */
+    private static List<MonitorLineAo> mergeLine(String level, List<MonitorLineAo> line) {
+
+        Map<LocalDateTime, List<MonitorLineAo>> buckets = line.stream()
+            .collect(Collectors.groupingBy(e -> floor(level, e.getDateTime()), TreeMap::new, Collectors.toList()));
+
+        return buckets.entrySet().stream().map(e -> {
+            List<MonitorLineAo> points = e.getValue();
+            Long activeNodeSize = points.stream().map(MonitorLineAo::getActiveNodeSize).filter(Objects::nonNull)
+                .max(Long::compare).orElse(null);
+            return new MonitorLineAo(activeNodeSize, points.get(0).getTenantId(), e.getKey(),
+                average(points, MonitorLineAo::getCpuPercent), average(points, MonitorLineAo::getDiskIoReadSpeed),
+                average(points, MonitorLineAo::getNetworkIoReadSpeed),
+                average(points, MonitorLineAo::getDiskIoWriteSpeed),
+                average(points, MonitorLineAo::getNetworkIoWriteSpeed),
+                average(points, MonitorLineAo::getUsedMemorySize), average(points, MonitorLineAo::getUsedStorageSize));
+        }).collect(Collectors.toList());
+    }
+
+    private static Double average(List<MonitorLineAo> points, Function<MonitorLineAo, Double> getter) {
+
+        OptionalDouble average =
+            points.stream().map(getter).filter(Objects::nonNull).mapToDouble(Double::doubleValue).average();
+        return average.isPresent() ? average.getAsDouble() : null;
+    }
+
+    private static String getFinerLevel(String level) {
+
+        switch (level) {
+            case RollupLevel.DAY:
+                return RollupLevel.HOUR;
+            case RollupLevel.HOUR:
+                return RollupLevel.FIVE_MIN;
+            default:
+                return null;
+        }
+    }
+
+    private static Duration getStep(String level) {
+
+        switch (level) {
+            case RollupLevel.FIVE_MIN:
+                return Duration.ofMinutes(5);
+            case RollupLevel.HOUR:
+                return Duration.ofHours(1);
+            default:
+                return Duration.ofDays(1);
+        }
+    }
+
+    private static LocalDateTime floor(String level, LocalDateTime dateTime) {
+
+        switch (level) {
+            case RollupLevel.FIVE_MIN:
+                LocalDateTime minute = dateTime.truncatedTo(ChronoUnit.MINUTES);
+                return minute.minusMinutes(minute.getMinute() % 5);
+            case RollupLevel.HOUR:
+                return dateTime.truncatedTo(ChronoUnit.HOURS);
+            default:
+                return dateTime.truncatedTo(ChronoUnit.DAYS);
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class Metric {
+
+        private final Function<MonitorEntity, Double> rawGetter;
+
+        private final Function<MonitorRollupEntity, MonitorMetric> getter;
+
+        private final BiConsumer<MonitorRollupEntity, MonitorMetric> setter;
+    }
+
+    /**
+     * 原始数据或下级汇总，原始数据的次数为1，最小值、平均值、最大值和最新值相同.
+     */
+    @AllArgsConstructor
+    private static class Sample {
+
+        private final String clusterId;
+
+        private final String clusterNodeId;
+
+        private final String tenantId;
+
+        private final LocalDateTime dateTime;
+
+        private final Integer count;
+
+        private final List<MonitorMetric> metrics;
+    }
+
+    private static class Bucket {
+
+        private final String clusterId;
+
+        private final String clusterNodeId;
+
+        private final String tenantId;
+
+        private final LocalDateTime bucketDateTime;
+
+        private final List<MetricAccumulator> metrics =
+            METRICS.stream().map(e -> new MetricAccumulator()).collect(Collectors.toList());
+
+        private int count;
+
+        private Bucket(String clusterId, String clusterNodeId, String tenantId, LocalDateTime bucketDateTime) {
+
+            this.clusterId = clusterId;
+            this.clusterNodeId = clusterNodeId;
+            this.tenantId = tenantId;
+            this.bucketDateTime = bucketDateTime;
+        }
+
+        private void add(Sample sample) {
+
+            int weight = sample.count == null ? 1 : sample.count;
+            count += weight;
+            for (int i = 0; i < metrics.size(); i++) {
+                metrics.get(i).add(sample.metrics.get(i), weight, sample.dateTime);
+            }
+        }
+
+        private MonitorRollupEntity toEntity(String level) {
+
+            MonitorRollupEntity rollup = MonitorRollupEntity.builder().clusterId(clusterId).clusterNodeId(clusterNodeId)
+                .tenantId(tenantId).rollupLevel(level).bucketDateTime(bucketDateTime).sampleCount(count).build();
+            for (int i = 0; i < metrics.size(); i++) {
+                METRICS.get(i).setter.accept(rollup, metrics.get(i).toMetric());
+            }
+            return rollup;
+        }
+    }
+
+    private static class MetricAccumulator {
+
+        private Double min;
+
+        private Double max;
+
+        private Double last;
+
+        private LocalDateTime lastDateTime;
+
+        private double sum;
+
+        private long count;
+
+        private void add(MonitorMetric metric, int weight, LocalDateTime dateTime) {
+
+            if (metric == null || metric.getAvg() == null) {
+                return;
+            }
+
+            min = min == null || metric.getMin() < min ? metric.getMin() : min;
+            max = max == null || metric.getMax() > max ? metric.getMax() : max;
+            sum += metric.getAvg() * weight;
+            count += weight;
+            if (lastDateTime == null || !dateTime.isBefore(lastDateTime)) {
+                last = metric.getLast();
+                lastDateTime = dateTime;
+            }
+        }
+
+        private MonitorMetric toMetric() {
+
+            return count == 0 ? null : new MonitorMetric(min, Math.round(sum / count * 100) / 100.0, max, last);
+        }
+    }
+}
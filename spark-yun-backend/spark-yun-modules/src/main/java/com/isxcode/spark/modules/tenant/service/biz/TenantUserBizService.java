@@ -11,6 +11,7 @@ import com.isxcode.spark.backend.api.base.exceptions.IsxAppException;
 import com.isxcode.spark.modules.license.repository.LicenseStore;
 import com.isxcode.spark.modules.tenant.entity.TenantEntity;
 import com.isxcode.spark.modules.tenant.service.TenantService;
+import com.isxcode.spark.security.main.AuthenticationCache;
 import com.isxcode.spark.security.user.TenantUserEntity;
 import com.isxcode.spark.security.user.TenantUserRepository;
 import com.isxcode.spark.security.user.UserEntity;
@@ -40,6 +41,8 @@ public class TenantUserBizService {
 
     private final LicenseStore licenseStore;
 
+    private final AuthenticationCache authenticationCache;
+
     public void addTenantUser(AddTenantUserReq turAddTenantUserReq) {
 
         // 已req中的tenantId为主
@@ -130,6 +133,7 @@ public class TenantUserBizService {
 
         // 删除租户用户
         tenantUserRepository.deleteById(tenantUserEntityOptional.get().getId());
+        authenticationCache.evictUser(tenantUserEntityOptional.get().getUserId());
     }
 
     public void setTenantAdmin(SetTenantAdminReq setTenantAdminReq) {
@@ -147,6 +151,7 @@ public class TenantUserBizService {
 
         // 持久化
         tenantUserRepository.save(tenantUserEntity);
+        authenticationCache.evictUser(tenantUserEntity.getUserId());
     }
 
     public void removeTenantAdmin(RemoveTenantAdminReq removeTenantAdminReq) {
@@ -170,5 +175,6 @@ public class TenantUserBizService {
 
         // 持久化
         tenantUserRepository.save(tenantUserEntity);
+        authenticationCache.evictUser(tenantUserEntity.getUserId());
     }
 }
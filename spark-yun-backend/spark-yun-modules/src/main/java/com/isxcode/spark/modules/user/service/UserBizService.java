@@ -14,6 +14,7 @@ import com.isxcode.spark.common.utils.jwt.JwtUtils;
 import com.isxcode.spark.modules.tenant.entity.TenantEntity;
 import com.isxcode.spark.modules.tenant.repository.TenantRepository;
 import com.isxcode.spark.modules.user.mapper.UserMapper;
+import com.isxcode.spark.security.main.AuthenticationCache;
 import com.isxcode.spark.security.user.TenantUserEntity;
 import com.isxcode.spark.security.user.TenantUserRepository;
 import com.isxcode.spark.security.user.UserEntity;
@@ -45,6 +46,8 @@ public class UserBizService {
 
     private final TenantUserRepository tenantUserRepository;
 
+    private final AuthenticationCache authenticationCache;
+
     public LoginRes login(LoginReq usrLoginReq) {
 
         // 判断用户是否存在
@@ -226,6 +229,7 @@ public class UserBizService {
         UserEntity userEntity = userMapper.updateUserReqToUserEntity(usrUpdateUserReq, userEntityOptional.get());
 
         userRepository.save(userEntity);
+        authenticationCache.evictUser(userEntity.getId());
     }
 
     public void disableUser(DisableUserReq disableUserReq) {
@@ -238,6 +242,7 @@ public class UserBizService {
         UserEntity userEntity = userEntityOptional.get();
         userEntity.setStatus(UserStatus.DISABLE);
         userRepository.save(userEntity);
+        authenticationCache.evictUser(userEntity.getId());
     }
 
     public void enableUser(EnableUserReq enableUserReq) {
@@ -260,6 +265,7 @@ public class UserBizService {
         }
 
         userRepository.deleteById(deleteUserReq.getUserId());
+        authenticationCache.evictUser(deleteUserReq.getUserId());
     }
 
     public Page<PageUserRes> pageUser(PageUserReq usrQueryAllUsersReq) {
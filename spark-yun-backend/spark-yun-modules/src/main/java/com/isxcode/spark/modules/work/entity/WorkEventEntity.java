@@ -41,6 +41,11 @@ public class WorkEventEntity {
      */
     private String eventContext;
 
+    /**
+     * 运行事件的服务节点.
+     */
+    private String appName;
+
     @CreatedDate
     private LocalDateTime createDateTime;
 
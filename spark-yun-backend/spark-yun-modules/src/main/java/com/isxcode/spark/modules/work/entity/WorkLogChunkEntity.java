@@ -0,0 +1,47 @@
+package com.isxcode.spark.modules.work.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "SY_WORK_LOG_CHUNK")
+@JsonIgnoreProperties({"hibernateLazyInitializer"})
+@EntityListeners(AuditingEntityListener.class)
+public class WorkLogChunkEntity {
+
+    @Id
+    @GeneratedValue(generator = "sy-id-generator")
+    @GenericGenerator(name = "sy-id-generator", strategy = "com.isxcode.spark.config.GeneratedValueConfig")
+    private String id;
+
+    /**
+     * 作业实例id.
+     */
+    private String instanceId;
+
+    /**
+     * 日志片段在完整日志中的起始位置.
+     */
+    private Long logOffset;
+
+    /**
+     * 日志片段内容.
+     */
+    private String content;
+
+    @CreatedDate
+    private LocalDateTime createDateTime;
+}
@@ -0,0 +1,57 @@
+package com.isxcode.spark.modules.work.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "SY_WORK_RESULT_PAGE")
+@JsonIgnoreProperties({"hibernateLazyInitializer"})
+@EntityListeners(AuditingEntityListener.class)
+public class WorkResultPageEntity {
+
+    @Id
+    @GeneratedValue(generator = "sy-id-generator")
+    @GenericGenerator(name = "sy-id-generator", strategy = "com.isxcode.spark.config.GeneratedValueConfig")
+    private String id;
+
+    /**
+     * 作业实例id.
+     */
+    private String instanceId;
+
+    /**
+     * 页码，从0开始.
+     */
+    private Integer pageIndex;
+
+    /**
+     * 本页首行在结果中的行号，不含表头.
+     */
+    private Long rowStart;
+
+    /**
+     * 本页行数，不含表头.
+     */
+    private Integer rowCount;
+
+    /**
+     * 表头和本页数据，格式和resultData一致.
+     */
+    private String content;
+
+    @CreatedDate
+    private LocalDateTime createDateTime;
+}
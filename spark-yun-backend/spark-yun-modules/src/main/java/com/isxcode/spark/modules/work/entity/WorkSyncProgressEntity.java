@@ -0,0 +1,52 @@
+package com.isxcode.spark.modules.work.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "SY_WORK_SYNC_PROGRESS")
+@JsonIgnoreProperties({"hibernateLazyInitializer"})
+@EntityListeners(AuditingEntityListener.class)
+public class WorkSyncProgressEntity {
+
+    @Id
+    @GeneratedValue(generator = "sy-id-generator")
+    @GenericGenerator(name = "sy-id-generator", strategy = "com.isxcode.spark.config.GeneratedValueConfig")
+    private String id;
+
+    /**
+     * 作业实例id.
+     */
+    private String instanceId;
+
+    /**
+     * 分区序号.
+     */
+    private Integer partitionIndex;
+
+    /**
+     * 分区条件.
+     */
+    private String predicate;
+
+    /**
+     * 同步行数.
+     */
+    private Long rowCount;
+
+    @CreatedDate
+    private LocalDateTime createDateTime;
+}
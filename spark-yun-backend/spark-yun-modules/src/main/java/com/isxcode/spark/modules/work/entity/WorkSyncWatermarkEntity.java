@@ -0,0 +1,56 @@
+package com.isxcode.spark.modules.work.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "SY_WORK_SYNC_WATERMARK")
+@JsonIgnoreProperties({"hibernateLazyInitializer"})
+@EntityListeners(AuditingEntityListener.class)
+public class WorkSyncWatermarkEntity {
+
+    @Id
+    @GeneratedValue(generator = "sy-id-generator")
+    @GenericGenerator(name = "sy-id-generator", strategy = "com.isxcode.spark.config.GeneratedValueConfig")
+    private String id;
+
+    /**
+     * 作业id.
+     */
+    private String workId;
+
+    /**
+     * 水位线字段.
+     */
+    private String watermarkColumn;
+
+    /**
+     * 已同步的最大值.
+     */
+    private String watermarkValue;
+
+    /**
+     * 最后更新水位线的作业实例id.
+     */
+    private String instanceId;
+
+    @CreatedDate
+    private LocalDateTime createDateTime;
+
+    @LastModifiedDate
+    private LocalDateTime lastModifiedDateTime;
+}
@@ -4,7 +4,13 @@ import com.isxcode.spark.api.main.constants.ModuleCode;
 import com.isxcode.spark.modules.work.entity.WorkEventEntity;
 import org.springframework.cache.annotation.CacheConfig;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 @Repository
 @CacheConfig(cacheNames = {ModuleCode.WORK})
@@ -12,6 +18,22 @@ public interface WorkEventRepository extends JpaRepository<WorkEventEntity, Stri
 
     boolean existsByIdAndEventProcess(String id, Integer eventProcess);
 
+    @Query("select E.eventProcess from WorkEventEntity E where E.id = :id")
+    Integer getEventProcess(@Param("id") String id);
+
+    List<WorkEventEntity> findAllByAppName(String appName);
+
+    @Query("select distinct E.appName from WorkEventEntity E where E.appName is not null and E.appName <> :appName")
+    List<String> findOtherAppNames(@Param("appName") String appName);
+
+    /**
+     * 接管其他节点的作业事件，返回0说明已被其他节点接管.
+     */
+    @Modifying
+    @Transactional
+    @Query("update WorkEventEntity E set E.appName = :appName where E.id = :id and E.appName = :oldAppName")
+    int claim(@Param("id") String id, @Param("oldAppName") String oldAppName, @Param("appName") String appName);
+
     default void deleteByIdAndFlush(String id) {
         deleteById(id);
         flush();
@@ -0,0 +1,36 @@
+package com.isxcode.spark.modules.work.repository;
+
+import com.isxcode.spark.modules.work.entity.WorkLogChunkEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WorkLogChunkRepository extends JpaRepository<WorkLogChunkEntity, String> {
+
+    List<WorkLogChunkEntity> findAllByInstanceIdOrderByLogOffset(String instanceId);
+
+    List<WorkLogChunkEntity> findAllByInstanceIdAndLogOffsetGreaterThanEqualOrderByLogOffset(String instanceId,
+        Long logOffset);
+
+    Optional<WorkLogChunkEntity> findFirstByInstanceIdOrderByLogOffsetDesc(String instanceId);
+
+    /**
+     * 日志片段单独提交，外层事务回滚时运行日志不丢失.
+     */
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    <S extends WorkLogChunkEntity> S saveAndFlush(S entity);
+
+    @Modifying
+    @Transactional
+    @Query("delete from WorkLogChunkEntity C where C.instanceId = :instanceId")
+    int deleteAllByInstanceId(@Param("instanceId") String instanceId);
+}
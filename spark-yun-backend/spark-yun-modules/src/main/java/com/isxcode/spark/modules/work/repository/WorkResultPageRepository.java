@@ -0,0 +1,33 @@
+package com.isxcode.spark.modules.work.repository;
+
+import com.isxcode.spark.modules.work.entity.WorkResultPageEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WorkResultPageRepository extends JpaRepository<WorkResultPageEntity, String> {
+
+    Optional<WorkResultPageEntity> findByInstanceIdAndPageIndex(String instanceId, Integer pageIndex);
+
+    List<WorkResultPageEntity> findAllByInstanceIdOrderByPageIndex(String instanceId);
+
+    Optional<WorkResultPageEntity> findFirstByInstanceIdAndRowStartLessThanEqualOrderByRowStartDesc(
+        String instanceId, Long rowStart);
+
+    boolean existsByInstanceId(String instanceId);
+
+    @Query("select coalesce(sum(P.rowCount), 0) from WorkResultPageEntity P where P.instanceId = :instanceId")
+    long sumRowCount(@Param("instanceId") String instanceId);
+
+    @Modifying
+    @Transactional
+    @Query("delete from WorkResultPageEntity P where P.instanceId = :instanceId")
+    int deleteAllByInstanceId(@Param("instanceId") String instanceId);
+}
@@ -0,0 +1,27 @@
+package com.isxcode.spark.modules.work.repository;
+
+import com.isxcode.spark.modules.work.entity.WorkSyncProgressEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface WorkSyncProgressRepository extends JpaRepository<WorkSyncProgressEntity, String> {
+
+    boolean existsByInstanceId(String instanceId);
+
+    @Modifying
+    @Transactional
+    @Query("delete from WorkSyncProgressEntity P where P.instanceId = :instanceId")
+    int deleteAllByInstanceId(@Param("instanceId") String instanceId);
+
+    @Modifying
+    @Transactional
+    @Query("delete from WorkSyncProgressEntity P where P.instanceId in :instanceIds")
+    int deleteAllByInstanceIdIn(@Param("instanceIds") List<String> instanceIds);
+}
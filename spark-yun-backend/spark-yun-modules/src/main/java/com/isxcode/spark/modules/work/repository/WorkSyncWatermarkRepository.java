@@ -0,0 +1,13 @@
+package com.isxcode.spark.modules.work.repository;
+
+import com.isxcode.spark.modules.work.entity.WorkSyncWatermarkEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface WorkSyncWatermarkRepository extends JpaRepository<WorkSyncWatermarkEntity, String> {
+
+    Optional<WorkSyncWatermarkEntity> findByWorkId(String workId);
+}
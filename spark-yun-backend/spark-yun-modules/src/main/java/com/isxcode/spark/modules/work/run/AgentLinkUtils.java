@@ -4,11 +4,13 @@ import com.alibaba.fastjson.JSON;
 import com.isxcode.spark.api.work.res.AgentLinkResponse;
 import com.isxcode.spark.backend.api.base.exceptions.WorkRunException;
 import com.isxcode.spark.backend.api.base.pojos.BaseResponse;
+import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
 import com.isxcode.spark.common.utils.http.HttpUrlUtils;
 import com.isxcode.spark.common.utils.http.HttpUtils;
 import com.isxcode.spark.modules.cluster.entity.ClusterNodeEntity;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpServerErrorException;
@@ -18,18 +20,27 @@ import org.springframework.web.client.HttpServerErrorException;
 @RequiredArgsConstructor
 public class AgentLinkUtils {
 
+    private static final ParameterizedTypeReference<BaseResponse<AgentLinkResponse>> AGENT_LINK_RESPONSE_TYPE =
+        new ParameterizedTypeReference<BaseResponse<AgentLinkResponse>>() {};
+
     private final HttpUrlUtils httpUrlUtils;
 
+    private final IsxAppProperties isxAppProperties;
+
     public AgentLinkResponse getAgentLinkResponse(ClusterNodeEntity agentNode, String url, Object body)
         throws WorkRunException {
 
         try {
-            BaseResponse<?> baseResponse = HttpUtils.doPost(
-                httpUrlUtils.genHttpUrl(agentNode.getHost(), agentNode.getAgentPort(), url), body, BaseResponse.class);
+            // 直接反序列化成统一返回
+            BaseResponse<AgentLinkResponse> baseResponse =
+                HttpUtils.doPost(httpUrlUtils.genHttpUrl(agentNode.getHost(), agentNode.getAgentPort(), url), body,
+                    AGENT_LINK_RESPONSE_TYPE, isxAppProperties.isAgentGzipEnabled());
 
             // 打印调试日志
             if (baseResponse != null) {
-                log.debug("请求代理成功 : {}", JSON.toJSONString(baseResponse));
+                if (log.isDebugEnabled()) {
+                    log.debug("请求代理成功 : {}", JSON.toJSONString(baseResponse));
+                }
             } else {
                 throw new WorkRunException("代理请求中断");
             }
@@ -39,8 +50,7 @@ public class AgentLinkUtils {
                 throw new WorkRunException("请求代理异常 : " + baseResponse.getMsg());
             }
 
-            // 翻译成统一返回
-            return JSON.parseObject(JSON.toJSONString(baseResponse.getData()), AgentLinkResponse.class);
+            return baseResponse.getData();
         } catch (HttpServerErrorException e) {
             log.error(e.getMessage(), e);
 
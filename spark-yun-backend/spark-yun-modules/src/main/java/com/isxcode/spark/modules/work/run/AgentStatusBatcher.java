@@ -0,0 +1,202 @@
+package com.isxcode.spark.modules.work.run;
+
+import com.isxcode.spark.api.agent.constants.FlinkAgentUrl;
+import com.isxcode.spark.api.agent.constants.SparkAgentUrl;
+import com.isxcode.spark.api.agent.req.flink.GetWorkInfoReq;
+import com.isxcode.spark.api.agent.req.spark.GetWorkInfosReq;
+import com.isxcode.spark.api.agent.req.spark.GetWorkStatusReq;
+import com.isxcode.spark.api.work.res.AgentLinkResponse;
+import com.isxcode.spark.backend.api.base.exceptions.WorkRunException;
+import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
+import com.isxcode.spark.modules.cluster.entity.ClusterNodeEntity;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 合并作业状态查询.
+ *
+ * <p>
+ * 同一个代理上所有运行中作业的状态查询，在一个周期内合并成一次批量请求，发送后批次从缓存中移除.
+ * 代理不支持批量查询时退回单个查询.
+ * </p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AgentStatusBatcher {
+
+    private final AgentLinkUtils agentLinkUtils;
+
+    private final IsxAppProperties isxAppProperties;
+
+    private final Map<String, StatusBatch> statusBatches = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService flushScheduler;
+
+    private ExecutorService flushThreadPool;
+
+    @PostConstruct
+    public void start() {
+
+        if (!isxAppProperties.isAgentStatusBatchEnabled()) {
+            return;
+        }
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        flushThreadPool = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "agentStatusBatch-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "agentStatusBatchScheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = isxAppProperties.getAgentStatusBatchInterval();
+        flushScheduler.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+
+        if (flushScheduler != null) {
+            flushScheduler.shutdownNow();
+            flushThreadPool.shutdownNow();
+        }
+    }
+
+    /**
+     * 获取spark作业状态.
+     */
+    public AgentLinkResponse getSparkWorkInfo(ClusterNodeEntity agentNode, GetWorkStatusReq getWorkStatusReq)
+        throws WorkRunException {
+
+        String batchKey = SparkAgentUrl.GET_WORK_INFOS_URL + "#" + getAgentKey(agentNode) + "#"
+            + getWorkStatusReq.getClusterType() + "#" + getWorkStatusReq.getSparkHomePath();
+        AgentLinkResponse workInfo = getBatchWorkInfo(batchKey, getWorkStatusReq.getAppId(),
+            () -> new StatusBatch(agentNode, SparkAgentUrl.GET_WORK_INFOS_URL,
+                appIds -> GetWorkInfosReq.builder().appIds(appIds).clusterType(getWorkStatusReq.getClusterType())
+                    .sparkHomePath(getWorkStatusReq.getSparkHomePath()).build()));
+
+        return workInfo != null ? workInfo
+            : agentLinkUtils.getAgentLinkResponse(agentNode, SparkAgentUrl.GET_WORK_INFO_URL, getWorkStatusReq);
+    }
+
+    /**
+     * 获取flink作业状态.
+     */
+    public AgentLinkResponse getFlinkWorkInfo(ClusterNodeEntity agentNode, GetWorkInfoReq getWorkInfoReq)
+        throws WorkRunException {
+
+        String batchKey = FlinkAgentUrl.GET_WORK_INFOS_URL + "#" + getAgentKey(agentNode) + "#"
+            + getWorkInfoReq.getClusterType() + "#" + getWorkInfoReq.getFlinkHome() + "#"
+            + getWorkInfoReq.getAgentHome();
+        AgentLinkResponse workInfo = getBatchWorkInfo(batchKey, getWorkInfoReq.getAppId(),
+            () -> new StatusBatch(agentNode, FlinkAgentUrl.GET_WORK_INFOS_URL,
+                appIds -> com.isxcode.spark.api.agent.req.flink.GetWorkInfosReq.builder().appIds(appIds)
+                    .agentHome(getWorkInfoReq.getAgentHome()).clusterType(getWorkInfoReq.getClusterType())
+                    .flinkHome(getWorkInfoReq.getFlinkHome()).build()));
+
+        return workInfo != null ? workInfo
+            : agentLinkUtils.getAgentLinkResponse(agentNode, FlinkAgentUrl.GET_WORK_INFO_URL, getWorkInfoReq);
+    }
+
+    /**
+     * 等待批量查询结果，没有结果时返回null，由调用方单个查询.
+     */
+    private AgentLinkResponse getBatchWorkInfo(String batchKey, String appId,
+        Supplier<StatusBatch> batchSupplier) {
+
+        if (!isxAppProperties.isAgentStatusBatchEnabled()) {
+            return null;
+        }
+
+        // 批次发送后会被移除，拿到已经发送的批次时重新获取
+        CompletableFuture<AgentLinkResponse> future = null;
+        while (future == null) {
+            StatusBatch statusBatch = statusBatches.computeIfAbsent(batchKey, k -> batchSupplier.get());
+            synchronized (statusBatch) {
+                if (!statusBatch.flushed) {
+                    future = statusBatch.pending.computeIfAbsent(appId, k -> new CompletableFuture<>());
+                }
+            }
+        }
+
+        try {
+            return future.get(isxAppProperties.getHttpReadTimeout(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        }
+    }
+
+    private String getAgentKey(ClusterNodeEntity agentNode) {
+
+        return agentNode.getId() + "@" + agentNode.getHost() + ":" + agentNode.getAgentPort();
+    }
+
+    private void flush() {
+
+        statusBatches.forEach((batchKey, statusBatch) -> {
+            synchronized (statusBatch) {
+                statusBatches.remove(batchKey, statusBatch);
+                statusBatch.flushed = true;
+            }
+            if (statusBatch.pending.isEmpty()) {
+                return;
+            }
+            try {
+                flushThreadPool.execute(() -> flush(statusBatch, statusBatch.pending));
+            } catch (RejectedExecutionException e) {
+                statusBatch.pending.values().forEach(future -> future.complete(null));
+            }
+        });
+    }
+
+    private void flush(StatusBatch statusBatch, Map<String, CompletableFuture<AgentLinkResponse>> pending) {
+
+        try {
+            AgentLinkResponse agentLinkResponse = agentLinkUtils.getAgentLinkResponse(statusBatch.agentNode,
+                statusBatch.url, statusBatch.reqBuilder.apply(new ArrayList<>(pending.keySet())));
+            if (agentLinkResponse.getWorkInfos() != null) {
+                agentLinkResponse.getWorkInfos().forEach(workInfo -> {
+                    CompletableFuture<AgentLinkResponse> future = pending.get(workInfo.getAppId());
+                    if (future != null) {
+                        future.complete(workInfo);
+                    }
+                });
+            }
+        } catch (Exception e) {
+            log.debug("批量获取作业状态异常，改为单个查询: {}", e.getMessage());
+        } finally {
+            // 没有查到的作业，调用方单个查询
+            pending.values().forEach(future -> future.complete(null));
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class StatusBatch {
+
+        private final ClusterNodeEntity agentNode;
+
+        private final String url;
+
+        private final Function<List<String>, Object> reqBuilder;
+
+        private final Map<String, CompletableFuture<AgentLinkResponse>> pending = new HashMap<>();
+
+        private boolean flushed;
+    }
+}
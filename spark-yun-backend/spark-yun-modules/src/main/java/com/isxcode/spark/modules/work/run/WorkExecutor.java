@@ -9,10 +9,13 @@ import com.isxcode.spark.api.work.constants.EventType;
 import com.isxcode.spark.api.work.constants.LockerPrefix;
 import com.isxcode.spark.api.work.constants.WorkLog;
 import com.isxcode.spark.backend.api.base.exceptions.WorkRunException;
-import com.isxcode.spark.common.locker.Locker;
+import com.isxcode.spark.common.locker.LeaseLocker;
 import com.isxcode.spark.modules.alarm.service.AlarmService;
+import com.isxcode.spark.modules.monitor.service.InstanceCounterService;
 import com.isxcode.spark.modules.work.entity.*;
 import com.isxcode.spark.modules.work.repository.*;
+import com.isxcode.spark.modules.work.service.WorkLogService;
+import com.isxcode.spark.modules.work.service.WorkResultService;
 import com.isxcode.spark.modules.work.service.WorkService;
 import com.isxcode.spark.modules.work.sql.SqlFunctionService;
 import com.isxcode.spark.modules.workflow.entity.WorkflowInstanceEntity;
@@ -20,6 +23,8 @@ import com.isxcode.spark.modules.workflow.repository.WorkflowInstanceRepository;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import com.isxcode.spark.modules.workflow.run.WorkflowUtils;
 import lombok.RequiredArgsConstructor;
@@ -34,7 +39,7 @@ public abstract class WorkExecutor {
 
     private final AlarmService alarmService;
 
-    private final Locker locker;
+    private final LeaseLocker locker;
 
     private final WorkRepository workRepository;
 
@@ -54,6 +59,14 @@ public abstract class WorkExecutor {
 
     private final WorkService workService;
 
+    private final WorkLogService workLogService;
+
+    private final WorkRunWriteBuffer workRunWriteBuffer;
+
+    private final WorkResultService workResultService;
+
+    private final InstanceCounterService instanceCounterService;
+
     public abstract String getWorkType();
 
     /**
@@ -107,37 +120,87 @@ public abstract class WorkExecutor {
             workInstanceRepository.findAllByWorkflowInstanceId(workInstance.getWorkflowInstanceId());
 
         for (WorkInstanceEntity e : allWorkflowInstance) {
-            if (InstanceStatus.SUCCESS.equals(e.getStatus()) && e.getResultData() != null) {
+            if (!InstanceStatus.SUCCESS.equals(e.getStatus())) {
+                continue;
+            }
+            if (e.getResultData() != null) {
                 value = value.replace("${qing." + e.getWorkId() + ".result_data}",
                     Base64.getEncoder().encodeToString(e.getResultData().getBytes()));
+            } else if (value.contains("${qing." + e.getWorkId() + ".result_data}")
+                && workResultService.hasResult(e.getId())) {
+                value = parseTableValue(value, e);
+
+                // get_table_value以外的引用，合并所有页后传递
+                if (value.contains("${qing." + e.getWorkId() + ".result_data}")) {
+                    value = value.replace("${qing." + e.getWorkId() + ".result_data}", Base64.getEncoder()
+                        .encodeToString(JSON.toJSONString(workResultService.getResult(e.getId())).getBytes()));
+                }
             }
         }
 
         return sqlFunctionService.parseSqlFunction(value);
     }
 
+    /**
+     * 分页保存的查询结果，直接按坐标取值，不再传递完整结果.
+     */
+    private String parseTableValue(String value, WorkInstanceEntity workInstance) {
+
+        Pattern pattern = Pattern.compile("get_table_value\\('\\$\\{qing\\." + Pattern.quote(workInstance.getWorkId())
+            + "\\.result_data}',\\s*(\\d+)\\s*,\\s*(\\d+)\\s*,\\s*'[^']*'\\)");
+        Matcher matcher = pattern.matcher(value);
+        StringBuffer result = new StringBuffer();
+        while (matcher.find()) {
+            String tableValue;
+            try {
+                tableValue = Objects.toString(workResultService.getValue(workInstance.getId(),
+                    Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))), "");
+            } catch (Exception e) {
+                tableValue = "空值获取";
+            }
+            matcher.appendReplacement(result, Matcher.quoteReplacement("get_table_default_value(''," + matcher.group(1)
+                + "," + matcher.group(2) + ",'" + Base64.getEncoder().encodeToString(tableValue.getBytes()) + "')"));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
     public WorkInstanceEntity updateInstance(WorkInstanceEntity workInstance, StringBuilder logBuilder) {
 
-        workInstance.setSubmitLog(logBuilder.toString());
+        // 中间步骤延迟写库
+        if (workRunWriteBuffer.offer(workInstance, logBuilder)) {
+            return workInstance;
+        }
+
+        workLogService.appendSubmitLog(workInstance, logBuilder);
         return workInstanceRepository.saveAndFlush(workInstance);
     }
 
     public void updateWorkEvent(WorkEventEntity workEvent, WorkRunContext workRunContext) {
 
         workEvent.setEventContext(JSON.toJSONString(workRunContext));
-        workEventRepository.save(workEvent);
+        if (!workRunWriteBuffer.offer(workEvent, workRunContext)) {
+            workEventRepository.save(workEvent);
+        }
     }
 
     public String updateWorkEventAndInstance(WorkInstanceEntity workInstance, StringBuilder logBuilder,
         WorkEventEntity workEvent, WorkRunContext workRunContext) {
 
-        // 保存提交日志
-        workInstance.setSubmitLog(logBuilder.toString());
+        workEvent.setEventContext(JSON.toJSONString(workRunContext));
+        workEvent.setEventProcess(workEvent.getEventProcess() + 1);
+
+        // 中间步骤延迟写库，提交作业后同步写库
+        if (workRunWriteBuffer.offer(workInstance, logBuilder, workEvent, workRunContext)) {
+            return InstanceStatus.RUNNING;
+        }
+        workRunWriteBuffer.flush(workEvent.getId(), workInstance.getId());
+
+        // 追加提交日志
+        workLogService.appendSubmitLog(workInstance, logBuilder);
         workInstanceRepository.save(workInstance);
 
         // 保存事件
-        workEvent.setEventContext(JSON.toJSONString(workRunContext));
-        workEvent.setEventProcess(workEvent.getEventProcess() + 1);
         workEventRepository.save(workEvent);
 
         // 返回继续运行
@@ -169,8 +232,10 @@ public abstract class WorkExecutor {
         WorkInstanceEntity workInstance = workService.getWorkInstance(workRunContext.getInstanceId());
 
         // 把事件id保存到实例中
-        workInstance.setEventId(workEvent.getId());
-        workInstanceRepository.save(workInstance);
+        if (!workEvent.getId().equals(workInstance.getEventId())) {
+            workInstance.setEventId(workEvent.getId());
+            workInstanceRepository.save(workInstance);
+        }
 
         // 中止、中止中、成功、失败，不可以再运行
         if (InstanceStatus.ABORT.equals(workInstance.getStatus())
@@ -181,6 +246,7 @@ public abstract class WorkExecutor {
 
         // 将作业状态改成运行中
         if (InstanceStatus.PENDING.equals(workInstance.getStatus())) {
+            workLogService.clearSubmitLog(workInstance.getId());
             workInstance.setSubmitLog(infoLog("🔥 开始运行作业"));
             workInstance.setStatus(InstanceStatus.RUNNING);
             workInstance.setExecStartDateTime(new Date());
@@ -201,31 +267,31 @@ public abstract class WorkExecutor {
             if (InstanceStatus.SUCCESS.equals(executeStatus)) {
 
                 // 只有运行中的作业，才能改成成功
+                workRunWriteBuffer.flush(workEvent.getId(), workRunContext.getInstanceId());
                 workInstance = workService.getWorkInstance(workRunContext.getInstanceId());
                 if (InstanceStatus.RUNNING.equals(workInstance.getStatus())) {
                     workInstance.setStatus(InstanceStatus.SUCCESS);
                     workInstance.setExecEndDateTime(new Date());
                     workInstance.setDuration(
                         (System.currentTimeMillis() - workInstance.getExecStartDateTime().getTime()) / 1000);
-                    workInstance.setSubmitLog(
-                        workInstance.getSubmitLog() + LocalDateTime.now() + WorkLog.SUCCESS_INFO + "✅ 运行作业成功 \n");
-                    workInstanceRepository.save(workInstance);
+                    workLogService.compactSubmitLog(workInstance,
+                        LocalDateTime.now() + WorkLog.SUCCESS_INFO + "✅ 运行作业成功 \n");
                 }
             }
         } catch (Exception e) {
             log.error(e.getMessage(), e);
 
             // 只有运行中的作业，才能改成失败
+            workRunWriteBuffer.flush(workEvent.getId(), workRunContext.getInstanceId());
             workInstance = workService.getWorkInstance(workRunContext.getInstanceId());
             if (InstanceStatus.RUNNING.equals(workInstance.getStatus())) {
                 workInstance.setStatus(InstanceStatus.FAIL);
                 workInstance.setExecEndDateTime(new Date());
                 workInstance
                     .setDuration((System.currentTimeMillis() - workInstance.getExecStartDateTime().getTime()) / 1000);
-                workInstance.setSubmitLog(workInstance.getSubmitLog()
-                    + (e instanceof WorkRunException ? ((WorkRunException) e).getMsg() : e.getMessage() + "\n")
-                    + LocalDateTime.now() + WorkLog.ERROR_INFO + "❌ 运行作业失败");
-                workInstanceRepository.saveAndFlush(workInstance);
+                workLogService.compactSubmitLog(workInstance,
+                    (e instanceof WorkRunException ? ((WorkRunException) e).getMsg() : e.getMessage() + "\n")
+                        + LocalDateTime.now() + WorkLog.ERROR_INFO + "❌ 运行作业失败");
             }
         }
 
@@ -264,6 +330,7 @@ public abstract class WorkExecutor {
                 if (InstanceStatus.SUCCESS.equals(executeStatus)) {
 
                     // 重新获取最新的作业实例，只有运行中的作业，才能改成成功
+                    workRunWriteBuffer.flush(workEvent.getId(), workRunContext.getInstanceId());
                     workInstance = workService.getWorkInstance(workRunContext.getInstanceId());
                     if (InstanceStatus.RUNNING.equals(workInstance.getStatus())) {
 
@@ -277,9 +344,8 @@ public abstract class WorkExecutor {
                         workInstance.setExecEndDateTime(new Date());
                         workInstance.setDuration(
                             (System.currentTimeMillis() - workInstance.getExecStartDateTime().getTime()) / 1000);
-                        workInstance.setSubmitLog(
-                            workInstance.getSubmitLog() + LocalDateTime.now() + WorkLog.SUCCESS_INFO + "✅ 运行作业成功 \n");
-                        workInstanceRepository.saveAndFlush(workInstance);
+                        workInstance = workLogService.compactSubmitLog(workInstance,
+                            LocalDateTime.now() + WorkLog.SUCCESS_INFO + "✅ 运行作业成功 \n");
 
                         // 基线管理，任务运行成功发送消息
                         if (InstanceType.AUTO.equals(workInstance.getInstanceType())) {
@@ -291,6 +357,7 @@ public abstract class WorkExecutor {
                 log.error(e.getMessage(), e);
 
                 // 重新获取最新的作业实例，只有运行中的作业，才能改成失败
+                workRunWriteBuffer.flush(workEvent.getId(), workRunContext.getInstanceId());
                 workInstance = workService.getWorkInstance(workRunContext.getInstanceId());
                 if (InstanceStatus.RUNNING.equals(workInstance.getStatus())) {
 
@@ -304,10 +371,9 @@ public abstract class WorkExecutor {
                     workInstance.setExecEndDateTime(new Date());
                     workInstance.setDuration(
                         (System.currentTimeMillis() - workInstance.getExecStartDateTime().getTime()) / 1000);
-                    workInstance.setSubmitLog(workInstance.getSubmitLog()
-                        + (e instanceof WorkRunException ? ((WorkRunException) e).getMsg() : e.getMessage())
-                        + LocalDateTime.now() + WorkLog.ERROR_INFO + "❌ 运行作业失败");
-                    workInstance = workInstanceRepository.saveAndFlush(workInstance);
+                    workInstance = workLogService.compactSubmitLog(workInstance,
+                        (e instanceof WorkRunException ? ((WorkRunException) e).getMsg() : e.getMessage())
+                            + LocalDateTime.now() + WorkLog.ERROR_INFO + "❌ 运行作业失败");
 
                     // 基线管理，任务运行失败发送消息
                     if (InstanceType.AUTO.equals(workInstance.getInstanceType())) {
@@ -324,100 +390,102 @@ public abstract class WorkExecutor {
         } else {
 
             // 修改状态，节点状态只能一个一个修改，防止并发压力大，导致作业执行两次
-            Integer lockerKey = locker.lock(LockerPrefix.WORK_CHANGE_STATUS + workRunContext.getFlowInstanceId());
-
-            // 获取最新作业实例，一定要以加锁后的实例为准
-            workInstance = workService.getWorkInstance(workRunContext.getInstanceId());
+            String lockerName = LockerPrefix.WORK_CHANGE_STATUS + workRunContext.getFlowInstanceId();
+            locker.lock(lockerName);
+            try {
+                // 获取最新作业实例，一定要以加锁后的实例为准
+                workInstance = workService.getWorkInstance(workRunContext.getInstanceId());
 
-            // 作业事件和实例绑定的不一致，为上游重复推送，不再运行
-            if (workInstance.getEventId() != null && !workInstance.getEventId().equals(workEventId)) {
-                locker.unlock(lockerKey);
-                return InstanceStatus.FINISHED;
-            }
+                // 作业事件和实例绑定的不一致，为上游重复推送，不再运行
+                if (workInstance.getEventId() != null && !workInstance.getEventId().equals(workEventId)) {
+                    return InstanceStatus.FINISHED;
+                }
 
-            // 中止、中止中，不可以再运行
-            if (InstanceStatus.ABORT.equals(workInstance.getStatus())
-                || InstanceStatus.ABORTING.equals(workInstance.getStatus())) {
-                locker.unlock(lockerKey);
-                return InstanceStatus.FINISHED;
-            }
+                // 中止、中止中，不可以再运行
+                if (InstanceStatus.ABORT.equals(workInstance.getStatus())
+                    || InstanceStatus.ABORTING.equals(workInstance.getStatus())) {
+                    return InstanceStatus.FINISHED;
+                }
 
-            // 在调度中的作业，如果自身定时器没有被触发，不可以再运行，上游推过来，但是定时器还没到时间
-            if (!Strings.isEmpty(workRunContext.getVersionId()) && !workInstance.getQuartzHasRun()) {
-                locker.unlock(lockerKey);
-                return InstanceStatus.FINISHED;
-            }
+                // 在调度中的作业，如果自身定时器没有被触发，不可以再运行，上游推过来，但是定时器还没到时间
+                if (!Strings.isEmpty(workRunContext.getVersionId()) && !workInstance.getQuartzHasRun()) {
+                    return InstanceStatus.FINISHED;
+                }
 
-            // 如果是中断状态赋值workEventId
-            if (InstanceStatus.BREAK.equals(workInstance.getStatus())) {
-                workInstance.setEventId(workEventId);
-            }
+                // 如果是中断状态赋值workEventId
+                if (InstanceStatus.BREAK.equals(workInstance.getStatus())) {
+                    workInstance.setEventId(workEventId);
+                }
 
-            // 开始修改对PENDING状态的作业，中断状态需要传递
-            if (InstanceStatus.PENDING.equals(workInstance.getStatus())) {
-
-                // 获取父级的作业实例状态
-                List<String> parentNodes =
-                    WorkflowUtils.getParentNodes(workRunContext.getNodeMapping(), workRunContext.getWorkId());
-                List<WorkInstanceEntity> parentInstances = workInstanceRepository
-                    .findAllByWorkIdAndWorkflowInstanceId(parentNodes, workRunContext.getFlowInstanceId());
-                boolean parentIsError =
-                    parentInstances.stream().anyMatch(e -> InstanceStatus.FAIL.equals(e.getStatus()));
-                boolean parentIsBreak =
-                    parentInstances.stream().anyMatch(e -> InstanceStatus.BREAK.equals(e.getStatus()));
-                boolean parentIsRunning = parentInstances.stream().anyMatch(
-                    e -> InstanceStatus.RUNNING.equals(e.getStatus()) || InstanceStatus.PENDING.equals(e.getStatus()));
-
-                // 修改状态
-                if (parentIsRunning) {
-
-                    // 如果父级在运行中，不可以再运行
-                    locker.unlock(lockerKey);
-                    return InstanceStatus.FINISHED;
-                } else if (parentIsError) {
+                // 开始修改对PENDING状态的作业，中断状态需要传递
+                if (InstanceStatus.PENDING.equals(workInstance.getStatus())) {
+
+                    // 获取父级的作业实例状态
+                    List<String> parentNodes =
+                        WorkflowUtils.getWorkflowDag(workRunContext).getParentNodes(workRunContext.getWorkId());
+                    List<WorkInstanceEntity> parentInstances = workInstanceRepository
+                        .findAllByWorkIdAndWorkflowInstanceId(parentNodes, workRunContext.getFlowInstanceId());
+                    boolean parentIsError =
+                        parentInstances.stream().anyMatch(e -> InstanceStatus.FAIL.equals(e.getStatus()));
+                    boolean parentIsBreak =
+                        parentInstances.stream().anyMatch(e -> InstanceStatus.BREAK.equals(e.getStatus()));
+                    boolean parentIsRunning = parentInstances.stream().anyMatch(e -> InstanceStatus.RUNNING
+                        .equals(e.getStatus()) || InstanceStatus.PENDING.equals(e.getStatus()));
+
+                    // 修改状态
+                    if (parentIsRunning) {
+
+                        // 如果父级在运行中，不可以再运行
+                        return InstanceStatus.FINISHED;
+                    } else if (parentIsError) {
+
+                        // 如果父级有错，则状态直接变更为失败
+                        workLogService.clearSubmitLog(workInstance.getId());
+                        workInstance.setStatus(InstanceStatus.FAIL);
+                        workInstance.setSubmitLog("父级执行失败");
+                        workInstance.setExecEndDateTime(new Date());
+                        workInstance.setDuration(0L);
+                    } else if (parentIsBreak) {
 
-                    // 如果父级有错，则状态直接变更为失败
-                    workInstance.setStatus(InstanceStatus.FAIL);
-                    workInstance.setSubmitLog("父级执行失败");
-                    workInstance.setExecEndDateTime(new Date());
-                    workInstance.setDuration(0L);
-                } else if (parentIsBreak) {
+                        // 如果父级有中断，则状态直接变更为中断
+                        workLogService.clearSubmitLog(workInstance.getId());
+                        workInstance.setStatus(InstanceStatus.BREAK);
+                        workInstance.setSubmitLog("当前作业中断");
+                        workInstance.setExecEndDateTime(new Date());
+                        workInstance.setDuration(0L);
+                    } else {
+                        // 修改作业状态为RUNNING
+                        log.debug("【作业流实例id】:{},【作业实例id】:{},【运行事件id】:{},修改状态:RUNNING,【作业名】:{}",
+                            workInstance.getWorkflowInstanceId(), workInstance.getId(), workEventId,
+                            workRunContext.getWorkName());
 
-                    // 如果父级有中断，则状态直接变更为中断
-                    workInstance.setStatus(InstanceStatus.BREAK);
-                    workInstance.setSubmitLog("当前作业中断");
-                    workInstance.setExecEndDateTime(new Date());
-                    workInstance.setDuration(0L);
-                } else {
-                    // 修改作业状态为RUNNING
-                    log.debug("【作业流实例id】:{},【作业实例id】:{},【运行事件id】:{},修改状态:RUNNING,【作业名】:{}",
-                        workInstance.getWorkflowInstanceId(), workInstance.getId(), workEventId,
-                        workRunContext.getWorkName());
+                        // 基线管理，任务开始运行，发送消息；自动调度的作业流在第一个节点运行时计入开始
+                        if (InstanceType.AUTO.equals(workInstance.getInstanceType())) {
+                            alarmService.sendWorkMessage(workInstance, AlarmEventType.START_RUN);
+                            instanceCounterService
+                                .recordNodeStart(workService.getWorkFlowInstance(workRunContext.getFlowInstanceId()));
+                        }
 
-                    // 基线管理，任务开始运行，发送消息
-                    if (InstanceType.AUTO.equals(workInstance.getInstanceType())) {
-                        alarmService.sendWorkMessage(workInstance, AlarmEventType.START_RUN);
+                        // 修改作业实例状态为运行中
+                        workLogService.clearSubmitLog(workInstance.getId());
+                        workInstance.setSubmitLog(infoLog("🔥 开始运行作业"));
+                        workInstance.setStatus(InstanceStatus.RUNNING);
                     }
 
-                    // 修改作业实例状态为运行中
-                    workInstance.setSubmitLog(infoLog("🔥 开始运行作业"));
-                    workInstance.setStatus(InstanceStatus.RUNNING);
-                }
-
-                // 绑定作业事件
-                workInstance.setEventId(workEvent.getId());
+                    // 绑定作业事件
+                    workInstance.setEventId(workEvent.getId());
 
-                // 保存实例状态
-                workInstance.setExecStartDateTime(new Date());
-                workInstanceRepository.saveAndFlush(workInstance);
+                    // 保存实例状态
+                    workInstance.setExecStartDateTime(new Date());
+                    workInstanceRepository.saveAndFlush(workInstance);
 
-                // 修改状态后继续执行
-                locker.unlock(lockerKey);
-                return InstanceStatus.RUNNING;
+                    // 修改状态后继续执行
+                    return InstanceStatus.RUNNING;
+                }
+            } finally {
+                // 最终都要解锁
+                locker.unlock(lockerName);
             }
-
-            // 最终都要解锁
-            locker.unlock(lockerKey);
         }
 
         // 每个作业运行完，都要检测一次作业流的所有作业状态，并推送后面的节点，且只对绑定事件id的实例才生效
@@ -452,6 +520,7 @@ public abstract class WorkExecutor {
                 workflowInstance.setDuration(
                     (System.currentTimeMillis() - workflowInstance.getExecStartDateTime().getTime()) / 1000);
                 workflowInstanceRepository.saveAndFlush(workflowInstance);
+                instanceCounterService.recordEnd(workflowInstance);
 
                 // 基线告警，作业流成功、失败、运行结束发送消息
                 if (InstanceType.AUTO.equals(workflowInstance.getInstanceType())) {
@@ -466,7 +535,7 @@ public abstract class WorkExecutor {
 
                 // 作业流没有跑完，继续触发下游作业
                 List<String> sonNodes =
-                    WorkflowUtils.getSonNodes(workRunContext.getNodeMapping(), workRunContext.getWorkId());
+                    WorkflowUtils.getWorkflowDag(workRunContext).getSonNodes(workRunContext.getWorkId());
                 List<WorkEntity> sonNodeWorks = workRepository.findAllByWorkIds(sonNodes);
                 for (WorkEntity work : sonNodeWorks) {
                     WorkInstanceEntity sonWorkInstance = workInstanceRepository
@@ -487,6 +556,8 @@ public abstract class WorkExecutor {
                     sonWorkRunContext.setDagEndList(workRunContext.getDagEndList());
                     sonWorkRunContext.setDagStartList(workRunContext.getDagStartList());
                     sonWorkRunContext.setFlowInstanceId(workRunContext.getFlowInstanceId());
+                    sonWorkRunContext.setWorkflowConfigId(workRunContext.getWorkflowConfigId());
+                    sonWorkRunContext.setWorkflowDagKey(workRunContext.getWorkflowDagKey());
                     sonWorkRunContext.setNodeMapping(workRunContext.getNodeMapping());
                     sonWorkRunContext.setNodeList(workRunContext.getNodeList());
 
@@ -32,6 +32,16 @@ public class WorkRunContext {
 
     private String flowInstanceId;
 
+    /**
+     * 工作流配置id，用于缓存工作流DAG索引.
+     */
+    private String workflowConfigId;
+
+    /**
+     * 工作流DAG索引的缓存key，启动作业流时计算.
+     */
+    private String workflowDagKey;
+
     private String workId;
 
     private String versionId;
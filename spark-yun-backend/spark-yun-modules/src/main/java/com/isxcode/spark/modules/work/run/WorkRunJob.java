@@ -3,7 +3,7 @@ package com.isxcode.spark.modules.work.run;
 import com.isxcode.spark.api.instance.constants.InstanceStatus;
 import com.isxcode.spark.api.work.constants.LockerPrefix;
 import com.isxcode.spark.api.work.constants.QuartzPrefix;
-import com.isxcode.spark.common.locker.Locker;
+import com.isxcode.spark.common.locker.LeaseLocker;
 import com.isxcode.spark.modules.work.repository.WorkEventRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -26,7 +26,7 @@ public class WorkRunJob implements Job {
 
     private final WorkEventRepository workEventRepository;
 
-    private final Locker locker;
+    private final LeaseLocker locker;
 
     @Override
     public void execute(JobExecutionContext context) {
@@ -35,7 +35,8 @@ public class WorkRunJob implements Job {
         String workEventId = String.valueOf(context.getJobDetail().getJobDataMap().get(QuartzPrefix.WORK_EVENT_ID));
 
         // 加锁
-        Integer lockerKey = locker.lockOnly(LockerPrefix.WORK_EVENT_THREAD + workEventId);
+        String lockerName = LockerPrefix.WORK_EVENT_THREAD + workEventId;
+        locker.lock(lockerName);
 
         // 刷新异步环境变量
         USER_ID.set(String.valueOf(context.getJobDetail().getJobDataMap().get(QuartzPrefix.USER_ID)));
@@ -69,11 +70,7 @@ public class WorkRunJob implements Job {
             log.warn("清理调度器和事件时发生异常，EventId: {}", workEventId);
         } finally {
             // 最终都要解锁
-            try {
-                locker.unlock(lockerKey);
-            } catch (Exception ignored) {
-
-            }
+            locker.unlock(lockerName);
 
         }
 
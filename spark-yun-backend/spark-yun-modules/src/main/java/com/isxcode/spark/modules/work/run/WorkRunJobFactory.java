@@ -1,15 +1,27 @@
 package com.isxcode.spark.modules.work.run;
 
 import com.alibaba.fastjson2.JSON;
+import com.isxcode.spark.api.work.constants.LockerPrefix;
 import com.isxcode.spark.api.work.constants.QuartzPrefix;
 import com.isxcode.spark.backend.api.base.exceptions.IsxAppException;
+import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
+import com.isxcode.spark.common.locker.LockerLeaseEntity;
+import com.isxcode.spark.common.locker.LockerLeaseRepository;
 import com.isxcode.spark.modules.work.entity.WorkEventEntity;
 import com.isxcode.spark.modules.work.repository.WorkEventRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.quartz.*;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Optional;
+
 import static com.isxcode.spark.common.config.CommonConfig.TENANT_ID;
 import static com.isxcode.spark.common.config.CommonConfig.USER_ID;
 
@@ -19,20 +31,161 @@ import static com.isxcode.spark.common.config.CommonConfig.USER_ID;
 @RequiredArgsConstructor
 public class WorkRunJobFactory {
 
+    /**
+     * 每秒定时器调度模式.
+     */
+    public static final String QUARTZ_MODE = "quartz";
+
     private final Scheduler scheduler;
 
     private final WorkEventRepository workEventRepository;
 
+    private final WorkRunScheduler workRunScheduler;
+
+    private final IsxAppProperties isxAppProperties;
+
+    private final LockerLeaseRepository lockerLeaseRepository;
+
     public void run(WorkRunContext workRunContext) {
 
         USER_ID.set(workRunContext.getUserId());
         TENANT_ID.set(workRunContext.getTenantId());
 
         // 初始化作业运行事件
-        WorkEventEntity workEvent =
-            WorkEventEntity.builder().eventProcess(0).eventContext(JSON.toJSONString(workRunContext)).build();
+        WorkEventEntity workEvent = WorkEventEntity.builder().eventProcess(0)
+            .eventContext(JSON.toJSONString(workRunContext)).appName(isxAppProperties.getAppName()).build();
         workEvent = workEventRepository.save(workEvent);
 
+        // 内存调度
+        if (!isQuartzMode()) {
+            workRunScheduler.submit(workEvent.getId(), workRunContext.getWorkType(), workRunContext.getEventType(),
+                workRunContext.getUserId(), workRunContext.getTenantId());
+            return;
+        }
+
+        scheduleQuartzJob(workEvent.getId(), workRunContext);
+    }
+
+    /**
+     * 暂停作业事件.
+     */
+    public void pause(String workEventId) throws SchedulerException {
+
+        workRunScheduler.pause(workEventId);
+        scheduler.pauseTrigger(TriggerKey.triggerKey(QuartzPrefix.WORK_RUN_PROCESS + workEventId));
+    }
+
+    /**
+     * 恢复作业事件.
+     */
+    public void resume(String workEventId) throws SchedulerException {
+
+        workRunScheduler.resume(workEventId);
+        scheduler.resumeTrigger(TriggerKey.triggerKey(QuartzPrefix.WORK_RUN_PROCESS + workEventId));
+    }
+
+    /**
+     * 取消作业事件.
+     */
+    public void cancel(String workEventId) throws SchedulerException {
+
+        workRunScheduler.cancel(workEventId);
+        scheduler.unscheduleJob(TriggerKey.triggerKey(QuartzPrefix.WORK_RUN_PROCESS + workEventId));
+    }
+
+    /**
+     * 持有当前节点的租约，节点宕机后租约过期，其他节点接管未完成的作业事件.
+     */
+    @PostConstruct
+    public void holdNodeLease() {
+
+        long now = System.currentTimeMillis();
+        String name = LockerPrefix.WORK_RUN_NODE + isxAppProperties.getAppName();
+        long expireTime = now + isxAppProperties.getLockerLeaseTtl();
+        if (lockerLeaseRepository.hold(name, isxAppProperties.getAppName(), now, expireTime) == 0) {
+            try {
+                lockerLeaseRepository.create(name, isxAppProperties.getAppName(), now, expireTime);
+            } catch (DataIntegrityViolationException e) {
+                log.warn("节点租约已被占用，appName可能重复: {}", isxAppProperties.getAppName());
+            }
+        }
+    }
+
+    /**
+     * 重启服务后，恢复当前节点未完成的作业事件.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverWorkEvent() {
+
+        List<WorkEventEntity> workEvents = workEventRepository.findAllByAppName(isxAppProperties.getAppName());
+        workEvents.forEach(this::recover);
+
+        if (!workEvents.isEmpty()) {
+            log.info("恢复作业事件: {}个", workEvents.size());
+        }
+    }
+
+    /**
+     * 续约当前节点，并接管租约过期节点的作业事件.
+     */
+    @Scheduled(fixedDelay = 5000)
+    public void claimOrphanWorkEvent() {
+
+        try {
+            holdNodeLease();
+
+            long now = System.currentTimeMillis();
+            for (String appName : workEventRepository.findOtherAppNames(isxAppProperties.getAppName())) {
+                Optional<LockerLeaseEntity> lease =
+                    lockerLeaseRepository.findById(LockerPrefix.WORK_RUN_NODE + appName);
+                if (lease.isPresent() && lease.get().getExpireTime() >= now) {
+                    continue;
+                }
+
+                int claimed = 0;
+                for (WorkEventEntity workEvent : workEventRepository.findAllByAppName(appName)) {
+                    if (workEventRepository.claim(workEvent.getId(), appName, isxAppProperties.getAppName()) == 1) {
+                        recover(workEvent);
+                        claimed++;
+                    }
+                }
+                if (claimed > 0) {
+                    log.info("接管节点{}的作业事件: {}个", appName, claimed);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("接管作业事件异常: {}", e.getMessage());
+        }
+    }
+
+    private void recover(WorkEventEntity workEvent) {
+
+        try {
+            WorkRunContext workRunContext = JSON.parseObject(workEvent.getEventContext(), WorkRunContext.class);
+            TriggerKey triggerKey = TriggerKey.triggerKey(QuartzPrefix.WORK_RUN_PROCESS + workEvent.getId());
+
+            if (isQuartzMode()) {
+                if (!scheduler.checkExists(triggerKey)) {
+                    scheduleQuartzJob(workEvent.getId(), workRunContext);
+                }
+            } else {
+                // 切换调度模式后，防止两种调度同时运行
+                scheduler.unscheduleJob(triggerKey);
+                workRunScheduler.submit(workEvent.getId(), workRunContext.getWorkType(), workRunContext.getEventType(),
+                    workRunContext.getUserId(), workRunContext.getTenantId());
+            }
+        } catch (Exception e) {
+            log.error("恢复作业事件异常，EventId: {}", workEvent.getId(), e);
+        }
+    }
+
+    private boolean isQuartzMode() {
+
+        return QUARTZ_MODE.equals(isxAppProperties.getWorkRunMode());
+    }
+
+    private void scheduleQuartzJob(String workEventId, WorkRunContext workRunContext) {
+
         try {
             // 封装调度器的运行参数
             JobDataMap jobDataMap = new JobDataMap();
@@ -40,14 +193,14 @@ public class WorkRunJobFactory {
             jobDataMap.put(QuartzPrefix.TENANT_ID, workRunContext.getTenantId());
             jobDataMap.put(QuartzPrefix.WORK_TYPE, workRunContext.getWorkType());
             jobDataMap.put(QuartzPrefix.WORK_EVENT_TYPE, workRunContext.getEventType());
-            jobDataMap.put(QuartzPrefix.WORK_EVENT_ID, workEvent.getId());
+            jobDataMap.put(QuartzPrefix.WORK_EVENT_ID, workEventId);
 
             // 初始化调度器，每1秒执行一次
             JobDetail jobDetail = JobBuilder.newJob(WorkRunJob.class).setJobData(jobDataMap).build();
             Trigger trigger = TriggerBuilder.newTrigger()
                 .withSchedule(
                     CronScheduleBuilder.cronSchedule("*/1 * * * * ? ").withMisfireHandlingInstructionDoNothing())
-                .withIdentity(QuartzPrefix.WORK_RUN_PROCESS + workEvent.getId()).build();
+                .withIdentity(QuartzPrefix.WORK_RUN_PROCESS + workEventId).build();
 
             // 创建并触发调度器
             scheduler.scheduleJob(jobDetail, trigger);
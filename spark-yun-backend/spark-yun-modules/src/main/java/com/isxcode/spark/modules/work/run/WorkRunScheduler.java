@@ -0,0 +1,244 @@
+package com.isxcode.spark.modules.work.run;
+
+import com.isxcode.spark.api.instance.constants.InstanceStatus;
+import com.isxcode.spark.api.work.constants.LockerPrefix;
+import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
+import com.isxcode.spark.common.locker.LeaseLocker;
+import com.isxcode.spark.modules.work.repository.WorkEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.isxcode.spark.common.config.CommonConfig.TENANT_ID;
+import static com.isxcode.spark.common.config.CommonConfig.USER_ID;
+
+/**
+ * 内存作业调度器.
+ *
+ * <p>
+ * 作业事件放入延迟队列，本地可以完成的步骤连续执行，只有远程轮询的步骤才按退避时间重新入队.
+ * </p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WorkRunScheduler {
+
+    /**
+     * 单次连续执行的最大步骤数，防止一个作业长期占用线程.
+     */
+    private static final int MAX_CONTINUOUS_STEPS = 50;
+
+    private final WorkExecutorFactory workExecutorFactory;
+
+    private final WorkEventRepository workEventRepository;
+
+    private final LeaseLocker locker;
+
+    private final IsxAppProperties isxAppProperties;
+
+    private final WorkRunWriteBuffer workRunWriteBuffer;
+
+    private final DelayQueue<WorkRunTask> delayQueue = new DelayQueue<>();
+
+    private final Map<String, WorkRunTask> workRunTasks = new ConcurrentHashMap<>();
+
+    private final Set<String> pausedEvents = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService workRunThreadPool;
+
+    private Thread dispatchThread;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        workRunThreadPool = Executors.newFixedThreadPool(isxAppProperties.getWorkRunThreads(),
+            r -> new Thread(r, "workRunThreadPool-" + threadIndex.incrementAndGet()));
+
+        running = true;
+        dispatchThread = new Thread(this::dispatch, "workRunDispatcher");
+        dispatchThread.setDaemon(true);
+        dispatchThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+
+        // 事件已经持久化，重启后会重新恢复
+        running = false;
+        dispatchThread.interrupt();
+        workRunThreadPool.shutdown();
+    }
+
+    /**
+     * 提交作业事件，立即执行.
+     */
+    public void submit(String workEventId, String workType, String eventType, String userId, String tenantId) {
+
+        WorkRunTask workRunTask = new WorkRunTask(workEventId, workType, eventType, userId, tenantId);
+        if (workRunTasks.putIfAbsent(workEventId, workRunTask) == null) {
+            delayQueue.put(workRunTask);
+        }
+    }
+
+    /**
+     * 暂停作业事件.
+     */
+    public void pause(String workEventId) {
+
+        pausedEvents.add(workEventId);
+    }
+
+    /**
+     * 恢复作业事件.
+     */
+    public void resume(String workEventId) {
+
+        pausedEvents.remove(workEventId);
+    }
+
+    /**
+     * 取消作业事件.
+     */
+    public void cancel(String workEventId) {
+
+        WorkRunTask workRunTask = workRunTasks.remove(workEventId);
+        if (workRunTask != null) {
+            delayQueue.remove(workRunTask);
+        }
+        pausedEvents.remove(workEventId);
+    }
+
+    public boolean contains(String workEventId) {
+
+        return workRunTasks.containsKey(workEventId);
+    }
+
+    private void dispatch() {
+
+        while (running) {
+            try {
+                WorkRunTask workRunTask = delayQueue.take();
+                workRunThreadPool.execute(() -> execute(workRunTask));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RejectedExecutionException e) {
+                log.warn("作业调度线程池已关闭");
+                return;
+            }
+        }
+    }
+
+    private void execute(WorkRunTask workRunTask) {
+
+        String workEventId = workRunTask.getWorkEventId();
+
+        // 已经取消的事件不再执行
+        if (workRunTasks.get(workEventId) != workRunTask) {
+            return;
+        }
+
+        // 暂停中的事件，等待下一次调度
+        if (pausedEvents.contains(workEventId)) {
+            requeue(workRunTask, isxAppProperties.getWorkRunBackoff());
+            return;
+        }
+
+        // 刷新异步环境变量
+        USER_ID.set(workRunTask.getUserId());
+        TENANT_ID.set(workRunTask.getTenantId());
+
+        // 加锁，中止作业时会等待当前步骤执行完
+        String lockerName = LockerPrefix.WORK_EVENT_THREAD + workEventId;
+        locker.lock(lockerName);
+
+        String runStatus;
+        boolean advanced = false;
+        try {
+            // 等待锁期间被中止或者暂停
+            if (workRunTasks.get(workEventId) != workRunTask) {
+                return;
+            }
+            if (pausedEvents.contains(workEventId)) {
+                requeue(workRunTask, isxAppProperties.getWorkRunBackoff());
+                return;
+            }
+
+            // 通过作业类型，获取作业执行器
+            WorkExecutor workExecutor = workExecutorFactory.create(workRunTask.getWorkType());
+
+            // 本地完成的步骤连续执行，直到需要等待远程状态
+            int steps = 0;
+            do {
+                runStatus = workExecutor.runWork(workEventId, workRunTask.getEventType());
+                if (!InstanceStatus.RUNNING.equals(runStatus)) {
+                    break;
+                }
+
+                // 首次执行或者事件进程发生变化，说明步骤已推进，每个步骤只读取一次事件进程
+                Integer eventProcess = workRunWriteBuffer.getEventProcess(workEventId);
+                if (eventProcess == null) {
+                    runStatus = InstanceStatus.FINISHED;
+                    break;
+                }
+                advanced =
+                    workRunTask.getRunTimes() == 0 || !Objects.equals(workRunTask.getEventProcess(), eventProcess);
+                workRunTask.setEventProcess(eventProcess);
+                workRunTask.setRunTimes(workRunTask.getRunTimes() + 1);
+            } while (advanced && ++steps < MAX_CONTINUOUS_STEPS && !pausedEvents.contains(workEventId)
+                && workRunTasks.get(workEventId) == workRunTask);
+        } catch (Exception e) {
+
+            // 捕获的作业运行可能漏掉的异常，直接完成，防止死循环
+            log.error(e.getMessage(), e);
+            runStatus = InstanceStatus.FINISHED;
+        } finally {
+            // 最终都要解锁
+            locker.unlock(lockerName);
+        }
+
+        // 作业事件运行结束，删除事件
+        if (InstanceStatus.FINISHED.equals(runStatus)) {
+            workRunTasks.remove(workEventId, workRunTask);
+            pausedEvents.remove(workEventId);
+            workRunWriteBuffer.remove(workEventId);
+            try {
+                workEventRepository.deleteById(workEventId);
+            } catch (Exception ignore) {
+                log.warn("清理作业事件时发生异常，EventId: {}", workEventId);
+            }
+            return;
+        }
+
+        // 步骤推进了立即执行，否则按退避时间等待远程状态
+        if (advanced) {
+            workRunTask.setPollTimes(0);
+            requeue(workRunTask, 0L);
+        } else {
+            workRunTask.setPollTimes(workRunTask.getPollTimes() + 1);
+            long backoff = isxAppProperties.getWorkRunBackoff() << Math.min(workRunTask.getPollTimes() - 1, 10);
+            requeue(workRunTask, Math.min(backoff, isxAppProperties.getWorkRunMaxBackoff()));
+        }
+    }
+
+    private void requeue(WorkRunTask workRunTask, long delay) {
+
+        if (!running || workRunTasks.get(workRunTask.getWorkEventId()) != workRunTask) {
+            return;
+        }
+        workRunTask.setTriggerTime(System.currentTimeMillis() + delay);
+        delayQueue.put(workRunTask);
+    }
+}
@@ -0,0 +1,67 @@
+package com.isxcode.spark.modules.work.run;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内存调度中的作业运行任务.
+ */
+@Getter
+@Setter
+public class WorkRunTask implements Delayed {
+
+    private final String workEventId;
+
+    private final String workType;
+
+    private final String eventType;
+
+    private final String userId;
+
+    private final String tenantId;
+
+    /**
+     * 下一次执行的时间戳.
+     */
+    private volatile long triggerTime;
+
+    /**
+     * 上一个步骤执行后的事件进程.
+     */
+    private Integer eventProcess;
+
+    /**
+     * 已执行的次数.
+     */
+    private int runTimes;
+
+    /**
+     * 连续轮询但是没有推进的次数.
+     */
+    private int pollTimes;
+
+    public WorkRunTask(String workEventId, String workType, String eventType, String userId, String tenantId) {
+
+        this.workEventId = workEventId;
+        this.workType = workType;
+        this.eventType = eventType;
+        this.userId = userId;
+        this.tenantId = tenantId;
+        this.triggerTime = System.currentTimeMillis();
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+
+        return unit.convert(triggerTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed o) {
+
+        return Long.compare(getDelay(TimeUnit.MILLISECONDS), o.getDelay(TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,331 @@
+package com.isxcode.spark.modules.work.run;
+
+import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
+import com.isxcode.spark.modules.work.entity.WorkEventEntity;
+import com.isxcode.spark.modules.work.entity.WorkInstanceEntity;
+import com.isxcode.spark.modules.work.repository.WorkEventRepository;
+import com.isxcode.spark.modules.work.service.WorkLogService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 作业运行状态延迟写库.
+ *
+ * <p>
+ * 中间步骤的事件进度、实例字段和提交日志先合并在内存中，按周期批量写库. 读取事件和实例时叠加未写库的数据，
+ * 提交作业后和作业结束时同步写库. 只在内存调度模式下生效，quartz模式下其他节点可能读取到旧数据.
+ * </p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WorkRunWriteBuffer {
+
+    private static final int BATCH_SIZE = 200;
+
+    private static final String UPDATE_EVENT_SQL = "update SY_WORK_EVENT set event_process = ?, event_context = ?, "
+        + "last_modified_date_time = ? where id = ?";
+
+    private static final String UPDATE_INSTANCE_SQL = "update SY_WORK_INSTANCE set spark_star_res = ?, yarn_log = ?, "
+        + "result_data = ?, last_modified_date_time = ? where id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final WorkEventRepository workEventRepository;
+
+    private final WorkLogService workLogService;
+
+    private final IsxAppProperties isxAppProperties;
+
+    private final Map<String, PendingEvent> pendingEvents = new ConcurrentHashMap<>();
+
+    private final Map<String, PendingInstance> pendingInstances = new ConcurrentHashMap<>();
+
+    private final Map<String, PendingLog> pendingLogs = new ConcurrentHashMap<>();
+
+    /**
+     * 已经同步写库的提交标识，key为事件id.
+     */
+    private final Map<String, String> submitIds = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService flushScheduler;
+
+    @PostConstruct
+    public void start() {
+
+        if (!isEnabled()) {
+            return;
+        }
+
+        flushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "workRunWriteBuffer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = isxAppProperties.getWorkWriteBehindInterval();
+        flushScheduler.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+
+        if (flushScheduler != null) {
+            flushScheduler.shutdownNow();
+            flushQuietly();
+        }
+    }
+
+    public boolean isEnabled() {
+
+        return isxAppProperties.isWorkWriteBehindEnabled()
+            && !WorkRunJobFactory.QUARTZ_MODE.equals(isxAppProperties.getWorkRunMode());
+    }
+
+    /**
+     * 缓存中间步骤，返回false时由调用方同步写库.
+     */
+    public boolean offer(WorkInstanceEntity workInstance, StringBuilder logBuilder, WorkEventEntity workEvent,
+        WorkRunContext workRunContext) {
+
+        if (!offer(workEvent, workRunContext)) {
+            return false;
+        }
+        return offer(workInstance, logBuilder);
+    }
+
+    /**
+     * 缓存作业事件，提交作业后返回false.
+     */
+    public boolean offer(WorkEventEntity workEvent, WorkRunContext workRunContext) {
+
+        if (!isEnabled() || isSubmitChanged(workEvent.getId(), workRunContext)) {
+            return false;
+        }
+
+        pendingEvents.put(workEvent.getId(),
+            new PendingEvent(workEvent.getEventProcess(), workEvent.getEventContext()));
+        return true;
+    }
+
+    /**
+     * 缓存作业实例和新增的日志.
+     */
+    public boolean offer(WorkInstanceEntity workInstance, StringBuilder logBuilder) {
+
+        if (!isEnabled()) {
+            return false;
+        }
+
+        pendingInstances.put(workInstance.getId(), new PendingInstance(workInstance));
+        if (logBuilder.length() > 0) {
+            String log = logBuilder.toString();
+            pendingLogs.compute(workInstance.getId(), (k, v) -> {
+                PendingLog pendingLog = v == null ? new PendingLog(workInstance.getSubmitLog()) : v;
+                pendingLog.log.append(log);
+                return pendingLog;
+            });
+            logBuilder.setLength(0);
+        }
+        return true;
+    }
+
+    /**
+     * 叠加未写库的事件进度.
+     */
+    public WorkEventEntity apply(WorkEventEntity workEvent) {
+
+        PendingEvent pendingEvent = pendingEvents.get(workEvent.getId());
+        if (pendingEvent != null) {
+            workEvent.setEventProcess(pendingEvent.eventProcess);
+            workEvent.setEventContext(pendingEvent.eventContext);
+        }
+        return workEvent;
+    }
+
+    /**
+     * 叠加未写库的实例字段.
+     */
+    public WorkInstanceEntity apply(WorkInstanceEntity workInstance) {
+
+        PendingInstance pendingInstance = pendingInstances.get(workInstance.getId());
+        if (pendingInstance != null) {
+            workInstance.setSparkStarRes(pendingInstance.sparkStarRes);
+            workInstance.setYarnLog(pendingInstance.yarnLog);
+            workInstance.setResultData(pendingInstance.resultData);
+        }
+        return workInstance;
+    }
+
+    /**
+     * 获取事件进度，事件不存在返回null.
+     */
+    public Integer getEventProcess(String workEventId) {
+
+        PendingEvent pendingEvent = pendingEvents.get(workEventId);
+        return pendingEvent != null ? pendingEvent.eventProcess : workEventRepository.getEventProcess(workEventId);
+    }
+
+    /**
+     * 作业事件结束，丢弃缓存.
+     */
+    public void remove(String workEventId) {
+
+        pendingEvents.remove(workEventId);
+        submitIds.remove(workEventId);
+    }
+
+    /**
+     * 同步写入指定事件和实例的缓存.
+     */
+    public synchronized void flush(String workEventId, String workInstanceId) {
+
+        flush(Collections.singleton(workEventId), Collections.singleton(workInstanceId),
+            Collections.singleton(workInstanceId));
+    }
+
+    /**
+     * 写入所有缓存.
+     */
+    public synchronized void flush() {
+
+        flush(new ArrayList<>(pendingEvents.keySet()), new ArrayList<>(pendingInstances.keySet()),
+            new ArrayList<>(pendingLogs.keySet()));
+    }
+
+    private void flushQuietly() {
+
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("作业运行状态写库异常: {}", e.getMessage(), e);
+        }
+    }
+
+    private void flush(Collection<String> workEventIds, Collection<String> workInstanceIds,
+        Collection<String> logInstanceIds) {
+
+        // 日志先写，保证结束作业时合并的日志完整
+        for (String workInstanceId : logInstanceIds) {
+            PendingLog pendingLog = pendingLogs.remove(workInstanceId);
+            if (pendingLog == null) {
+                continue;
+            }
+            try {
+                workLogService.appendSubmitLog(
+                    WorkInstanceEntity.builder().id(workInstanceId).submitLog(pendingLog.baseLog).build(),
+                    pendingLog.log.toString());
+            } catch (Exception e) {
+                // 放回缓存，下个周期重试
+                pendingLogs.merge(workInstanceId, pendingLog, (newer, older) -> {
+                    older.log.append(newer.log);
+                    return older;
+                });
+                throw e;
+            }
+        }
+
+        List<Map.Entry<String, PendingInstance>> instances = getEntries(pendingInstances, workInstanceIds);
+        if (!instances.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_INSTANCE_SQL, instances, BATCH_SIZE, (ps, e) -> {
+                ps.setString(1, e.getValue().sparkStarRes);
+                ps.setString(2, e.getValue().yarnLog);
+                ps.setString(3, e.getValue().resultData);
+                ps.setTimestamp(4, Timestamp.valueOf(e.getValue().updateTime));
+                ps.setString(5, e.getKey());
+            });
+            instances.forEach(e -> pendingInstances.remove(e.getKey(), e.getValue()));
+        }
+
+        List<Map.Entry<String, PendingEvent>> events = getEntries(pendingEvents, workEventIds);
+        if (!events.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_EVENT_SQL, events, BATCH_SIZE, (ps, e) -> {
+                ps.setInt(1, e.getValue().eventProcess);
+                ps.setString(2, e.getValue().eventContext);
+                ps.setTimestamp(3, Timestamp.valueOf(e.getValue().updateTime));
+                ps.setString(4, e.getKey());
+            });
+            events.forEach(e -> pendingEvents.remove(e.getKey(), e.getValue()));
+        }
+    }
+
+    private <T> List<Map.Entry<String, T>> getEntries(Map<String, T> pending, Collection<String> ids) {
+
+        List<Map.Entry<String, T>> entries = new ArrayList<>();
+        for (String id : ids) {
+            T value = pending.get(id);
+            if (value != null) {
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(id, value));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * 提交作业后，appId或者pid发生变化，需要同步写库防止重复提交.
+     */
+    private boolean isSubmitChanged(String workEventId, WorkRunContext workRunContext) {
+
+        if (workRunContext.getAppId() == null && workRunContext.getPid() == null) {
+            return false;
+        }
+        String submitId = workRunContext.getAppId() + "#" + workRunContext.getPid();
+        return !submitId.equals(submitIds.put(workEventId, submitId));
+    }
+
+    private static class PendingEvent {
+
+        private final Integer eventProcess;
+
+        private final String eventContext;
+
+        private final LocalDateTime updateTime = LocalDateTime.now();
+
+        private PendingEvent(Integer eventProcess, String eventContext) {
+
+            this.eventProcess = eventProcess;
+            this.eventContext = eventContext;
+        }
+    }
+
+    private static class PendingInstance {
+
+        private final String sparkStarRes;
+
+        private final String yarnLog;
+
+        private final String resultData;
+
+        private final LocalDateTime updateTime = LocalDateTime.now();
+
+        private PendingInstance(WorkInstanceEntity workInstance) {
+
+            this.sparkStarRes = workInstance.getSparkStarRes();
+            this.yarnLog = workInstance.getYarnLog();
+            this.resultData = workInstance.getResultData();
+        }
+    }
+
+    private static class PendingLog {
+
+        private final String baseLog;
+
+        private final StringBuilder log = new StringBuilder();
+
+        private PendingLog(String baseLog) {
+
+            this.baseLog = baseLog;
+        }
+    }
+}
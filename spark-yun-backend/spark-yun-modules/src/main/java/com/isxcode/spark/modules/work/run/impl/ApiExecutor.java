@@ -9,6 +9,7 @@ import com.isxcode.spark.api.work.dto.ApiWorkValueDto;
 import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
 import com.isxcode.spark.common.utils.http.HttpUtils;
 import com.isxcode.spark.modules.alarm.service.AlarmService;
+import com.isxcode.spark.modules.monitor.service.InstanceCounterService;
 import com.isxcode.spark.modules.work.entity.WorkInstanceEntity;
 import com.isxcode.spark.modules.work.entity.WorkEventEntity;
 import com.isxcode.spark.modules.work.repository.WorkInstanceRepository;
@@ -16,10 +17,13 @@ import com.isxcode.spark.modules.work.repository.WorkEventRepository;
 import com.isxcode.spark.modules.work.run.WorkExecutor;
 import com.isxcode.spark.modules.work.run.WorkRunContext;
 import com.isxcode.spark.modules.work.run.WorkRunJobFactory;
+import com.isxcode.spark.modules.work.run.WorkRunWriteBuffer;
 import com.isxcode.spark.modules.work.repository.VipWorkVersionRepository;
 import com.isxcode.spark.modules.work.repository.WorkConfigRepository;
 import com.isxcode.spark.modules.work.repository.WorkRepository;
-import com.isxcode.spark.common.locker.Locker;
+import com.isxcode.spark.common.locker.LeaseLocker;
+import com.isxcode.spark.modules.work.service.WorkLogService;
+import com.isxcode.spark.modules.work.service.WorkResultService;
 import com.isxcode.spark.modules.work.service.WorkService;
 import com.isxcode.spark.modules.work.sql.SqlFunctionService;
 import com.isxcode.spark.modules.workflow.repository.WorkflowInstanceRepository;
@@ -40,12 +44,14 @@ public class ApiExecutor extends WorkExecutor {
         WorkflowInstanceRepository workflowInstanceRepository, AlarmService alarmService,
         SqlFunctionService sqlFunctionService, WorkEventRepository workEventRepository,
         WorkRunJobFactory workRunJobFactory, VipWorkVersionRepository vipWorkVersionRepository,
-        WorkConfigRepository workConfigRepository, WorkRepository workRepository, Locker locker,
-        WorkService workService, IsxAppProperties isxAppProperties) {
+        WorkConfigRepository workConfigRepository, WorkRepository workRepository, LeaseLocker locker,
+        WorkService workService, IsxAppProperties isxAppProperties, WorkLogService workLogService,
+        WorkRunWriteBuffer workRunWriteBuffer, WorkResultService workResultService,
+        InstanceCounterService instanceCounterService) {
 
         super(alarmService, locker, workRepository, workInstanceRepository, workflowInstanceRepository,
             workEventRepository, workRunJobFactory, sqlFunctionService, workConfigRepository, vipWorkVersionRepository,
-            workService);
+            workService, workLogService, workRunWriteBuffer, workResultService, instanceCounterService);
         this.isxAppProperties = isxAppProperties;
     }
 
@@ -59,7 +65,7 @@ public class ApiExecutor extends WorkExecutor {
         WorkEventEntity workEvent) {
 
         // 获取日志
-        StringBuilder logBuilder = new StringBuilder(workInstance.getSubmitLog());
+        StringBuilder logBuilder = new StringBuilder();
 
         // 打印首行日志，防止前端卡顿
         if (workEvent.getEventProcess() == 0) {
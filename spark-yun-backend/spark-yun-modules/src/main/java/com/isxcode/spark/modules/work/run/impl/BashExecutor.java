@@ -6,13 +6,14 @@ import com.isxcode.spark.api.cluster.dto.ScpFileEngineNodeDto;
 import com.isxcode.spark.api.instance.constants.InstanceStatus;
 import com.isxcode.spark.api.work.constants.WorkType;
 import com.isxcode.spark.backend.api.base.exceptions.IsxAppException;
-import com.isxcode.spark.common.locker.Locker;
+import com.isxcode.spark.common.locker.LeaseLocker;
 import com.isxcode.spark.common.utils.aes.AesUtils;
 import com.isxcode.spark.modules.alarm.service.AlarmService;
 import com.isxcode.spark.modules.cluster.entity.ClusterNodeEntity;
 import com.isxcode.spark.modules.cluster.mapper.ClusterNodeMapper;
 import com.isxcode.spark.modules.cluster.repository.ClusterNodeRepository;
 import com.isxcode.spark.modules.cluster.repository.ClusterRepository;
+import com.isxcode.spark.modules.monitor.service.InstanceCounterService;
 import com.isxcode.spark.modules.secret.entity.SecretKeyEntity;
 import com.isxcode.spark.modules.secret.repository.SecretKeyRepository;
 import com.isxcode.spark.modules.work.entity.WorkEventEntity;
@@ -21,6 +22,9 @@ import com.isxcode.spark.modules.work.repository.*;
 import com.isxcode.spark.modules.work.run.WorkExecutor;
 import com.isxcode.spark.modules.work.run.WorkRunContext;
 import com.isxcode.spark.modules.work.run.WorkRunJobFactory;
+import com.isxcode.spark.modules.work.run.WorkRunWriteBuffer;
+import com.isxcode.spark.modules.work.service.WorkLogService;
+import com.isxcode.spark.modules.work.service.WorkResultService;
 import com.isxcode.spark.modules.work.service.WorkService;
 import com.isxcode.spark.modules.work.sql.SqlFunctionService;
 import com.isxcode.spark.modules.work.sql.SqlValueService;
@@ -58,14 +62,16 @@ public class BashExecutor extends WorkExecutor {
     public BashExecutor(WorkInstanceRepository workInstanceRepository,
         WorkflowInstanceRepository workflowInstanceRepository, SqlValueService sqlValueService,
         SqlFunctionService sqlFunctionService, AlarmService alarmService, WorkEventRepository workEventRepository,
-        Locker locker, WorkRepository workRepository, WorkRunJobFactory workRunJobFactory,
+        LeaseLocker locker, WorkRepository workRepository, WorkRunJobFactory workRunJobFactory,
         WorkConfigRepository workConfigRepository, VipWorkVersionRepository vipWorkVersionRepository,
         ClusterNodeMapper clusterNodeMapper, AesUtils aesUtils, ClusterNodeRepository clusterNodeRepository,
-        ClusterRepository clusterRepository, WorkService workService, SecretKeyRepository secretKeyRepository) {
+        ClusterRepository clusterRepository, WorkService workService, SecretKeyRepository secretKeyRepository,
+        WorkLogService workLogService, WorkRunWriteBuffer workRunWriteBuffer, WorkResultService workResultService,
+        InstanceCounterService instanceCounterService) {
 
         super(alarmService, locker, workRepository, workInstanceRepository, workflowInstanceRepository,
             workEventRepository, workRunJobFactory, sqlFunctionService, workConfigRepository, vipWorkVersionRepository,
-            workService);
+            workService, workLogService, workRunWriteBuffer, workResultService, instanceCounterService);
         this.sqlValueService = sqlValueService;
         this.sqlFunctionService = sqlFunctionService;
         this.clusterNodeMapper = clusterNodeMapper;
@@ -85,7 +91,7 @@ public class BashExecutor extends WorkExecutor {
         WorkEventEntity workEvent) {
 
         // 获取日志
-        StringBuilder logBuilder = new StringBuilder(workInstance.getSubmitLog());
+        StringBuilder logBuilder = new StringBuilder();
 
         // 打印首行日志，防止前端卡顿
         if (workEvent.getEventProcess() == 0) {
@@ -5,10 +5,11 @@ import cn.hutool.core.util.RuntimeUtil;
 import com.isxcode.spark.api.instance.constants.InstanceStatus;
 import com.isxcode.spark.api.work.constants.WorkType;
 import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
-import com.isxcode.spark.common.locker.Locker;
+import com.isxcode.spark.common.locker.LeaseLocker;
 import com.isxcode.spark.common.utils.aes.AesUtils;
 import com.isxcode.spark.common.utils.path.PathUtils;
 import com.isxcode.spark.modules.alarm.service.AlarmService;
+import com.isxcode.spark.modules.monitor.service.InstanceCounterService;
 import com.isxcode.spark.modules.secret.entity.SecretKeyEntity;
 import com.isxcode.spark.modules.secret.repository.SecretKeyRepository;
 import com.isxcode.spark.modules.work.entity.WorkEventEntity;
@@ -17,6 +18,9 @@ import com.isxcode.spark.modules.work.repository.*;
 import com.isxcode.spark.modules.work.run.WorkExecutor;
 import com.isxcode.spark.modules.work.run.WorkRunContext;
 import com.isxcode.spark.modules.work.run.WorkRunJobFactory;
+import com.isxcode.spark.modules.work.run.WorkRunWriteBuffer;
+import com.isxcode.spark.modules.work.service.WorkLogService;
+import com.isxcode.spark.modules.work.service.WorkResultService;
 import com.isxcode.spark.modules.work.service.WorkService;
 import com.isxcode.spark.modules.work.sql.SqlFunctionService;
 import com.isxcode.spark.modules.workflow.repository.WorkflowInstanceRepository;
@@ -38,14 +42,16 @@ public class CurlExecutor extends WorkExecutor {
 
     public CurlExecutor(WorkInstanceRepository workInstanceRepository,
         WorkflowInstanceRepository workflowInstanceRepository, SqlFunctionService sqlFunctionService,
-        AlarmService alarmService, WorkEventRepository workEventRepository, Locker locker,
+        AlarmService alarmService, WorkEventRepository workEventRepository, LeaseLocker locker,
         WorkRepository workRepository, WorkRunJobFactory workRunJobFactory, WorkConfigRepository workConfigRepository,
         VipWorkVersionRepository vipWorkVersionRepository, IsxAppProperties isxAppProperties, WorkService workService,
-        SecretKeyRepository secretKeyRepository, AesUtils aesUtils) {
+        SecretKeyRepository secretKeyRepository, AesUtils aesUtils, WorkLogService workLogService,
+        WorkRunWriteBuffer workRunWriteBuffer, WorkResultService workResultService,
+        InstanceCounterService instanceCounterService) {
 
         super(alarmService, locker, workRepository, workInstanceRepository, workflowInstanceRepository,
             workEventRepository, workRunJobFactory, sqlFunctionService, workConfigRepository, vipWorkVersionRepository,
-            workService);
+            workService, workLogService, workRunWriteBuffer, workResultService, instanceCounterService);
         this.isxAppProperties = isxAppProperties;
         this.secretKeyRepository = secretKeyRepository;
         this.aesUtils = aesUtils;
@@ -61,7 +67,7 @@ public class CurlExecutor extends WorkExecutor {
         WorkEventEntity workEvent) {
 
         // 获取日志
-        StringBuilder logBuilder = new StringBuilder(workInstance.getSubmitLog());
+        StringBuilder logBuilder = new StringBuilder();
 
         // 打印首行日志，防止前端卡顿
         if (workEvent.getEventProcess() == 0) {
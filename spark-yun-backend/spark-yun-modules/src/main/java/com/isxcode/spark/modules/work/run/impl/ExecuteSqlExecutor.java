@@ -12,10 +12,13 @@ import com.isxcode.spark.modules.datasource.repository.DatasourceRepository;
 import com.isxcode.spark.modules.datasource.service.DatasourceService;
 import com.isxcode.spark.modules.datasource.source.DataSourceFactory;
 import com.isxcode.spark.modules.datasource.source.Datasource;
+import com.isxcode.spark.modules.monitor.service.InstanceCounterService;
 import com.isxcode.spark.modules.work.entity.WorkInstanceEntity;
 import com.isxcode.spark.modules.work.repository.WorkInstanceRepository;
 import com.isxcode.spark.modules.work.run.WorkExecutor;
 import com.isxcode.spark.modules.work.run.WorkRunContext;
+import com.isxcode.spark.modules.work.service.WorkLogService;
+import com.isxcode.spark.modules.work.service.WorkResultService;
 import com.isxcode.spark.modules.work.service.WorkService;
 import com.isxcode.spark.modules.work.sql.SqlCommentService;
 import com.isxcode.spark.modules.work.sql.SqlFunctionService;
@@ -32,7 +35,8 @@ import com.isxcode.spark.modules.work.repository.WorkRepository;
 import com.isxcode.spark.modules.work.repository.WorkConfigRepository;
 import com.isxcode.spark.modules.work.repository.VipWorkVersionRepository;
 import com.isxcode.spark.modules.work.run.WorkRunJobFactory;
-import com.isxcode.spark.common.locker.Locker;
+import com.isxcode.spark.modules.work.run.WorkRunWriteBuffer;
+import com.isxcode.spark.common.locker.LeaseLocker;
 
 
 import java.sql.Connection;
@@ -67,14 +71,16 @@ public class ExecuteSqlExecutor extends WorkExecutor {
         WorkflowInstanceRepository workflowInstanceRepository, DatasourceRepository datasourceRepository,
         SqlCommentService sqlCommentService, SqlValueService sqlValueService, SqlFunctionService sqlFunctionService,
         AlarmService alarmService, DataSourceFactory dataSourceFactory, DatasourceMapper datasourceMapper,
-        WorkEventRepository workEventRepository, Locker locker, WorkRepository workRepository,
+        WorkEventRepository workEventRepository, LeaseLocker locker, WorkRepository workRepository,
         WorkRunJobFactory workRunJobFactory, WorkConfigRepository workConfigRepository,
         VipWorkVersionRepository vipWorkVersionRepository, WorkService workService, DatasourceService datasourceService,
-        IsxAppProperties isxAppProperties, ServerProperties serverProperties) {
+        IsxAppProperties isxAppProperties, ServerProperties serverProperties, WorkLogService workLogService,
+        WorkRunWriteBuffer workRunWriteBuffer, WorkResultService workResultService,
+        InstanceCounterService instanceCounterService) {
 
         super(alarmService, locker, workRepository, workInstanceRepository, workflowInstanceRepository,
             workEventRepository, workRunJobFactory, sqlFunctionService, workConfigRepository, vipWorkVersionRepository,
-            workService);
+            workService, workLogService, workRunWriteBuffer, workResultService, instanceCounterService);
         this.datasourceRepository = datasourceRepository;
         this.sqlCommentService = sqlCommentService;
         this.sqlValueService = sqlValueService;
@@ -96,7 +102,7 @@ public class ExecuteSqlExecutor extends WorkExecutor {
         throws Exception {
 
         // 获取日志
-        StringBuilder logBuilder = new StringBuilder(workInstance.getSubmitLog());
+        StringBuilder logBuilder = new StringBuilder();
 
         // 打印首行日志，防止前端卡顿
         if (workEvent.getEventProcess() == 0) {
@@ -194,6 +200,8 @@ public class ExecuteSqlExecutor extends WorkExecutor {
                     workInstance = updateInstance(workInstance, logBuilder);
                 }
 
+                // 修改过会话的连接不再复用
+                datasource.evictIfSessionChanged(connectInfo, connection, sqls);
             } catch (WorkRunException | IsxAppException e) {
                 throw errorLogException(log + "\n" + e.getMsg());
             }
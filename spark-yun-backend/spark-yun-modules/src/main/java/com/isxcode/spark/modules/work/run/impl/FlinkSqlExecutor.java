@@ -11,7 +11,7 @@ import com.isxcode.spark.api.instance.constants.InstanceStatus;
 import com.isxcode.spark.api.work.constants.WorkType;
 import com.isxcode.spark.api.work.res.AgentLinkResponse;
 import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
-import com.isxcode.spark.common.locker.Locker;
+import com.isxcode.spark.common.locker.LeaseLocker;
 import com.isxcode.spark.common.utils.aes.AesUtils;
 import com.isxcode.spark.common.utils.path.PathUtils;
 import com.isxcode.spark.modules.alarm.service.AlarmService;
@@ -25,15 +25,20 @@ import com.isxcode.spark.modules.file.repository.FileRepository;
 import com.isxcode.spark.modules.func.entity.FuncEntity;
 import com.isxcode.spark.modules.func.mapper.FuncMapper;
 import com.isxcode.spark.modules.func.repository.FuncRepository;
+import com.isxcode.spark.modules.monitor.service.InstanceCounterService;
 import com.isxcode.spark.modules.secret.entity.SecretKeyEntity;
 import com.isxcode.spark.modules.secret.repository.SecretKeyRepository;
 import com.isxcode.spark.modules.work.entity.WorkEventEntity;
 import com.isxcode.spark.modules.work.entity.WorkInstanceEntity;
 import com.isxcode.spark.modules.work.repository.*;
 import com.isxcode.spark.modules.work.run.AgentLinkUtils;
+import com.isxcode.spark.modules.work.run.AgentStatusBatcher;
 import com.isxcode.spark.modules.work.run.WorkExecutor;
 import com.isxcode.spark.modules.work.run.WorkRunContext;
 import com.isxcode.spark.modules.work.run.WorkRunJobFactory;
+import com.isxcode.spark.modules.work.run.WorkRunWriteBuffer;
+import com.isxcode.spark.modules.work.service.WorkLogService;
+import com.isxcode.spark.modules.work.service.WorkResultService;
 import com.isxcode.spark.modules.work.service.WorkService;
 import com.isxcode.spark.modules.work.sql.SqlCommentService;
 import com.isxcode.spark.modules.work.sql.SqlFunctionService;
@@ -81,19 +86,23 @@ public class FlinkSqlExecutor extends WorkExecutor {
 
     private final AgentLinkUtils agentLinkUtils;
 
+    private final AgentStatusBatcher agentStatusBatcher;
+
     public FlinkSqlExecutor(WorkInstanceRepository workInstanceRepository, ClusterRepository clusterRepository,
         ClusterNodeRepository clusterNodeRepository, WorkflowInstanceRepository workflowInstanceRepository,
-        WorkRepository workRepository, WorkConfigRepository workConfigRepository, Locker locker,
+        WorkRepository workRepository, WorkConfigRepository workConfigRepository, LeaseLocker locker,
         FuncRepository funcRepository, FuncMapper funcMapper, ClusterNodeMapper clusterNodeMapper, AesUtils aesUtils,
         IsxAppProperties isxAppProperties, FileRepository fileRepository, AlarmService alarmService,
         SqlFunctionService sqlFunctionService, SecretKeyRepository secretKeyRepository, SqlValueService sqlValueService,
         SqlCommentService sqlCommentService, WorkEventRepository workEventRepository,
         WorkRunJobFactory workRunJobFactory, VipWorkVersionRepository vipWorkVersionRepository, WorkService workService,
-        AgentLinkUtils agentLinkUtils) {
+        AgentLinkUtils agentLinkUtils, AgentStatusBatcher agentStatusBatcher, WorkLogService workLogService,
+        WorkRunWriteBuffer workRunWriteBuffer, WorkResultService workResultService,
+        InstanceCounterService instanceCounterService) {
 
         super(alarmService, locker, workRepository, workInstanceRepository, workflowInstanceRepository,
             workEventRepository, workRunJobFactory, sqlFunctionService, workConfigRepository, vipWorkVersionRepository,
-            workService);
+            workService, workLogService, workRunWriteBuffer, workResultService, instanceCounterService);
         this.clusterRepository = clusterRepository;
         this.clusterNodeRepository = clusterNodeRepository;
         this.funcRepository = funcRepository;
@@ -107,6 +116,7 @@ public class FlinkSqlExecutor extends WorkExecutor {
         this.sqlValueService = sqlValueService;
         this.sqlCommentService = sqlCommentService;
         this.agentLinkUtils = agentLinkUtils;
+        this.agentStatusBatcher = agentStatusBatcher;
     }
 
     @Override
@@ -119,7 +129,7 @@ public class FlinkSqlExecutor extends WorkExecutor {
         WorkEventEntity workEvent) {
 
         // 获取日志
-        StringBuilder logBuilder = new StringBuilder(workInstance.getSubmitLog());
+        StringBuilder logBuilder = new StringBuilder();
 
         // 打印首行日志，防止前端卡顿
         if (workEvent.getEventProcess() == 0) {
@@ -348,8 +358,7 @@ public class FlinkSqlExecutor extends WorkExecutor {
             GetWorkInfoReq jobInfoReq = GetWorkInfoReq.builder().agentHome(agentNode.getAgentHomePath())
                 .flinkHome(agentNode.getFlinkHomePath()).appId(appId).clusterType(clusterType).build();
 
-            AgentLinkResponse agentLinkResponse =
-                agentLinkUtils.getAgentLinkResponse(agentNode, FlinkAgentUrl.GET_WORK_INFO_URL, jobInfoReq);
+            AgentLinkResponse agentLinkResponse = agentStatusBatcher.getFlinkWorkInfo(agentNode, jobInfoReq);
 
             // 如果是yarn的话，FinalStatus是undefine的话，使用status状态
             if (AgentType.YARN.equals(clusterType) && "UNDEFINED".equalsIgnoreCase(agentLinkResponse.getFinalState())) {
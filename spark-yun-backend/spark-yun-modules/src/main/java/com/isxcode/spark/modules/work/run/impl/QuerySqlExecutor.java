@@ -1,13 +1,12 @@
 package com.isxcode.spark.modules.work.run.impl;
 
-import com.alibaba.fastjson.JSON;
 import com.isxcode.spark.api.datasource.dto.ConnectInfo;
 import com.isxcode.spark.api.instance.constants.InstanceStatus;
 import com.isxcode.spark.api.work.constants.WorkType;
 import com.isxcode.spark.backend.api.base.exceptions.IsxAppException;
 import com.isxcode.spark.backend.api.base.exceptions.WorkRunException;
 import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
-import com.isxcode.spark.common.locker.Locker;
+import com.isxcode.spark.common.locker.LeaseLocker;
 import com.isxcode.spark.modules.alarm.service.AlarmService;
 import com.isxcode.spark.modules.datasource.entity.DatasourceEntity;
 import com.isxcode.spark.modules.datasource.mapper.DatasourceMapper;
@@ -15,12 +14,16 @@ import com.isxcode.spark.modules.datasource.repository.DatasourceRepository;
 import com.isxcode.spark.modules.datasource.service.DatasourceService;
 import com.isxcode.spark.modules.datasource.source.DataSourceFactory;
 import com.isxcode.spark.modules.datasource.source.Datasource;
+import com.isxcode.spark.modules.monitor.service.InstanceCounterService;
 import com.isxcode.spark.modules.work.entity.WorkEventEntity;
 import com.isxcode.spark.modules.work.entity.WorkInstanceEntity;
 import com.isxcode.spark.modules.work.repository.*;
 import com.isxcode.spark.modules.work.run.WorkExecutor;
 import com.isxcode.spark.modules.work.run.WorkRunContext;
 import com.isxcode.spark.modules.work.run.WorkRunJobFactory;
+import com.isxcode.spark.modules.work.run.WorkRunWriteBuffer;
+import com.isxcode.spark.modules.work.service.WorkLogService;
+import com.isxcode.spark.modules.work.service.WorkResultService;
 import com.isxcode.spark.modules.work.service.WorkService;
 import com.isxcode.spark.modules.work.sql.SqlCommentService;
 import com.isxcode.spark.modules.work.sql.SqlFunctionService;
@@ -30,7 +33,6 @@ import com.isxcode.spark.modules.workflow.repository.WorkflowInstanceRepository;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.Statement;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -59,18 +61,21 @@ public class QuerySqlExecutor extends WorkExecutor {
 
     private final IsxAppProperties isxAppProperties;
 
+    private final WorkResultService workResultService;
+
     public QuerySqlExecutor(WorkInstanceRepository workInstanceRepository,
         WorkflowInstanceRepository workflowInstanceRepository, DatasourceRepository datasourceRepository,
         SqlCommentService sqlCommentService, SqlValueService sqlValueService, SqlFunctionService sqlFunctionService,
         AlarmService alarmService, DataSourceFactory dataSourceFactory, DatasourceMapper datasourceMapper,
-        WorkEventRepository workEventRepository, Locker locker, WorkRepository workRepository,
+        WorkEventRepository workEventRepository, LeaseLocker locker, WorkRepository workRepository,
         WorkRunJobFactory workRunJobFactory, WorkConfigRepository workConfigRepository,
         VipWorkVersionRepository vipWorkVersionRepository, WorkService workService, DatasourceService datasourceService,
-        IsxAppProperties isxAppProperties) {
+        IsxAppProperties isxAppProperties, WorkLogService workLogService, WorkRunWriteBuffer workRunWriteBuffer,
+        WorkResultService workResultService, InstanceCounterService instanceCounterService) {
 
         super(alarmService, locker, workRepository, workInstanceRepository, workflowInstanceRepository,
             workEventRepository, workRunJobFactory, sqlFunctionService, workConfigRepository, vipWorkVersionRepository,
-            workService);
+            workService, workLogService, workRunWriteBuffer, workResultService, instanceCounterService);
         this.datasourceRepository = datasourceRepository;
         this.sqlCommentService = sqlCommentService;
         this.sqlValueService = sqlValueService;
@@ -79,6 +84,7 @@ public class QuerySqlExecutor extends WorkExecutor {
         this.datasourceMapper = datasourceMapper;
         this.datasourceService = datasourceService;
         this.isxAppProperties = isxAppProperties;
+        this.workResultService = workResultService;
     }
 
     @Override
@@ -91,7 +97,7 @@ public class QuerySqlExecutor extends WorkExecutor {
         WorkEventEntity workEvent) {
 
         // 获取日志
-        StringBuilder logBuilder = new StringBuilder(workInstance.getSubmitLog());
+        StringBuilder logBuilder = new StringBuilder();
 
         // 打印首行日志，防止前端卡顿
         if (workEvent.getEventProcess() == 0) {
@@ -201,43 +207,28 @@ public class QuerySqlExecutor extends WorkExecutor {
                 logBuilder.append("> ").append(lastSql).append(" \n");
                 workInstance = updateInstance(workInstance, logBuilder);
 
-                // 开始执行
+                // 开始执行，按页从数据库拉取，mysql需要在jdbc url中配置useCursorFetch=true才生效，否则一次读取全部结果
+                statement.setFetchSize(isxAppProperties.getWorkResultPageSize());
                 ResultSet resultSet = statement.executeQuery(lastSql);
 
                 // 记录结束执行时间
                 logBuilder.append(endLog("执行完成"));
                 logBuilder.append(startLog("保存数据开始"));
 
-                // 记录返回结果
-                List<List<String>> result = new ArrayList<>();
-
-                // 封装表头
-                int columnCount = resultSet.getMetaData().getColumnCount();
-                List<String> metaList = new ArrayList<>();
-                for (int i = 1; i <= columnCount; i++) {
-                    metaList.add(resultSet.getMetaData().getColumnName(i));
-                }
-                result.add(metaList);
-
-                // 封装数据
-                while (resultSet.next()) {
-                    metaList = new ArrayList<>();
-                    for (int i = 1; i <= columnCount; i++) {
-                        try {
-                            metaList.add(resultSet.getString(i));
-                        } catch (Exception e) {
-                            metaList.add(String.valueOf(resultSet.getObject(i)));
-                        }
-                    }
-                    result.add(metaList);
+                // 边读边分页保存数据
+                WorkResultService.SaveResult saveResult =
+                    workResultService.saveResult(workInstance.getId(), resultSet);
+                if (saveResult.isTruncated()) {
+                    logBuilder.append(infoLog("查询结果超过保存上限，只保存前" + saveResult.getRowCount() + "条"));
                 }
-
-                // 保存数据
-                workInstance.setResultData(JSON.toJSONString(result));
+                workInstance.setResultData(null);
 
                 // 保存日志
                 logBuilder.append(endLog("保存数据完成"));
                 updateInstance(workInstance, logBuilder);
+
+                // 结果读取完后再判断，修改过会话的连接不再复用
+                datasource.evictIfSessionChanged(connectInfo, connection, sqls);
             } catch (WorkRunException | IsxAppException e) {
                 throw errorLogException(log + "\n" + e.getMsg());
             } catch (Exception e) {
@@ -11,7 +11,7 @@ import com.isxcode.spark.api.instance.constants.InstanceStatus;
 import com.isxcode.spark.api.work.constants.WorkType;
 import com.isxcode.spark.api.work.res.AgentLinkResponse;
 import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
-import com.isxcode.spark.common.locker.Locker;
+import com.isxcode.spark.common.locker.LeaseLocker;
 import com.isxcode.spark.common.utils.aes.AesUtils;
 import com.isxcode.spark.common.utils.path.PathUtils;
 import com.isxcode.spark.modules.alarm.service.AlarmService;
@@ -22,13 +22,18 @@ import com.isxcode.spark.modules.cluster.repository.ClusterNodeRepository;
 import com.isxcode.spark.modules.cluster.repository.ClusterRepository;
 import com.isxcode.spark.modules.file.entity.FileEntity;
 import com.isxcode.spark.modules.file.repository.FileRepository;
+import com.isxcode.spark.modules.monitor.service.InstanceCounterService;
 import com.isxcode.spark.modules.work.entity.WorkEventEntity;
 import com.isxcode.spark.modules.work.entity.WorkInstanceEntity;
 import com.isxcode.spark.modules.work.repository.*;
 import com.isxcode.spark.modules.work.run.AgentLinkUtils;
+import com.isxcode.spark.modules.work.run.AgentStatusBatcher;
 import com.isxcode.spark.modules.work.run.WorkExecutor;
 import com.isxcode.spark.modules.work.run.WorkRunContext;
 import com.isxcode.spark.modules.work.run.WorkRunJobFactory;
+import com.isxcode.spark.modules.work.run.WorkRunWriteBuffer;
+import com.isxcode.spark.modules.work.service.WorkLogService;
+import com.isxcode.spark.modules.work.service.WorkResultService;
 import com.isxcode.spark.modules.work.service.WorkService;
 import com.isxcode.spark.modules.work.sql.SqlFunctionService;
 import com.isxcode.spark.modules.workflow.repository.WorkflowInstanceRepository;
@@ -56,6 +61,8 @@ public class SparkJarExecutor extends WorkExecutor {
 
     private final AgentLinkUtils agentLinkUtils;
 
+    private final AgentStatusBatcher agentStatusBatcher;
+
     private final ClusterNodeMapper clusterNodeMapper;
 
     private final AesUtils aesUtils;
@@ -65,18 +72,21 @@ public class SparkJarExecutor extends WorkExecutor {
     public SparkJarExecutor(WorkInstanceRepository workInstanceRepository, ClusterRepository clusterRepository,
         ClusterNodeRepository clusterNodeRepository, WorkflowInstanceRepository workflowInstanceRepository,
         WorkRepository workRepository, WorkConfigRepository workConfigRepository, IsxAppProperties isxAppProperties,
-        Locker locker, ClusterNodeMapper clusterNodeMapper, AesUtils aesUtils, FileRepository fileRepository,
+        LeaseLocker locker, ClusterNodeMapper clusterNodeMapper, AesUtils aesUtils, FileRepository fileRepository,
         AlarmService alarmService, SqlFunctionService sqlFunctionService, WorkEventRepository workEventRepository,
         WorkRunJobFactory workRunJobFactory, VipWorkVersionRepository vipWorkVersionRepository, WorkService workService,
-        AgentLinkUtils agentLinkUtils) {
+        AgentLinkUtils agentLinkUtils, AgentStatusBatcher agentStatusBatcher, WorkLogService workLogService,
+        WorkRunWriteBuffer workRunWriteBuffer, WorkResultService workResultService,
+        InstanceCounterService instanceCounterService) {
 
         super(alarmService, locker, workRepository, workInstanceRepository, workflowInstanceRepository,
             workEventRepository, workRunJobFactory, sqlFunctionService, workConfigRepository, vipWorkVersionRepository,
-            workService);
+            workService, workLogService, workRunWriteBuffer, workResultService, instanceCounterService);
         this.clusterRepository = clusterRepository;
         this.clusterNodeRepository = clusterNodeRepository;
         this.isxAppProperties = isxAppProperties;
         this.agentLinkUtils = agentLinkUtils;
+        this.agentStatusBatcher = agentStatusBatcher;
         this.clusterNodeMapper = clusterNodeMapper;
         this.aesUtils = aesUtils;
         this.fileRepository = fileRepository;
@@ -92,7 +102,7 @@ public class SparkJarExecutor extends WorkExecutor {
         WorkEventEntity workEvent) {
 
         // 获取日志
-        StringBuilder logBuilder = new StringBuilder(workInstance.getSubmitLog());
+        StringBuilder logBuilder = new StringBuilder();
 
         // 打印首行日志，防止前端卡顿
         if (workEvent.getEventProcess() == 0) {
@@ -278,8 +288,7 @@ public class SparkJarExecutor extends WorkExecutor {
             GetWorkStatusReq getWorkStatusReq = GetWorkStatusReq.builder().appId(appId).clusterType(clusterType)
                 .sparkHomePath(agentNode.getSparkHomePath()).build();
 
-            AgentLinkResponse agentLinkResponse =
-                agentLinkUtils.getAgentLinkResponse(agentNode, SparkAgentUrl.GET_WORK_INFO_URL, getWorkStatusReq);
+            AgentLinkResponse agentLinkResponse = agentStatusBatcher.getSparkWorkInfo(agentNode, getWorkStatusReq);
 
             // 如果是yarn的话，FinalStatus是undefine的话，使用status状态
             if (AgentType.YARN.equals(clusterType) && "UNDEFINED".equalsIgnoreCase(agentLinkResponse.getFinalState())) {
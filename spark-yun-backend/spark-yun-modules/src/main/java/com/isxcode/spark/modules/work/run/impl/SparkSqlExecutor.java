@@ -12,7 +12,7 @@ import com.isxcode.spark.api.instance.constants.InstanceStatus;
 import com.isxcode.spark.api.work.constants.WorkType;
 import com.isxcode.spark.api.work.res.AgentLinkResponse;
 import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
-import com.isxcode.spark.common.locker.Locker;
+import com.isxcode.spark.common.locker.LeaseLocker;
 import com.isxcode.spark.common.utils.aes.AesUtils;
 import com.isxcode.spark.common.utils.path.PathUtils;
 import com.isxcode.spark.modules.alarm.service.AlarmService;
@@ -31,15 +31,20 @@ import com.isxcode.spark.modules.file.repository.FileRepository;
 import com.isxcode.spark.modules.func.entity.FuncEntity;
 import com.isxcode.spark.modules.func.mapper.FuncMapper;
 import com.isxcode.spark.modules.func.repository.FuncRepository;
+import com.isxcode.spark.modules.monitor.service.InstanceCounterService;
 import com.isxcode.spark.modules.secret.entity.SecretKeyEntity;
 import com.isxcode.spark.modules.secret.repository.SecretKeyRepository;
 import com.isxcode.spark.modules.work.entity.WorkEventEntity;
 import com.isxcode.spark.modules.work.entity.WorkInstanceEntity;
 import com.isxcode.spark.modules.work.repository.*;
 import com.isxcode.spark.modules.work.run.AgentLinkUtils;
+import com.isxcode.spark.modules.work.run.AgentStatusBatcher;
 import com.isxcode.spark.modules.work.run.WorkExecutor;
 import com.isxcode.spark.modules.work.run.WorkRunContext;
 import com.isxcode.spark.modules.work.run.WorkRunJobFactory;
+import com.isxcode.spark.modules.work.run.WorkRunWriteBuffer;
+import com.isxcode.spark.modules.work.service.WorkLogService;
+import com.isxcode.spark.modules.work.service.WorkResultService;
 import com.isxcode.spark.modules.work.service.WorkService;
 import com.isxcode.spark.modules.work.sql.SqlCommentService;
 import com.isxcode.spark.modules.work.sql.SqlFunctionService;
@@ -94,20 +99,26 @@ public class SparkSqlExecutor extends WorkExecutor {
 
     private final AgentLinkUtils agentLinkUtils;
 
+    private final AgentStatusBatcher agentStatusBatcher;
+
+    private final WorkResultService workResultService;
+
     public SparkSqlExecutor(WorkInstanceRepository workInstanceRepository,
         WorkflowInstanceRepository workflowInstanceRepository, SqlCommentService sqlCommentService,
         SqlValueService sqlValueService, SqlFunctionService sqlFunctionService, AlarmService alarmService,
         DataSourceFactory dataSourceFactory, DatasourceMapper datasourceMapper, SecretKeyRepository secretKeyRepository,
-        WorkEventRepository workEventRepository, Locker locker, WorkRepository workRepository,
+        WorkEventRepository workEventRepository, LeaseLocker locker, WorkRepository workRepository,
         WorkRunJobFactory workRunJobFactory, WorkConfigRepository workConfigRepository,
         VipWorkVersionRepository vipWorkVersionRepository, ClusterNodeMapper clusterNodeMapper, AesUtils aesUtils,
         ClusterNodeRepository clusterNodeRepository, ClusterRepository clusterRepository, FuncRepository funcRepository,
         FuncMapper funcMapper, IsxAppProperties isxAppProperties, FileRepository fileRepository,
-        DatasourceService datasourceService, WorkService workService, AgentLinkUtils agentLinkUtils) {
+        DatasourceService datasourceService, WorkService workService, AgentLinkUtils agentLinkUtils,
+        AgentStatusBatcher agentStatusBatcher, WorkLogService workLogService, WorkRunWriteBuffer workRunWriteBuffer,
+        WorkResultService workResultService, InstanceCounterService instanceCounterService) {
 
         super(alarmService, locker, workRepository, workInstanceRepository, workflowInstanceRepository,
             workEventRepository, workRunJobFactory, sqlFunctionService, workConfigRepository, vipWorkVersionRepository,
-            workService);
+            workService, workLogService, workRunWriteBuffer, workResultService, instanceCounterService);
         this.clusterRepository = clusterRepository;
         this.clusterNodeRepository = clusterNodeRepository;
         this.funcRepository = funcRepository;
@@ -124,6 +135,8 @@ public class SparkSqlExecutor extends WorkExecutor {
         this.dataSourceFactory = dataSourceFactory;
         this.secretKeyRepository = secretKeyRepository;
         this.agentLinkUtils = agentLinkUtils;
+        this.agentStatusBatcher = agentStatusBatcher;
+        this.workResultService = workResultService;
     }
 
     @Override
@@ -136,7 +149,7 @@ public class SparkSqlExecutor extends WorkExecutor {
         WorkEventEntity workEvent) {
 
         // 获取日志
-        StringBuilder logBuilder = new StringBuilder(workInstance.getSubmitLog());
+        StringBuilder logBuilder = new StringBuilder();
 
         // 打印首行日志，防止前端卡顿
         if (workEvent.getEventProcess() == 0) {
@@ -302,9 +315,14 @@ public class SparkSqlExecutor extends WorkExecutor {
             PluginReq pluginReq = PluginReq.builder().sql(script)
                 .sparkConfig(genSparkConfig(workRunContext.getClusterConfig().getSparkConfig())).build();
 
-            // 添加条数限制
-            if (workRunContext.getQueryConfig().getEnableLimit()) {
+            // 添加条数限制，不超过结果保存的上限，未开启条数限制时按上限截断，避免结果全部拉到driver
+            int maxRows = (int) Math.min(isxAppProperties.getWorkResultMaxRows(), Integer.MAX_VALUE);
+            if (workRunContext.getQueryConfig().getEnableLimit()
+                && workRunContext.getQueryConfig().getLineLimit() <= maxRows) {
                 pluginReq.setLimit(workRunContext.getQueryConfig().getLineLimit());
+            } else {
+                pluginReq.setLimit(maxRows);
+                logBuilder.append(statusLog("查询结果最多返回" + maxRows + "条，由isx-app.work-result-max-rows配置"));
             }
 
             // 配置函数
@@ -387,8 +405,7 @@ public class SparkSqlExecutor extends WorkExecutor {
                 .sparkHomePath(agentNode.getSparkHomePath()).build();
 
             // 请求代理
-            AgentLinkResponse agentLinkResponse =
-                agentLinkUtils.getAgentLinkResponse(agentNode, SparkAgentUrl.GET_WORK_INFO_URL, getWorkStatusReq);
+            AgentLinkResponse agentLinkResponse = agentStatusBatcher.getSparkWorkInfo(agentNode, getWorkStatusReq);
 
             // 如果是yarn的话，FinalStatus是undefine的话，使用status状态
             if (AgentType.YARN.equals(clusterType) && "UNDEFINED".equalsIgnoreCase(agentLinkResponse.getFinalState())) {
@@ -453,14 +470,35 @@ public class SparkSqlExecutor extends WorkExecutor {
 
                 // 获取数据
                 GetWorkDataReq getWorkDataReq = GetWorkDataReq.builder().appId(appId).clusterType(clusterType)
-                    .sparkHomePath(agentNode.getSparkHomePath()).build();
+                    .sparkHomePath(agentNode.getSparkHomePath()).workInstanceId(workInstance.getId()).page(0)
+                    .pageSize(isxAppProperties.getWorkResultPageSize()).build();
 
                 // 请求代理
                 agentLinkResponse =
                     agentLinkUtils.getAgentLinkResponse(agentNode, SparkAgentUrl.GET_WORK_DATA_URL, getWorkDataReq);
 
-                // 保存数据
-                workInstance.setResultData(JSON.toJSONString(agentLinkResponse));
+                if (agentLinkResponse.getHasMore() == null) {
+
+                    // 日志返回的结果，直接保存
+                    workInstance.setResultData(JSON.toJSONString(agentLinkResponse));
+                } else {
+
+                    // 结果文件按页拉取并保存
+                    workResultService.clearResult(workInstance.getId());
+                    long rowStart = 0;
+                    int page = 0;
+                    while (true) {
+                        workResultService.savePage(workInstance.getId(), page, rowStart, agentLinkResponse.getData());
+                        rowStart += agentLinkResponse.getData().size() - 1;
+                        if (!agentLinkResponse.getHasMore()) {
+                            break;
+                        }
+                        getWorkDataReq.setPage(++page);
+                        agentLinkResponse = agentLinkUtils.getAgentLinkResponse(agentNode,
+                            SparkAgentUrl.GET_WORK_DATA_URL, getWorkDataReq);
+                    }
+                    workInstance.setResultData(null);
+                }
 
                 // 保存日志
                 logBuilder.append(endLog("保存数据成功"));
@@ -9,11 +9,15 @@ import com.isxcode.spark.api.cluster.constants.ClusterNodeStatus;
 import com.isxcode.spark.api.cluster.dto.ScpFileEngineNodeDto;
 import com.isxcode.spark.api.datasource.constants.DatasourceType;
 import com.isxcode.spark.api.instance.constants.InstanceStatus;
+import com.isxcode.spark.api.plugin.constants.OverModeType;
+import com.isxcode.spark.api.work.constants.SyncMode;
 import com.isxcode.spark.api.work.constants.WorkType;
 import com.isxcode.spark.api.work.dto.DatasourceConfig;
+import com.isxcode.spark.api.work.dto.SyncPartition;
 import com.isxcode.spark.api.work.res.AgentLinkResponse;
+import com.isxcode.spark.backend.api.base.exceptions.WorkRunException;
 import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
-import com.isxcode.spark.common.locker.Locker;
+import com.isxcode.spark.common.locker.LeaseLocker;
 import com.isxcode.spark.common.utils.aes.AesUtils;
 import com.isxcode.spark.common.utils.path.PathUtils;
 import com.isxcode.spark.modules.alarm.service.AlarmService;
@@ -29,15 +33,22 @@ import com.isxcode.spark.modules.file.repository.FileRepository;
 import com.isxcode.spark.modules.func.entity.FuncEntity;
 import com.isxcode.spark.modules.func.mapper.FuncMapper;
 import com.isxcode.spark.modules.func.repository.FuncRepository;
+import com.isxcode.spark.modules.monitor.service.InstanceCounterService;
 import com.isxcode.spark.modules.secret.entity.SecretKeyEntity;
 import com.isxcode.spark.modules.secret.repository.SecretKeyRepository;
 import com.isxcode.spark.modules.work.entity.WorkEventEntity;
 import com.isxcode.spark.modules.work.entity.WorkInstanceEntity;
+import com.isxcode.spark.modules.work.entity.WorkSyncProgressEntity;
+import com.isxcode.spark.modules.work.entity.WorkSyncWatermarkEntity;
 import com.isxcode.spark.modules.work.repository.*;
 import com.isxcode.spark.modules.work.run.AgentLinkUtils;
+import com.isxcode.spark.modules.work.run.AgentStatusBatcher;
 import com.isxcode.spark.modules.work.run.WorkExecutor;
 import com.isxcode.spark.modules.work.run.WorkRunContext;
 import com.isxcode.spark.modules.work.run.WorkRunJobFactory;
+import com.isxcode.spark.modules.work.run.WorkRunWriteBuffer;
+import com.isxcode.spark.modules.work.service.WorkLogService;
+import com.isxcode.spark.modules.work.service.WorkResultService;
 import com.isxcode.spark.modules.work.service.WorkService;
 import com.isxcode.spark.modules.work.sql.SqlCommentService;
 import com.isxcode.spark.modules.work.sql.SqlFunctionService;
@@ -52,6 +63,7 @@ import org.springframework.stereotype.Service;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static com.isxcode.spark.common.utils.ssh.SshUtils.scpJar;
 
@@ -59,6 +71,12 @@ import static com.isxcode.spark.common.utils.ssh.SshUtils.scpJar;
 @Slf4j
 public class SyncWorkExecutor extends WorkExecutor {
 
+    /**
+     * 支持更新写入的数据库.
+     */
+    private static final List<String> UPSERT_DB_TYPES = Arrays.asList(DatasourceType.MYSQL, DatasourceType.TIDB,
+        DatasourceType.POSTGRE_SQL, DatasourceType.DORIS, DatasourceType.STAR_ROCKS, DatasourceType.HIVE);
+
     private final ClusterRepository clusterRepository;
 
     private final ClusterNodeRepository clusterNodeRepository;
@@ -87,19 +105,28 @@ public class SyncWorkExecutor extends WorkExecutor {
 
     private final AgentLinkUtils agentLinkUtils;
 
+    private final AgentStatusBatcher agentStatusBatcher;
+
+    private final WorkSyncWatermarkRepository workSyncWatermarkRepository;
+
+    private final WorkSyncProgressRepository workSyncProgressRepository;
+
     public SyncWorkExecutor(WorkInstanceRepository workInstanceRepository, ClusterRepository clusterRepository,
         ClusterNodeRepository clusterNodeRepository, WorkflowInstanceRepository workflowInstanceRepository,
-        WorkRepository workRepository, WorkConfigRepository workConfigRepository, Locker locker, AesUtils aesUtils,
+        WorkRepository workRepository, WorkConfigRepository workConfigRepository, LeaseLocker locker, AesUtils aesUtils,
         ClusterNodeMapper clusterNodeMapper, DatasourceService datasourceService, IsxAppProperties isxAppProperties,
         FuncRepository funcRepository, FileRepository fileRepository, SqlCommentService sqlCommentService,
         SqlValueService sqlValueService, SqlFunctionService sqlFunctionService, AlarmService alarmService,
         WorkEventRepository workEventRepository, WorkRunJobFactory workRunJobFactory,
         VipWorkVersionRepository vipWorkVersionRepository, WorkService workService,
-        SecretKeyRepository secretKeyRepository, FuncMapper funcMapper, AgentLinkUtils agentLinkUtils) {
+        SecretKeyRepository secretKeyRepository, FuncMapper funcMapper, AgentLinkUtils agentLinkUtils,
+        AgentStatusBatcher agentStatusBatcher, WorkLogService workLogService, WorkRunWriteBuffer workRunWriteBuffer,
+        WorkResultService workResultService, WorkSyncWatermarkRepository workSyncWatermarkRepository,
+        WorkSyncProgressRepository workSyncProgressRepository, InstanceCounterService instanceCounterService) {
 
         super(alarmService, locker, workRepository, workInstanceRepository, workflowInstanceRepository,
             workEventRepository, workRunJobFactory, sqlFunctionService, workConfigRepository, vipWorkVersionRepository,
-            workService);
+            workService, workLogService, workRunWriteBuffer, workResultService, instanceCounterService);
 
         this.clusterRepository = clusterRepository;
         this.clusterNodeRepository = clusterNodeRepository;
@@ -115,6 +142,9 @@ public class SyncWorkExecutor extends WorkExecutor {
         this.secretKeyRepository = secretKeyRepository;
         this.funcMapper = funcMapper;
         this.agentLinkUtils = agentLinkUtils;
+        this.agentStatusBatcher = agentStatusBatcher;
+        this.workSyncWatermarkRepository = workSyncWatermarkRepository;
+        this.workSyncProgressRepository = workSyncProgressRepository;
     }
 
     @Override
@@ -127,7 +157,7 @@ public class SyncWorkExecutor extends WorkExecutor {
         WorkEventEntity workEvent) {
 
         // 获取日志
-        StringBuilder logBuilder = new StringBuilder(workInstance.getSubmitLog());
+        StringBuilder logBuilder = new StringBuilder();
 
         // 打印首行日志，防止前端卡顿
         if (workEvent.getEventProcess() == 0) {
@@ -188,6 +218,23 @@ public class SyncWorkExecutor extends WorkExecutor {
                 throw errorLogException("检测过滤条件异常 : 请配置字段映射关系");
             }
 
+            // 检测增量同步的水位线字段
+            if (isIncremental(workRunContext) && Strings.isEmpty(workRunContext.getSyncRule().getWatermarkColumn())) {
+                throw errorLogException("检测过滤条件异常 : 增量同步的水位线字段为空");
+            }
+
+            // 覆写会删除水位线之前同步的数据
+            if (isIncremental(workRunContext)
+                && OverModeType.OVERWRITE.equals(workRunContext.getSyncWorkConfig().getOverMode())) {
+                throw errorLogException("检测过滤条件异常 : 增量同步不支持覆写模式，请使用追加或者更新模式");
+            }
+
+            // 检测更新写入是否支持
+            if (OverModeType.UPSERT.equals(workRunContext.getSyncWorkConfig().getOverMode())
+                && !UPSERT_DB_TYPES.contains(workRunContext.getSyncWorkConfig().getTargetDBType())) {
+                throw errorLogException("检测过滤条件异常 : 更新写入只支持Mysql、Postgres、Doris和Hive");
+            }
+
             // 过滤条件支持系统参数和函数解析
             if (!Strings.isEmpty(workRunContext.getSyncWorkConfig().getQueryCondition())) {
 
@@ -329,7 +376,20 @@ public class SyncWorkExecutor extends WorkExecutor {
             // 构建Spark插件运行请求体
             PluginReq pluginReq = PluginReq.builder().syncWorkConfig(workRunContext.getSyncWorkConfig())
                 .sparkConfig(genSparkConfig(workRunContext.getClusterConfig().getSparkConfig()))
-                .syncRule(workRunContext.getSyncRule()).build();
+                .syncRule(workRunContext.getSyncRule()).workInstanceId(workInstance.getId()).build();
+
+            // 增量同步从上次的水位线开始
+            if (isIncremental(workRunContext)) {
+                pluginReq.setLastWatermark(getLastWatermark(workRunContext));
+                logBuilder.append(endLog("增量同步水位线 : "
+                    + (pluginReq.getLastWatermark() == null ? "无，全量同步" : pluginReq.getLastWatermark())));
+            }
+
+            // 上次运行留有分区进度时，跳过已完成的分区
+            pluginReq.setResume(workSyncProgressRepository.existsByInstanceId(workInstance.getId()));
+            if (pluginReq.getResume()) {
+                logBuilder.append(endLog("断点续跑 : 跳过已完成的分区"));
+            }
 
             // 配置函数
             if (workRunContext.getFuncConfig() != null) {
@@ -394,8 +454,7 @@ public class SyncWorkExecutor extends WorkExecutor {
             GetWorkStatusReq getWorkStatusReq = GetWorkStatusReq.builder().appId(appId).clusterType(clusterType)
                 .sparkHomePath(agentNode.getSparkHomePath()).build();
 
-            AgentLinkResponse agentLinkResponse =
-                agentLinkUtils.getAgentLinkResponse(agentNode, SparkAgentUrl.GET_WORK_INFO_URL, getWorkStatusReq);
+            AgentLinkResponse agentLinkResponse = agentStatusBatcher.getSparkWorkInfo(agentNode, getWorkStatusReq);
 
             // 如果是yarn的话，FinalStatus是undefine的话，使用status状态
             if (AgentType.YARN.equals(clusterType) && "UNDEFINED".equalsIgnoreCase(agentLinkResponse.getFinalState())) {
@@ -454,8 +513,21 @@ public class SyncWorkExecutor extends WorkExecutor {
 
             // 如果运行成功，还要继续保存数据
             List<String> successStatus = Arrays.asList("FINISHED", "SUCCEEDED", "COMPLETED");
+            saveProgress(agentNode, workInstance.getId(), successStatus.contains(preStatus.toUpperCase()), logBuilder);
             if (!successStatus.contains(preStatus.toUpperCase())) {
                 workRunContext.setPreStatus(InstanceStatus.FAIL);
+            } else if (isIncremental(workRunContext)) {
+
+                // 增量同步成功后保存新的水位线
+                GetWorkDataReq getWorkDataReq = GetWorkDataReq.builder().appId(appId).clusterType(clusterType)
+                    .sparkHomePath(agentNode.getSparkHomePath()).build();
+                agentLinkResponse =
+                    agentLinkUtils.getAgentLinkResponse(agentNode, SparkAgentUrl.GET_WORK_DATA_URL, getWorkDataReq);
+                if (agentLinkResponse.getData() != null && agentLinkResponse.getData().size() > 1) {
+                    String watermark = agentLinkResponse.getData().get(1).get(0);
+                    saveWatermark(workRunContext, workInstance.getId(), watermark);
+                    logBuilder.append(endLog("保存水位线完成 : " + watermark));
+                }
             }
 
             // 保存日志
@@ -541,4 +613,70 @@ public class SyncWorkExecutor extends WorkExecutor {
 
         return sparkConfig;
     }
+
+    private boolean isIncremental(WorkRunContext workRunContext) {
+
+        return workRunContext.getSyncRule() != null
+            && SyncMode.INCREMENTAL.equals(workRunContext.getSyncRule().getSyncMode());
+    }
+
+    /**
+     * 获取上次的水位线，全量重新同步或者水位线字段变化时返回null.
+     */
+    private String getLastWatermark(WorkRunContext workRunContext) {
+
+        if (Boolean.TRUE.equals(workRunContext.getSyncRule().getFullResync())) {
+            return null;
+        }
+        return workSyncWatermarkRepository.findByWorkId(workRunContext.getWorkId())
+            .filter(e -> e.getWatermarkColumn().equals(workRunContext.getSyncRule().getWatermarkColumn()))
+            .map(WorkSyncWatermarkEntity::getWatermarkValue).orElse(null);
+    }
+
+    /**
+     * 保存分区进度并打印到日志，运行成功后清理进度.
+     */
+    private void saveProgress(ClusterNodeEntity agentNode, String instanceId, boolean success,
+        StringBuilder logBuilder) {
+
+        AgentLinkResponse agentLinkResponse;
+        try {
+            GetSyncProgressReq getSyncProgressReq =
+                GetSyncProgressReq.builder().workInstanceId(instanceId).clean(success).build();
+            agentLinkResponse =
+                agentLinkUtils.getAgentLinkResponse(agentNode, SparkAgentUrl.GET_SYNC_PROGRESS_URL, getSyncProgressReq);
+        } catch (WorkRunException e) {
+            log.warn("获取分区进度异常 : {}", e.getMsg());
+            return;
+        }
+
+        workSyncProgressRepository.deleteAllByInstanceId(instanceId);
+        if (agentLinkResponse.getPartitionTotal() == null || agentLinkResponse.getPartitionTotal() == 0) {
+            return;
+        }
+
+        List<SyncPartition> partitions =
+            agentLinkResponse.getPartitions() == null ? new ArrayList<>() : agentLinkResponse.getPartitions();
+        long rowCount = partitions.stream().mapToLong(e -> e.getRowCount() == null ? 0 : e.getRowCount()).sum();
+        logBuilder.append(endLog("分区进度 : 完成 " + partitions.size() + "/" + agentLinkResponse.getPartitionTotal()
+            + "，同步 " + rowCount + " 行"));
+
+        // 失败时保留进度，重跑时跳过已完成的分区
+        if (!success && !partitions.isEmpty()) {
+            workSyncProgressRepository.saveAll(partitions.stream()
+                .map(e -> WorkSyncProgressEntity.builder().instanceId(instanceId).partitionIndex(e.getIndex())
+                    .predicate(e.getPredicate()).rowCount(e.getRowCount()).build())
+                .collect(Collectors.toList()));
+        }
+    }
+
+    private void saveWatermark(WorkRunContext workRunContext, String instanceId, String watermark) {
+
+        WorkSyncWatermarkEntity watermarkEntity = workSyncWatermarkRepository.findByWorkId(workRunContext.getWorkId())
+            .orElseGet(() -> WorkSyncWatermarkEntity.builder().workId(workRunContext.getWorkId()).build());
+        watermarkEntity.setWatermarkColumn(workRunContext.getSyncRule().getWatermarkColumn());
+        watermarkEntity.setWatermarkValue(watermark);
+        watermarkEntity.setInstanceId(instanceId);
+        workSyncWatermarkRepository.save(watermarkEntity);
+    }
 }
@@ -1,9 +1,6 @@
 package com.isxcode.spark.modules.work.service;
 
 
-import cn.hutool.core.io.FileUtil;
-import cn.hutool.poi.excel.ExcelReader;
-import cn.hutool.poi.excel.ExcelUtil;
 import com.isxcode.spark.api.datasource.dto.ColumnMetaDto;
 import com.isxcode.spark.api.work.req.GetExcelColumnsReq;
 import com.isxcode.spark.api.work.req.GetExcelDataReq;
@@ -13,8 +10,8 @@ import com.isxcode.spark.api.work.res.GetExcelDataRes;
 import com.isxcode.spark.api.work.res.ParseExcelNameRes;
 import com.isxcode.spark.backend.api.base.exceptions.IsxAppException;
 import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
-import com.isxcode.spark.common.utils.path.PathUtils;
 import com.isxcode.spark.modules.file.entity.FileEntity;
+import com.isxcode.spark.modules.file.service.ExcelCsvService;
 import com.isxcode.spark.modules.file.service.FileService;
 import com.isxcode.spark.modules.work.sql.SqlFunctionService;
 import lombok.RequiredArgsConstructor;
@@ -23,7 +20,6 @@ import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 import static com.isxcode.spark.common.config.CommonConfig.TENANT_ID;
@@ -39,39 +35,32 @@ public class ExcelSyncService {
 
     private final SqlFunctionService sqlFunctionService;
 
+    private final ExcelCsvService excelCsvService;
+
     public GetExcelColumnsRes getExcelColumns(GetExcelColumnsReq getExcelColumnsReq) {
 
         // 判断文件是否存在
         FileEntity file = fileService.getFile(getExcelColumnsReq.getFileId());
 
-        // 获取文件的绝对路径
-        String filePath = PathUtils.parseProjectPath(isxAppProperties.getResourcesPath()) + File.separator + "file"
-            + File.separator + TENANT_ID.get() + File.separator + file.getId();
-
-        // 读取文件数据
-        ExcelReader reader = ExcelUtil.getReader(FileUtil.file(filePath));
-        List<List<Object>> read = reader.read();
+        // 只读取表头和抽样的行，不加载整个文件
+        File csvFile = excelCsvService.getCsvFile(TENANT_ID.get(), file.getId());
+        List<List<String>> read = excelCsvService.readRows(csvFile,
+            getExcelColumnsReq.isInferType() ? isxAppProperties.getExcelSampleRows() + 1 : 2);
 
         // 校验excel合法性
-        if (read.isEmpty()) {
-            throw new IsxAppException("Excel为空");
-        }
-        if (read.size() == 1 && getExcelColumnsReq.isHasHeader()) {
-            throw new IsxAppException("Excel为空");
-        }
-        if (read.get(0).size() != read.get(1).size()) {
-            throw new IsxAppException("Excel表头和字段不齐");
-        }
+        checkExcel(read, getExcelColumnsReq.isHasHeader());
 
-        List<ColumnMetaDto> columns = new ArrayList<>();
+        // 默认都是String，开启推断时按抽样的数据推断字段类型
+        List<String> header = read.get(0);
+        List<String> types = getExcelColumnsReq.isInferType()
+            ? excelCsvService.inferTypes(getExcelColumnsReq.isHasHeader() ? read.subList(1, read.size()) : read,
+                header.size())
+            : null;
 
-        List<Object> header = read.get(0);
-        if (getExcelColumnsReq.isHasHeader()) {
-            header.forEach(e -> columns.add(ColumnMetaDto.builder().type("String").name(String.valueOf(e)).build()));
-        } else {
-            for (int i = 0; i < header.size(); i++) {
-                columns.add(ColumnMetaDto.builder().type("String").name("col" + i).build());
-            }
+        List<ColumnMetaDto> columns = new ArrayList<>();
+        for (int i = 0; i < header.size(); i++) {
+            String name = getExcelColumnsReq.isHasHeader() ? header.get(i) : "col" + i;
+            columns.add(ColumnMetaDto.builder().type(types == null ? "String" : types.get(i)).name(name).build());
         }
 
         return GetExcelColumnsRes.builder().columns(columns).build();
@@ -82,52 +71,29 @@ public class ExcelSyncService {
         // 判断文件是否存在
         FileEntity file = fileService.getFile(getExcelDataReq.getFileId());
 
-        // 获取文件的绝对路径
-        String filePath = PathUtils.parseProjectPath(isxAppProperties.getResourcesPath()) + File.separator + "file"
-            + File.separator + TENANT_ID.get() + File.separator + file.getId();
-
-        // 读取文件数据
-        ExcelReader reader = ExcelUtil.getReader(FileUtil.file(filePath));
-        List<List<Object>> read = reader.read();
+        // 只展示200条
+        File csvFile = excelCsvService.getCsvFile(TENANT_ID.get(), file.getId());
+        List<List<String>> rows = excelCsvService.readRows(csvFile, getExcelDataReq.isHasHeader() ? 201 : 200);
 
         // 校验excel合法性
-        if (read.isEmpty()) {
-            throw new IsxAppException("Excel为空");
-        }
-        if (read.size() == 1 && getExcelDataReq.isHasHeader()) {
-            throw new IsxAppException("Excel为空");
-        }
-        if (read.get(0).size() != read.get(1).size()) {
-            throw new IsxAppException("Excel表头和字段不齐");
-        }
+        checkExcel(rows, getExcelDataReq.isHasHeader());
 
         // 解析表头
         List<String> columns = new ArrayList<>();
-        List<Object> header = read.get(0);
+        List<String> header = rows.get(0);
         if (getExcelDataReq.isHasHeader()) {
-            header.forEach(e -> columns.add(String.valueOf(e)));
+            columns.addAll(header);
         } else {
             for (int i = 0; i < header.size(); i++) {
                 columns.add("col" + i);
             }
         }
 
-        // 只展示200条
-        Iterator<List<Object>> iterator = read.iterator();
-        List<List<String>> rows = new ArrayList<>();
-        while (iterator.hasNext() && rows.size() < 200) {
-            List<Object> next = iterator.next();
-            List<String> row = new ArrayList<>();
-            next.forEach(e -> row.add(String.valueOf(e)));
-            rows.add(row);
-        }
-
         // 如果有表头删除第一行
         if (getExcelDataReq.isHasHeader()) {
             rows.remove(0);
         }
 
-        reader.close();
         return GetExcelDataRes.builder().columns(columns).rows(rows).build();
     }
 
@@ -136,4 +102,17 @@ public class ExcelSyncService {
         String fileName = sqlFunctionService.parseSqlFunction(parseExcelNameReq.getFilePattern());
         return ParseExcelNameRes.builder().fileName(fileName).build();
     }
+
+    private void checkExcel(List<List<String>> read, boolean hasHeader) {
+
+        if (read.isEmpty()) {
+            throw new IsxAppException("Excel为空");
+        }
+        if (read.size() == 1 && hasHeader) {
+            throw new IsxAppException("Excel为空");
+        }
+        if (read.size() > 1 && read.get(0).size() != read.get(1).size()) {
+            throw new IsxAppException("Excel表头和字段不齐");
+        }
+    }
 }
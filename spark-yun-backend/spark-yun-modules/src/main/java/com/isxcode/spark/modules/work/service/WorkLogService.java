@@ -0,0 +1,134 @@
+package com.isxcode.spark.modules.work.service;
+
+import cn.hutool.core.util.StrUtil;
+import com.isxcode.spark.modules.work.entity.WorkInstanceEntity;
+import com.isxcode.spark.modules.work.entity.WorkLogChunkEntity;
+import com.isxcode.spark.modules.work.repository.WorkInstanceRepository;
+import com.isxcode.spark.modules.work.repository.WorkLogChunkRepository;
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.util.Strings;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import javax.transaction.Transactional;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 作业提交日志.
+ *
+ * <p>
+ * 运行中的日志按片段追加到SY_WORK_LOG_CHUNK，实例的submitLog只保存开始日志，作业结束后合并成完整日志.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+public class WorkLogService {
+
+    /**
+     * 并发追加时的最大重试次数.
+     */
+    private static final int MAX_APPEND_RETRY = 3;
+
+    private final WorkLogChunkRepository workLogChunkRepository;
+
+    private final WorkInstanceRepository workInstanceRepository;
+
+    /**
+     * 追加提交日志，只写入新增的部分. 每次写入在新事务中提交，写入冲突时在新事务中重试.
+     */
+    public void appendSubmitLog(WorkInstanceEntity workInstance, String log) {
+
+        if (Strings.isEmpty(log)) {
+            return;
+        }
+
+        for (int i = 1;; i++) {
+            try {
+                workLogChunkRepository.saveAndFlush(WorkLogChunkEntity.builder().instanceId(workInstance.getId())
+                    .logOffset(getLogLength(workInstance)).content(log).build());
+                return;
+            } catch (DataIntegrityViolationException e) {
+                // 起始位置冲突，重新计算后再追加
+                if (i >= MAX_APPEND_RETRY) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * 追加日志后清空logBuilder，避免重复写入.
+     */
+    public void appendSubmitLog(WorkInstanceEntity workInstance, StringBuilder logBuilder) {
+
+        appendSubmitLog(workInstance, logBuilder.toString());
+        logBuilder.setLength(0);
+    }
+
+    /**
+     * 获取完整的提交日志.
+     */
+    public String getSubmitLog(WorkInstanceEntity workInstance) {
+
+        List<WorkLogChunkEntity> chunks =
+            workLogChunkRepository.findAllByInstanceIdOrderByLogOffset(workInstance.getId());
+        if (chunks.isEmpty()) {
+            return workInstance.getSubmitLog();
+        }
+
+        StringBuilder submitLog = new StringBuilder(StrUtil.nullToEmpty(workInstance.getSubmitLog()));
+        chunks.forEach(e -> submitLog.append(e.getContent()));
+        return submitLog.toString();
+    }
+
+    /**
+     * 获取指定位置之后的提交日志，用于前端增量拉取.
+     */
+    public String getSubmitLog(WorkInstanceEntity workInstance, long offset) {
+
+        String baseLog = StrUtil.nullToEmpty(workInstance.getSubmitLog());
+        StringBuilder submitLog = new StringBuilder();
+        if (offset < baseLog.length()) {
+            submitLog.append(baseLog, (int) Math.max(offset, 0), baseLog.length());
+        }
+
+        workLogChunkRepository
+            .findAllByInstanceIdAndLogOffsetGreaterThanEqualOrderByLogOffset(workInstance.getId(), offset)
+            .forEach(e -> submitLog.append(e.getContent()));
+        return submitLog.toString();
+    }
+
+    /**
+     * 作业结束后合并日志片段，写回实例的submitLog.
+     *
+     * @param workInstance 作业实例，会一起保存实例的其他字段
+     * @param log 最后追加的日志
+     */
+    @Transactional
+    public WorkInstanceEntity compactSubmitLog(WorkInstanceEntity workInstance, String log) {
+
+        workInstance.setSubmitLog(StrUtil.nullToEmpty(getSubmitLog(workInstance)) + StrUtil.nullToEmpty(log));
+        workInstance = workInstanceRepository.saveAndFlush(workInstance);
+        workLogChunkRepository.deleteAllByInstanceId(workInstance.getId());
+        return workInstance;
+    }
+
+    /**
+     * 重新运行前清理上一次的日志片段.
+     */
+    public void clearSubmitLog(String instanceId) {
+
+        workLogChunkRepository.deleteAllByInstanceId(instanceId);
+    }
+
+    private long getLogLength(WorkInstanceEntity workInstance) {
+
+        Optional<WorkLogChunkEntity> lastChunk =
+            workLogChunkRepository.findFirstByInstanceIdOrderByLogOffsetDesc(workInstance.getId());
+        if (lastChunk.isPresent()) {
+            return lastChunk.get().getLogOffset() + lastChunk.get().getContent().length();
+        }
+        return StrUtil.nullToEmpty(workInstance.getSubmitLog()).length();
+    }
+}
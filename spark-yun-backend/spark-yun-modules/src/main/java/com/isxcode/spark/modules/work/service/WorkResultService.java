@@ -0,0 +1,197 @@
+package com.isxcode.spark.modules.work.service;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.TypeReference;
+import com.isxcode.spark.backend.api.base.exceptions.IsxAppException;
+import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
+import com.isxcode.spark.modules.work.entity.WorkResultPageEntity;
+import com.isxcode.spark.modules.work.repository.WorkResultPageRepository;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 作业查询结果.
+ *
+ * <p>
+ * 查询结果按页保存到SY_WORK_RESULT_PAGE，每页内容都带表头，格式和resultData一致，读取时只解析需要的页.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+public class WorkResultService {
+
+    private final WorkResultPageRepository workResultPageRepository;
+
+    private final IsxAppProperties isxAppProperties;
+
+    /**
+     * 流式保存查询结果，超过行数或者字节数上限时截断.
+     */
+    public SaveResult saveResult(String instanceId, ResultSet resultSet) throws SQLException {
+
+        workResultPageRepository.deleteAllByInstanceId(instanceId);
+
+        // 封装表头
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        List<String> header = new ArrayList<>(columnCount);
+        for (int i = 1; i <= columnCount; i++) {
+            header.add(metaData.getColumnName(i));
+        }
+
+        int pageSize = isxAppProperties.getWorkResultPageSize();
+        long maxRows = isxAppProperties.getWorkResultMaxRows();
+        long maxBytes = isxAppProperties.getWorkResultMaxBytes();
+
+        // 边读边写，内存中最多保留一页数据
+        long rowNum = 0;
+        long bytes = 0;
+        int pageIndex = 0;
+        boolean truncated = false;
+        List<List<String>> page = newPage(header, pageSize);
+        while (resultSet.next()) {
+            if (rowNum >= maxRows || bytes >= maxBytes) {
+                truncated = true;
+                break;
+            }
+
+            List<String> row = new ArrayList<>(columnCount);
+            for (int i = 1; i <= columnCount; i++) {
+                String value;
+                try {
+                    value = resultSet.getString(i);
+                } catch (Exception e) {
+                    value = String.valueOf(resultSet.getObject(i));
+                }
+                row.add(value);
+
+                // 按字符数估算json的大小
+                bytes += value == null ? 4 : value.length() + 3;
+            }
+            page.add(row);
+            rowNum++;
+
+            if (page.size() > pageSize) {
+                savePage(instanceId, pageIndex++, rowNum - pageSize, page);
+                page = newPage(header, pageSize);
+            }
+        }
+
+        // 空结果也要保存表头
+        if (page.size() > 1 || pageIndex == 0) {
+            savePage(instanceId, pageIndex, rowNum - (page.size() - 1), page);
+        }
+
+        return new SaveResult(rowNum, truncated);
+    }
+
+    /**
+     * 获取指定页的表头和数据，没有该页返回null.
+     */
+    public List<List<String>> getPage(String instanceId, int pageIndex) {
+
+        return workResultPageRepository.findByInstanceIdAndPageIndex(instanceId, pageIndex).map(this::parseContent)
+            .orElse(null);
+    }
+
+    /**
+     * 合并所有页，格式和resultData一致，没有结果返回null.
+     */
+    public List<List<String>> getResult(String instanceId) {
+
+        List<WorkResultPageEntity> pages = workResultPageRepository.findAllByInstanceIdOrderByPageIndex(instanceId);
+        if (pages.isEmpty()) {
+            return null;
+        }
+
+        List<List<String>> result = new ArrayList<>();
+        for (WorkResultPageEntity page : pages) {
+            List<List<String>> content = parseContent(page);
+            result.addAll(result.isEmpty() ? content : content.subList(1, content.size()));
+        }
+        return result;
+    }
+
+    /**
+     * 按表格坐标取值，第0行为表头，列从1开始.
+     */
+    public String getValue(String instanceId, int row, int col) {
+
+        WorkResultPageEntity page = workResultPageRepository
+            .findFirstByInstanceIdAndRowStartLessThanEqualOrderByRowStartDesc(instanceId, Math.max(row - 1L, 0L))
+            .orElseThrow(() -> new IsxAppException("查询结果不存在"));
+
+        // 页内第0行为表头
+        int pageRow = row == 0 ? 0 : (int) (row - page.getRowStart());
+        return parseContent(page).get(pageRow).get(col - 1);
+    }
+
+    /**
+     * 每页保存的行数，不含表头.
+     */
+    public int getPageSize() {
+
+        return isxAppProperties.getWorkResultPageSize();
+    }
+
+    public boolean hasResult(String instanceId) {
+
+        return workResultPageRepository.existsByInstanceId(instanceId);
+    }
+
+    public long countRows(String instanceId) {
+
+        return workResultPageRepository.sumRowCount(instanceId);
+    }
+
+    public void clearResult(String instanceId) {
+
+        workResultPageRepository.deleteAllByInstanceId(instanceId);
+    }
+
+    /**
+     * 保存一页结果，第一行为表头.
+     *
+     * @param rowStart 本页首行在结果中的行号，不含表头
+     */
+    public void savePage(String instanceId, int pageIndex, long rowStart, List<List<String>> page) {
+
+        workResultPageRepository.save(WorkResultPageEntity.builder().instanceId(instanceId).pageIndex(pageIndex)
+            .rowStart(rowStart).rowCount(page.size() - 1).content(JSON.toJSONString(page)).build());
+    }
+
+    private List<List<String>> newPage(List<String> header, int pageSize) {
+
+        List<List<String>> page = new ArrayList<>(pageSize + 1);
+        page.add(header);
+        return page;
+    }
+
+    private List<List<String>> parseContent(WorkResultPageEntity page) {
+
+        return JSON.parseObject(page.getContent(), new TypeReference<List<List<String>>>() {});
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class SaveResult {
+
+        /**
+         * 保存的行数.
+         */
+        private long rowCount;
+
+        /**
+         * 是否超过上限被截断.
+         */
+        private boolean truncated;
+    }
+}
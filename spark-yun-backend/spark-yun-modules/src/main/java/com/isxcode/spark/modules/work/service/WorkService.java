@@ -2,11 +2,10 @@ package com.isxcode.spark.modules.work.service;
 
 import com.isxcode.spark.api.instance.constants.InstanceStatus;
 import com.isxcode.spark.api.work.constants.LockerPrefix;
-import com.isxcode.spark.api.work.constants.QuartzPrefix;
 import com.isxcode.spark.api.work.constants.WorkLog;
 import com.isxcode.spark.api.work.constants.WorkType;
 import com.isxcode.spark.backend.api.base.exceptions.IsxAppException;
-import com.isxcode.spark.common.locker.Locker;
+import com.isxcode.spark.common.locker.LeaseLocker;
 import com.isxcode.spark.modules.work.entity.WorkEntity;
 import com.isxcode.spark.modules.work.entity.WorkEventEntity;
 import com.isxcode.spark.modules.work.entity.WorkInstanceEntity;
@@ -15,12 +14,12 @@ import com.isxcode.spark.modules.work.repository.WorkInstanceRepository;
 import com.isxcode.spark.modules.work.repository.WorkRepository;
 import com.isxcode.spark.modules.work.run.WorkExecutor;
 import com.isxcode.spark.modules.work.run.WorkExecutorFactory;
+import com.isxcode.spark.modules.work.run.WorkRunJobFactory;
+import com.isxcode.spark.modules.work.run.WorkRunWriteBuffer;
 import com.isxcode.spark.modules.workflow.entity.WorkflowInstanceEntity;
 import com.isxcode.spark.modules.workflow.repository.WorkflowInstanceRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.quartz.Scheduler;
-import org.quartz.TriggerKey;
 import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
@@ -43,12 +42,16 @@ public class WorkService {
 
     private final WorkEventRepository workEventRepository;
 
-    private final Scheduler scheduler;
+    private final WorkRunJobFactory workRunJobFactory;
 
-    private final Locker locker;
+    private final LeaseLocker locker;
 
     private final WorkExecutorFactory workExecutorFactory;
 
+    private final WorkLogService workLogService;
+
+    private final WorkRunWriteBuffer workRunWriteBuffer;
+
     @Transactional
     public void abortWork(String workInstanceId) {
 
@@ -56,36 +59,47 @@ public class WorkService {
         WorkInstanceEntity workInstance = getWorkInstance(workInstanceId);
         WorkEntity work = getWorkEntity(workInstance.getWorkId());
 
-        // 第一时间等待锁，等待定时器中加的锁释放，保证定时器是运行完的
-        Integer lockKey;
+        // 第一时间等待锁，等待调度中的步骤运行完
+        // 同步执行的作业不等待正在运行的步骤，只在空闲时加锁，防止中止期间启动下一个步骤
         List<String> onlyLockWork = Arrays.asList(WorkType.API, WorkType.EXECUTE_JDBC_SQL, WorkType.QUERY_JDBC_SQL,
             WorkType.PRQL, WorkType.SPARK_CONTAINER_SQL);
+        String lockerName = LockerPrefix.WORK_EVENT_THREAD + workInstance.getEventId();
+        boolean locked;
         if (onlyLockWork.contains(work.getWorkType())) {
-            lockKey = locker.lockOnly(LockerPrefix.WORK_EVENT_THREAD + workInstance.getEventId());
+            locked = locker.tryLock(lockerName);
         } else {
-            lockKey = locker.lock(LockerPrefix.WORK_EVENT_THREAD + workInstance.getEventId());
+            locker.lock(lockerName);
+            locked = true;
         }
 
+        try {
+            abortWorkInstance(workInstanceId);
+        } finally {
+            if (locked) {
+                locker.unlock(lockerName);
+            }
+        }
+    }
+
+    private void abortWorkInstance(String workInstanceId) {
+
         // 重新获取当前最新实例
-        workInstance = getWorkInstance(workInstanceId);
+        WorkInstanceEntity workInstance = getWorkInstance(workInstanceId);
 
         // 如果成功或者失败直接结束
         if (InstanceStatus.SUCCESS.equals(workInstance.getStatus())
             || InstanceStatus.FAIL.equals(workInstance.getStatus())) {
-            locker.unlock(lockKey);
             return;
         }
 
         // 只有运行中的作业才能中止
         if (!InstanceStatus.RUNNING.equals(workInstance.getStatus())) {
-            locker.unlock(lockKey);
             throw new IsxAppException("当前状态无法中止:" + workInstance.getStatus());
         }
 
         // 获取作业运行事件体
         Optional<WorkEventEntity> optionalWorkEvent = workEventRepository.findById(workInstance.getEventId());
         if (!optionalWorkEvent.isPresent()) {
-            locker.unlock(lockKey);
             return;
         }
         WorkEventEntity workEvent = optionalWorkEvent.get();
@@ -97,8 +111,8 @@ public class WorkService {
             workInstance.setStatus(InstanceStatus.ABORTING);
             workInstance = workInstanceRepository.save(workInstance);
 
-            // 暂停每秒定时调度
-            scheduler.pauseTrigger(TriggerKey.triggerKey(QuartzPrefix.WORK_RUN_PROCESS + workEvent.getId()));
+            // 暂停作业调度
+            workRunJobFactory.pause(workEvent.getId());
 
             // 进入每个作业单独的中止逻辑
             WorkEntity workEntity = getWorkEntity(workInstance.getWorkId());
@@ -112,38 +126,35 @@ public class WorkService {
                 workInstance.setStatus(oldInstanceStatus);
                 workInstanceRepository.saveAndFlush(workInstance);
 
-                // 解锁，重启定时器
-                locker.unlock(lockKey);
-                scheduler.resumeTrigger(TriggerKey.triggerKey(QuartzPrefix.WORK_RUN_PROCESS + workEvent.getId()));
+                // 重启作业调度
+                workRunJobFactory.resume(workEvent.getId());
                 return;
             }
 
             // 重新获取实例状态
             workInstance = getWorkInstance(workInstanceId);
-            submitLog = workInstance.getSubmitLog() + LocalDateTime.now() + WorkLog.SUCCESS_INFO + "⚠️ 已中止  \n";
+            submitLog = LocalDateTime.now() + WorkLog.SUCCESS_INFO + "⚠️ 已中止  \n";
             workInstance.setStatus(InstanceStatus.ABORT);
 
         } catch (Exception e) {
 
             workInstance = getWorkInstance(workInstanceId);
-            submitLog = workInstance.getSubmitLog() + LocalDateTime.now() + WorkLog.SUCCESS_INFO + "⚠️ 中止失败 \n";
+            submitLog = LocalDateTime.now() + WorkLog.SUCCESS_INFO + "⚠️ 中止失败 \n";
             workInstance.setStatus(InstanceStatus.FAIL);
         }
 
         // 实例状态
+        workRunWriteBuffer.flush(workEvent.getId(), workInstanceId);
         workInstance.setExecEndDateTime(new Date());
-        workInstance.setSubmitLog(submitLog);
         workInstance.setDuration((System.currentTimeMillis() - workInstance.getExecStartDateTime().getTime()) / 1000);
-        workInstanceRepository.save(workInstance);
+        workLogService.compactSubmitLog(workInstance, submitLog);
 
-        // 关闭定时器和事件，清理锁
+        // 关闭作业调度和事件
         try {
-            scheduler.unscheduleJob(TriggerKey.triggerKey(QuartzPrefix.WORK_RUN_PROCESS + workEvent.getId()));
+            workRunJobFactory.cancel(workEvent.getId());
             workEventRepository.deleteById(workEvent.getId());
         } catch (Exception e) {
             log.error(e.getMessage(), e);
-        } finally {
-            locker.clearLock(LockerPrefix.WORK_EVENT_THREAD + workInstance.getEventId());
         }
     }
 
@@ -154,7 +165,8 @@ public class WorkService {
 
     public WorkInstanceEntity getWorkInstance(String workInstanceId) {
 
-        return workInstanceRepository.findById(workInstanceId).orElseThrow(() -> new IsxAppException("作业实例不存在"));
+        return workRunWriteBuffer.apply(
+            workInstanceRepository.findById(workInstanceId).orElseThrow(() -> new IsxAppException("作业实例不存在")));
     }
 
     public WorkflowInstanceEntity getWorkFlowInstance(String workflowInstanceId) {
@@ -165,6 +177,7 @@ public class WorkService {
 
     public WorkEventEntity getWorkEvent(String workEventId) {
 
-        return workEventRepository.findById(workEventId).orElseThrow(() -> new IsxAppException("作业事件不存在"));
+        return workRunWriteBuffer
+            .apply(workEventRepository.findById(workEventId).orElseThrow(() -> new IsxAppException("作业事件不存在")));
     }
 }
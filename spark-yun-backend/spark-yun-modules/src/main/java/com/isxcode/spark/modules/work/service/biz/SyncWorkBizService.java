@@ -47,25 +47,18 @@ public class SyncWorkBizService {
 
         DatasourceEntity datasourceEntity = datasourceService.getDatasource(getDataSourceTablesReq.getDataSourceId());
         ConnectInfo connectInfo = datasourceMapper.datasourceEntityToConnectInfo(datasourceEntity);
-        Datasource datasource = dataSourceFactory.getDatasource(connectInfo.getDbType());
-        Connection connection;
-        try {
-            connection = datasource.getConnection(connectInfo);
-        } catch (Exception e) {
-            log.error(e.getMessage(), e);
-            throw new IsxAppException("【" + datasourceEntity.getName() + "】连接异常，请检查数据源");
-        }
-        Map<String, String> transform = getTransform(connection, getDataSourceTablesReq.getTablePattern());
-        if (DatasourceType.ORACLE.equals(datasourceEntity.getDbType())) {
-            transform.put("schema", connectInfo.getUsername().toUpperCase());
+        try (Connection connection = getConnection(datasourceEntity, connectInfo)) {
+            Map<String, String> transform = getTransform(connection, getDataSourceTablesReq.getTablePattern());
+            if (DatasourceType.ORACLE.equals(datasourceEntity.getDbType())) {
+                transform.put("schema", connectInfo.getUsername().toUpperCase());
+            }
+            List<String> tables = syncWorkService.tables(connection.getMetaData(), transform.get("catalog"),
+                transform.get("schema"), transform.get("tableName"));
+            List<String> views = syncWorkService.views(connection.getMetaData(), transform.get("catalog"),
+                transform.get("schema"), transform.get("tableName"));
+            tables.addAll(views);
+            return GetDataSourceTablesRes.builder().tables(tables).build();
         }
-        List<String> tables = syncWorkService.tables(connection.getMetaData(), transform.get("catalog"),
-            transform.get("schema"), transform.get("tableName"));
-        List<String> views = syncWorkService.views(connection.getMetaData(), transform.get("catalog"),
-            transform.get("schema"), transform.get("tableName"));
-        tables.addAll(views);
-        connection.close();
-        return GetDataSourceTablesRes.builder().tables(tables).build();
     }
 
     public GetDataSourceColumnsRes getDataSourceColumns(GetDataSourceColumnsReq getDataSourceColumnsReq)
@@ -73,19 +66,12 @@ public class SyncWorkBizService {
 
         DatasourceEntity datasourceEntity = datasourceService.getDatasource(getDataSourceColumnsReq.getDataSourceId());
         ConnectInfo connectInfo = datasourceMapper.datasourceEntityToConnectInfo(datasourceEntity);
-        Datasource datasource = dataSourceFactory.getDatasource(connectInfo.getDbType());
-        Connection connection;
-        try {
-            connection = datasource.getConnection(connectInfo);
-        } catch (Exception e) {
-            log.error(e.getMessage(), e);
-            throw new IsxAppException("【" + datasourceEntity.getName() + "】连接异常，请检查数据源");
+        try (Connection connection = getConnection(datasourceEntity, connectInfo)) {
+            Map<String, String> transform = getTransform(connection, getDataSourceColumnsReq.getTableName());
+            List<ColumnMetaDto> columns = syncWorkService.columns(connection.getMetaData(), transform.get("catalog"),
+                transform.get("schema"), transform.get("tableName"));
+            return GetDataSourceColumnsRes.builder().columns(columns).build();
         }
-        Map<String, String> transform = getTransform(connection, getDataSourceColumnsReq.getTableName());
-        List<ColumnMetaDto> columns = syncWorkService.columns(connection.getMetaData(), transform.get("catalog"),
-            transform.get("schema"), transform.get("tableName"));
-        connection.close();
-        return GetDataSourceColumnsRes.builder().columns(columns).build();
     }
 
     public GetDataSourceDataRes getDataSourceData(GetDataSourceDataReq getDataSourceDataReq) throws Exception {
@@ -102,17 +88,28 @@ public class SyncWorkBizService {
 
         DatasourceEntity datasourceEntity = datasourceService.getDatasource(getCreateTableSqlReq.getDataSourceId());
         ConnectInfo connectInfo = datasourceMapper.datasourceEntityToConnectInfo(datasourceEntity);
+        try (Connection connection = getConnection(datasourceEntity, connectInfo)) {
+            Map<String, String> transform = getTransform(connection, getCreateTableSqlReq.getTableName());
+            String sql = String.join(" ", "CREATE TABLE", transform.get("tableName"), "(");
+            try (ResultSet columns = connection.getMetaData().getColumns(transform.get("catalog"),
+                transform.get("schema"), transform.get("tableName"), null)) {
+                while (columns.next()) {
+                    sql = String.join(" ", sql, "\n", columns.getString("COLUMN_NAME"), "String,");
+                }
+            }
+            return GetCreateTableSqlRes.builder().sql(sql.substring(0, sql.length() - 1) + "\n)").build();
+        }
+    }
+
+    private Connection getConnection(DatasourceEntity datasourceEntity, ConnectInfo connectInfo) {
+
         Datasource datasource = dataSourceFactory.getDatasource(connectInfo.getDbType());
-        Connection connection = datasource.getConnection(connectInfo);
-        Map<String, String> transform = getTransform(connection, getCreateTableSqlReq.getTableName());
-        ResultSet columns = connection.getMetaData().getColumns(transform.get("catalog"), transform.get("schema"),
-            transform.get("tableName"), null);
-        String sql = String.join(" ", "CREATE TABLE", transform.get("tableName"), "(");
-        while (columns.next()) {
-            sql = String.join(" ", sql, "\n", columns.getString("COLUMN_NAME"), "String,");
+        try {
+            return datasource.getConnection(connectInfo);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            throw new IsxAppException("【" + datasourceEntity.getName() + "】连接异常，请检查数据源");
         }
-        connection.close();
-        return GetCreateTableSqlRes.builder().sql(sql.substring(0, sql.length() - 1) + "\n)").build();
     }
 
     private Map<String, String> getTransform(Connection connection, String tableName) {
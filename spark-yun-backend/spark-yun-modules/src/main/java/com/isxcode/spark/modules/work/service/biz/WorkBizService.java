@@ -27,6 +27,8 @@ import com.isxcode.spark.modules.work.repository.WorkRepository;
 import com.isxcode.spark.modules.work.run.WorkRunContext;
 import com.isxcode.spark.modules.work.run.WorkRunJobFactory;
 import com.isxcode.spark.modules.work.service.WorkConfigService;
+import com.isxcode.spark.modules.work.service.WorkLogService;
+import com.isxcode.spark.modules.work.service.WorkResultService;
 import com.isxcode.spark.modules.work.service.WorkService;
 import com.isxcode.spark.modules.workflow.entity.WorkflowConfigEntity;
 import com.isxcode.spark.modules.workflow.entity.WorkflowEntity;
@@ -76,6 +78,10 @@ public class WorkBizService {
 
     private final WorkRunJobFactory workRunFactory;
 
+    private final WorkLogService workLogService;
+
+    private final WorkResultService workResultService;
+
     public GetWorkRes addWork(AddWorkReq addWorkReq) {
 
         // 校验作业名的唯一性
@@ -323,7 +329,23 @@ public class WorkBizService {
         WorkEntity workEntity = workService.getWorkEntity(workInstanceEntity.getWorkId());
         if (WorkType.SPARK_JAR.equals(workEntity.getWorkType()) || WorkType.BASH.equals(workEntity.getWorkType())
             || WorkType.PYTHON.equals(workEntity.getWorkType()) || WorkType.PY_SPARK.equals(workEntity.getWorkType())) {
-            return new GetDataRes(null, null, workInstanceEntity.getResultData());
+            return GetDataRes.builder().strData(workInstanceEntity.getResultData()).build();
+        }
+
+        // 分页保存的查询结果，只读取需要的页
+        if ((WorkType.QUERY_JDBC_SQL.equals(workEntity.getWorkType())
+            || WorkType.QUERY_SPARK_SQL.equals(workEntity.getWorkType()))
+            && workResultService.hasResult(workInstanceEntity.getId())) {
+            long total = workResultService.countRows(workInstanceEntity.getId());
+
+            // 不传页码返回第一页，调用方按总行数和每页行数翻页
+            int page = getDataReq.getPage() == null ? 0 : getDataReq.getPage();
+            List<List<String>> data = workResultService.getPage(workInstanceEntity.getId(), page);
+            if (data == null) {
+                throw new IsxAppException("查询结果页不存在");
+            }
+            return GetDataRes.builder().data(data).page(page).pageSize(workResultService.getPageSize()).total(total)
+                .build();
         }
 
         // 以下作业需要解析workInstanceEntity.getResultData()
@@ -332,12 +354,14 @@ public class WorkBizService {
         }
 
         if (WorkType.API.equals(workEntity.getWorkType()) || WorkType.CURL.equals(workEntity.getWorkType())) {
-            return new GetDataRes(null, JSON.toJSONString(JSON.parse(workInstanceEntity.getResultData()), true), null);
+            return GetDataRes.builder()
+                .jsonData(JSON.toJSONString(JSON.parse(workInstanceEntity.getResultData()), true)).build();
         }
 
         if (WorkType.QUERY_JDBC_SQL.equals(workEntity.getWorkType())
             || WorkType.PRQL.equals(workEntity.getWorkType())) {
-            return new GetDataRes(JSON.parseArray(workInstanceEntity.getResultData()), null, null);
+            return GetDataRes.builder().data(JSON.parseObject(workInstanceEntity.getResultData(),
+                new TypeReference<List<List<String>>>() {})).build();
         }
 
         return JSON.parseObject(workInstanceEntity.getResultData(), GetDataRes.class);
@@ -476,8 +500,17 @@ public class WorkBizService {
         }
         WorkInstanceEntity workInstanceEntity = workInstanceEntityOptional.get();
 
-        return GetSubmitLogRes.builder().log(workInstanceEntity.getSubmitLog()).status(workInstanceEntity.getStatus())
-            .build();
+        // 不传offset返回完整日志
+        if (getSubmitLogReq.getOffset() == null) {
+            String submitLog = workLogService.getSubmitLog(workInstanceEntity);
+            return GetSubmitLogRes.builder().log(submitLog).status(workInstanceEntity.getStatus())
+                .offset(submitLog == null ? 0L : submitLog.length()).build();
+        }
+
+        // 只返回offset之后的日志
+        String submitLog = workLogService.getSubmitLog(workInstanceEntity, getSubmitLogReq.getOffset());
+        return GetSubmitLogRes.builder().log(submitLog).status(workInstanceEntity.getStatus())
+            .offset(getSubmitLogReq.getOffset() + submitLog.length()).build();
     }
 
     public void renameWork(RenameWorkReq wokRenameWorkReq) {
@@ -643,6 +676,18 @@ public class WorkBizService {
         // 返回结果
         GetWorkInstanceValuePathRes result = new GetWorkInstanceValuePathRes();
 
+        // 分页保存的查询结果，只读取坐标所在的页
+        if (workResultService.hasResult(workInstanceEntity.getId())) {
+            try {
+                result.setValue(workResultService.getValue(workInstanceEntity.getId(),
+                    getWorkInstanceTablePathReq.getTableRow(), getWorkInstanceTablePathReq.getTableCol()));
+            } catch (Exception e) {
+                result.setValue("");
+            }
+            result.setCopyValue(getTableCopyValue(workEntity.getId(), getWorkInstanceTablePathReq, result.getValue()));
+            return result;
+        }
+
         List<List<String>> data;
         if (WorkType.QUERY_SPARK_SQL.equals(workEntity.getWorkType())) {
             data = JSON.parseObject(JSON.toJSONString(JSON.parseObject(workInstanceEntity.getResultData()).get("data")),
@@ -658,10 +703,16 @@ public class WorkBizService {
             result.setValue("");
         }
 
-        result.setCopyValue("#[[get_table_value('${qing." + workEntity.getId() + ".result_data}',"
-            + getWorkInstanceTablePathReq.getTableRow() + "," + getWorkInstanceTablePathReq.getTableCol() + ",'"
-            + Base64.getEncoder().encodeToString(result.getValue().getBytes()) + "')]]");
+        result.setCopyValue(getTableCopyValue(workEntity.getId(), getWorkInstanceTablePathReq, result.getValue()));
 
         return result;
     }
+
+    private String getTableCopyValue(String workId, GetWorkInstanceTablePathReq getWorkInstanceTablePathReq,
+        String value) {
+
+        return "#[[get_table_value('${qing." + workId + ".result_data}'," + getWorkInstanceTablePathReq.getTableRow()
+            + "," + getWorkInstanceTablePathReq.getTableCol() + ",'"
+            + Base64.getEncoder().encodeToString(value.getBytes()) + "')]]";
+    }
 }
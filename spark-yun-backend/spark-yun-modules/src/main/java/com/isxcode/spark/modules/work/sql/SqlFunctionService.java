@@ -1,48 +1,82 @@
 package com.isxcode.spark.modules.work.sql;
 
+import cn.hutool.cache.Cache;
+import cn.hutool.cache.CacheUtil;
 import com.isxcode.spark.backend.api.base.exceptions.IsxAppException;
+import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
+import com.isxcode.spark.common.utils.path.PathUtils;
 import groovy.lang.Binding;
-import groovy.lang.GroovyShell;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovyCodeSource;
+import groovy.lang.Script;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.codehaus.groovy.runtime.MethodClosure;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Service;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static java.util.regex.Pattern.compile;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class SqlFunctionService {
 
+    private static final Pattern FUNCTION_PATTERN = compile("(#\\[\\[).+?]]");
+
+    private static final Pattern IMPORT_PATTERN = compile("^\\s*import\\s+\\S.*$", Pattern.MULTILINE);
+
+    /**
+     * 检测自定义函数文件变化的间隔.(毫秒)
+     */
+    private static final long RELOAD_CHECK_INTERVAL = 10000;
+
     private final ResourceLoader resourceLoader;
 
+    private final IsxAppProperties isxAppProperties;
+
     /**
-     * 解析函数 #[[ date_to_str(add_day(now(),1),'YYYY-MM-dd hh:mm:ss') ]].
+     * 编译后的表达式，同一个表达式只编译一次. 每个表达式使用单独的类加载器，淘汰时一起释放，避免类一直留在元空间.
      */
-    public String parseSqlFunction(String sql) {
+    private final Cache<String, CompiledExpression> expressionCache = newExpressionCache();
 
-        Binding binding = new Binding();
-        GroovyShell shell = new GroovyShell(binding);
+    private volatile FunctionLibrary functionLibrary;
+
+    private volatile long lastCheckTime;
 
-        Pattern pattern = compile("(#\\[\\[).+?]]");
-        Matcher matcher = pattern.matcher(sql);
+    /**
+     * 解析函数 #[[ date_to_str(add_day(now(),1),'YYYY-MM-dd hh:mm:ss') ]].
+     */
+    public String parseSqlFunction(String sql) {
 
-        // 获取groovy函数脚本
-        String groovyFunctions = getGroovyFunctions();
+        Matcher matcher = FUNCTION_PATTERN.matcher(sql);
 
         // 替换正则
+        FunctionLibrary library = null;
         while (matcher.find()) {
+            if (library == null) {
+                library = getFunctionLibrary();
+            }
             String group = matcher.group();
             String functionStr = group.replace("#[[", "").replace("]]", "");
-            shell.evaluate(groovyFunctions + "result=" + functionStr);
-            String result = String.valueOf(binding.getVariable("result"));
+            String result = String.valueOf(evaluate(functionStr, library));
             sql = sql.replace(group, result);
         }
         return sql;
@@ -69,4 +103,172 @@ public class SqlFunctionService {
         }
     }
 
+    /**
+     * 每次执行使用新的Binding，函数通过Binding中的闭包调用.
+     *
+     * <p>
+     * 表达式前加上函数文件的import，和原来拼接整个函数文件执行时一样可以直接使用导入的类.
+     * </p>
+     */
+    private Object evaluate(String functionStr, FunctionLibrary library) {
+
+        String source = library.getImports() + functionStr;
+        CompiledExpression expression = expressionCache.get(source);
+        if (expression == null) {
+            GroovyClassLoader classLoader = new GroovyClassLoader(getClass().getClassLoader());
+            Class<?> scriptClass =
+                classLoader.parseClass(new GroovyCodeSource(source, "SqlFunction.groovy", "/groovy/shell"));
+            expression = new CompiledExpression(classLoader, scriptClass);
+            expressionCache.put(source, expression);
+        }
+
+        Binding binding = new Binding();
+        library.getFunctions().forEach(binding::setVariable);
+        return InvokerHelper.createScript(expression.getScriptClass(), binding).run();
+    }
+
+    private static Cache<String, CompiledExpression> newExpressionCache() {
+
+        Cache<String, CompiledExpression> cache = CacheUtil.newLRUCache(1024);
+        cache.setListener((key, expression) -> releaseClassLoader(expression.getClassLoader()));
+        return cache;
+    }
+
+    /**
+     * 类加载器不再被引用后，其加载的类才能从元空间卸载.
+     */
+    private static void releaseClassLoader(GroovyClassLoader classLoader) {
+
+        classLoader.clearCache();
+        try {
+            classLoader.close();
+        } catch (IOException e) {
+            log.warn("关闭groovy类加载器异常: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 获取函数库，自定义函数文件变化后重新编译.
+     */
+    private FunctionLibrary getFunctionLibrary() {
+
+        long now = System.currentTimeMillis();
+        if (functionLibrary != null && now - lastCheckTime < RELOAD_CHECK_INTERVAL) {
+            return functionLibrary;
+        }
+
+        synchronized (this) {
+            if (functionLibrary != null && now - lastCheckTime < RELOAD_CHECK_INTERVAL) {
+                return functionLibrary;
+            }
+            List<File> userFunctionFiles = getUserFunctionFiles();
+            String fingerprint = getFingerprint(userFunctionFiles);
+            if (functionLibrary == null || !functionLibrary.getFingerprint().equals(fingerprint)) {
+                FunctionLibrary oldFunctionLibrary = functionLibrary;
+                functionLibrary = compileFunctionLibrary(userFunctionFiles, fingerprint);
+                if (oldFunctionLibrary != null) {
+                    releaseClassLoader(oldFunctionLibrary.getClassLoader());
+                }
+            }
+            lastCheckTime = now;
+            return functionLibrary;
+        }
+    }
+
+    private FunctionLibrary compileFunctionLibrary(List<File> userFunctionFiles, String fingerprint) {
+
+        GroovyClassLoader classLoader = new GroovyClassLoader(getClass().getClassLoader());
+        Map<String, Object> functions = new HashMap<>();
+        Set<String> imports = new LinkedHashSet<>();
+
+        // 系统函数
+        addFunctions(functions, imports, classLoader, getGroovyFunctions(), "SystemFunctions.groovy");
+
+        // 自定义函数，同名时覆盖系统函数
+        for (int i = 0; i < userFunctionFiles.size(); i++) {
+            File file = userFunctionFiles.get(i);
+            try {
+                String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+                addFunctions(functions, imports, classLoader, content, "UserFunctions" + i + ".groovy");
+            } catch (Exception e) {
+                log.error("加载自定义函数文件异常: {}", file.getName(), e);
+            }
+        }
+
+        StringBuilder importBlock = new StringBuilder();
+        imports.forEach(e -> importBlock.append(e).append("\n"));
+        return new FunctionLibrary(fingerprint, classLoader, importBlock.toString(),
+            Collections.unmodifiableMap(functions));
+    }
+
+    /**
+     * 收集函数文件的import，执行脚本顶层的语句，顶层赋值的变量和函数一起放入Binding.
+     */
+    private void addFunctions(Map<String, Object> functions, Set<String> imports, GroovyClassLoader classLoader,
+        String script, String scriptName) {
+
+        Class<?> libraryClass = classLoader.parseClass(new GroovyCodeSource(script, scriptName, "/groovy/script"));
+        Binding libraryBinding = new Binding();
+        Script library = InvokerHelper.createScript(libraryClass, libraryBinding);
+        library.run();
+
+        Matcher matcher = IMPORT_PATTERN.matcher(script);
+        while (matcher.find()) {
+            imports.add(matcher.group().trim());
+        }
+        functions.putAll(libraryBinding.getVariables());
+
+        for (Method method : libraryClass.getDeclaredMethods()) {
+            if (!Modifier.isPublic(method.getModifiers()) || Modifier.isStatic(method.getModifiers())
+                || method.isSynthetic() || "run".equals(method.getName()) || method.getName().contains("$")) {
+                continue;
+            }
+            functions.put(method.getName(), new MethodClosure(library, method.getName()));
+        }
+    }
+
+    private List<File> getUserFunctionFiles() {
+
+        File functionDir = new File(
+            PathUtils.parseProjectPath(isxAppProperties.getResourcesPath()) + File.separator + "functions");
+        File[] files = functionDir.listFiles((dir, name) -> name.endsWith(".groovy"));
+        if (files == null) {
+            return Collections.emptyList();
+        }
+        Arrays.sort(files, Comparator.comparing(File::getName));
+        return Arrays.asList(files);
+    }
+
+    private String getFingerprint(List<File> files) {
+
+        StringBuilder fingerprint = new StringBuilder();
+        files.forEach(e -> fingerprint.append(e.getName()).append(':').append(e.lastModified()).append(':')
+            .append(e.length()).append(';'));
+        return fingerprint.toString();
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class FunctionLibrary {
+
+        private final String fingerprint;
+
+        private final GroovyClassLoader classLoader;
+
+        /**
+         * 函数文件的import，编译表达式时加在前面.
+         */
+        private final String imports;
+
+        private final Map<String, Object> functions;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class CompiledExpression {
+
+        private final GroovyClassLoader classLoader;
+
+        private final Class<?> scriptClass;
+    }
 }
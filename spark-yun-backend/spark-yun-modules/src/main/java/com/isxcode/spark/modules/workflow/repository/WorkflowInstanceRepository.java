@@ -53,4 +53,7 @@ public interface WorkflowInstanceRepository extends JpaRepository<WorkflowInstan
 
     List<WorkflowInstanceEntity> findAllByExecStartDateTimeAfterAndLastModifiedDateTimeBefore(Date execStartDateTime,
         LocalDateTime execEndDateTime);
+
+    List<WorkflowInstanceEntity> findAllByExecStartDateTimeGreaterThanEqualAndExecStartDateTimeLessThan(
+        Date startDateTime, Date endDateTime);
 }
@@ -0,0 +1,206 @@
+package com.isxcode.spark.modules.workflow.run;
+
+import com.isxcode.spark.backend.api.base.exceptions.IsxAppException;
+
+import java.util.*;
+
+/**
+ * 工作流DAG索引.
+ *
+ * <p>
+ * 由节点列表和节点映射一次性构建，预先计算父子邻接表、拓扑顺序、开始结束节点和下游节点，构建后不可变.
+ * </p>
+ */
+public class WorkflowDag {
+
+    private final Map<String, Integer> nodeIndex;
+
+    private final List<String> nodes;
+
+    private final List<List<String>> parentNodes;
+
+    private final List<List<String>> sonNodes;
+
+    private final List<String> topologicalOrder;
+
+    private final List<String> startNodes;
+
+    private final List<String> endNodes;
+
+    /**
+     * 每个节点的所有下游节点，按节点下标存储.
+     */
+    private final BitSet[] afterNodes;
+
+    private WorkflowDag(List<String> nodeList, List<List<String>> nodeMapping) {
+
+        // 节点编号，映射中出现但节点列表中没有的节点也要编号
+        nodeIndex = new HashMap<>();
+        nodes = new ArrayList<>();
+        nodeList.forEach(this::indexNode);
+        nodeMapping.forEach(e -> {
+            indexNode(e.get(0));
+            indexNode(e.get(1));
+        });
+
+        // 构建父子邻接表，重复的边只保留一条
+        List<Set<String>> parentSets = new ArrayList<>(nodes.size());
+        List<Set<String>> sonSets = new ArrayList<>(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            parentSets.add(new LinkedHashSet<>());
+            sonSets.add(new LinkedHashSet<>());
+        }
+        nodeMapping.forEach(e -> {
+            sonSets.get(nodeIndex.get(e.get(0))).add(e.get(1));
+            parentSets.get(nodeIndex.get(e.get(1))).add(e.get(0));
+        });
+        List<List<String>> parents = new ArrayList<>(nodes.size());
+        List<List<String>> sons = new ArrayList<>(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            parents.add(Collections.unmodifiableList(new ArrayList<>(parentSets.get(i))));
+            sons.add(Collections.unmodifiableList(new ArrayList<>(sonSets.get(i))));
+        }
+        parentNodes = Collections.unmodifiableList(parents);
+        sonNodes = Collections.unmodifiableList(sons);
+
+        // 开始节点没有父级，结束节点没有子级，保持节点列表的顺序
+        List<String> starts = new ArrayList<>();
+        List<String> ends = new ArrayList<>();
+        nodeList.forEach(e -> {
+            int index = nodeIndex.get(e);
+            if (parentNodes.get(index).isEmpty()) {
+                starts.add(e);
+            }
+            if (sonNodes.get(index).isEmpty()) {
+                ends.add(e);
+            }
+        });
+        startNodes = Collections.unmodifiableList(starts);
+        endNodes = Collections.unmodifiableList(ends);
+
+        // 拓扑排序
+        int[] inDegree = new int[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            inDegree[i] = parentNodes.get(i).size();
+        }
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            if (inDegree[i] == 0) {
+                queue.add(i);
+            }
+        }
+        List<String> order = new ArrayList<>(nodes.size());
+        while (!queue.isEmpty()) {
+            int index = queue.poll();
+            order.add(nodes.get(index));
+            for (String son : sonNodes.get(index)) {
+                int sonIndex = nodeIndex.get(son);
+                if (--inDegree[sonIndex] == 0) {
+                    queue.add(sonIndex);
+                }
+            }
+        }
+        if (order.size() != nodes.size()) {
+            throw new IsxAppException("工作流闭环了");
+        }
+        topologicalOrder = Collections.unmodifiableList(order);
+
+        // 逆拓扑顺序合并子级的下游节点
+        afterNodes = new BitSet[nodes.size()];
+        for (int i = order.size() - 1; i >= 0; i--) {
+            int index = nodeIndex.get(order.get(i));
+            BitSet after = new BitSet(nodes.size());
+            for (String son : sonNodes.get(index)) {
+                int sonIndex = nodeIndex.get(son);
+                after.set(sonIndex);
+                after.or(afterNodes[sonIndex]);
+            }
+            afterNodes[index] = after;
+        }
+    }
+
+    /**
+     * 构建工作流DAG.
+     */
+    public static WorkflowDag build(List<String> nodeList, List<List<String>> nodeMapping) {
+
+        return new WorkflowDag(nodeList == null ? Collections.emptyList() : nodeList,
+            nodeMapping == null ? Collections.emptyList() : nodeMapping);
+    }
+
+    /**
+     * 获取当前节点的父级节点，没有父级时返回空字符串，防止in查询为空.
+     */
+    public List<String> getParentNodes(String nodeId) {
+
+        Integer index = nodeIndex.get(nodeId);
+        if (index == null || parentNodes.get(index).isEmpty()) {
+            return Collections.singletonList("");
+        }
+        return parentNodes.get(index);
+    }
+
+    /**
+     * 获取当前节点的子级节点，没有子级时返回空字符串，防止in查询为空.
+     */
+    public List<String> getSonNodes(String nodeId) {
+
+        Integer index = nodeIndex.get(nodeId);
+        if (index == null || sonNodes.get(index).isEmpty()) {
+            return Collections.singletonList("");
+        }
+        return sonNodes.get(index);
+    }
+
+    /**
+     * 获取当前节点和所有下游节点.
+     */
+    public List<String> getAfterNodes(String nodeId) {
+
+        List<String> result = new ArrayList<>();
+        result.add(nodeId);
+
+        Integer index = nodeIndex.get(nodeId);
+        if (index == null) {
+            return result;
+        }
+        BitSet after = afterNodes[index];
+        for (int i = after.nextSetBit(0); i >= 0; i = after.nextSetBit(i + 1)) {
+            result.add(nodes.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * 判断目标节点是否为当前节点的下游.
+     */
+    public boolean isAfterNode(String nodeId, String targetNodeId) {
+
+        Integer index = nodeIndex.get(nodeId);
+        Integer targetIndex = nodeIndex.get(targetNodeId);
+        return index != null && targetIndex != null && afterNodes[index].get(targetIndex);
+    }
+
+    public List<String> getStartNodes() {
+
+        return startNodes;
+    }
+
+    public List<String> getEndNodes() {
+
+        return endNodes;
+    }
+
+    public List<String> getTopologicalOrder() {
+
+        return topologicalOrder;
+    }
+
+    private void indexNode(String nodeId) {
+
+        if (!nodeIndex.containsKey(nodeId)) {
+            nodeIndex.put(nodeId, nodes.size());
+            nodes.add(nodeId);
+        }
+    }
+}
@@ -12,6 +12,10 @@ public class WorkflowRunEvent {
 
     private String flowInstanceId;
 
+    private String workflowConfigId;
+
+    private String workflowDagKey;
+
     private String workId;
 
     private String workName;
@@ -35,6 +39,8 @@ public class WorkflowRunEvent {
         this.workId = workId;
         this.workName = workName;
         this.flowInstanceId = workRunEvent.getFlowInstanceId();
+        this.workflowConfigId = workRunEvent.getWorkflowConfigId();
+        this.workflowDagKey = workRunEvent.getWorkflowDagKey();
         this.nodeMapping = workRunEvent.getNodeMapping();
         this.nodeList = workRunEvent.getNodeList();
         this.dagStartList = workRunEvent.getDagStartList();
@@ -7,8 +7,9 @@ import com.isxcode.spark.api.alarm.constants.AlarmEventType;
 import com.isxcode.spark.api.instance.constants.InstanceStatus;
 import com.isxcode.spark.api.instance.constants.InstanceType;
 import com.isxcode.spark.api.work.constants.WorkLog;
-import com.isxcode.spark.common.locker.Locker;
+import com.isxcode.spark.common.locker.LeaseLocker;
 import com.isxcode.spark.modules.alarm.service.AlarmService;
+import com.isxcode.spark.modules.monitor.service.InstanceCounterService;
 import com.isxcode.spark.modules.work.entity.VipWorkVersionEntity;
 import com.isxcode.spark.modules.work.entity.WorkConfigEntity;
 import com.isxcode.spark.modules.work.entity.WorkEntity;
@@ -43,7 +44,7 @@ public class WorkflowRunEventListener {
 
     private final WorkExecutorFactory workExecutorFactory;
 
-    private final Locker locker;
+    private final LeaseLocker locker;
 
     private final WorkInstanceRepository workInstanceRepository;
 
@@ -57,6 +58,8 @@ public class WorkflowRunEventListener {
 
     private final AlarmService alarmService;
 
+    private final InstanceCounterService instanceCounterService;
+
     @EventListener
     @Async("springEventThreadPool")
     public void onApplicationEvent(WorkflowRunEvent event) {
@@ -66,7 +69,7 @@ public class WorkflowRunEventListener {
         TENANT_ID.set(event.getTenantId());
 
         // 修改状态前都要加锁，给工作流实例加锁
-        Integer lockId = locker.lock(event.getFlowInstanceId());
+        locker.lock(event.getFlowInstanceId());
         try {
             // 查询作业实例
             WorkInstanceEntity workInstance =
@@ -90,7 +93,7 @@ public class WorkflowRunEventListener {
             }
 
             // 判断父级是否可以执行
-            List<String> parentNodes = WorkflowUtils.getParentNodes(event.getNodeMapping(), event.getWorkId());
+            List<String> parentNodes = getWorkflowDag(event).getParentNodes(event.getWorkId());
             List<WorkInstanceEntity> parentInstances =
                 workInstanceRepository.findAllByWorkIdAndWorkflowInstanceId(parentNodes, event.getFlowInstanceId());
             boolean parentIsError = parentInstances.stream().anyMatch(e -> InstanceStatus.FAIL.equals(e.getStatus()));
@@ -124,7 +127,7 @@ public class WorkflowRunEventListener {
             workInstanceRepository.saveAndFlush(workInstance);
         } finally {
             // 解锁
-            locker.unlock(lockId);
+            locker.unlock(event.getFlowInstanceId());
         }
 
         // 再次查询作业实例，如果状态为运行中，则可以开始运行作业
@@ -166,18 +169,17 @@ public class WorkflowRunEventListener {
         }
 
         // 判断工作流是否执行完毕，检查结束节点是否都运行完
-        lockId = locker.lock(event.getFlowInstanceId());
-
-        // 如果工作流被中止，则不需要执行下面的逻辑
-        WorkflowInstanceEntity lastWorkflowInstance =
-            workflowInstanceRepository.findById(event.getFlowInstanceId()).get();
-        if (InstanceStatus.ABORTING.equals(lastWorkflowInstance.getStatus())) {
-            return;
-        }
-
+        locker.lock(event.getFlowInstanceId());
         try {
+            // 如果工作流被中止，则不需要执行下面的逻辑
+            WorkflowInstanceEntity lastWorkflowInstance =
+                workflowInstanceRepository.findById(event.getFlowInstanceId()).get();
+            if (InstanceStatus.ABORTING.equals(lastWorkflowInstance.getStatus())) {
+                return;
+            }
+
             // 获取结束节点实例
-            List<String> endNodes = WorkflowUtils.getEndNodes(event.getNodeMapping(), event.getNodeList());
+            List<String> endNodes = getWorkflowDag(event).getEndNodes();
             List<WorkInstanceEntity> endNodeInstance =
                 workInstanceRepository.findAllByWorkIdAndWorkflowInstanceId(endNodes, event.getFlowInstanceId());
             boolean flowIsOver = endNodeInstance.stream()
@@ -215,17 +217,18 @@ public class WorkflowRunEventListener {
                 }
 
                 workflowInstanceRepository.saveAndFlush(workflowInstance);
+                instanceCounterService.recordEnd(workflowInstance);
 
                 // 清除缓存中的作业流日志
                 workflowInstanceRepository.deleteWorkflowLog(event.getFlowInstanceId());
                 return;
             }
         } finally {
-            locker.unlock(lockId);
+            locker.unlock(event.getFlowInstanceId());
         }
 
         // 工作流没有执行完，解析推送子节点
-        List<String> sonNodes = WorkflowUtils.getSonNodes(event.getNodeMapping(), event.getWorkId());
+        List<String> sonNodes = getWorkflowDag(event).getSonNodes(event.getWorkId());
         List<WorkEntity> sonNodeWorks = workRepository.findAllByWorkIds(sonNodes);
         sonNodeWorks.forEach(work -> {
             WorkflowRunEvent metaEvent = new WorkflowRunEvent(work.getId(), work.getName(), event);
@@ -235,4 +238,13 @@ public class WorkflowRunEventListener {
             eventPublisher.publishEvent(metaEvent);
         });
     }
+
+    private WorkflowDag getWorkflowDag(WorkflowRunEvent event) {
+
+        if (Strings.isEmpty(event.getWorkflowDagKey())) {
+            event.setWorkflowDagKey(WorkflowUtils.getWorkflowDagKey(event.getWorkflowConfigId(), event.getNodeList(),
+                event.getNodeMapping()));
+        }
+        return WorkflowUtils.getWorkflowDag(event.getWorkflowDagKey(), event.getNodeList(), event.getNodeMapping());
+    }
 }
@@ -3,6 +3,9 @@ package com.isxcode.spark.modules.workflow.run;
 import static com.isxcode.spark.common.config.CommonConfig.TENANT_ID;
 import static com.isxcode.spark.common.config.CommonConfig.USER_ID;
 
+import cn.hutool.cache.Cache;
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.crypto.SecureUtil;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.TypeReference;
@@ -22,6 +25,11 @@ import org.apache.logging.log4j.util.Strings;
 
 public class WorkflowUtils {
 
+    /**
+     * 工作流DAG索引缓存，key为工作流配置id和节点的摘要.
+     */
+    private static final Cache<String, WorkflowDag> WORKFLOW_DAG_CACHE = CacheUtil.newLRUCache(256);
+
     /**
      * 将数据库字段flowStr转成List<List<String>>结构.
      */
@@ -48,13 +56,55 @@ public class WorkflowUtils {
         JgraphtUtils.isCycle(nodeIdList, flowList);
     }
 
+    /**
+     * 生成工作流DAG的缓存key，手动运行和调度运行的节点不同时key也不同，启动作业流时计算一次后随上下文传递.
+     */
+    public static String getWorkflowDagKey(String workflowConfigId, List<String> nodeList,
+        List<List<String>> nodeMapping) {
+
+        return workflowConfigId + "#"
+            + SecureUtil.md5(JSON.toJSONString(nodeList) + "#" + JSON.toJSONString(nodeMapping));
+    }
+
+    /**
+     * 获取工作流DAG索引，相同key只构建一次.
+     */
+    public static WorkflowDag getWorkflowDag(String workflowDagKey, List<String> nodeList,
+        List<List<String>> nodeMapping) {
+
+        if (Strings.isEmpty(workflowDagKey)) {
+            return WorkflowDag.build(nodeList, nodeMapping);
+        }
+
+        WorkflowDag workflowDag = WORKFLOW_DAG_CACHE.get(workflowDagKey);
+        if (workflowDag == null) {
+            workflowDag = WorkflowDag.build(nodeList, nodeMapping);
+            WORKFLOW_DAG_CACHE.put(workflowDagKey, workflowDag);
+        }
+        return workflowDag;
+    }
+
+    /**
+     * 获取作业运行上下文中的工作流DAG索引.
+     */
+    public static WorkflowDag getWorkflowDag(WorkRunContext workRunContext) {
+
+        // 升级前提交的作业事件没有key，按节点重新计算
+        String workflowDagKey = workRunContext.getWorkflowDagKey();
+        if (Strings.isEmpty(workflowDagKey) && !Strings.isEmpty(workRunContext.getWorkflowConfigId())) {
+            workflowDagKey = getWorkflowDagKey(workRunContext.getWorkflowConfigId(), workRunContext.getNodeList(),
+                workRunContext.getNodeMapping());
+        }
+        return getWorkflowDag(workflowDagKey, workRunContext.getNodeList(), workRunContext.getNodeMapping());
+    }
+
     /**
      * 获取当前节点的父级节点.
      */
     public static List<String> getParentNodes(List<List<String>> flowList, String nodeId) {
 
         List<String> nodes = flowList.stream().filter(e -> Objects.equals(e.get(1), nodeId)).map(e -> e.get(0))
-            .collect(Collectors.toList());
+            .distinct().collect(Collectors.toList());
 
         if (nodes.isEmpty()) {
             return Collections.singletonList("");
@@ -69,7 +119,7 @@ public class WorkflowUtils {
     public static List<String> getSonNodes(List<List<String>> flowList, String nodeId) {
 
         List<String> nodes = flowList.stream().filter(e -> Objects.equals(e.get(0), nodeId)).map(e -> e.get(1))
-            .collect(Collectors.toList());
+            .distinct().collect(Collectors.toList());
 
         if (nodes.isEmpty()) {
             return Collections.singletonList("");
@@ -83,7 +133,7 @@ public class WorkflowUtils {
      */
     public static List<String> getStartNodes(List<List<String>> flowList, List<String> nodeIdList) {
 
-        List<String> sonNodes = flowList.stream().map(sublist -> sublist.get(1)).collect(Collectors.toList());
+        Set<String> sonNodes = flowList.stream().map(e -> e.get(1)).collect(Collectors.toSet());
 
         return nodeIdList.stream().filter(e -> !sonNodes.contains(e)).collect(Collectors.toList());
     }
@@ -93,9 +143,9 @@ public class WorkflowUtils {
      */
     public static List<String> getEndNodes(List<List<String>> flowList, List<String> nodeIdList) {
 
-        List<String> sonNodes = flowList.stream().map(sublist -> sublist.get(0)).collect(Collectors.toList());
+        Set<String> parentNodes = flowList.stream().map(e -> e.get(0)).collect(Collectors.toSet());
 
-        return nodeIdList.stream().filter(e -> !sonNodes.contains(e)).collect(Collectors.toList());
+        return nodeIdList.stream().filter(e -> !parentNodes.contains(e)).collect(Collectors.toList());
     }
 
     /**
@@ -175,23 +225,24 @@ public class WorkflowUtils {
     }
 
     /**
-     * 获取所有下游的节点id.
+     * 获取所有下游的节点id，每个节点只访问一次.
      */
     public static List<String> parseAfterNodes(List<List<String>> webConfig, String workId) {
 
-        List<String> afterNodes = new ArrayList<>();
-        afterNodes.add(workId);
-        recursionAfterNode(afterNodes, webConfig, workId);
-        return afterNodes.stream().distinct().collect(Collectors.toList());
-    }
-
-    public static void recursionAfterNode(List<String> result, List<List<String>> webConfig, String currentWorkId) {
+        Map<String, List<String>> sonNodes = new HashMap<>();
+        webConfig.forEach(e -> sonNodes.computeIfAbsent(e.get(0), k -> new ArrayList<>()).add(e.get(1)));
 
-        webConfig.forEach(e -> {
-            if (currentWorkId.equals(e.get(0))) {
-                result.add(e.get(1));
-                recursionAfterNode(result, webConfig, e.get(1));
+        Set<String> afterNodes = new LinkedHashSet<>();
+        afterNodes.add(workId);
+        Deque<String> queue = new ArrayDeque<>();
+        queue.add(workId);
+        while (!queue.isEmpty()) {
+            for (String son : sonNodes.getOrDefault(queue.poll(), Collections.emptyList())) {
+                if (afterNodes.add(son)) {
+                    queue.add(son);
+                }
             }
-        });
+        }
+        return new ArrayList<>(afterNodes);
     }
 }
@@ -30,11 +30,12 @@ import com.isxcode.spark.api.workflow.res.PageWorkflowRes;
 import com.isxcode.spark.backend.api.base.exceptions.IsxAppException;
 import com.isxcode.spark.backend.api.base.exceptions.IsxErrorException;
 import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
-import com.isxcode.spark.common.locker.Locker;
+import com.isxcode.spark.common.locker.LeaseLocker;
 import com.isxcode.spark.common.utils.jwt.JwtUtils;
 import com.isxcode.spark.modules.cluster.entity.ClusterEntity;
 import com.isxcode.spark.modules.cluster.service.ClusterService;
 import com.isxcode.spark.modules.license.repository.LicenseStore;
+import com.isxcode.spark.modules.monitor.service.InstanceCounterService;
 import com.isxcode.spark.modules.tenant.entity.TenantEntity;
 import com.isxcode.spark.modules.tenant.service.TenantService;
 import com.isxcode.spark.modules.user.service.UserService;
@@ -45,6 +46,7 @@ import com.isxcode.spark.modules.work.entity.WorkInstanceEntity;
 import com.isxcode.spark.modules.work.repository.WorkConfigRepository;
 import com.isxcode.spark.modules.work.repository.WorkInstanceRepository;
 import com.isxcode.spark.modules.work.repository.WorkRepository;
+import com.isxcode.spark.modules.work.repository.WorkSyncProgressRepository;
 import com.isxcode.spark.modules.work.run.WorkRunContext;
 import com.isxcode.spark.modules.work.run.WorkRunJobFactory;
 import com.isxcode.spark.modules.work.service.WorkService;
@@ -97,7 +99,7 @@ public class WorkflowBizService {
 
     private final WorkflowService workflowService;
 
-    private final Locker locker;
+    private final LeaseLocker locker;
 
     private final Executor sparkYunWorkThreadPool;
 
@@ -117,6 +119,10 @@ public class WorkflowBizService {
 
     private final LicenseStore licenseStore;
 
+    private final WorkSyncProgressRepository workSyncProgressRepository;
+
+    private final InstanceCounterService instanceCounterService;
+
     public void addWorkflow(AddWorkflowReq wofAddWorkflowReq) {
 
         // 判断租户下的作业流上限
@@ -463,22 +469,24 @@ public class WorkflowBizService {
         }
 
         // 获取作业流状态锁，防止异步更新状态异常
-        Integer lockerKey = locker.lock(LockerPrefix.WORK_CHANGE_STATUS + abortFlowReq.getWorkflowInstanceId());
-
-        // 将工作流改为ABORTING，防止二次点击
-        WorkflowInstanceEntity lastWorkflowInstance =
-            workflowInstanceRepository.findById(abortFlowReq.getWorkflowInstanceId()).get();
-        lastWorkflowInstance.setStatus(InstanceStatus.ABORTING);
-        workflowInstanceRepository.saveAndFlush(lastWorkflowInstance);
-
-        // 将所有的PENDING作业实例，改为ABORT，中断作业运行
-        List<WorkInstanceEntity> pendingWorkInstances = workInstanceRepository
-            .findAllByWorkflowInstanceIdAndStatus(abortFlowReq.getWorkflowInstanceId(), InstanceStatus.PENDING);
-        pendingWorkInstances.forEach(workInstance -> workInstance.setStatus(InstanceStatus.ABORT));
-        workInstanceRepository.saveAllAndFlush(pendingWorkInstances);
-
-        // 解锁
-        locker.unlock(lockerKey);
+        String lockerName = LockerPrefix.WORK_CHANGE_STATUS + abortFlowReq.getWorkflowInstanceId();
+        locker.lock(lockerName);
+        try {
+            // 将工作流改为ABORTING，防止二次点击
+            WorkflowInstanceEntity lastWorkflowInstance =
+                workflowInstanceRepository.findById(abortFlowReq.getWorkflowInstanceId()).get();
+            lastWorkflowInstance.setStatus(InstanceStatus.ABORTING);
+            workflowInstanceRepository.saveAndFlush(lastWorkflowInstance);
+
+            // 将所有的PENDING作业实例，改为ABORT，中断作业运行
+            List<WorkInstanceEntity> pendingWorkInstances = workInstanceRepository
+                .findAllByWorkflowInstanceIdAndStatus(abortFlowReq.getWorkflowInstanceId(), InstanceStatus.PENDING);
+            pendingWorkInstances.forEach(workInstance -> workInstance.setStatus(InstanceStatus.ABORT));
+            workInstanceRepository.saveAllAndFlush(pendingWorkInstances);
+        } finally {
+            // 解锁
+            locker.unlock(lockerName);
+        }
 
         // 获取所有运行中的实例
         List<WorkInstanceEntity> runningWorkInstances = workInstanceRepository
@@ -509,6 +517,7 @@ public class WorkflowBizService {
             workflowInstanceNew.setDuration(
                 (System.currentTimeMillis() - workflowInstanceNew.getExecStartDateTime().getTime()) / 1000);
             workflowInstanceRepository.saveAndFlush(workflowInstanceNew);
+            instanceCounterService.recordEnd(workflowInstanceNew);
         });
 
     }
@@ -523,22 +532,24 @@ public class WorkflowBizService {
             workflowService.getWorkflowInstance(reRunFlowReq.getWorkflowInstanceId());
 
         // 获取作业流状态锁，防止异步更新状态异常
-        Integer lockerKey = locker.lock(LockerPrefix.WORK_CHANGE_STATUS + reRunFlowReq.getWorkflowInstanceId());
-
-        // 将工作流改为RUNNING，防止二次点击
-        WorkflowInstanceEntity lastWorkflowInstance =
-            workflowInstanceRepository.findById(reRunFlowReq.getWorkflowInstanceId()).get();
-        lastWorkflowInstance.setStatus(InstanceStatus.RUNNING);
-        workflowInstanceRepository.saveAndFlush(lastWorkflowInstance);
-
-        // 将所有的PENDING作业实例，改为ABORT，中断作业运行
-        List<WorkInstanceEntity> pendingWorkInstances = workInstanceRepository
-            .findAllByWorkflowInstanceIdAndStatus(reRunFlowReq.getWorkflowInstanceId(), InstanceStatus.PENDING);
-        pendingWorkInstances.forEach(workInstance -> workInstance.setStatus(InstanceStatus.ABORT));
-        workInstanceRepository.saveAllAndFlush(pendingWorkInstances);
-
-        // 解锁
-        locker.unlock(lockerKey);
+        String lockerName = LockerPrefix.WORK_CHANGE_STATUS + reRunFlowReq.getWorkflowInstanceId();
+        locker.lock(lockerName);
+        try {
+            // 将工作流改为RUNNING，防止二次点击
+            WorkflowInstanceEntity lastWorkflowInstance =
+                workflowInstanceRepository.findById(reRunFlowReq.getWorkflowInstanceId()).get();
+            lastWorkflowInstance.setStatus(InstanceStatus.RUNNING);
+            workflowInstanceRepository.saveAndFlush(lastWorkflowInstance);
+
+            // 将所有的PENDING作业实例，改为ABORT，中断作业运行
+            List<WorkInstanceEntity> pendingWorkInstances = workInstanceRepository
+                .findAllByWorkflowInstanceIdAndStatus(reRunFlowReq.getWorkflowInstanceId(), InstanceStatus.PENDING);
+            pendingWorkInstances.forEach(workInstance -> workInstance.setStatus(InstanceStatus.ABORT));
+            workInstanceRepository.saveAllAndFlush(pendingWorkInstances);
+        } finally {
+            // 解锁
+            locker.unlock(lockerName);
+        }
 
         // 获取所有运行中的实例
         List<WorkInstanceEntity> runningWorkInstances = workInstanceRepository
@@ -563,11 +574,15 @@ public class WorkflowBizService {
             USER_ID.set(result.get("userId"));
 
             // 初始化工作流实例状态
+            instanceCounterService.reopen(workflowInstance, true);
             workflowInstance.setStatus(InstanceStatus.RUNNING);
             workflowInstance.setExecStartDateTime(new Date());
             workflowInstance.setExecEndDateTime(null);
             workflowInstance.setDuration(null);
             workflowInstanceRepository.saveAndFlush(workflowInstance);
+            if (!InstanceType.AUTO.equals(workflowInstance.getInstanceType())) {
+                instanceCounterService.recordStart(workflowInstance);
+            }
 
             // 初始化所有实例
             List<WorkInstanceEntity> workInstances =
@@ -585,10 +600,16 @@ public class WorkflowBizService {
             });
             workInstanceRepository.saveAllAndFlush(workInstances);
 
+            // 从头重跑时清理数据同步的分区进度，断点续跑时保留
+            if (!Boolean.TRUE.equals(reRunFlowReq.getResume())) {
+                workSyncProgressRepository.deleteAllByInstanceIdIn(
+                    workInstances.stream().map(WorkInstanceEntity::getId).collect(Collectors.toList()));
+            }
+
             // 获取配置工作流配置信息
+            WorkflowEntity workflow = workflowRepository.findById(workflowInstance.getFlowId()).get();
             WorkflowVersionEntity workflowVersion;
             if (InstanceType.MANUAL.equals(workflowInstance.getInstanceType())) {
-                WorkflowEntity workflow = workflowRepository.findById(workflowInstance.getFlowId()).get();
                 WorkflowConfigEntity workflowConfig = workflowConfigRepository.findById(workflow.getConfigId()).get();
                 workflowVersion = new WorkflowVersionEntity();
                 workflowVersion.setDagStartList(workflowConfig.getDagStartList());
@@ -606,6 +627,7 @@ public class WorkflowBizService {
             List<String> endNodes = JSON.parseArray(workflowVersion.getDagEndList(), String.class);
             List<List<String>> nodeMapping =
                 JSON.parseObject(workflowVersion.getNodeMapping(), new TypeReference<List<List<String>>>() {});
+            String workflowDagKey = WorkflowUtils.getWorkflowDagKey(workflow.getConfigId(), nodeList, nodeMapping);
 
             // 把开始节点拉起来
             List<WorkEntity> startNodeWorks = workRepository.findAllByWorkIds(startNodes);
@@ -624,6 +646,8 @@ public class WorkflowBizService {
                 workRunContext.setDagEndList(endNodes);
                 workRunContext.setDagStartList(startNodes);
                 workRunContext.setFlowInstanceId(workflowInstance.getId());
+                workRunContext.setWorkflowConfigId(workflow.getConfigId());
+                workRunContext.setWorkflowDagKey(workflowDagKey);
                 workRunContext.setNodeMapping(nodeMapping);
                 workRunContext.setNodeList(nodeList);
 
@@ -644,6 +668,7 @@ public class WorkflowBizService {
             workflowInstanceRepository.findById(workInstance.getWorkflowInstanceId()).get();
 
         // 修改作业流实例状态
+        instanceCounterService.reopen(workflowInstance, false);
         workflowInstance.setStatus(InstanceStatus.RUNNING);
         workflowInstance.setExecEndDateTime(null);
         workflowInstanceRepository.save(workflowInstance);
@@ -669,9 +694,9 @@ public class WorkflowBizService {
             WorkConfigEntity workConfig = workConfigRepository.findById(work.getConfigId()).get();
 
             // 获取配置工作流配置信息
+            WorkflowEntity workflow = workflowRepository.findById(workflowInstance.getFlowId()).get();
             WorkflowVersionEntity workflowVersion;
             if (InstanceType.MANUAL.equals(workflowInstance.getInstanceType())) {
-                WorkflowEntity workflow = workflowRepository.findById(workflowInstance.getFlowId()).get();
                 WorkflowConfigEntity workflowConfig = workflowConfigRepository.findById(workflow.getConfigId()).get();
                 workflowVersion = new WorkflowVersionEntity();
                 workflowVersion.setDagStartList(workflowConfig.getDagStartList());
@@ -689,7 +714,9 @@ public class WorkflowBizService {
             List<String> startNodes = JSON.parseArray(workflowVersion.getDagStartList(), String.class);
             List<List<String>> nodeMapping =
                 JSON.parseObject(workflowVersion.getNodeMapping(), new TypeReference<List<List<String>>>() {});
-            List<String> afterWorkIds = WorkflowUtils.parseAfterNodes(nodeMapping, work.getId());
+            String workflowDagKey = WorkflowUtils.getWorkflowDagKey(workflow.getConfigId(), nodeList, nodeMapping);
+            List<String> afterWorkIds =
+                WorkflowUtils.getWorkflowDag(workflowDagKey, nodeList, nodeMapping).getAfterNodes(work.getId());
 
             // 将下游所有节点实例，全部状态改为PENDING
             List<WorkInstanceEntity> afterWorkInstances = workInstanceRepository
@@ -708,6 +735,13 @@ public class WorkflowBizService {
                 e.setQuartzHasRun(true);
             });
             workInstanceRepository.saveAllAndFlush(afterWorkInstances);
+            instanceCounterService.reopenNodes(workflowInstance);
+
+            // 重跑的实例从头同步
+            List<String> rerunInstanceIds =
+                afterWorkInstances.stream().map(WorkInstanceEntity::getId).collect(Collectors.toList());
+            rerunInstanceIds.add(workInstance.getId());
+            workSyncProgressRepository.deleteAllByInstanceIdIn(rerunInstanceIds);
 
             // 封装作业执行上下文
             WorkRunContext workRunContext =
@@ -715,6 +749,8 @@ public class WorkflowBizService {
             workRunContext.setDagEndList(endNodes);
             workRunContext.setDagStartList(startNodes);
             workRunContext.setFlowInstanceId(workflowInstance.getId());
+            workRunContext.setWorkflowConfigId(workflow.getConfigId());
+            workRunContext.setWorkflowDagKey(workflowDagKey);
             workRunContext.setNodeMapping(nodeMapping);
             workRunContext.setNodeList(nodeList);
 
@@ -750,6 +786,7 @@ public class WorkflowBizService {
             USER_ID.set(result.get("userId"));
 
             // 修改作业流状态
+            instanceCounterService.reopen(workflowInstance, false);
             workflowInstance.setStatus(InstanceStatus.RUNNING);
             workflowInstanceRepository.saveAndFlush(workflowInstance);
 
@@ -764,11 +801,13 @@ public class WorkflowBizService {
             workInstance.setExecEndDateTime(null);
             workInstance.setQuartzHasRun(true);
             workInstanceRepository.saveAndFlush(workInstance);
+            instanceCounterService.reopenNodes(workflowInstance);
+            workSyncProgressRepository.deleteAllByInstanceId(workInstance.getId());
 
             // 获取配置工作流配置信息
+            WorkflowEntity workflow = workflowRepository.findById(workflowInstance.getFlowId()).get();
             WorkflowVersionEntity workflowVersion;
             if (InstanceType.MANUAL.equals(workflowInstance.getInstanceType())) {
-                WorkflowEntity workflow = workflowRepository.findById(workflowInstance.getFlowId()).get();
                 WorkflowConfigEntity workflowConfig = workflowConfigRepository.findById(workflow.getConfigId()).get();
                 workflowVersion = new WorkflowVersionEntity();
                 workflowVersion.setDagStartList(workflowConfig.getDagStartList());
@@ -786,6 +825,7 @@ public class WorkflowBizService {
             List<String> startNodes = JSON.parseArray(workflowVersion.getDagStartList(), String.class);
             List<List<String>> nodeMapping =
                 JSON.parseObject(workflowVersion.getNodeMapping(), new TypeReference<List<List<String>>>() {});
+            String workflowDagKey = WorkflowUtils.getWorkflowDagKey(workflow.getConfigId(), nodeList, nodeMapping);
 
             // 封装作业执行上下文
             WorkRunContext workRunContext =
@@ -793,6 +833,8 @@ public class WorkflowBizService {
             workRunContext.setDagEndList(endNodes);
             workRunContext.setDagStartList(startNodes);
             workRunContext.setFlowInstanceId(workflowInstance.getId());
+            workRunContext.setWorkflowConfigId(workflow.getConfigId());
+            workRunContext.setWorkflowDagKey(workflowDagKey);
             workRunContext.setNodeMapping(nodeMapping);
             workRunContext.setNodeList(nodeList);
 
@@ -806,18 +848,20 @@ public class WorkflowBizService {
         WorkInstanceEntity workInstance = workflowService.getWorkInstance(breakFlowReq.getWorkInstanceId());
 
         // 获取作业流状态锁，防止异步更新状态异常
-        Integer lockerKey = locker.lock(LockerPrefix.WORK_CHANGE_STATUS + workInstance.getWorkflowInstanceId());
-
-        // 修改实例状态
-        workInstance = workflowService.getWorkInstance(breakFlowReq.getWorkInstanceId());
-        if (!InstanceStatus.PENDING.equals(workInstance.getStatus())) {
-            throw new IsxAppException("只有等待中的作业可以中断");
+        String lockerName = LockerPrefix.WORK_CHANGE_STATUS + workInstance.getWorkflowInstanceId();
+        locker.lock(lockerName);
+        try {
+            // 修改实例状态
+            workInstance = workflowService.getWorkInstance(breakFlowReq.getWorkInstanceId());
+            if (!InstanceStatus.PENDING.equals(workInstance.getStatus())) {
+                throw new IsxAppException("只有等待中的作业可以中断");
+            }
+            workInstance.setStatus(InstanceStatus.BREAK);
+            workInstanceRepository.save(workInstance);
+        } finally {
+            // 解锁
+            locker.unlock(lockerName);
         }
-        workInstance.setStatus(InstanceStatus.BREAK);
-        workInstanceRepository.save(workInstance);
-
-        // 解锁
-        locker.unlock(lockerKey);
     }
 
     public GetWorkflowDefaultClusterRes getWorkflowDefaultCluster(
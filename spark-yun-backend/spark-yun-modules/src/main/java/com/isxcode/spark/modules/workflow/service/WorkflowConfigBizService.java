@@ -9,6 +9,7 @@ import com.isxcode.spark.modules.work.repository.WorkRepository;
 import com.isxcode.spark.modules.workflow.entity.WorkflowConfigEntity;
 import com.isxcode.spark.modules.workflow.entity.WorkflowEntity;
 import com.isxcode.spark.modules.workflow.repository.WorkflowConfigRepository;
+import com.isxcode.spark.modules.workflow.run.WorkflowDag;
 import com.isxcode.spark.modules.workflow.run.WorkflowUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -64,15 +65,15 @@ public class WorkflowConfigBizService {
         // 检查节点是否闭环
         WorkflowUtils.checkFlow(nodeList, nodeMapping);
 
-        // 解析开始节点
-        List<String> startNodes = WorkflowUtils.getStartNodes(nodeMapping, nodeList);
-
-        // 解析结束节点
-        List<String> endNodes = WorkflowUtils.getEndNodes(nodeMapping, nodeList);
-
         // 获取工作流配置
         WorkflowConfigEntity workflowConfig = getWorkflowConfig(workflow.getConfigId());
 
+        // 构建工作流DAG索引，解析开始节点和结束节点
+        WorkflowDag workflowDag = WorkflowUtils.getWorkflowDag(
+            WorkflowUtils.getWorkflowDagKey(workflowConfig.getId(), nodeList, nodeMapping), nodeList, nodeMapping);
+        List<String> startNodes = workflowDag.getStartNodes();
+        List<String> endNodes = workflowDag.getEndNodes();
+
         // 封装工作流配置
         workflowConfig.setWebConfig(flowWebConfig);
         workflowConfig.setDagEndList(JSON.toJSONString(endNodes));
@@ -11,6 +11,7 @@ import com.isxcode.spark.api.workflow.req.GetInvokeUrlReq;
 import com.isxcode.spark.backend.api.base.exceptions.IsxAppException;
 import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
 import com.isxcode.spark.common.utils.jwt.JwtUtils;
+import com.isxcode.spark.modules.monitor.service.InstanceCounterService;
 import com.isxcode.spark.modules.work.entity.VipWorkVersionEntity;
 import com.isxcode.spark.modules.work.entity.WorkConfigEntity;
 import com.isxcode.spark.modules.work.entity.WorkEntity;
@@ -66,6 +67,8 @@ public class WorkflowService {
 
     private final VipWorkVersionRepository vipWorkVersionRepository;
 
+    private final InstanceCounterService instanceCounterService;
+
     public WorkInstanceEntity getWorkInstance(String workInstanceId) {
 
         return workInstanceRepository.findById(workInstanceId).orElseThrow(() -> new IsxAppException("实例不存在"));
@@ -125,6 +128,7 @@ public class WorkflowService {
             .webConfig(workflowConfig.getWebConfig()).status(FlowInstanceStatus.RUNNING)
             .instanceType(InstanceType.MANUAL).execStartDateTime(new Date()).build();
         workflowInstance = workflowInstanceRepository.saveAndFlush(workflowInstance);
+        instanceCounterService.recordStart(workflowInstance);
 
         // 初始化所有节点的作业实例
         List<String> nodeList = JSON.parseArray(workflowConfig.getNodeList(), String.class);
@@ -142,6 +146,7 @@ public class WorkflowService {
         List<String> endNodes = JSON.parseArray(workflowConfig.getDagEndList(), String.class);
         List<List<String>> nodeMapping =
             JSON.parseObject(workflowConfig.getNodeMapping(), new TypeReference<List<List<String>>>() {});
+        String workflowDagKey = WorkflowUtils.getWorkflowDagKey(workflow.getConfigId(), nodeList, nodeMapping);
 
         // 作业流日志:手动启动作业流
         log.debug("【手动触发作业流】: {},【作业流实例id】: {}", workflow.getName(), workflowInstance.getId());
@@ -163,6 +168,8 @@ public class WorkflowService {
             workRunContext.setDagEndList(endNodes);
             workRunContext.setDagStartList(startNodes);
             workRunContext.setFlowInstanceId(workflowInstance.getId());
+            workRunContext.setWorkflowConfigId(workflow.getConfigId());
+            workRunContext.setWorkflowDagKey(workflowDagKey);
             workRunContext.setNodeMapping(nodeMapping);
             workRunContext.setNodeList(nodeList);
 
@@ -187,6 +194,7 @@ public class WorkflowService {
                 .instanceType(InstanceType.INVOKE).versionId(workflow.getVersionId())
                 .webConfig(workflowVersion.getWebConfig()).execStartDateTime(new Date()).build();
         workflowInstance = workflowInstanceRepository.saveAndFlush(workflowInstance);
+        instanceCounterService.recordStart(workflowInstance);
 
         // 初始化作业实例
         List<String> nodeList = JSON.parseArray(workflowVersion.getNodeList(), String.class);
@@ -205,6 +213,7 @@ public class WorkflowService {
         List<String> endNodes = JSON.parseArray(workflowVersion.getDagEndList(), String.class);
         List<List<String>> nodeMapping =
             JSON.parseObject(workflowVersion.getNodeMapping(), new TypeReference<List<List<String>>>() {});
+        String workflowDagKey = WorkflowUtils.getWorkflowDagKey(workflow.getConfigId(), nodeList, nodeMapping);
 
         // 封装event推送时间，开始执行任务
         List<WorkEntity> startNodeWorks = workRepository.findAllByWorkIds(startNodes);
@@ -224,6 +233,8 @@ public class WorkflowService {
             workRunContext.setDagEndList(endNodes);
             workRunContext.setDagStartList(startNodes);
             workRunContext.setFlowInstanceId(workflowInstance.getId());
+            workRunContext.setWorkflowConfigId(workflow.getConfigId());
+            workRunContext.setWorkflowDagKey(workflowDagKey);
             workRunContext.setNodeMapping(nodeMapping);
             workRunContext.setNodeList(nodeList);
             workRunContext.setVersionId(work.getVersionId());
@@ -0,0 +1,232 @@
+package com.isxcode.spark.modules.alarm.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.isxcode.spark.api.alarm.constants.AlarmEventType;
+import com.isxcode.spark.api.alarm.constants.AlarmSendStatus;
+import com.isxcode.spark.api.alarm.constants.AlarmStatus;
+import com.isxcode.spark.api.alarm.constants.AlarmType;
+import com.isxcode.spark.api.alarm.constants.MessageStatus;
+import com.isxcode.spark.api.alarm.constants.MessageType;
+import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
+import com.isxcode.spark.modules.alarm.entity.AlarmEntity;
+import com.isxcode.spark.modules.alarm.entity.AlarmInstanceEntity;
+import com.isxcode.spark.modules.alarm.entity.MessageEntity;
+import com.isxcode.spark.modules.alarm.message.MessageContext;
+import com.isxcode.spark.modules.alarm.message.MessageFactory;
+import com.isxcode.spark.modules.alarm.message.MessageRunner;
+import com.isxcode.spark.modules.alarm.repository.AlarmRepository;
+import com.isxcode.spark.modules.alarm.repository.MessageRepository;
+import com.isxcode.spark.modules.user.service.UserService;
+import com.isxcode.spark.modules.work.entity.VipWorkVersionEntity;
+import com.isxcode.spark.modules.work.entity.WorkEntity;
+import com.isxcode.spark.modules.work.entity.WorkInstanceEntity;
+import com.isxcode.spark.modules.work.repository.VipWorkVersionRepository;
+import com.isxcode.spark.modules.work.service.WorkService;
+import com.isxcode.spark.modules.workflow.entity.WorkflowEntity;
+import com.isxcode.spark.modules.workflow.repository.WorkflowVersionRepository;
+import com.isxcode.spark.modules.workflow.service.WorkflowService;
+import com.isxcode.spark.security.user.UserEntity;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+/**
+ * 告警发送队列测试，按指定的时间推进发送周期，发送结果写入内存列表.
+ */
+class AlarmDispatcherTest {
+
+    private static final String VERSION_ID = "version_1";
+
+    private static final String WORKFLOW_INSTANCE_ID = "workflow_instance_1";
+
+    private static final long WINDOW = 10 * 1000L;
+
+    /**
+     * 每次发送的消息内容.
+     */
+    private final List<MessageContext> sent = new ArrayList<>();
+
+    /**
+     * 写库的发送记录.
+     */
+    private final List<AlarmInstanceEntity> records = new ArrayList<>();
+
+    private AlarmEntity alarm;
+
+    private IsxAppProperties isxAppProperties;
+
+    private AlarmDispatcher alarmDispatcher;
+
+    @BeforeEach
+    void setUp() {
+
+        isxAppProperties = new IsxAppProperties();
+        isxAppProperties.setAlarmAggregateWindow((int) (WINDOW / 1000));
+
+        alarm = AlarmEntity.builder().id("alarm_1").status(AlarmStatus.ENABLE).alarmType(AlarmType.WORK)
+            .alarmEvent(AlarmEventType.RUN_FAIL).msgId("message_1").receiverList("[\"user_1\"]")
+            .alarmTemplate("作业${qing.work_name}运行失败，实例${qing.work_instance_id}").build();
+        AlarmRepository alarmRepository = mock(AlarmRepository.class);
+        when(alarmRepository.findById("alarm_1")).thenAnswer(i -> Optional.of(alarm));
+
+        MessageRepository messageRepository = mock(MessageRepository.class);
+        when(messageRepository.findById("message_1")).thenReturn(Optional.of(MessageEntity.builder().id("message_1")
+            .status(MessageStatus.ACTIVE).msgType(MessageType.EMAIL).msgConfig("{}").build()));
+
+        MessageRunner messageRunner = mock(MessageRunner.class);
+        when(messageRunner.execute(any(MessageContext.class))).thenAnswer(i -> {
+            MessageContext messageContext = i.getArgument(0);
+            sent.add(messageContext);
+            return AlarmInstanceEntity.builder().alarmId(messageContext.getAlarmId())
+                .content(messageContext.getContent()).instanceId(messageContext.getInstanceId())
+                .receiver(messageContext.getReceiver()).sendDateTime(messageContext.getSendDateTime())
+                .sendStatus(AlarmSendStatus.SUCCESS).build();
+        });
+        MessageFactory messageFactory = mock(MessageFactory.class);
+        when(messageFactory.getMessageAction(MessageType.EMAIL)).thenReturn(messageRunner);
+
+        UserService userService = mock(UserService.class);
+        when(userService.getUser(anyString())).thenAnswer(i -> {
+            UserEntity user = new UserEntity();
+            user.setEmail(i.getArgument(0) + "@isxcode.com");
+            return user;
+        });
+
+        VipWorkVersionEntity workVersion = new VipWorkVersionEntity();
+        workVersion.setWorkId("work_1");
+        workVersion.setAlarmList("[\"alarm_1\"]");
+        VipWorkVersionRepository vipWorkVersionRepository = mock(VipWorkVersionRepository.class);
+        when(vipWorkVersionRepository.findById(VERSION_ID)).thenReturn(Optional.of(workVersion));
+
+        WorkEntity work = new WorkEntity();
+        work.setId("work_1");
+        work.setName("同步用户");
+        work.setWorkflowId("workflow_1");
+        WorkService workService = mock(WorkService.class);
+        when(workService.getWorkEntity("work_1")).thenReturn(work);
+
+        WorkflowEntity workflow = new WorkflowEntity();
+        workflow.setId("workflow_1");
+        workflow.setName("每日同步");
+        WorkflowService workflowService = mock(WorkflowService.class);
+        when(workflowService.getWorkflow("workflow_1")).thenReturn(workflow);
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(),
+            any(ParameterizedPreparedStatementSetter.class))).thenAnswer(i -> {
+                records.addAll(i.<Collection<AlarmInstanceEntity>>getArgument(1));
+                return new int[0][];
+            });
+
+        alarmDispatcher = new AlarmDispatcher(jdbcTemplate, alarmRepository, messageRepository, messageFactory,
+            userService, vipWorkVersionRepository, mock(WorkflowVersionRepository.class), workService,
+            workflowService, isxAppProperties);
+        alarmDispatcher.init();
+    }
+
+    @Test
+    void testRender() {
+
+        AlarmDispatcher.AlarmTemplate template =
+            new AlarmDispatcher.AlarmTemplate("${qing.work_name}失败，${qing.unknown}于${qing.current_date}。");
+        Map<String, String> values = new HashMap<>();
+        values.put("${qing.work_name}", "同步用户");
+        values.put("${qing.current_date}", "2024-01-01");
+
+        // 没有值的变量原样保留
+        assertEquals("同步用户失败，${qing.unknown}于2024-01-01。", template.render(values));
+        assertEquals("没有变量", new AlarmDispatcher.AlarmTemplate("没有变量").render(values));
+        assertEquals("", new AlarmDispatcher.AlarmTemplate(null).render(values));
+    }
+
+    @Test
+    void testMergeValues() {
+
+        for (int i = 1; i <= 12; i++) {
+            offerFail("instance_" + i);
+        }
+
+        // 聚合窗口内不发送
+        alarmDispatcher.dispatch(false, 0);
+        alarmDispatcher.dispatch(false, WINDOW - 1);
+        assertEquals(0, sent.size());
+
+        // 相同的值只展示一次，不同的值展示前3个和总数
+        alarmDispatcher.dispatch(false, WINDOW);
+        assertEquals(1, sent.size());
+        assertEquals("作业同步用户运行失败，实例instance_1、instance_2、instance_3等12个", sent.get(0).getContent());
+        assertEquals("user_1@isxcode.com", sent.get(0).getEmail());
+
+        // 每个实例一条发送记录
+        assertEquals(12, records.size());
+        assertEquals(12, records.stream().map(AlarmInstanceEntity::getInstanceId).distinct().count());
+    }
+
+    @Test
+    void testDedupWithinWindowAndRealarmAfter() {
+
+        // 窗口内重复的事件只发一次
+        offerFail("instance_1");
+        alarmDispatcher.dispatch(false, 0);
+        offerFail("instance_1");
+        alarmDispatcher.dispatch(false, WINDOW / 2);
+        alarmDispatcher.dispatch(false, WINDOW);
+        assertEquals(1, sent.size());
+        assertEquals("作业同步用户运行失败，实例instance_1", sent.get(0).getContent());
+        assertEquals(1, records.size());
+
+        // 窗口结束后同一个实例重跑失败，重新告警
+        offerFail("instance_1");
+        alarmDispatcher.dispatch(false, WINDOW + 1);
+        assertEquals(1, sent.size());
+        alarmDispatcher.dispatch(false, WINDOW * 2 + 1);
+        assertEquals(2, sent.size());
+        assertEquals(2, records.size());
+    }
+
+    @Test
+    void testRateLimitedGroupSentLater() {
+
+        // 每分钟只能发一条，两个接收人分成两组
+        isxAppProperties.setAlarmRateLimit(1);
+        alarm.setReceiverList("[\"user_1\",\"user_2\"]");
+
+        offerFail("instance_1");
+        alarmDispatcher.dispatch(false, 0);
+        alarmDispatcher.dispatch(false, WINDOW);
+        assertEquals(1, sent.size());
+        assertEquals("user_1", sent.get(0).getReceiver());
+
+        // 令牌没有补充前留在队列中
+        alarmDispatcher.dispatch(false, WINDOW + 30 * 1000L);
+        assertEquals(1, sent.size());
+
+        alarmDispatcher.dispatch(false, WINDOW + 60 * 1000L);
+        assertEquals(2, sent.size());
+        assertEquals("user_2", sent.get(1).getReceiver());
+        assertEquals(sent.get(0).getContent(), sent.get(1).getContent());
+        assertEquals(2, records.size());
+        assertEquals(2, records.stream().map(AlarmInstanceEntity::getReceiver).collect(Collectors.toSet()).size());
+    }
+
+    private void offerFail(String instanceId) {
+
+        alarmDispatcher.offerWork(WorkInstanceEntity.builder().id(instanceId).versionId(VERSION_ID).tenantId("tenant_1")
+            .workflowInstanceId(WORKFLOW_INSTANCE_ID).build(), AlarmEventType.RUN_FAIL);
+    }
+}
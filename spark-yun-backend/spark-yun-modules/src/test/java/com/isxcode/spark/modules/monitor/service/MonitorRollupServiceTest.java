@@ -0,0 +1,305 @@
+package com.isxcode.spark.modules.monitor.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.isxcode.spark.api.monitor.ao.MonitorLineAo;
+import com.isxcode.spark.api.monitor.constants.MonitorStatus;
+import com.isxcode.spark.api.monitor.constants.RollupLevel;
+import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
+import com.isxcode.spark.common.locker.LeaseLocker;
+import com.isxcode.spark.modules.monitor.entity.MonitorEntity;
+import com.isxcode.spark.modules.monitor.entity.MonitorMetric;
+import com.isxcode.spark.modules.monitor.entity.MonitorRollupEntity;
+import com.isxcode.spark.modules.monitor.repository.MonitorRepository;
+import com.isxcode.spark.modules.monitor.repository.MonitorRollupRepository;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * 节点监控汇总测试，仓库用内存中的列表模拟.
+ */
+class MonitorRollupServiceTest {
+
+    private static final String CLUSTER_ID = "cluster_1";
+
+    private final List<MonitorEntity> monitors = new ArrayList<>();
+
+    private final List<MonitorRollupEntity> rollups = new ArrayList<>();
+
+    private final LocalDateTime today = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS);
+
+    private MonitorRepository monitorRepository;
+
+    private IsxAppProperties isxAppProperties;
+
+    private MonitorRollupService monitorRollupService;
+
+    @BeforeEach
+    void setUp() {
+
+        monitorRepository = mock(MonitorRepository.class);
+        when(monitorRepository.findTopByStatusAndCreateDateTimeGreaterThanEqualOrderByCreateDateTime(anyString(),
+            any())).thenAnswer(invocation -> monitors.stream()
+                .filter(e -> e.getStatus().equals(invocation.getArgument(0))
+                    && !e.getCreateDateTime().isBefore(invocation.getArgument(1)))
+                .min(Comparator.comparing(MonitorEntity::getCreateDateTime)));
+        when(monitorRepository.findAllInRange(anyString(), any(), any()))
+            .thenAnswer(invocation -> monitors.stream()
+                .filter(e -> e.getStatus().equals(invocation.getArgument(0))
+                    && inRange(e.getCreateDateTime(), invocation.getArgument(1), invocation.getArgument(2)))
+                .collect(Collectors.toList()));
+        when(monitorRepository.findIdsBefore(any(), any())).thenAnswer(invocation -> {
+            LocalDateTime before = invocation.getArgument(0);
+            Pageable pageable = invocation.getArgument(1);
+            return monitors.stream().filter(e -> e.getCreateDateTime().isBefore(before)).map(MonitorEntity::getId)
+                .limit(pageable.getPageSize()).collect(Collectors.toList());
+        });
+        when(monitorRepository.deleteAllByIdIn(anyList())).thenAnswer(invocation -> {
+            List<String> ids = invocation.getArgument(0);
+            int size = monitors.size();
+            monitors.removeIf(e -> ids.contains(e.getId()));
+            return size - monitors.size();
+        });
+        when(monitorRepository.queryMonitorLine(anyString(), any(), any()))
+            .thenAnswer(invocation -> toLine(monitors.stream()
+                .filter(e -> e.getClusterId().equals(invocation.getArgument(0))
+                    && between(e.getCreateDateTime(), invocation.getArgument(1), invocation.getArgument(2)))
+                .collect(Collectors.toList()), MonitorEntity::getCreateDateTime, MonitorEntity::getCpuPercent));
+
+        MonitorRollupRepository monitorRollupRepository = mock(MonitorRollupRepository.class);
+        when(monitorRollupRepository.findTopByRollupLevelOrderByBucketDateTimeDesc(anyString()))
+            .thenAnswer(invocation -> rollups.stream().filter(e -> e.getRollupLevel().equals(invocation.getArgument(0)))
+                .max(Comparator.comparing(MonitorRollupEntity::getBucketDateTime)));
+        when(monitorRollupRepository.findTopByClusterIdAndRollupLevelOrderByBucketDateTimeDesc(anyString(),
+            anyString())).thenAnswer(invocation -> rollups.stream()
+                .filter(e -> e.getClusterId().equals(invocation.getArgument(0))
+                    && e.getRollupLevel().equals(invocation.getArgument(1)))
+                .max(Comparator.comparing(MonitorRollupEntity::getBucketDateTime)));
+        when(monitorRollupRepository.findTopByRollupLevelAndBucketDateTimeGreaterThanEqualOrderByBucketDateTime(
+            anyString(), any())).thenAnswer(invocation -> rollups.stream()
+                .filter(e -> e.getRollupLevel().equals(invocation.getArgument(0))
+                    && !e.getBucketDateTime().isBefore(invocation.getArgument(1)))
+                .min(Comparator.comparing(MonitorRollupEntity::getBucketDateTime)));
+        when(monitorRollupRepository.findAllInRange(anyString(), any(), any()))
+            .thenAnswer(invocation -> rollups.stream()
+                .filter(e -> e.getRollupLevel().equals(invocation.getArgument(0))
+                    && inRange(e.getBucketDateTime(), invocation.getArgument(1), invocation.getArgument(2)))
+                .collect(Collectors.toList()));
+        when(monitorRollupRepository.queryMonitorLine(anyString(), anyString(), any(), any()))
+            .thenAnswer(invocation -> toLine(rollups.stream()
+                .filter(e -> e.getClusterId().equals(invocation.getArgument(0))
+                    && e.getRollupLevel().equals(invocation.getArgument(1))
+                    && between(e.getBucketDateTime(), invocation.getArgument(2), invocation.getArgument(3)))
+                .collect(Collectors.toList()), MonitorRollupEntity::getBucketDateTime,
+                (MonitorRollupEntity e) -> e.getCpuPercent().getAvg()));
+        doAnswer(invocation -> {
+            List<MonitorRollupEntity> entities = invocation.getArgument(0);
+            rollups.addAll(entities);
+            return entities;
+        }).when(monitorRollupRepository).saveAll(anyList());
+
+        isxAppProperties = new IsxAppProperties();
+        monitorRollupService = new MonitorRollupService(monitorRepository, monitorRollupRepository, isxAppProperties,
+            mock(LeaseLocker.class));
+    }
+
+    @Test
+    void testBucketing() {
+
+        LocalDateTime hour = today.minusDays(2).plusHours(10);
+        addMonitor("node_1", hour, 10.0);
+        addMonitor("node_1", hour.plusMinutes(2), 30.0);
+        addMonitor("node_1", hour.plusMinutes(6), 60.0);
+        addMonitor("node_2", hour.plusMinutes(1), 50.0);
+
+        // 第一次只追到开始后的一天，第二次追上后汇总小时和天
+        monitorRollupService.scheduleRollup();
+        monitorRollupService.scheduleRollup();
+
+        List<MonitorRollupEntity> fiveMin = getRollups(RollupLevel.FIVE_MIN);
+        assertEquals(3, fiveMin.size());
+        assertRollup(getRollup(fiveMin, "node_1", hour), 2, new MonitorMetric(10.0, 20.0, 30.0, 30.0));
+        assertRollup(getRollup(fiveMin, "node_1", hour.plusMinutes(5)), 1, new MonitorMetric(60.0, 60.0, 60.0, 60.0));
+        assertRollup(getRollup(fiveMin, "node_2", hour), 1, new MonitorMetric(50.0, 50.0, 50.0, 50.0));
+
+        // 上级按次数加权平均，最新值取时间最晚的
+        List<MonitorRollupEntity> hours = getRollups(RollupLevel.HOUR);
+        assertEquals(2, hours.size());
+        assertRollup(getRollup(hours, "node_1", hour), 3, new MonitorMetric(10.0, 33.33, 60.0, 60.0));
+
+        List<MonitorRollupEntity> days = getRollups(RollupLevel.DAY);
+        assertEquals(2, days.size());
+        assertRollup(getRollup(days, "node_1", today.minusDays(2)), 3, new MonitorMetric(10.0, 33.33, 60.0, 60.0));
+        assertRollup(getRollup(days, "node_2", today.minusDays(2)), 1, new MonitorMetric(50.0, 50.0, 50.0, 50.0));
+    }
+
+    @Test
+    void testCatchUp() {
+
+        LocalDateTime start = today.minusDays(4);
+        addMonitor("node_1", start.plusMinutes(1), 10.0);
+        addMonitor("node_1", start.plusHours(30), 20.0);
+        addMonitor("node_1", start.plusHours(48).plusMinutes(1), 30.0);
+
+        // 单次最多汇总288个5分钟，没有追上时不汇总上级
+        monitorRollupService.scheduleRollup();
+        assertEquals(1, getRollups(RollupLevel.FIVE_MIN).size());
+        assertEquals(0, getRollups(RollupLevel.HOUR).size());
+
+        // 没有数据的时间段直接跳过
+        monitorRollupService.scheduleRollup();
+        assertEquals(3, getRollups(RollupLevel.FIVE_MIN).size());
+        assertEquals(0, getRollups(RollupLevel.HOUR).size());
+
+        monitorRollupService.scheduleRollup();
+        assertEquals(3, getRollups(RollupLevel.FIVE_MIN).size());
+        assertEquals(3, getRollups(RollupLevel.HOUR).size());
+        assertEquals(3, getRollups(RollupLevel.DAY).size());
+
+        // 追上后重复执行不会重复汇总
+        monitorRollupService.scheduleRollup();
+        assertEquals(9, rollups.size());
+    }
+
+    @Test
+    void testPurge() {
+
+        isxAppProperties.setMonitorRetentionDays(1);
+        isxAppProperties.setMonitorPurgeBatchSize(2);
+
+        LocalDateTime start = today.minusDays(4);
+        for (int i = 1; i <= 4; i++) {
+            addMonitor("node_1", start.plusMinutes(i), 10.0);
+        }
+        MonitorEntity lastBucketMonitor = addMonitor("node_1", start.plusMinutes(6), 10.0);
+        MonitorEntity recentMonitor = addMonitor("node_1", LocalDateTime.now().minusHours(2), 10.0);
+
+        // 没有追上时，只删除最后一个已汇总时间段之前的原始数据，分批删除
+        monitorRollupService.scheduleRollup();
+        assertEquals(2, monitors.size());
+        assertTrue(monitors.contains(lastBucketMonitor));
+        verify(monitorRepository, times(2)).deleteAllByIdIn(anyList());
+
+        // 追上后，删除超过保留天数的原始数据
+        monitorRollupService.scheduleRollup();
+        assertEquals(1, monitors.size());
+        assertTrue(monitors.contains(recentMonitor));
+        verify(monitorRepository, times(3)).deleteAllByIdIn(anyList());
+    }
+
+    @Test
+    void testQueryMonitorLineFillsOpenBucket() {
+
+        LocalDateTime now = LocalDateTime.now();
+        List<LocalDateTime> dateTimes = new ArrayList<>();
+        dateTimes.add(now.minusHours(2));
+        dateTimes.add(now.minusMinutes(20));
+        dateTimes.add(now.minusMinutes(12));
+        dateTimes.add(now.minusMinutes(2));
+        for (int i = 0; i < dateTimes.size(); i++) {
+            addMonitor("node_1", dateTimes.get(i), 10.0 * (i + 1));
+        }
+        monitorRollupService.scheduleRollup();
+        monitorRollupService.scheduleRollup();
+
+        // 每个有数据的时间段一个点，未汇总的时间段用原始数据补齐
+        List<MonitorLineAo> fiveMin =
+            monitorRollupService.queryMonitorLine(CLUSTER_ID, RollupLevel.FIVE_MIN, now.minusHours(3), now);
+        assertEquals(floor(dateTimes, MonitorRollupServiceTest::floorFiveMin), getDateTimes(fiveMin));
+        MonitorLineAo last = fiveMin.stream().max(Comparator.comparing(MonitorLineAo::getDateTime)).get();
+        assertEquals(floorFiveMin(now.minusMinutes(2)), last.getDateTime());
+        assertEquals(40.0, last.getCpuPercent());
+
+        List<MonitorLineAo> hours =
+            monitorRollupService.queryMonitorLine(CLUSTER_ID, RollupLevel.HOUR, now.minusHours(6), now);
+        assertEquals(floor(dateTimes, e -> e.truncatedTo(ChronoUnit.HOURS)), getDateTimes(hours));
+
+        List<MonitorLineAo> days =
+            monitorRollupService.queryMonitorLine(CLUSTER_ID, RollupLevel.DAY, now.minusDays(30), now);
+        assertEquals(floor(dateTimes, e -> e.truncatedTo(ChronoUnit.DAYS)), getDateTimes(days));
+    }
+
+    private MonitorEntity addMonitor(String clusterNodeId, LocalDateTime createDateTime, Double cpuPercent) {
+
+        MonitorEntity monitor = MonitorEntity.builder().id("monitor_" + monitors.size()).clusterId(CLUSTER_ID)
+            .clusterNodeId(clusterNodeId).status(MonitorStatus.SUCCESS).cpuPercent(cpuPercent)
+            .createDateTime(createDateTime).tenantId("tenant_1").build();
+        monitors.add(monitor);
+        return monitor;
+    }
+
+    private List<MonitorRollupEntity> getRollups(String level) {
+
+        return rollups.stream().filter(e -> level.equals(e.getRollupLevel())).collect(Collectors.toList());
+    }
+
+    private static MonitorRollupEntity getRollup(List<MonitorRollupEntity> rollups, String clusterNodeId,
+        LocalDateTime bucketDateTime) {
+
+        return rollups.stream()
+            .filter(e -> clusterNodeId.equals(e.getClusterNodeId()) && bucketDateTime.equals(e.getBucketDateTime()))
+            .findFirst().orElseThrow(() -> new AssertionError(clusterNodeId + " " + bucketDateTime));
+    }
+
+    private static void assertRollup(MonitorRollupEntity rollup, int sampleCount, MonitorMetric cpuPercent) {
+
+        assertEquals(sampleCount, rollup.getSampleCount());
+        assertEquals(cpuPercent, rollup.getCpuPercent());
+    }
+
+    private static <T> List<MonitorLineAo> toLine(List<T> rows, Function<T, LocalDateTime> dateTime,
+        Function<T, Double> cpuPercent) {
+
+        Map<LocalDateTime, List<T>> groups = rows.stream().collect(Collectors.groupingBy(dateTime));
+        return groups.entrySet().stream()
+            .map(e -> new MonitorLineAo((long) e.getValue().size(), CLUSTER_ID, e.getKey(),
+                e.getValue().stream().mapToDouble(cpuPercent::apply).average().getAsDouble(), null, null, null, null,
+                null, null))
+            .collect(Collectors.toList());
+    }
+
+    private static List<LocalDateTime> getDateTimes(List<MonitorLineAo> line) {
+
+        return line.stream().map(MonitorLineAo::getDateTime).sorted().collect(Collectors.toList());
+    }
+
+    private static List<LocalDateTime> floor(List<LocalDateTime> dateTimes,
+        Function<LocalDateTime, LocalDateTime> floor) {
+
+        return dateTimes.stream().map(floor).distinct().sorted().collect(Collectors.toList());
+    }
+
+    private static LocalDateTime floorFiveMin(LocalDateTime dateTime) {
+
+        LocalDateTime minute = dateTime.truncatedTo(ChronoUnit.MINUTES);
+        return minute.minusMinutes(minute.getMinute() % 5);
+    }
+
+    private static boolean inRange(LocalDateTime dateTime, LocalDateTime start, LocalDateTime end) {
+
+        return !dateTime.isBefore(start) && dateTime.isBefore(end);
+    }
+
+    private static boolean between(LocalDateTime dateTime, LocalDateTime start, LocalDateTime end) {
+
+        return !dateTime.isBefore(start) && !dateTime.isAfter(end);
+    }
+}
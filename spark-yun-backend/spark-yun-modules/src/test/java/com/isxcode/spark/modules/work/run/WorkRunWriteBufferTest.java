@@ -0,0 +1,344 @@
+package com.isxcode.spark.modules.work.run;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.alibaba.fastjson2.JSON;
+import com.isxcode.spark.api.instance.constants.InstanceStatus;
+import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
+import com.isxcode.spark.common.locker.LeaseLocker;
+import com.isxcode.spark.modules.alarm.service.AlarmService;
+import com.isxcode.spark.modules.monitor.service.InstanceCounterService;
+import com.isxcode.spark.modules.work.entity.WorkEventEntity;
+import com.isxcode.spark.modules.work.entity.WorkInstanceEntity;
+import com.isxcode.spark.modules.work.entity.WorkLogChunkEntity;
+import com.isxcode.spark.modules.work.repository.VipWorkVersionRepository;
+import com.isxcode.spark.modules.work.repository.WorkConfigRepository;
+import com.isxcode.spark.modules.work.repository.WorkEventRepository;
+import com.isxcode.spark.modules.work.repository.WorkInstanceRepository;
+import com.isxcode.spark.modules.work.repository.WorkLogChunkRepository;
+import com.isxcode.spark.modules.work.repository.WorkRepository;
+import com.isxcode.spark.modules.work.service.WorkLogService;
+import com.isxcode.spark.modules.work.service.WorkResultService;
+import com.isxcode.spark.modules.work.service.WorkService;
+import com.isxcode.spark.modules.work.sql.SqlFunctionService;
+import com.isxcode.spark.modules.workflow.repository.WorkflowInstanceRepository;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+/**
+ * 作业运行状态延迟写库的H2集成测试.
+ *
+ * <p>
+ * 同一批作业分别在关闭和开启延迟写库时走WorkExecutor.runSingleWork，统计每个完成的作业执行的sql语句数.
+ * 仓库按jpa合并游离实体的方式写库，保存已有实体时先查询再更新.
+ * </p>
+ */
+@Slf4j
+class WorkRunWriteBufferTest {
+
+    private static final int JOBS = 20;
+
+    /**
+     * 每个作业提交后的状态轮询次数，每次调度推进一步.
+     */
+    private static final int STEPS = 30;
+
+    private static final String SELECT_INSTANCE_SQL = "select * from SY_WORK_INSTANCE where id = ?";
+
+    private static final String UPDATE_INSTANCE_SQL = "update SY_WORK_INSTANCE set status = ?, event_id = ?, "
+        + "submit_log = ?, spark_star_res = ?, yarn_log = ?, result_data = ?, exec_start_date_time = ?, "
+        + "exec_end_date_time = ?, duration = ?, last_modified_date_time = ? where id = ?";
+
+    private static final String SELECT_EVENT_SQL = "select * from SY_WORK_EVENT where id = ?";
+
+    private static final String UPDATE_EVENT_SQL = "update SY_WORK_EVENT set event_process = ?, event_context = ?, "
+        + "last_modified_date_time = ? where id = ?";
+
+    private static final String SELECT_CHUNKS_SQL =
+        "select * from SY_WORK_LOG_CHUNK where instance_id = ? order by log_offset";
+
+    private static final String LAST_CHUNK_SQL =
+        "select * from SY_WORK_LOG_CHUNK where instance_id = ? order by log_offset desc limit 1";
+
+    private static final String INSERT_CHUNK_SQL =
+        "insert into SY_WORK_LOG_CHUNK (id, instance_id, log_offset, content) values (?, ?, ?, ?)";
+
+    private final AtomicInteger statementCount = new AtomicInteger();
+
+    private EmbeddedDatabase database;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private WorkInstanceRepository workInstanceRepository;
+
+    private WorkEventRepository workEventRepository;
+
+    private WorkLogService workLogService;
+
+    @BeforeEach
+    void setUp() {
+
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        JdbcTemplate ddlTemplate = new JdbcTemplate(database);
+        ddlTemplate.execute("create table SY_WORK_EVENT (id varchar(200) primary key, event_process int, "
+            + "event_context text, last_modified_date_time timestamp)");
+        ddlTemplate.execute("create table SY_WORK_INSTANCE (id varchar(200) primary key, status varchar(200), "
+            + "event_id varchar(200), submit_log text, spark_star_res text, yarn_log text, result_data text, "
+            + "exec_start_date_time timestamp, exec_end_date_time timestamp, duration bigint, "
+            + "last_modified_date_time timestamp)");
+        ddlTemplate.execute("create table SY_WORK_LOG_CHUNK (id varchar(200) primary key, "
+            + "instance_id varchar(200), log_offset bigint, content text)");
+
+        jdbcTemplate = new JdbcTemplate(countingProxy(DataSource.class, database));
+
+        workInstanceRepository = mock(WorkInstanceRepository.class);
+        when(workInstanceRepository.findById(anyString())).thenAnswer(i -> findInstance(i.getArgument(0)));
+        when(workInstanceRepository.save(any(WorkInstanceEntity.class)))
+            .thenAnswer(i -> saveInstance(i.getArgument(0)));
+        when(workInstanceRepository.saveAndFlush(any(WorkInstanceEntity.class)))
+            .thenAnswer(i -> saveInstance(i.getArgument(0)));
+
+        workEventRepository = mock(WorkEventRepository.class);
+        when(workEventRepository.findById(anyString())).thenAnswer(i -> findEvent(i.getArgument(0)));
+        when(workEventRepository.save(any(WorkEventEntity.class))).thenAnswer(i -> saveEvent(i.getArgument(0)));
+
+        // 日志片段是新实体，直接插入
+        WorkLogChunkRepository workLogChunkRepository = mock(WorkLogChunkRepository.class);
+        when(workLogChunkRepository.saveAndFlush(any(WorkLogChunkEntity.class))).thenAnswer(i -> {
+            WorkLogChunkEntity chunk = i.getArgument(0);
+            jdbcTemplate.update(INSERT_CHUNK_SQL, UUID.randomUUID().toString(), chunk.getInstanceId(),
+                chunk.getLogOffset(), chunk.getContent());
+            return chunk;
+        });
+        when(workLogChunkRepository.findFirstByInstanceIdOrderByLogOffsetDesc(anyString()))
+            .thenAnswer(i -> jdbcTemplate.query(LAST_CHUNK_SQL, chunkMapper(), i.<String>getArgument(0)).stream()
+                .findFirst());
+        when(workLogChunkRepository.findAllByInstanceIdOrderByLogOffset(anyString()))
+            .thenAnswer(i -> jdbcTemplate.query(SELECT_CHUNKS_SQL, chunkMapper(), i.<String>getArgument(0)));
+        when(workLogChunkRepository.deleteAllByInstanceId(anyString())).thenAnswer(
+            i -> jdbcTemplate.update("delete from SY_WORK_LOG_CHUNK where instance_id = ?", i.<String>getArgument(0)));
+
+        workLogService = new WorkLogService(workLogChunkRepository, workInstanceRepository);
+    }
+
+    @AfterEach
+    void tearDown() {
+
+        database.shutdown();
+    }
+
+    @Test
+    void testStatementsPerCompletedJob() {
+
+        // 改造前，每个中间步骤同步写事件、实例和日志
+        int syncStatements = runJobs(false);
+
+        // 改造后，中间步骤合并在内存中，提交作业和作业结束时写库
+        int bufferedStatements = runJobs(true);
+
+        log.info("每个完成的作业执行sql数，改造前: {}，改造后: {}", syncStatements / JOBS, bufferedStatements / JOBS);
+        assertTrue(bufferedStatements * 2 < syncStatements, bufferedStatements + " / " + syncStatements);
+    }
+
+    /**
+     * 初始化作业后按调度方式反复执行，直到全部作业结束，返回执行的sql数.
+     */
+    private int runJobs(boolean writeBehindEnabled) {
+
+        JdbcTemplate ddlTemplate = new JdbcTemplate(database);
+        ddlTemplate.execute("delete from SY_WORK_EVENT");
+        ddlTemplate.execute("delete from SY_WORK_INSTANCE");
+        ddlTemplate.execute("delete from SY_WORK_LOG_CHUNK");
+        for (int i = 0; i < JOBS; i++) {
+            ddlTemplate.update("insert into SY_WORK_EVENT (id, event_process, event_context) values (?, 0, ?)",
+                "event_" + i, JSON.toJSONString(WorkRunContext.builder().instanceId("instance_" + i).build()));
+            ddlTemplate.update("insert into SY_WORK_INSTANCE (id, status, submit_log) values (?, ?, '')",
+                "instance_" + i, InstanceStatus.PENDING);
+        }
+
+        IsxAppProperties isxAppProperties = new IsxAppProperties();
+        isxAppProperties.setWorkWriteBehindEnabled(writeBehindEnabled);
+        WorkRunWriteBuffer workRunWriteBuffer =
+            new WorkRunWriteBuffer(jdbcTemplate, workEventRepository, workLogService, isxAppProperties);
+        WorkService workService = new WorkService(mock(WorkRepository.class), workInstanceRepository,
+            mock(WorkflowInstanceRepository.class), workEventRepository, mock(WorkRunJobFactory.class),
+            mock(LeaseLocker.class), mock(WorkExecutorFactory.class), workLogService, workRunWriteBuffer);
+        StepWorkExecutor workExecutor = new StepWorkExecutor(workService, workRunWriteBuffer);
+
+        statementCount.set(0);
+        for (int i = 0; i < JOBS; i++) {
+            int runs = 0;
+            while (!InstanceStatus.FINISHED.equals(workExecutor.runSingleWork("event_" + i))) {
+                assertTrue(++runs <= STEPS, "作业没有结束");
+            }
+            workRunWriteBuffer.remove("event_" + i);
+        }
+        int statements = statementCount.get();
+
+        // 两种方式写库的结果一致
+        for (int i = 0; i < JOBS; i++) {
+            WorkInstanceEntity workInstance = findInstance("instance_" + i).get();
+            assertEquals(InstanceStatus.SUCCESS, workInstance.getStatus());
+            assertEquals("yarn_log " + (STEPS - 1), workInstance.getYarnLog());
+            int lastIndex = -1;
+            for (int step = 0; step < STEPS; step++) {
+                int index = workInstance.getSubmitLog().indexOf("step " + step + "\n");
+                assertTrue(index > lastIndex, workInstance.getSubmitLog());
+                lastIndex = index;
+            }
+            assertEquals(Integer.valueOf(STEPS), findEvent("event_" + i).get().getEventProcess());
+        }
+        return statements;
+    }
+
+    private Optional<WorkInstanceEntity> findInstance(String id) {
+
+        RowMapper<WorkInstanceEntity> rowMapper = (rs, rowNum) -> WorkInstanceEntity.builder().id(rs.getString("id"))
+            .status(rs.getString("status")).eventId(rs.getString("event_id")).submitLog(rs.getString("submit_log"))
+            .sparkStarRes(rs.getString("spark_star_res")).yarnLog(rs.getString("yarn_log"))
+            .resultData(rs.getString("result_data")).execStartDateTime(rs.getTimestamp("exec_start_date_time"))
+            .execEndDateTime(rs.getTimestamp("exec_end_date_time")).build();
+        return jdbcTemplate.query(SELECT_INSTANCE_SQL, rowMapper, id).stream().findFirst();
+    }
+
+    /**
+     * 和jpa合并游离实体一样，先查询再更新.
+     */
+    private WorkInstanceEntity saveInstance(WorkInstanceEntity workInstance) {
+
+        findInstance(workInstance.getId());
+        jdbcTemplate.update(UPDATE_INSTANCE_SQL, workInstance.getStatus(), workInstance.getEventId(),
+            workInstance.getSubmitLog(), workInstance.getSparkStarRes(), workInstance.getYarnLog(),
+            workInstance.getResultData(), toTimestamp(workInstance.getExecStartDateTime()),
+            toTimestamp(workInstance.getExecEndDateTime()), workInstance.getDuration(),
+            Timestamp.valueOf(LocalDateTime.now()), workInstance.getId());
+        return workInstance;
+    }
+
+    private Optional<WorkEventEntity> findEvent(String id) {
+
+        RowMapper<WorkEventEntity> rowMapper = (rs, rowNum) -> WorkEventEntity.builder().id(rs.getString("id"))
+            .eventProcess(rs.getInt("event_process")).eventContext(rs.getString("event_context")).build();
+        return jdbcTemplate.query(SELECT_EVENT_SQL, rowMapper, id).stream().findFirst();
+    }
+
+    private WorkEventEntity saveEvent(WorkEventEntity workEvent) {
+
+        findEvent(workEvent.getId());
+        jdbcTemplate.update(UPDATE_EVENT_SQL, workEvent.getEventProcess(), workEvent.getEventContext(),
+            Timestamp.valueOf(LocalDateTime.now()), workEvent.getId());
+        return workEvent;
+    }
+
+    private static RowMapper<WorkLogChunkEntity> chunkMapper() {
+
+        return (rs, rowNum) -> WorkLogChunkEntity.builder().id(rs.getString("id"))
+            .instanceId(rs.getString("instance_id")).logOffset(rs.getLong("log_offset"))
+            .content(rs.getString("content")).build();
+    }
+
+    private static Timestamp toTimestamp(Date date) {
+
+        return date == null ? null : new Timestamp(date.getTime());
+    }
+
+    /**
+     * 模拟提交到集群后轮询状态的作业，第一步提交，之后每次调度更新一次状态和日志.
+     */
+    private class StepWorkExecutor extends WorkExecutor {
+
+        private StepWorkExecutor(WorkService workService, WorkRunWriteBuffer workRunWriteBuffer) {
+
+            super(mock(AlarmService.class), mock(LeaseLocker.class), mock(WorkRepository.class), workInstanceRepository,
+                mock(WorkflowInstanceRepository.class), workEventRepository, mock(WorkRunJobFactory.class),
+                mock(SqlFunctionService.class), mock(WorkConfigRepository.class), mock(VipWorkVersionRepository.class),
+                workService, workLogService, workRunWriteBuffer, mock(WorkResultService.class),
+                mock(InstanceCounterService.class));
+        }
+
+        @Override
+        public String getWorkType() {
+
+            return "STEP";
+        }
+
+        @Override
+        protected String execute(WorkRunContext workRunContext, WorkInstanceEntity workInstance,
+            WorkEventEntity workEvent) {
+
+            int step = workEvent.getEventProcess();
+            if (step >= STEPS) {
+                return InstanceStatus.SUCCESS;
+            }
+
+            // 提交作业后appId变化，同步写库
+            if (step == 0) {
+                workRunContext.setAppId("application_" + workInstance.getId());
+            }
+            workInstance.setYarnLog("yarn_log " + step);
+            return updateWorkEventAndInstance(workInstance, new StringBuilder(statusLog("step " + step)), workEvent,
+                workRunContext);
+        }
+
+        @Override
+        protected boolean abort(WorkInstanceEntity workInstance, WorkEventEntity workEvent) {
+
+            return true;
+        }
+    }
+
+    /**
+     * 代理数据源，连接和语句执行一次计数一次，批量执行算一次.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T countingProxy(Class<T> type, Object target) {
+
+        return (T) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            Object result = invoke(method, target, args);
+            if (method.getName().startsWith("execute")) {
+                statementCount.incrementAndGet();
+            }
+            if (result instanceof Connection) {
+                return countingProxy(Connection.class, result);
+            }
+            if (result instanceof Statement) {
+                return countingProxy((Class<Statement>) method.getReturnType(), result);
+            }
+            return result;
+        });
+    }
+
+    private Object invoke(Method method, Object target, Object[] args) throws Throwable {
+
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
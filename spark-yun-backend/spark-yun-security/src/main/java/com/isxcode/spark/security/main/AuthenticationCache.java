@@ -0,0 +1,111 @@
+package com.isxcode.spark.security.main;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.crypto.SecureUtil;
+import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 认证结果缓存.
+ *
+ * <p>
+ * 按token摘要和租户id缓存解析出的用户和权限，命中时不再解析jwt和查询用户、租户成员，缓存不超过token的过期时间.
+ * 用户被禁用、删除或者租户权限变化时增加用户版本号，旧版本的缓存失效；其他节点等缓存过期.
+ * </p>
+ */
+@Component
+public class AuthenticationCache {
+
+    private final LRUCache<String, CachedAuthentication> cache;
+
+    /**
+     * 用户版本号，只记录变更过的用户.
+     */
+    private final Map<String, Long> userVersions = new ConcurrentHashMap<>();
+
+    public AuthenticationCache(IsxAppProperties isxAppProperties) {
+
+        // 缓存个数为0时不缓存
+        this.cache = isxAppProperties.getAuthCacheSize() > 0 ? CacheUtil
+            .newLRUCache(isxAppProperties.getAuthCacheSize(), isxAppProperties.getAuthCacheSeconds() * 1000L) : null;
+    }
+
+    public CachedAuthentication get(String token, String tenantId) {
+
+        if (cache == null) {
+            return null;
+        }
+        CachedAuthentication cached = cache.get(getKey(token, tenantId), false);
+        if (cached == null || cached.expireTime < System.currentTimeMillis()
+            || cached.version != getVersion(cached.userId)) {
+            return null;
+        }
+        return cached;
+    }
+
+    /**
+     * 获取用户当前版本号，需要在查询用户之前获取，避免查询期间用户变更后缓存旧数据.
+     */
+    public long getVersion(String userId) {
+
+        return userVersions.getOrDefault(userId, 0L);
+    }
+
+    public void put(String token, String tenantId, String userId, long version, Authentication authentication,
+        Date expiration) {
+
+        if (cache == null) {
+            return;
+        }
+        cache.put(getKey(token, tenantId), new CachedAuthentication(userId, version, authentication,
+            expiration == null ? Long.MAX_VALUE : expiration.getTime()));
+    }
+
+    /**
+     * 用户的所有缓存失效.
+     */
+    public void evictUser(String userId) {
+
+        if (userId != null) {
+            userVersions.merge(userId, 1L, Long::sum);
+        }
+    }
+
+    private String getKey(String token, String tenantId) {
+
+        return SecureUtil.sha256(token) + "#" + tenantId;
+    }
+
+    public static class CachedAuthentication {
+
+        private final String userId;
+
+        private final long version;
+
+        private final Authentication authentication;
+
+        private final long expireTime;
+
+        private CachedAuthentication(String userId, long version, Authentication authentication, long expireTime) {
+
+            this.userId = userId;
+            this.version = version;
+            this.authentication = authentication;
+            this.expireTime = expireTime;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public Authentication getAuthentication() {
+            return authentication;
+        }
+    }
+}
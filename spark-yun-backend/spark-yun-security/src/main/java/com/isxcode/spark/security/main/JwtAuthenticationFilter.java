@@ -19,6 +19,8 @@ import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.util.AntPathMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -35,6 +37,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final IsxAppProperties isxAppProperties;
 
+    private final AuthenticationCache authenticationCache;
+
+    /**
+     * AntPathMatcher线程安全，复用时会缓存解析后的路径.
+     */
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, @NonNull HttpServletResponse response,
         @NonNull FilterChain filterChain) throws ServletException, IOException {
@@ -52,6 +61,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             TENANT_ID.set(tenantId);
         }
 
+        // 命中缓存时不再解析jwt和查询用户
+        AuthenticationCache.CachedAuthentication cached = authenticationCache.get(authorization, tenantId);
+        if (cached != null) {
+            USER_ID.set(cached.getUserId());
+            SecurityContextHolder.getContext().setAuthentication(cached.getAuthentication());
+            doFilter(request, response, filterChain);
+            return;
+        }
+
         // 验证jwt, 获取用户id
         String userUuid;
         try {
@@ -66,7 +84,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         // 通过用户id，给用户授权
         try {
-            authenticationManager.authenticate(new AuthenticationToken(userUuid, tenantId));
+            long version = authenticationCache.getVersion(userUuid);
+            Authentication authentication =
+                authenticationManager.authenticate(new AuthenticationToken(userUuid, tenantId));
+            authenticationCache.put(authorization, tenantId, userUuid, version, authentication,
+                JwtUtils.getExpiration(authorization, isxAppProperties.getAesSlat()));
         } catch (IsxAppException isxAppException) {
             log.debug(isxAppException.getMessage(), isxAppException);
             request.getRequestDispatcher(SecurityConstants.TOKEN_IS_INVALID_PATH).forward(request, response);
@@ -83,6 +105,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Override
     protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
 
-        return excludeUrlPaths.stream().anyMatch(p -> new AntPathMatcher().match(p, request.getServletPath()));
+        return excludeUrlPaths.stream().anyMatch(p -> pathMatcher.match(p, request.getServletPath()));
     }
 }
@@ -38,6 +38,8 @@ public class WebSecurityConfig {
 
     private final TenantUserRepository tenantUserRepository;
 
+    private final AuthenticationCache authenticationCache;
+
     public UserDetailsService userDetailsServiceBean() {
 
         return new UserDetailsServiceImpl(userRepository, tenantUserRepository);
@@ -83,8 +85,8 @@ public class WebSecurityConfig {
         excludePaths.addAll(isxAppProperties.getAnonymousUrl());
 
         // token
-        http.addFilterBefore(new JwtAuthenticationFilter(authenticationManagerBean(), excludePaths, isxAppProperties),
-            UsernamePasswordAuthenticationFilter.class);
+        http.addFilterBefore(new JwtAuthenticationFilter(authenticationManagerBean(), excludePaths, isxAppProperties,
+            authenticationCache), UsernamePasswordAuthenticationFilter.class);
         http.authorizeRequests().antMatchers("/**").authenticated();
 
         http.formLogin();
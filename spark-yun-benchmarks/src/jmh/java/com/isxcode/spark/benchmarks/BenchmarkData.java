@@ -0,0 +1,98 @@
+package com.isxcode.spark.benchmarks;
+
+import com.isxcode.spark.modules.work.entity.WorkConfigEntity;
+import com.isxcode.spark.modules.work.entity.WorkEntity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 性能测试数据.
+ */
+final class BenchmarkData {
+
+    /**
+     * 工作流每层的节点数.
+     */
+    private static final int LAYER_WIDTH = 10;
+
+    static final String SQL = "-- 统计每日订单\n"
+        + "select t.user_id, count(1) as order_count, sum(t.amount) as amount /* 金额 */\n"
+        + "from ods_order t left join dim_user u on t.user_id = u.id\n"
+        + "where t.dt = '${qing.current_date}' and t.create_time >= '#[[add_day(now(),-1)]]'\n"
+        + "and t.status in ('PAID', 'SHIPPED') -- 已支付\n" + "group by t.user_id order by amount desc";
+
+    static final String QUERY_SQL = "select t.user_id, count(1) as order_count, sum(t.amount) as amount "
+        + "from ods_order t left join dim_user u on t.user_id = u.id "
+        + "where t.dt = '2024-01-01' and t.status in ('PAID', 'SHIPPED') group by t.user_id order by amount desc";
+
+    private BenchmarkData() {}
+
+    /**
+     * 在SQL的条件中追加函数占位符，总数为指定个数，每个占位符的表达式不同.
+     */
+    static String sql(int placeholderCount) {
+
+        StringBuilder conditions = new StringBuilder();
+        for (int i = 1; i < placeholderCount; i++) {
+            conditions.append("and t.dt != '#[[date_to_str(add_day(now(),-").append(i).append("),'yyyy-MM-dd')]]'\n");
+        }
+        return SQL.replace("group by", conditions + "group by");
+    }
+
+    static List<String> nodeList(int nodeSize) {
+
+        List<String> nodeList = new ArrayList<>(nodeSize);
+        for (int i = 0; i < nodeSize; i++) {
+            nodeList.add("sy_node_" + i);
+        }
+        return nodeList;
+    }
+
+    /**
+     * 生成分层的工作流，每个节点依赖上一层的一到两个节点.
+     */
+    static List<List<String>> nodeMapping(int nodeSize) {
+
+        List<String> nodeList = nodeList(nodeSize);
+        List<List<String>> nodeMapping = new ArrayList<>();
+        for (int i = LAYER_WIDTH; i < nodeSize; i++) {
+            nodeMapping.add(Arrays.asList(nodeList.get(i - LAYER_WIDTH), nodeList.get(i)));
+            if (i % LAYER_WIDTH != 0) {
+                nodeMapping.add(Arrays.asList(nodeList.get(i - LAYER_WIDTH - 1), nodeList.get(i)));
+            }
+        }
+        return nodeMapping;
+    }
+
+    static WorkEntity work() {
+
+        WorkEntity work = new WorkEntity();
+        work.setId("sy_work_benchmark");
+        work.setName("benchmark");
+        work.setWorkType("DATA_SYNC_JDBC");
+        return work;
+    }
+
+    static WorkConfigEntity workConfig() {
+
+        WorkConfigEntity workConfig = new WorkConfigEntity();
+        workConfig.setId("sy_config_benchmark");
+        workConfig.setDatasourceId("sy_datasource_benchmark");
+        workConfig.setScript(SQL);
+        workConfig.setClusterConfig("{\"setMode\":\"SIMPLE\",\"resourceLevel\":\"LOW\",\"clusterId\":\"sy_cluster\","
+            + "\"clusterNodeId\":\"sy_cluster_node\",\"enableHive\":false,\"sparkConfig\":{"
+            + "\"spark.driver.memory\":\"1g\",\"spark.executor.memory\":\"2g\",\"spark.executor.instances\":\"2\","
+            + "\"spark.sql.shuffle.partitions\":\"200\"}}");
+        workConfig.setSyncWorkConfig("{\"sourceDBType\":\"MYSQL\",\"sourceDBId\":\"sy_source\","
+            + "\"sourceTable\":\"ods_order\",\"partitionColumn\":\"id\",\"queryCondition\":\"status = 'PAID'\","
+            + "\"targetDBType\":\"HIVE\",\"targetDBId\":\"sy_target\",\"targetTable\":\"dwd_order\","
+            + "\"overMode\":\"OVERWRITE\",\"columnMap\":[{\"source\":\"id\",\"target\":\"id\"},"
+            + "{\"source\":\"user_id\",\"target\":\"user_id\"},{\"source\":\"amount\",\"target\":\"amount\"}]}");
+        workConfig.setSyncRule("{\"setMode\":\"SIMPLE\",\"numPartitions\":8,\"numConcurrency\":4}");
+        workConfig.setFuncConfig("[\"sy_func_1\",\"sy_func_2\"]");
+        workConfig.setLibConfig("[\"sy_lib_1\"]");
+        return workConfig;
+    }
+}
@@ -0,0 +1,37 @@
+package com.isxcode.spark.benchmarks;
+
+import com.isxcode.spark.modules.datasource.source.Datasource;
+import com.isxcode.spark.modules.datasource.source.impl.MysqlService;
+import net.sf.jsqlparser.JSQLParserException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 数据源查询语句解析的性能测试.
+ */
+@State(Scope.Benchmark)
+public class DatasourceSqlBenchmark {
+
+    private Datasource datasource;
+
+    @Setup
+    public void setup() {
+
+        // 只测试sql解析，不需要连接相关的依赖
+        datasource = new MysqlService(null, null, null, null);
+    }
+
+    @Benchmark
+    public String generateLimitSql() throws JSQLParserException {
+
+        return datasource.generateLimitSql(BenchmarkData.QUERY_SQL, 200);
+    }
+
+    @Benchmark
+    public boolean isQueryStatement() {
+
+        return datasource.isQueryStatement(BenchmarkData.QUERY_SQL);
+    }
+}
@@ -0,0 +1,122 @@
+package com.isxcode.spark.benchmarks;
+
+import com.isxcode.spark.backend.api.base.constants.SecurityConstants;
+import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
+import com.isxcode.spark.common.utils.jwt.JwtUtils;
+import com.isxcode.spark.security.main.AuthenticationCache;
+import com.isxcode.spark.security.main.AuthenticationToken;
+import com.isxcode.spark.security.main.JwtAuthenticationFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * jwt拦截器的性能测试，用户查询用固定结果代替，不包含数据库的耗时.
+ */
+@State(Scope.Benchmark)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final List<String> EXCLUDE_PATHS = Arrays.asList("/tools/open", "/h2-console/**",
+        "/swagger-ui/**", "/v3/api-docs/**", "/user/open/**", "/vip/share-form/open/**", "/vip/api/**");
+
+    private JwtAuthenticationFilter cachedFilter;
+
+    private JwtAuthenticationFilter uncachedFilter;
+
+    private IsxAppProperties isxAppProperties;
+
+    private String token;
+
+    private final FilterChain filterChain = (request, response) -> {
+    };
+
+    private final HttpServletResponse response = (HttpServletResponse) Proxy.newProxyInstance(
+        getClass().getClassLoader(), new Class<?>[] {HttpServletResponse.class}, (proxy, method, args) -> null);
+
+    @Setup
+    public void setup() {
+
+        isxAppProperties = new IsxAppProperties();
+        token = JwtUtils.encrypt(isxAppProperties.getAesSlat(), "sy_user", isxAppProperties.getJwtKey(),
+            isxAppProperties.getExpirationMin());
+
+        AuthenticationManager authenticationManager = authentication -> new AuthenticationToken(
+            authentication.getPrincipal(), null, Collections.singletonList(new SimpleGrantedAuthority("ROLE_ADMIN")));
+
+        cachedFilter = new JwtAuthenticationFilter(authenticationManager, EXCLUDE_PATHS, isxAppProperties,
+            new AuthenticationCache(isxAppProperties));
+
+        IsxAppProperties uncachedProperties = new IsxAppProperties();
+        uncachedProperties.setAuthCacheSize(0);
+        uncachedFilter = new JwtAuthenticationFilter(authenticationManager, EXCLUDE_PATHS, isxAppProperties,
+            new AuthenticationCache(uncachedProperties));
+    }
+
+    @Benchmark
+    public HttpServletRequest filterCached() throws Exception {
+
+        HttpServletRequest request = newRequest();
+        cachedFilter.doFilter(request, response, filterChain);
+        return request;
+    }
+
+    @Benchmark
+    public HttpServletRequest filterUncached() throws Exception {
+
+        HttpServletRequest request = newRequest();
+        uncachedFilter.doFilter(request, response, filterChain);
+        return request;
+    }
+
+    @Benchmark
+    public String decrypt() {
+
+        return JwtUtils.decrypt(isxAppProperties.getJwtKey(), token, isxAppProperties.getAesSlat(), String.class);
+    }
+
+    /**
+     * 只实现拦截器用到的请求方法.
+     */
+    private HttpServletRequest newRequest() {
+
+        Map<String, Object> attributes = new HashMap<>();
+        return (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] {HttpServletRequest.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getHeader":
+                        if (SecurityConstants.HEADER_AUTHORIZATION.equals(args[0])) {
+                            return token;
+                        }
+                        return SecurityConstants.HEADER_TENANT_ID.equals(args[0]) ? "sy_tenant" : null;
+                    case "getServletPath":
+                        return "/work/getWorkInstanceLog";
+                    case "getDispatcherType":
+                        return DispatcherType.REQUEST;
+                    case "getAttribute":
+                        return attributes.get(args[0]);
+                    case "setAttribute":
+                        attributes.put((String) args[0], args[1]);
+                        return null;
+                    case "removeAttribute":
+                        attributes.remove(args[0]);
+                        return null;
+                    default:
+                        return method.getReturnType() == boolean.class ? false : null;
+                }
+            });
+    }
+}
@@ -0,0 +1,85 @@
+package com.isxcode.spark.benchmarks;
+
+import com.isxcode.spark.backend.api.base.properties.IsxAppProperties;
+import com.isxcode.spark.modules.work.sql.SqlCommentService;
+import com.isxcode.spark.modules.work.sql.SqlFunctionService;
+import com.isxcode.spark.modules.work.sql.SqlValueService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.core.io.DefaultResourceLoader;
+
+/**
+ * 作业运行前sql解析的性能测试.
+ */
+@State(Scope.Benchmark)
+public class SqlParseBenchmark {
+
+    /**
+     * sql中函数占位符的个数.
+     */
+    @Param({"1", "10", "100"})
+    private int placeholderCount;
+
+    private String sql;
+
+    private SqlFunctionService sqlFunctionService;
+
+    private SqlValueService sqlValueService;
+
+    private SqlCommentService sqlCommentService;
+
+    private long expressionIndex;
+
+    @Setup
+    public void setup() {
+
+        sqlFunctionService = new SqlFunctionService(new DefaultResourceLoader(), new IsxAppProperties());
+        sqlValueService = new SqlValueService();
+        sqlCommentService = new SqlCommentService();
+        sql = BenchmarkData.sql(placeholderCount);
+
+        // 预热函数库
+        sqlFunctionService.parseSqlFunction(sql);
+    }
+
+    @Benchmark
+    public String parseSqlFunction() {
+
+        return sqlFunctionService.parseSqlFunction(sql);
+    }
+
+    /**
+     * 每次都是新表达式，覆盖编译和淘汰释放类加载器的开销，配合-prof cl观察类是否被卸载.
+     */
+    @Benchmark
+    public String parseDistinctSqlFunction() {
+
+        return sqlFunctionService.parseSqlFunction("select '#[[add_day(now()," + (expressionIndex++ % 100000) + ")]]'");
+    }
+
+    @Benchmark
+    public String parseSqlValue() {
+
+        return sqlValueService.parseSqlValue(sql);
+    }
+
+    @Benchmark
+    public String removeSqlComment() {
+
+        return sqlCommentService.removeSqlComment(sql);
+    }
+
+    /**
+     * 执行器中完整的解析顺序.
+     */
+    @Benchmark
+    public String parseSql() {
+
+        String script = sqlCommentService.removeSqlComment(sql);
+        script = sqlValueService.parseSqlValue(script);
+        return sqlFunctionService.parseSqlFunction(script);
+    }
+}
@@ -0,0 +1,33 @@
+package com.isxcode.spark.benchmarks;
+
+import com.isxcode.spark.api.datasource.constants.DatasourceType;
+import com.isxcode.spark.plugin.dataSync.jdbc.Execute;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 数据同步分区条件生成的性能测试.
+ */
+@State(Scope.Benchmark)
+public class SyncPredicateBenchmark {
+
+    @Param({DatasourceType.MYSQL, DatasourceType.ORACLE, DatasourceType.POSTGRE_SQL, DatasourceType.H2})
+    private String datasourceType;
+
+    @Param({"8", "64"})
+    private int numPartitions;
+
+    /**
+     * 对应插件中为每个分区生成条件.
+     */
+    @Benchmark
+    public void getHashPredicate(Blackhole blackhole) {
+
+        for (int i = 0; i < numPartitions; i++) {
+            blackhole.consume(Execute.getHashPredicate(datasourceType, "id", numPartitions, i, i));
+        }
+    }
+}
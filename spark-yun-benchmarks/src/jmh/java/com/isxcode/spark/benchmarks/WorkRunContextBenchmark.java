@@ -0,0 +1,51 @@
+package com.isxcode.spark.benchmarks;
+
+import static com.isxcode.spark.common.config.CommonConfig.TENANT_ID;
+import static com.isxcode.spark.common.config.CommonConfig.USER_ID;
+
+import com.alibaba.fastjson.JSON;
+import com.isxcode.spark.modules.work.run.WorkRunContext;
+import com.isxcode.spark.modules.workflow.run.WorkflowUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 作业事件保存时WorkRunContext序列化的性能测试.
+ */
+@State(Scope.Benchmark)
+public class WorkRunContextBenchmark {
+
+    private WorkRunContext workRunContext;
+
+    private String eventContext;
+
+    @Setup
+    public void setup() {
+
+        TENANT_ID.set("benchmark_tenant");
+        USER_ID.set("benchmark_user");
+
+        workRunContext = WorkflowUtils.genWorkRunContext("benchmark_instance", "WORKFLOW", BenchmarkData.work(),
+            BenchmarkData.workConfig());
+        workRunContext.setNodeList(BenchmarkData.nodeList(200));
+        workRunContext.setNodeMapping(BenchmarkData.nodeMapping(200));
+        eventContext = JSON.toJSONString(workRunContext);
+    }
+
+    /**
+     * 对应updateWorkEventAndInstance中的序列化.
+     */
+    @Benchmark
+    public String toJsonString() {
+
+        return JSON.toJSONString(workRunContext);
+    }
+
+    @Benchmark
+    public WorkRunContext parseObject() {
+
+        return JSON.parseObject(eventContext, WorkRunContext.class);
+    }
+}
@@ -0,0 +1,113 @@
+package com.isxcode.spark.benchmarks;
+
+import static com.isxcode.spark.common.config.CommonConfig.TENANT_ID;
+import static com.isxcode.spark.common.config.CommonConfig.USER_ID;
+
+import com.isxcode.spark.modules.work.entity.WorkConfigEntity;
+import com.isxcode.spark.modules.work.entity.WorkEntity;
+import com.isxcode.spark.modules.work.run.WorkRunContext;
+import com.isxcode.spark.modules.workflow.run.WorkflowDag;
+import com.isxcode.spark.modules.workflow.run.WorkflowUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+
+/**
+ * 工作流调度相关的性能测试.
+ */
+@State(Scope.Benchmark)
+public class WorkflowBenchmark {
+
+    /**
+     * 工作流节点数.
+     */
+    @Param({"10", "100", "1000", "5000"})
+    private int nodeSize;
+
+    private List<String> nodeList;
+
+    private List<List<String>> nodeMapping;
+
+    private String workflowDagKey;
+
+    private WorkEntity work;
+
+    private WorkConfigEntity workConfig;
+
+    @Setup
+    public void setup() {
+
+        nodeList = BenchmarkData.nodeList(nodeSize);
+        nodeMapping = BenchmarkData.nodeMapping(nodeSize);
+        workflowDagKey = WorkflowUtils.getWorkflowDagKey("benchmark_config", nodeList, nodeMapping);
+        work = BenchmarkData.work();
+        workConfig = BenchmarkData.workConfig();
+
+        TENANT_ID.set("benchmark_tenant");
+        USER_ID.set("benchmark_user");
+    }
+
+    @Benchmark
+    public List<String> getStartNodes() {
+
+        return WorkflowUtils.getStartNodes(nodeMapping, nodeList);
+    }
+
+    /**
+     * 调度时每个节点都会查一次父节点.
+     */
+    @Benchmark
+    public void getParentNodes(Blackhole blackhole) {
+
+        for (String nodeId : nodeList) {
+            blackhole.consume(WorkflowUtils.getParentNodes(nodeMapping, nodeId));
+        }
+    }
+
+    /**
+     * 使用缓存的DAG索引查父节点.
+     */
+    @Benchmark
+    public void getParentNodesByDag(Blackhole blackhole) {
+
+        for (String nodeId : nodeList) {
+            blackhole.consume(
+                WorkflowUtils.getWorkflowDag(workflowDagKey, nodeList, nodeMapping).getParentNodes(nodeId));
+        }
+    }
+
+    /**
+     * 缓存未命中时构建DAG索引.
+     */
+    @Benchmark
+    public WorkflowDag buildWorkflowDag() {
+
+        return WorkflowDag.build(nodeList, nodeMapping);
+    }
+
+    /**
+     * 启动作业流时计算一次缓存key.
+     */
+    @Benchmark
+    public String getWorkflowDagKey() {
+
+        return WorkflowUtils.getWorkflowDagKey("benchmark_config", nodeList, nodeMapping);
+    }
+
+    @Benchmark
+    public List<String> parseAfterNodes() {
+
+        return WorkflowUtils.parseAfterNodes(nodeMapping, nodeList.get(0));
+    }
+
+    @Benchmark
+    public WorkRunContext genWorkRunContext() {
+
+        return WorkflowUtils.genWorkRunContext("benchmark_instance", "WORKFLOW", work, workConfig);
+    }
+}
@@ -17,6 +17,7 @@ interface SerchParams {
 
 interface LogParam {
   instanceId: string;
+  page?: number; // 查询结果页码，从0开始
 }
 
 interface workflowInstanceId {
@@ -108,5 +108,9 @@ export const OverModeList = [
   {
     label: '覆写模式',
     value: 'OVERWRITE',
+  },
+  {
+    label: '更新模式',
+    value: 'UPSERT',
   }
 ]
\ No newline at end of file
@@ -0,0 +1,445 @@
+package com.isxcode.spark.plugin.dataSync.jdbc;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.isxcode.spark.api.agent.req.spark.PluginReq;
+import com.isxcode.spark.api.datasource.constants.DatasourceType;
+import com.isxcode.spark.api.work.constants.SetMode;
+import com.isxcode.spark.api.work.constants.SyncWriter;
+import com.isxcode.spark.api.work.dto.DatasourceConfig;
+import org.apache.logging.log4j.util.Strings;
+import org.apache.spark.TaskContext;
+import org.apache.spark.api.java.function.ForeachPartitionFunction;
+import org.apache.spark.sql.DataFrameWriter;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SaveMode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 批量写入去向表.
+ *
+ * <p>
+ * 绕过spark sql逐条插入jdbc视图，按去向数据库使用各自的批量导入方式: doris和starRocks使用stream load，
+ * postgres和greenplum使用copy from stdin，clickhouse使用大批次写入，其他数据库使用调优后的jdbc批量写入.
+ * </p>
+ */
+public class BulkWriter {
+
+    private static final int JDBC_BATCH_SIZE = 10000;
+
+    private static final int CLICKHOUSE_BATCH_SIZE = 100000;
+
+    private static final int STREAM_LOAD_BATCH_SIZE = 200000;
+
+    private static final Pattern JDBC_URL_PATTERN = Pattern.compile("^jdbc:\\w+://([^:/?]+)(?::\\d+)?/([^?;]+)");
+
+    /**
+     * 同一个spark应用中的写入次数，分批同步时每批写入一次.
+     */
+    private static final AtomicInteger WRITE_COUNT = new AtomicInteger();
+
+    /**
+     * 获取写入方式，hive只能通过spark sql写入，高级定义模式下默认使用spark sql，保留自定义的jdbc配置.
+     */
+    public static String getWriter(PluginReq conf) {
+
+        String dbType = conf.getSyncWorkConfig().getTargetDBType();
+        String writer = conf.getSyncRule().getWriter();
+        if (DatasourceType.HIVE.equals(dbType)) {
+            return SyncWriter.SQL;
+        }
+        if (Strings.isNotEmpty(writer) && !SyncWriter.AUTO.equals(writer)) {
+            return writer;
+        }
+        if (SetMode.ADVANCE.equals(conf.getSyncRule().getSetMode())) {
+            return SyncWriter.SQL;
+        }
+
+        switch (dbType) {
+            case DatasourceType.DORIS:
+            case DatasourceType.STAR_ROCKS:
+                return SyncWriter.STREAM_LOAD;
+            case DatasourceType.POSTGRE_SQL:
+            case DatasourceType.GREENPLUM:
+                return SyncWriter.COPY;
+            case DatasourceType.CLICKHOUSE:
+                return SyncWriter.CLICKHOUSE_BATCH;
+            default:
+                return SyncWriter.JDBC_BATCH;
+        }
+    }
+
+    /**
+     * 写入数据.
+     *
+     * @param rows 字段名和去向表一致的数据
+     * @param overwrite 写入前是否清空去向表
+     */
+    public static void write(PluginReq conf, String writer, Dataset<Row> rows, boolean overwrite) {
+
+        String dbType = conf.getSyncWorkConfig().getTargetDBType();
+        DatasourceConfig target = conf.getSyncWorkConfig().getTargetDatabase();
+        String table = quoteTable(dbType, target.getDbTable());
+        Integer batchSize = conf.getSyncRule().getBatchSize();
+
+        // 覆写模式先清空表，不使用spark的覆写，避免删表重建
+        if (overwrite) {
+            truncate(target, table);
+        }
+
+        switch (writer) {
+            case SyncWriter.STREAM_LOAD:
+                rows.foreachPartition(new StreamLoadFunction(target, getLoadUrl(conf), rows.columns(),
+                    batchSize == null ? STREAM_LOAD_BATCH_SIZE : batchSize,
+                    getLabelPrefix(conf, rows.sparkSession().sparkContext().applicationId())));
+                break;
+            case SyncWriter.COPY:
+                rows.foreachPartition(new CopyFunction(target, genCopySql(table, rows.columns())));
+                break;
+            case SyncWriter.CLICKHOUSE_BATCH:
+                writeJdbc(conf, rows, table, batchSize == null ? CLICKHOUSE_BATCH_SIZE : batchSize);
+                break;
+            case SyncWriter.JDBC_BATCH:
+                writeJdbc(conf, rows, table, batchSize == null ? JDBC_BATCH_SIZE : batchSize);
+                break;
+            default:
+                throw new RuntimeException("暂不支持的写入方式: " + writer);
+        }
+    }
+
+    private static void writeJdbc(PluginReq conf, Dataset<Row> rows, String table, int batchSize) {
+
+        DatasourceConfig target = conf.getSyncWorkConfig().getTargetDatabase();
+
+        // mysql驱动需要开启rewriteBatchedStatements，才会合并成多值插入
+        String url = target.getUrl();
+        String dbType = conf.getSyncWorkConfig().getTargetDBType();
+        if ((DatasourceType.MYSQL.equals(dbType) || DatasourceType.TIDB.equals(dbType))
+            && !url.contains("rewriteBatchedStatements")) {
+            url = url + (url.contains("?") ? "&" : "?") + "rewriteBatchedStatements=true";
+        }
+
+        DataFrameWriter<Row> frameWriter = rows.write().format("jdbc").mode(SaveMode.Append)
+            .option("driver", target.getDriver()).option("url", url).option("dbtable", table)
+            .option("user", target.getUser()).option("batchsize", String.valueOf(batchSize))
+            .option("isolationLevel", "NONE");
+        if (target.getPassword() != null) {
+            frameWriter.option("password", target.getPassword());
+        }
+        if (conf.getSyncRule().getNumConcurrency() != null && conf.getSyncRule().getNumConcurrency() > 0) {
+            frameWriter.option("numPartitions", String.valueOf(conf.getSyncRule().getNumConcurrency()));
+        }
+        frameWriter.save();
+    }
+
+    static void truncate(DatasourceConfig target, String table) {
+
+        try (Connection connection = JdbcMetaUtils.getConnection(target);
+            Statement statement = connection.createStatement()) {
+            statement.execute("truncate table " + table);
+        } catch (SQLException e) {
+            throw new RuntimeException("清空去向表异常: " + e.getMessage(), e);
+        }
+    }
+
+    static String quoteTable(String dbType, String table) {
+
+        return DatasourceType.POSTGRE_SQL.equals(dbType) || DatasourceType.OPEN_GAUSS.equals(dbType)
+            || DatasourceType.GAUSS.equals(dbType) ? "\"" + table + "\"" : table;
+    }
+
+    private static String genCopySql(String table, String[] columns) {
+
+        StringBuilder copySql = new StringBuilder("COPY ").append(table).append(" (");
+        for (int i = 0; i < columns.length; i++) {
+            copySql.append(i == 0 ? "" : ",").append("\"").append(columns[i]).append("\"");
+        }
+        return copySql.append(") FROM STDIN WITH CSV").toString();
+    }
+
+    /**
+     * 解析stream load的地址和库名，返回http://host:port/api/db/table/_stream_load.
+     */
+    private static String getLoadUrl(PluginReq conf) {
+
+        DatasourceConfig target = conf.getSyncWorkConfig().getTargetDatabase();
+        Matcher matcher = JDBC_URL_PATTERN.matcher(target.getUrl());
+        if (!matcher.find()) {
+            throw new RuntimeException("无法解析去向数据库地址: " + target.getUrl());
+        }
+
+        String loadUrl = Strings.isNotEmpty(conf.getSyncRule().getLoadUrl()) ? conf.getSyncRule().getLoadUrl()
+            : "http://" + matcher.group(1) + ":8030";
+        String database = matcher.group(2);
+        String table = target.getDbTable();
+        if (table.contains(".")) {
+            database = table.substring(0, table.indexOf('.'));
+            table = table.substring(table.indexOf('.') + 1);
+        }
+        return loadUrl.replaceAll("/+$", "") + "/api/" + database + "/" + table + "/_stream_load";
+    }
+
+    /**
+     * stream load的label前缀，由实例id、spark应用id和写入次数组成，重新运行实例时不会和上次的label冲突.
+     */
+    static String getLabelPrefix(PluginReq conf, String applicationId) {
+
+        String workInstanceId = Strings.isEmpty(conf.getWorkInstanceId())
+            ? UUID.randomUUID().toString().replace("-", "")
+            : conf.getWorkInstanceId();
+        return ("zhiqingyun_" + workInstanceId + "_" + applicationId + "_" + WRITE_COUNT.incrementAndGet())
+            .replaceAll("[^-\\w]", "_");
+    }
+
+    /**
+     * 每个分区按批次stream load，数据格式为按行分隔的json.
+     *
+     * <p>
+     * label由前缀、分区号和批次号组成，task重试时label不变，已经导入的批次不会重复导入.
+     * </p>
+     */
+    private static class StreamLoadFunction implements ForeachPartitionFunction<Row> {
+
+        private static final int MAX_REDIRECTS = 3;
+
+        private final String loadUrl;
+
+        private final String authorization;
+
+        private final String[] columns;
+
+        private final int batchSize;
+
+        private final String labelPrefix;
+
+        private StreamLoadFunction(DatasourceConfig target, String loadUrl, String[] columns, int batchSize,
+            String labelPrefix) {
+
+            String password = target.getPassword() == null ? "" : target.getPassword();
+            this.loadUrl = loadUrl;
+            this.authorization = "Basic " + Base64.getEncoder()
+                .encodeToString((target.getUser() + ":" + password).getBytes(StandardCharsets.UTF_8));
+            this.columns = columns;
+            this.batchSize = batchSize;
+            this.labelPrefix = labelPrefix;
+        }
+
+        @Override
+        public void call(Iterator<Row> rows) throws Exception {
+
+            String partitionLabel = labelPrefix + "_" + TaskContext.getPartitionId();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            int count = 0;
+            int batch = 0;
+            while (rows.hasNext()) {
+                Row row = rows.next();
+                JSONObject line = new JSONObject(true);
+                for (int i = 0; i < columns.length; i++) {
+                    Object value = row.get(i);
+                    line.put(columns[i], value instanceof java.util.Date ? String.valueOf(value) : value);
+                }
+                body.write(JSON.toJSONString(line).getBytes(StandardCharsets.UTF_8));
+                body.write('\n');
+
+                if (++count >= batchSize) {
+                    load(body.toByteArray(), partitionLabel + "_" + batch++);
+                    body.reset();
+                    count = 0;
+                }
+            }
+            if (count > 0) {
+                load(body.toByteArray(), partitionLabel + "_" + batch);
+            }
+        }
+
+        private void load(byte[] body, String label) throws IOException {
+
+            // fe会重定向到be，重定向时需要重新发送数据
+            String url = loadUrl;
+            for (int i = 0; i <= MAX_REDIRECTS; i++) {
+                HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+                connection.setRequestMethod("PUT");
+                connection.setInstanceFollowRedirects(false);
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(body.length);
+                connection.setRequestProperty("Authorization", authorization);
+                connection.setRequestProperty("Expect", "100-continue");
+                connection.setRequestProperty("label", label);
+                connection.setRequestProperty("format", "json");
+                connection.setRequestProperty("read_json_by_line", "true");
+                connection.setRequestProperty("strip_outer_array", "false");
+                connection.setRequestProperty("columns", String.join(",", columns));
+                try (OutputStream outputStream = connection.getOutputStream()) {
+                    outputStream.write(body);
+                }
+
+                int code = connection.getResponseCode();
+                if (code == HttpURLConnection.HTTP_MOVED_TEMP || code == 307) {
+                    url = connection.getHeaderField("Location");
+                    connection.disconnect();
+                    continue;
+                }
+
+                String response = readResponse(connection);
+                JSONObject result = JSON.parseObject(response);
+                String status = result == null ? null : result.getString("Status");
+
+                // task重试时，上次已经导入成功的批次跳过
+                if ("Label Already Exists".equalsIgnoreCase(status)
+                    && "FINISHED".equalsIgnoreCase(result.getString("ExistingJobStatus"))) {
+                    return;
+                }
+                if (!"Success".equalsIgnoreCase(status) && !"Publish Timeout".equalsIgnoreCase(status)) {
+                    throw new RuntimeException("stream load失败: " + response);
+                }
+                return;
+            }
+            throw new RuntimeException("stream load重定向次数过多: " + loadUrl);
+        }
+
+        private String readResponse(HttpURLConnection connection) throws IOException {
+
+            InputStream inputStream =
+                connection.getResponseCode() >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            if (inputStream == null) {
+                return "";
+            }
+            try (InputStream in = inputStream) {
+                ByteArrayOutputStream response = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int length;
+                while ((length = in.read(buffer)) != -1) {
+                    response.write(buffer, 0, length);
+                }
+                return new String(response.toByteArray(), StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    /**
+     * 每个分区一次copy from stdin，边读边写.
+     *
+     * <p>
+     * 驱动在运行时才加载，通过反射调用CopyManager.
+     * </p>
+     */
+    private static class CopyFunction implements ForeachPartitionFunction<Row> {
+
+        private final String driver;
+
+        private final String url;
+
+        private final String user;
+
+        private final String password;
+
+        private final String copySql;
+
+        private CopyFunction(DatasourceConfig target, String copySql) {
+
+            this.driver = target.getDriver();
+            this.url = target.getUrl();
+            this.user = target.getUser();
+            this.password = target.getPassword();
+            this.copySql = copySql;
+        }
+
+        @Override
+        public void call(Iterator<Row> rows) throws Exception {
+
+            DatasourceConfig target =
+                DatasourceConfig.builder().driver(driver).url(url).user(user).password(password).build();
+            try (Connection connection = JdbcMetaUtils.getConnection(target)) {
+                Class<?> pgConnectionClass = Class.forName("org.postgresql.PGConnection", true,
+                    Thread.currentThread().getContextClassLoader());
+                Object copyManager = pgConnectionClass.getMethod("getCopyAPI")
+                    .invoke(connection.unwrap(pgConnectionClass));
+                copyManager.getClass().getMethod("copyIn", String.class, Reader.class).invoke(copyManager, copySql,
+                    new CsvRowReader(rows));
+            } catch (InvocationTargetException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+    }
+
+    /**
+     * 把行数据按csv格式逐行输出，空值不加引号表示null.
+     */
+    private static class CsvRowReader extends Reader {
+
+        private final Iterator<Row> rows;
+
+        private final StringBuilder line = new StringBuilder();
+
+        private int position;
+
+        private CsvRowReader(Iterator<Row> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+
+            if (position >= line.length()) {
+                if (!rows.hasNext()) {
+                    return -1;
+                }
+                nextLine(rows.next());
+            }
+
+            int length = Math.min(len, line.length() - position);
+            line.getChars(position, position + length, cbuf, off);
+            position += length;
+            return length;
+        }
+
+        private void nextLine(Row row) {
+
+            line.setLength(0);
+            position = 0;
+            for (int i = 0; i < row.length(); i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                Object value = row.get(i);
+                if (value == null) {
+                    continue;
+                }
+                String text;
+                if (value instanceof byte[]) {
+                    StringBuilder hex = new StringBuilder("\\x");
+                    for (byte b : (byte[]) value) {
+                        hex.append(String.format("%02x", b));
+                    }
+                    text = hex.toString();
+                } else {
+                    text = String.valueOf(value);
+                }
+                line.append('"').append(text.replace("\"", "\"\"")).append('"');
+            }
+            line.append('\n');
+        }
+
+        @Override
+        public void close() {}
+    }
+}
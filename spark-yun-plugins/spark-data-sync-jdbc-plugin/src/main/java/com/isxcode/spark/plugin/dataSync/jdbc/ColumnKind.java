@@ -0,0 +1,120 @@
+package com.isxcode.spark.plugin.dataSync.jdbc;
+
+import com.isxcode.spark.api.datasource.constants.DatasourceType;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 支持范围比较的字段类型，值统一换算成BigDecimal计算.
+ */
+enum ColumnKind {
+
+    INTEGER(true), DECIMAL(false), DATE(true), TIMESTAMP(true);
+
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    final boolean integral;
+
+    ColumnKind(boolean integral) {
+        this.integral = integral;
+    }
+
+    static ColumnKind of(int sqlType) {
+
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return INTEGER;
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return DECIMAL;
+            case Types.DATE:
+                return DATE;
+            case Types.TIMESTAMP:
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return TIMESTAMP;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 日期换算成天数，时间换算成毫秒数.
+     */
+    BigDecimal read(ResultSet resultSet, int index) throws SQLException {
+
+        switch (this) {
+            case DATE:
+                Date date = resultSet.getDate(index);
+                return date == null ? null : BigDecimal.valueOf(date.toLocalDate().toEpochDay());
+            case TIMESTAMP:
+                Timestamp timestamp = resultSet.getTimestamp(index);
+                return timestamp == null ? null
+                    : BigDecimal.valueOf(timestamp.toLocalDateTime().toInstant(ZoneOffset.UTC).toEpochMilli());
+            default:
+                return resultSet.getBigDecimal(index);
+        }
+    }
+
+    BigDecimal parse(String value) {
+
+        switch (this) {
+            case DATE:
+                return BigDecimal.valueOf(LocalDate.parse(value.trim().substring(0, 10)).toEpochDay());
+            case TIMESTAMP:
+                String time = value.trim().length() == 10 ? value.trim() + " 00:00:00" : value.trim();
+                return BigDecimal
+                    .valueOf(Timestamp.valueOf(time).toLocalDateTime().toInstant(ZoneOffset.UTC).toEpochMilli());
+            default:
+                return new BigDecimal(value.trim());
+        }
+    }
+
+    /**
+     * 转成文本，可以被parse解析.
+     */
+    String toText(BigDecimal value) {
+
+        switch (this) {
+            case DATE:
+                return LocalDate.ofEpochDay(value.longValue()).toString();
+            case TIMESTAMP:
+                return LocalDateTime.ofEpochSecond(Math.floorDiv(value.longValue(), 1000L),
+                    (int) Math.floorMod(value.longValue(), 1000L) * 1000000, ZoneOffset.UTC)
+                    .format(TIMESTAMP_FORMATTER);
+            default:
+                return value.stripTrailingZeros().toPlainString();
+        }
+    }
+
+    /**
+     * 生成sql字面量，oracle和达梦的字符串不能隐式转换成日期.
+     */
+    String format(String dbType, BigDecimal value) {
+
+        boolean typedLiteral = DatasourceType.ORACLE.equals(dbType) || DatasourceType.DM.equals(dbType);
+        switch (this) {
+            case DATE:
+                return typedLiteral ? "DATE '" + toText(value) + "'" : "'" + toText(value) + "'";
+            case TIMESTAMP:
+                return typedLiteral ? "TIMESTAMP '" + toText(value) + "'" : "'" + toText(value) + "'";
+            default:
+                return toText(value);
+        }
+    }
+}
@@ -6,6 +6,7 @@ import com.isxcode.spark.api.datasource.constants.DatasourceType;
 import com.isxcode.spark.api.func.constants.FuncType;
 import com.isxcode.spark.api.plugin.constants.OverModeType;
 import com.isxcode.spark.api.work.constants.SetMode;
+import com.isxcode.spark.api.work.constants.SyncWriter;
 import org.apache.logging.log4j.util.Strings;
 import org.apache.spark.SparkConf;
 import org.apache.spark.sql.DataFrameReader;
@@ -18,9 +19,12 @@ import org.apache.spark.sql.types.DataTypes;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 public class Execute {
 
+    private static final String SYNC_VIEW = "zhiqingyun_sync";
+
     public static void main(String[] args) {
 
         PluginReq pluginReq = parse(args);
@@ -39,8 +43,11 @@ public class Execute {
                 });
             }
 
-            // 创建来源表视图
-            String sourceTempView = genSourceTempView(sparkSession, pluginReq);
+            // 创建来源表视图，断点续跑时按批读取来源表
+            Watermark watermark = new Watermark(pluginReq);
+            SyncCheckpoint checkpoint = SyncCheckpoint.of(sparkSession, pluginReq, watermark);
+            String sourceTempView = checkpoint == null ? genSourceTempView(sparkSession, pluginReq, watermark)
+                : getSourceTempViewName(pluginReq);
 
             // 创建去向表视图
             String targetTempView = genTargetTempView(sparkSession, pluginReq);
@@ -61,31 +68,47 @@ public class Execute {
                 targetCols.add(String.format("`%s`", e.getTarget()));
             });
 
-            // 判断是覆盖还是新增
-            String insertSql =
-                OverModeType.OVERWRITE.equals(pluginReq.getSyncWorkConfig().getOverMode()) ? "insert overwrite"
-                    : "insert into";
-
-            // 执行sql同步语句
-            if (DatasourceType.HIVE.equals(pluginReq.getSyncWorkConfig().getSourceDBType())
-                && Strings.isNotEmpty(pluginReq.getSyncWorkConfig().getQueryCondition())) {
-                sparkSession.sql(insertSql + " table " + targetTempView + " ( " + Strings.join(targetCols, ',')
-                    + " ) select " + Strings.join(sourceCols, ',') + " from " + sourceTempView + " where "
-                    + pluginReq.getSyncWorkConfig().getQueryCondition());
+            // hive来源的条件在spark中过滤
+            List<String> conditions = new ArrayList<>();
+            if (DatasourceType.HIVE.equals(pluginReq.getSyncWorkConfig().getSourceDBType())) {
+                if (Strings.isNotEmpty(pluginReq.getSyncWorkConfig().getQueryCondition())) {
+                    conditions.add("( " + pluginReq.getSyncWorkConfig().getQueryCondition() + " )");
+                }
+                if (watermark.isEnabled()) {
+                    conditions.add(watermark.genHiveCondition(sparkSession, sourceTempView,
+                        pluginReq.getSyncWorkConfig().getQueryCondition()));
+                }
+            }
+            String whereSql = conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions);
+
+            // 按去向表字段命名的数据
+            List<String> selectCols = new ArrayList<>();
+            for (int i = 0; i < sourceCols.size(); i++) {
+                selectCols.add(sourceCols.get(i) + " as " + targetCols.get(i));
+            }
+            String selectSql = "select " + Strings.join(selectCols, ',') + " from " + sourceTempView + whereSql;
+
+            // 执行同步，断点续跑时由检查点清空或者按分区删除去向表
+            boolean overwrite = OverModeType.OVERWRITE.equals(pluginReq.getSyncWorkConfig().getOverMode());
+            String writer = BulkWriter.getWriter(pluginReq);
+            if (checkpoint == null) {
+                writeTarget(sparkSession, pluginReq, writer, sparkSession.sql(selectSql), targetTempView, overwrite);
             } else {
-                sparkSession.sql(insertSql + " table " + targetTempView + " ( " + Strings.join(targetCols, ',')
-                    + " ) select " + Strings.join(sourceCols, ',') + " from " + sourceTempView);
+                checkpoint.run(sparkSession, sourceTempView, selectSql,
+                    rows -> writeTarget(sparkSession, pluginReq, writer, rows, targetTempView, false));
             }
 
+            // 同步成功后返回水位线
+            watermark.print();
         }
     }
 
     /**
      * 构建来源视图.
      */
-    public static String genSourceTempView(SparkSession sparkSession, PluginReq conf) {
+    public static String genSourceTempView(SparkSession sparkSession, PluginReq conf, Watermark watermark) {
 
-        String sourceTableName = "zhiqingyun_src_" + conf.getSyncWorkConfig().getSourceDatabase().getDbTable();
+        String sourceTableName = getSourceTempViewName(conf);
 
         if (DatasourceType.HIVE.equals(conf.getSyncWorkConfig().getSourceDBType())) {
 
@@ -93,45 +116,92 @@ public class Execute {
                 + conf.getSyncWorkConfig().getSourceDatabase().getDbTable();
         } else {
 
-            Properties prop = new Properties();
-            prop.put("user", conf.getSyncWorkConfig().getSourceDatabase().getUser());
-            if (conf.getSyncWorkConfig().getSourceDatabase().getPassword() != null) {
-                prop.put("password", conf.getSyncWorkConfig().getSourceDatabase().getPassword());
-            }
+            String dbTable = genSourceDbTable(conf, watermark);
 
-            prop.put("driver", conf.getSyncWorkConfig().getSourceDatabase().getDriver());
+            // 生成分区条件，优先按范围分区
+            String[] predicate = PartitionPredicates.getPredicates(conf, dbTable);
 
-            // 创建一个 ArrayList 存储分区条件
-            List<String> predicates = new ArrayList<>();
+            readSource(sparkSession, conf, dbTable, predicate).createOrReplaceTempView(sourceTableName);
+        }
 
-            // 生成查询条件并添加到列表中
-            for (int i = 0; i < conf.getSyncRule().getNumPartitions(); i++) {
-                // 不同的数据库要使用各自支持hash函数
-                predicates.add(getHashPredicate(conf.getSyncWorkConfig().getSourceDBType(),
-                    conf.getSyncWorkConfig().getPartitionColumn(), conf.getSyncRule().getNumPartitions(), i, i));
-            }
+        return sourceTableName;
+    }
 
-            // 将列表转换为字符串数组
-            String[] predicate = predicates.toArray(new String[0]);
+    public static String getSourceTempViewName(PluginReq conf) {
 
-            String dbTable = (DatasourceType.POSTGRE_SQL.equals(conf.getSyncWorkConfig().getSourceDBType())
-                || DatasourceType.GAUSS.equals(conf.getSyncWorkConfig().getSourceDBType())
-                || DatasourceType.OPEN_GAUSS.equals(conf.getSyncWorkConfig().getSourceDBType()))
-                    ? "\"" + conf.getSyncWorkConfig().getSourceDatabase().getDbTable() + "\""
-                    : conf.getSyncWorkConfig().getSourceDatabase().getDbTable();
+        return "zhiqingyun_src_" + conf.getSyncWorkConfig().getSourceDatabase().getDbTable();
+    }
 
-            // 拼接来源的条件
-            if (Strings.isNotEmpty(conf.getSyncWorkConfig().getQueryCondition())) {
-                dbTable = "( select * from " + dbTable + " where " + conf.getSyncWorkConfig().getQueryCondition()
-                    + " ) as " + sourceTableName;
-            }
-            Dataset<Row> source = sparkSession.read().jdbc(conf.getSyncWorkConfig().getSourceDatabase().getUrl(),
-                dbTable, predicate, prop);
+    /**
+     * 拼接jdbc来源表，带查询条件或者增量条件时为子查询.
+     */
+    public static String genSourceDbTable(PluginReq conf, Watermark watermark) {
+
+        String sourceTableName = getSourceTempViewName(conf);
+        String dbTable = (DatasourceType.POSTGRE_SQL.equals(conf.getSyncWorkConfig().getSourceDBType())
+            || DatasourceType.GAUSS.equals(conf.getSyncWorkConfig().getSourceDBType())
+            || DatasourceType.OPEN_GAUSS.equals(conf.getSyncWorkConfig().getSourceDBType()))
+                ? "\"" + conf.getSyncWorkConfig().getSourceDatabase().getDbTable() + "\""
+                : conf.getSyncWorkConfig().getSourceDatabase().getDbTable();
+
+        // 拼接来源的条件
+        String sourceTable = dbTable;
+        String queryCondition = conf.getSyncWorkConfig().getQueryCondition();
+        if (Strings.isNotEmpty(queryCondition)) {
+            dbTable = "( select * from " + sourceTable + " where " + queryCondition + " ) as " + sourceTableName;
+        }
 
-            source.createOrReplaceTempView(sourceTableName);
+        // 增量同步只读取上次水位线之后的数据
+        if (watermark.isEnabled()) {
+            String condition = watermark.genJdbcCondition(conf, dbTable);
+            dbTable = "( select * from " + sourceTable + " where "
+                + (Strings.isNotEmpty(queryCondition) ? "( " + queryCondition + " ) and " : "") + condition
+                + " ) as " + sourceTableName;
         }
 
-        return sourceTableName;
+        return dbTable;
+    }
+
+    /**
+     * 按分区条件读取jdbc来源表，每个条件一个分区.
+     */
+    public static Dataset<Row> readSource(SparkSession sparkSession, PluginReq conf, String dbTable,
+        String[] predicates) {
+
+        Properties prop = new Properties();
+        prop.put("user", conf.getSyncWorkConfig().getSourceDatabase().getUser());
+        if (conf.getSyncWorkConfig().getSourceDatabase().getPassword() != null) {
+            prop.put("password", conf.getSyncWorkConfig().getSourceDatabase().getPassword());
+        }
+
+        prop.put("driver", conf.getSyncWorkConfig().getSourceDatabase().getDriver());
+
+        return sparkSession.read().jdbc(conf.getSyncWorkConfig().getSourceDatabase().getUrl(), dbTable, predicates,
+            prop);
+    }
+
+    /**
+     * 写入去向表.
+     *
+     * @param rows 字段名和去向表一致的数据
+     * @param overwrite 是否覆盖写入
+     */
+    public static void writeTarget(SparkSession sparkSession, PluginReq conf, String writer, Dataset<Row> rows,
+        String targetTempView, boolean overwrite) {
+
+        if (OverModeType.UPSERT.equals(conf.getSyncWorkConfig().getOverMode())) {
+            UpsertWriter.write(sparkSession, conf, rows, targetTempView);
+        } else if (SyncWriter.SQL.equals(writer)) {
+
+            // 判断是覆盖还是新增
+            rows.createOrReplaceTempView(SYNC_VIEW);
+            String cols = Arrays.stream(rows.columns()).map(e -> "`" + e + "`").collect(Collectors.joining(","));
+            String insertSql = overwrite ? "insert overwrite" : "insert into";
+            sparkSession.sql(insertSql + " table " + targetTempView + " ( " + cols + " ) select " + cols + " from "
+                + SYNC_VIEW);
+        } else {
+            BulkWriter.write(conf, writer, rows, overwrite);
+        }
     }
 
     /**
@@ -0,0 +1,80 @@
+package com.isxcode.spark.plugin.dataSync.jdbc;
+
+import com.isxcode.spark.api.datasource.constants.DatasourceType;
+import com.isxcode.spark.api.work.dto.DatasourceConfig;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Driver;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * 在spark驱动端直接访问数据源.
+ */
+public class JdbcMetaUtils {
+
+    public static Connection getConnection(DatasourceConfig datasource) throws SQLException {
+
+        Properties prop = new Properties();
+        prop.put("user", datasource.getUser());
+        if (datasource.getPassword() != null) {
+            prop.put("password", datasource.getPassword());
+        }
+
+        // 驱动由spark的类加载器加载，DriverManager找不到，直接实例化驱动
+        try {
+            Driver driver = (Driver) Class.forName(datasource.getDriver(), true,
+                Thread.currentThread().getContextClassLoader()).getDeclaredConstructor().newInstance();
+            return driver.connect(datasource.getUrl(), prop);
+        } catch (ReflectiveOperationException e) {
+            throw new SQLException("加载驱动失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 获取表的主键字段，没有主键返回空.
+     */
+    public static List<String> getPrimaryKeys(Connection connection, String tableName) throws SQLException {
+
+        String schema = null;
+        if (tableName.contains(".")) {
+            schema = tableName.substring(0, tableName.lastIndexOf('.'));
+            tableName = tableName.substring(tableName.lastIndexOf('.') + 1);
+        }
+
+        // 兼容大小写敏感的数据库
+        DatabaseMetaData metaData = connection.getMetaData();
+        for (String name : new String[] {tableName, tableName.toUpperCase(), tableName.toLowerCase()}) {
+            List<String> primaryKeys = new ArrayList<>();
+            try (ResultSet resultSet = metaData.getPrimaryKeys(connection.getCatalog(), schema, name)) {
+                while (resultSet.next()) {
+                    primaryKeys.add(resultSet.getString("COLUMN_NAME"));
+                }
+            }
+            if (!primaryKeys.isEmpty()) {
+                return primaryKeys;
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    public static String quoteColumn(String dbType, String column) {
+
+        switch (dbType) {
+            case DatasourceType.ORACLE:
+            case DatasourceType.DM:
+            case DatasourceType.POSTGRE_SQL:
+            case DatasourceType.OPEN_GAUSS:
+            case DatasourceType.GAUSS:
+                return "\"" + column + "\"";
+            case DatasourceType.SQL_SERVER:
+                return column;
+            default:
+                return "`" + column + "`";
+        }
+    }
+}
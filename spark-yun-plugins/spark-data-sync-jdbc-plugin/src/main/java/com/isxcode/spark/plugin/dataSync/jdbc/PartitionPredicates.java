@@ -0,0 +1,209 @@
+package com.isxcode.spark.plugin.dataSync.jdbc;
+
+import com.isxcode.spark.api.agent.req.spark.PluginReq;
+import com.isxcode.spark.api.work.constants.PartitionStrategy;
+import org.apache.logging.log4j.util.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 来源表的分区条件.
+ *
+ * <p>
+ * 范围分区只查询一次分区键的最小值和最大值，每个分区生成col &gt;= x and col &lt; y的条件，可以走索引扫描；hash分区每个分区都要全表扫描.
+ * 自动模式下查询元数据或者最小最大值失败时使用hash分区.
+ * </p>
+ */
+public class PartitionPredicates {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PartitionPredicates.class);
+
+    /**
+     * 生成分区条件.
+     *
+     * @param dbTable 来源表，可能是带查询条件的子查询
+     */
+    public static String[] getPredicates(PluginReq conf, String dbTable) {
+
+        String dbType = conf.getSyncWorkConfig().getSourceDBType();
+        RangeBounds rangeBounds = getRangeBounds(conf, dbTable);
+        if (rangeBounds != null) {
+            return rangeBounds.toPredicates(dbType, JdbcMetaUtils.quoteColumn(dbType, rangeBounds.getColumn()));
+        }
+
+        // 不同的数据库要使用各自支持hash函数
+        int numPartitions = conf.getSyncRule().getNumPartitions() == null ? 1 : conf.getSyncRule().getNumPartitions();
+        String[] predicates = new String[numPartitions];
+        for (int i = 0; i < numPartitions; i++) {
+            predicates[i] = Execute.getHashPredicate(dbType, getPartitionColumn(conf), numPartitions, i, i);
+        }
+        return predicates;
+    }
+
+    /**
+     * 生成范围分区的边界，使用hash分区时返回null.
+     */
+    public static RangeBounds getRangeBounds(PluginReq conf, String dbTable) {
+
+        int numPartitions = conf.getSyncRule().getNumPartitions() == null ? 1 : conf.getSyncRule().getNumPartitions();
+        String dbType = conf.getSyncWorkConfig().getSourceDBType();
+        String partitionColumn = getPartitionColumn(conf);
+        String strategy = Strings.isEmpty(conf.getSyncRule().getPartitionStrategy()) ? PartitionStrategy.AUTO
+            : conf.getSyncRule().getPartitionStrategy();
+
+        if (numPartitions <= 1 || PartitionStrategy.HASH.equals(strategy)) {
+            return null;
+        }
+
+        try (Connection connection = JdbcMetaUtils.getConnection(conf.getSyncWorkConfig().getSourceDatabase())) {
+
+            // 自动模式下只对数值主键使用范围分区
+            if (PartitionStrategy.AUTO.equals(strategy)) {
+                String primaryKey = getNumericPrimaryKey(connection, dbType,
+                    conf.getSyncWorkConfig().getSourceDatabase().getDbTable(), dbTable);
+                if (primaryKey == null) {
+                    return null;
+                }
+                partitionColumn = primaryKey;
+            }
+
+            return getRangeBounds(connection, dbType, dbTable, partitionColumn, numPartitions,
+                conf.getSyncRule().getLowerBound(), conf.getSyncRule().getUpperBound());
+        } catch (SQLException | RuntimeException e) {
+            if (PartitionStrategy.AUTO.equals(strategy)) {
+                LOG.warn("生成范围分区条件异常，使用hash分区: {}", e.getMessage(), e);
+                return null;
+            }
+            throw new RuntimeException("生成范围分区条件异常: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 按分区键的取值范围均分.
+     */
+    public static RangeBounds getRangeBounds(Connection connection, String dbType, String dbTable,
+        String partitionColumn, int numPartitions, String lowerBound, String upperBound) throws SQLException {
+
+        String column = JdbcMetaUtils.quoteColumn(dbType, partitionColumn);
+
+        ColumnKind kind;
+        BigDecimal lower;
+        BigDecimal upper;
+        try (Statement statement = connection.createStatement();
+            ResultSet resultSet =
+                statement.executeQuery("select min(" + column + "), max(" + column + ") from " + dbTable)) {
+            resultSet.next();
+            kind = ColumnKind.of(resultSet.getMetaData().getColumnType(1));
+            if (kind == null) {
+                throw new RuntimeException("分区键" + partitionColumn + "不支持范围分区，只支持数值、日期和时间类型");
+            }
+            lower = Strings.isNotEmpty(lowerBound) ? kind.parse(lowerBound) : kind.read(resultSet, 1);
+            upper = Strings.isNotEmpty(upperBound) ? kind.parse(upperBound) : kind.read(resultSet, 2);
+        }
+
+        // 空表或者分区键全为空
+        List<BigDecimal> bounds = new ArrayList<>();
+        if (lower == null || upper == null || lower.compareTo(upper) >= 0) {
+            return new RangeBounds(partitionColumn, kind, bounds);
+        }
+
+        // 计算分区边界，整数类型的边界取整后去重
+        BigDecimal step = upper.subtract(lower).divide(BigDecimal.valueOf(numPartitions), 6, RoundingMode.DOWN);
+        for (int i = 1; i < numPartitions; i++) {
+            BigDecimal bound = lower.add(step.multiply(BigDecimal.valueOf(i)));
+            if (kind.integral) {
+                bound = bound.setScale(0, RoundingMode.DOWN);
+            }
+            BigDecimal last = bounds.isEmpty() ? lower : bounds.get(bounds.size() - 1);
+            if (bound.compareTo(last) > 0) {
+                bounds.add(bound);
+            }
+        }
+        return new RangeBounds(partitionColumn, kind, bounds);
+    }
+
+    /**
+     * 获取单字段的数值主键，没有或者获取失败返回null.
+     */
+    public static String getNumericPrimaryKey(Connection connection, String dbType, String tableName,
+        String dbTable) {
+
+        try {
+            List<String> primaryKeys = JdbcMetaUtils.getPrimaryKeys(connection, tableName);
+            if (primaryKeys.size() != 1) {
+                return null;
+            }
+
+            String sql = "select " + JdbcMetaUtils.quoteColumn(dbType, primaryKeys.get(0)) + " from " + dbTable
+                + " where 1 = 0";
+            try (Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery(sql)) {
+                ColumnKind kind = ColumnKind.of(resultSet.getMetaData().getColumnType(1));
+                return kind == ColumnKind.INTEGER || kind == ColumnKind.DECIMAL ? primaryKeys.get(0) : null;
+            }
+        } catch (SQLException e) {
+            // 自动模式下获取不到主键时使用hash分区
+            return null;
+        }
+    }
+
+    private static String getPartitionColumn(PluginReq conf) {
+
+        return Strings.isNotEmpty(conf.getSyncRule().getPartitionColumn()) ? conf.getSyncRule().getPartitionColumn()
+            : conf.getSyncWorkConfig().getPartitionColumn();
+    }
+
+    /**
+     * 范围分区的边界，同一组边界可以按来源库和去向库分别生成条件.
+     */
+    public static class RangeBounds {
+
+        private final String column;
+
+        private final ColumnKind kind;
+
+        private final List<BigDecimal> bounds;
+
+        private RangeBounds(String column, ColumnKind kind, List<BigDecimal> bounds) {
+
+            this.column = column;
+            this.kind = kind;
+            this.bounds = bounds;
+        }
+
+        public String getColumn() {
+            return column;
+        }
+
+        /**
+         * 生成每个分区的条件，首个分区包含空值，首尾分区不设边界.
+         *
+         * @param quoteColumn 按数据库转义后的字段名
+         */
+        public String[] toPredicates(String dbType, String quoteColumn) {
+
+            if (bounds.isEmpty()) {
+                return new String[] {"1=1"};
+            }
+
+            String[] predicates = new String[bounds.size() + 1];
+            predicates[0] =
+                quoteColumn + " < " + kind.format(dbType, bounds.get(0)) + " or " + quoteColumn + " is null";
+            for (int i = 1; i < bounds.size(); i++) {
+                predicates[i] = quoteColumn + " >= " + kind.format(dbType, bounds.get(i - 1)) + " and " + quoteColumn
+                    + " < " + kind.format(dbType, bounds.get(i));
+            }
+            predicates[bounds.size()] = quoteColumn + " >= " + kind.format(dbType, bounds.get(bounds.size() - 1));
+            return predicates;
+        }
+    }
+}
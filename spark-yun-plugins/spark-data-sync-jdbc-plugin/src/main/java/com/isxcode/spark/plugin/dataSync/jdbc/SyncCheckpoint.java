@@ -0,0 +1,328 @@
+package com.isxcode.spark.plugin.dataSync.jdbc;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.isxcode.spark.api.agent.req.spark.PluginReq;
+import com.isxcode.spark.api.datasource.constants.DatasourceType;
+import com.isxcode.spark.api.plugin.constants.OverModeType;
+import com.isxcode.spark.api.work.dto.DatasourceConfig;
+import com.isxcode.spark.api.work.dto.SyncColumnMap;
+import com.isxcode.spark.api.work.dto.SyncPartition;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.logging.log4j.util.Strings;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.function.Function2;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.util.LongAccumulator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * 数据同步的分区检查点.
+ *
+ * <p>
+ * 首次运行把来源表和分区条件写到progressPath/_partitions，按并发数分批同步，每批成功后写partition-序号文件.
+ * 续跑时沿用上次的来源表、分区条件和水位线，跳过已完成的分区.更新写入按主键幂等，覆写模式首次运行清空去向表，续跑时先按分区条件删除去向表中未完成分区的数据.
+ * </p>
+ */
+public class SyncCheckpoint {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SyncCheckpoint.class);
+
+    private static final String PARTITIONS_FILE = "_partitions";
+
+    private static final String PARTITION_PREFIX = "partition-";
+
+    private final PluginReq conf;
+
+    private final FileSystem fileSystem;
+
+    private final Path progressPath;
+
+    private final boolean resume;
+
+    private final String dbTable;
+
+    private final List<String> predicates;
+
+    /**
+     * 去向表的分区条件，覆写模式续跑时按条件删除，更新写入时为空.
+     */
+    private final List<String> targetPredicates;
+
+    private final Set<Integer> completed = new HashSet<>();
+
+    private SyncCheckpoint(PluginReq conf, FileSystem fileSystem, Path progressPath, boolean resume, String dbTable,
+        List<String> predicates, List<String> targetPredicates) {
+
+        this.conf = conf;
+        this.fileSystem = fileSystem;
+        this.progressPath = progressPath;
+        this.resume = resume;
+        this.dbTable = dbTable;
+        this.predicates = predicates;
+        this.targetPredicates = targetPredicates;
+    }
+
+    /**
+     * 加载或者创建检查点，不支持断点续跑时返回null.
+     */
+    public static SyncCheckpoint of(SparkSession sparkSession, PluginReq conf, Watermark watermark) {
+
+        // 只支持jdbc之间的覆写和更新写入
+        String overMode = conf.getSyncWorkConfig().getOverMode();
+        boolean upsert = OverModeType.UPSERT.equals(overMode);
+        if (Strings.isEmpty(conf.getProgressPath())
+            || DatasourceType.HIVE.equals(conf.getSyncWorkConfig().getSourceDBType())
+            || DatasourceType.HIVE.equals(conf.getSyncWorkConfig().getTargetDBType())
+            || !upsert && !OverModeType.OVERWRITE.equals(overMode)) {
+            return null;
+        }
+
+        try {
+            Path progressPath = new Path(conf.getProgressPath());
+            FileSystem fileSystem = progressPath.getFileSystem(sparkSession.sparkContext().hadoopConfiguration());
+
+            // 续跑时沿用上次的分区
+            Path partitionsPath = new Path(progressPath, PARTITIONS_FILE);
+            if (Boolean.TRUE.equals(conf.getResume()) && fileSystem.exists(partitionsPath)) {
+                JSONObject partitions = JSON.parseObject(readFile(fileSystem, partitionsPath));
+                if (partitions.getString("watermark") != null) {
+                    watermark.restore(partitions.getString("watermark"));
+                }
+                SyncCheckpoint checkpoint = new SyncCheckpoint(conf, fileSystem, progressPath, true,
+                    partitions.getString("dbTable"), partitions.getJSONArray("predicates").toJavaList(String.class),
+                    partitions.containsKey("targetPredicates")
+                        ? partitions.getJSONArray("targetPredicates").toJavaList(String.class)
+                        : null);
+                checkpoint.loadCompleted();
+                return checkpoint;
+            }
+
+            String dbTable = Execute.genSourceDbTable(conf, watermark);
+            List<String> predicates;
+            List<String> targetPredicates = null;
+            if (upsert) {
+                predicates = toList(PartitionPredicates.getPredicates(conf, dbTable));
+            } else {
+
+                // 覆写模式只支持分区键直接映射到去向字段的范围分区
+                PartitionPredicates.RangeBounds rangeBounds = PartitionPredicates.getRangeBounds(conf, dbTable);
+                String targetColumn = rangeBounds == null ? null : getTargetColumn(conf, rangeBounds.getColumn());
+                if (targetColumn == null) {
+                    return null;
+                }
+                String sourceType = conf.getSyncWorkConfig().getSourceDBType();
+                String targetType = conf.getSyncWorkConfig().getTargetDBType();
+                String sourceColumn = JdbcMetaUtils.quoteColumn(sourceType, rangeBounds.getColumn());
+                predicates = toList(rangeBounds.toPredicates(sourceType, sourceColumn));
+                targetPredicates =
+                    toList(rangeBounds.toPredicates(targetType, JdbcMetaUtils.quoteColumn(targetType, targetColumn)));
+
+                // 先清空再记录分区，记录分区前中断会重新清空
+                DatasourceConfig target = conf.getSyncWorkConfig().getTargetDatabase();
+                BulkWriter.truncate(target, BulkWriter.quoteTable(targetType, target.getDbTable()));
+            }
+
+            if (fileSystem.exists(progressPath)) {
+                fileSystem.delete(progressPath, true);
+            }
+            JSONObject partitions = new JSONObject();
+            partitions.put("dbTable", dbTable);
+            partitions.put("watermark", watermark.getValue());
+            partitions.put("predicates", predicates);
+            if (targetPredicates != null) {
+                partitions.put("targetPredicates", targetPredicates);
+            }
+            writeFile(fileSystem, partitionsPath, partitions.toJSONString());
+
+            return new SyncCheckpoint(conf, fileSystem, progressPath, false, dbTable, predicates, targetPredicates);
+        } catch (IOException e) {
+            throw new RuntimeException("读写分区进度异常: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 按批同步未完成的分区.
+     *
+     * @param sourceTempView 来源视图，每批替换成当前批次的分区
+     * @param selectSql 从来源视图查询去向字段的sql
+     * @param writer 写入去向表
+     */
+    public void run(SparkSession sparkSession, String sourceTempView, String selectSql,
+        Consumer<Dataset<Row>> writer) {
+
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < predicates.size(); i++) {
+            if (!completed.contains(i)) {
+                pending.add(i);
+            }
+        }
+        LOG.info("分区进度: 共{}个分区，已完成{}个", predicates.size(), completed.size());
+
+        int batchSize = getBatchSize();
+        for (int start = 0; start < pending.size(); start += batchSize) {
+            List<Integer> batch = pending.subList(start, Math.min(start + batchSize, pending.size()));
+
+            // 续跑时删除上次写了一半的数据
+            if (resume && targetPredicates != null) {
+                deleteTarget(batch);
+            }
+
+            // 每个分区条件对应一个spark分区，按分区统计行数
+            String[] batchPredicates = batch.stream().map(predicates::get).toArray(String[]::new);
+            Execute.readSource(sparkSession, conf, dbTable, batchPredicates).createOrReplaceTempView(sourceTempView);
+            Dataset<Row> rows = sparkSession.sql(selectSql);
+            LongAccumulator[] rowCounts = new LongAccumulator[batch.size()];
+            for (int i = 0; i < batch.size(); i++) {
+                rowCounts[i] = sparkSession.sparkContext().longAccumulator("partition-" + batch.get(i));
+            }
+            JavaRDD<Row> countedRows = rows.javaRDD().mapPartitionsWithIndex(new CountFunction(rowCounts), true);
+            writer.accept(sparkSession.createDataFrame(countedRows, rows.schema()));
+
+            for (int i = 0; i < batch.size(); i++) {
+                complete(batch.get(i), rowCounts[i].value());
+            }
+            LOG.info("分区进度: 已完成{}/{}个分区", completed.size(), predicates.size());
+        }
+    }
+
+    private void complete(int index, long rowCount) {
+
+        SyncPartition partition =
+            SyncPartition.builder().index(index).predicate(predicates.get(index)).rowCount(rowCount).build();
+        try {
+            writeFile(fileSystem, new Path(progressPath, PARTITION_PREFIX + index), JSON.toJSONString(partition));
+        } catch (IOException e) {
+            throw new RuntimeException("保存分区进度异常: " + e.getMessage(), e);
+        }
+        completed.add(index);
+    }
+
+    private void loadCompleted() throws IOException {
+
+        for (FileStatus fileStatus : fileSystem.listStatus(progressPath)) {
+            if (fileStatus.isFile() && fileStatus.getPath().getName().startsWith(PARTITION_PREFIX)) {
+                completed.add(JSON.parseObject(readFile(fileSystem, fileStatus.getPath()), SyncPartition.class)
+                    .getIndex());
+            }
+        }
+    }
+
+    private void deleteTarget(List<Integer> batch) {
+
+        String targetType = conf.getSyncWorkConfig().getTargetDBType();
+        DatasourceConfig target = conf.getSyncWorkConfig().getTargetDatabase();
+        String table = BulkWriter.quoteTable(targetType, target.getDbTable());
+        try (Connection connection = JdbcMetaUtils.getConnection(target);
+            Statement statement = connection.createStatement()) {
+            for (Integer index : batch) {
+                statement.execute("delete from " + table + " where " + targetPredicates.get(index));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("删除去向表分区数据异常: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 每批的分区数，默认和并发数一致.
+     */
+    private int getBatchSize() {
+
+        Integer numConcurrency = conf.getSyncRule().getNumConcurrency();
+        if (numConcurrency != null && numConcurrency > 0) {
+            return numConcurrency;
+        }
+        return Math.max(predicates.size(), 1);
+    }
+
+    /**
+     * 获取分区键映射的去向字段，字段有转换sql时返回null.
+     */
+    private static String getTargetColumn(PluginReq conf, String sourceColumn) {
+
+        boolean translated = conf.getSyncWorkConfig().getSourceTableColumn().stream()
+            .anyMatch(e -> sourceColumn.equalsIgnoreCase(e.getCode()) && Strings.isNotEmpty(e.getSql()));
+        if (translated) {
+            return null;
+        }
+        return conf.getSyncWorkConfig().getColumnMap().stream()
+            .filter(e -> sourceColumn.equalsIgnoreCase(e.getSource())).map(SyncColumnMap::getTarget).findFirst()
+            .orElse(null);
+    }
+
+    private static List<String> toList(String[] predicates) {
+
+        List<String> list = new ArrayList<>(predicates.length);
+        for (String predicate : predicates) {
+            list.add(predicate);
+        }
+        return list;
+    }
+
+    private static String readFile(FileSystem fileSystem, Path path) throws IOException {
+
+        try (BufferedReader reader =
+            new BufferedReader(new InputStreamReader(fileSystem.open(path), StandardCharsets.UTF_8))) {
+            return reader.lines().collect(Collectors.joining("\n"));
+        }
+    }
+
+    private static void writeFile(FileSystem fileSystem, Path path, String content) throws IOException {
+
+        try (FSDataOutputStream outputStream = fileSystem.create(path, true)) {
+            outputStream.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * 统计每个分区的行数.
+     */
+    private static class CountFunction implements Function2<Integer, Iterator<Row>, Iterator<Row>> {
+
+        private final LongAccumulator[] rowCounts;
+
+        private CountFunction(LongAccumulator[] rowCounts) {
+            this.rowCounts = rowCounts;
+        }
+
+        @Override
+        public Iterator<Row> call(Integer index, Iterator<Row> rows) {
+
+            LongAccumulator rowCount = rowCounts[index];
+            return new Iterator<Row>() {
+
+                @Override
+                public boolean hasNext() {
+                    return rows.hasNext();
+                }
+
+                @Override
+                public Row next() {
+                    rowCount.add(1);
+                    return rows.next();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.isxcode.spark.plugin.dataSync.jdbc;
+
+import com.isxcode.spark.api.agent.req.spark.PluginReq;
+import com.isxcode.spark.api.datasource.constants.DatasourceType;
+import com.isxcode.spark.api.work.dto.DatasourceConfig;
+import org.apache.logging.log4j.util.Strings;
+import org.apache.spark.api.java.function.ForeachPartitionFunction;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.catalog.Column;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 按主键更新写入去向表.
+ *
+ * <p>
+ * mysql和postgres按分区批量执行upsert语句，doris和starRocks的unique模型插入即更新，hive只覆盖新数据涉及的分区.
+ * </p>
+ */
+public class UpsertWriter {
+
+    private static final String UPSERT_VIEW = "zhiqingyun_upsert";
+
+    private static final String MERGE_VIEW = "zhiqingyun_merge";
+
+    /**
+     * 更新写入.
+     *
+     * @param rows 字段名和去向表一致的数据
+     * @param targetTable 去向表，hive为库名加表名
+     */
+    public static void write(SparkSession sparkSession, PluginReq conf, Dataset<Row> rows, String targetTable) {
+
+        String dbType = conf.getSyncWorkConfig().getTargetDBType();
+        DatasourceConfig target = conf.getSyncWorkConfig().getTargetDatabase();
+        List<String> columns = Arrays.asList(rows.columns());
+        List<String> mergeColumns = conf.getSyncRule().getMergeColumns() == null ? new ArrayList<>()
+            : conf.getSyncRule().getMergeColumns().stream().filter(Strings::isNotEmpty).collect(Collectors.toList());
+
+        switch (dbType) {
+            case DatasourceType.MYSQL:
+            case DatasourceType.TIDB:
+                rows.foreachPartition(new JdbcUpsertFunction(target, genMysqlSql(target, columns, mergeColumns)));
+                break;
+            case DatasourceType.POSTGRE_SQL:
+                if (mergeColumns.isEmpty()) {
+                    mergeColumns = getPrimaryKeys(target);
+                }
+                rows.foreachPartition(new JdbcUpsertFunction(target, genPostgresSql(target, columns, mergeColumns)));
+                break;
+            case DatasourceType.DORIS:
+            case DatasourceType.STAR_ROCKS:
+                rows.createOrReplaceTempView(UPSERT_VIEW);
+                String cols = columns.stream().map(e -> "`" + e + "`").collect(Collectors.joining(","));
+                sparkSession.sql("insert into table " + targetTable + " ( " + cols + " ) select " + cols + " from "
+                    + UPSERT_VIEW);
+                break;
+            case DatasourceType.HIVE:
+                mergeHive(sparkSession, rows, targetTable, mergeColumns);
+                break;
+            default:
+                throw new RuntimeException("更新写入暂不支持的数据库");
+        }
+    }
+
+    private static String genMysqlSql(DatasourceConfig target, List<String> columns, List<String> mergeColumns) {
+
+        List<String> updateColumns = columns.stream().filter(e -> !containsIgnoreCase(mergeColumns, e))
+            .map(e -> "`" + e + "` = values(`" + e + "`)").collect(Collectors.toList());
+        if (updateColumns.isEmpty()) {
+            updateColumns.add("`" + columns.get(0) + "` = `" + columns.get(0) + "`");
+        }
+
+        return "insert into " + target.getDbTable() + " ("
+            + columns.stream().map(e -> "`" + e + "`").collect(Collectors.joining(",")) + ") values ("
+            + columns.stream().map(e -> "?").collect(Collectors.joining(",")) + ") on duplicate key update "
+            + Strings.join(updateColumns, ',');
+    }
+
+    private static String genPostgresSql(DatasourceConfig target, List<String> columns, List<String> mergeColumns) {
+
+        if (mergeColumns.isEmpty()) {
+            throw new RuntimeException("去向表没有主键，请配置更新写入的主键字段");
+        }
+
+        List<String> updateColumns = columns.stream().filter(e -> !containsIgnoreCase(mergeColumns, e))
+            .map(e -> "\"" + e + "\" = excluded.\"" + e + "\"").collect(Collectors.toList());
+
+        return "insert into " + quotePostgresTable(target.getDbTable()) + " ("
+            + columns.stream().map(e -> "\"" + e + "\"").collect(Collectors.joining(",")) + ") values ("
+            + columns.stream().map(e -> "?").collect(Collectors.joining(",")) + ") on conflict ("
+            + mergeColumns.stream().map(e -> "\"" + e + "\"").collect(Collectors.joining(",")) + ") do "
+            + (updateColumns.isEmpty() ? "nothing" : "update set " + Strings.join(updateColumns, ','));
+    }
+
+    /**
+     * schema和表名分别转义，已经转义的部分保持不变.
+     */
+    private static String quotePostgresTable(String table) {
+
+        return Arrays.stream(table.split("\\.")).map(e -> e.startsWith("\"") ? e : "\"" + e + "\"")
+            .collect(Collectors.joining("."));
+    }
+
+    /**
+     * 新数据和涉及分区中未更新的旧数据合并后，覆盖写入涉及的分区.
+     */
+    private static void mergeHive(SparkSession sparkSession, Dataset<Row> rows, String targetTable,
+        List<String> mergeColumns) {
+
+        if (mergeColumns.isEmpty()) {
+            throw new RuntimeException("hive更新写入需要配置主键字段");
+        }
+
+        List<String> dataColumns = new ArrayList<>();
+        List<String> partitionColumns = new ArrayList<>();
+        for (Column column : sparkSession.catalog().listColumns(targetTable).collectAsList()) {
+            (column.isPartition() ? partitionColumns : dataColumns).add(column.name());
+        }
+        List<String> tableColumns = new ArrayList<>(dataColumns);
+        tableColumns.addAll(partitionColumns);
+
+        // 按去向表的字段顺序选择，没有映射的字段写null
+        List<String> rowColumns = Arrays.asList(rows.columns());
+        String newSelect = tableColumns.stream()
+            .map(e -> containsIgnoreCase(rowColumns, e) ? "n.`" + e + "`" : "null as `" + e + "`")
+            .collect(Collectors.joining(","));
+        String oldSelect = tableColumns.stream().map(e -> "t.`" + e + "`").collect(Collectors.joining(","));
+
+        rows.createOrReplaceTempView(UPSERT_VIEW);
+        String mergeSql = "select " + newSelect + " from " + UPSERT_VIEW + " n union all select " + oldSelect + " from "
+            + targetTable + " t";
+        String partitionCols = partitionColumns.stream().map(e -> "`" + e + "`").collect(Collectors.joining(","));
+        if (!partitionColumns.isEmpty()) {
+            mergeSql = mergeSql + " left semi join (select distinct " + partitionCols + " from " + UPSERT_VIEW
+                + ") p on " + partitionColumns.stream().map(e -> "t.`" + e + "` = p.`" + e + "`")
+                    .collect(Collectors.joining(" and "));
+        }
+        mergeSql = mergeSql + " left anti join " + UPSERT_VIEW + " o on "
+            + mergeColumns.stream().map(e -> "t.`" + e + "` = o.`" + e + "`").collect(Collectors.joining(" and "));
+
+        // 先物化合并结果，避免读写同一张表
+        sparkSession.sql(mergeSql).localCheckpoint().createOrReplaceTempView(MERGE_VIEW);
+
+        if (partitionColumns.isEmpty()) {
+            sparkSession.sql("insert overwrite table " + targetTable + " select * from " + MERGE_VIEW);
+        } else {
+            sparkSession.conf().set("hive.exec.dynamic.partition", "true");
+            sparkSession.conf().set("hive.exec.dynamic.partition.mode", "nonstrict");
+            sparkSession.conf().set("spark.sql.sources.partitionOverwriteMode", "dynamic");
+            sparkSession.sql("insert overwrite table " + targetTable + " partition (" + partitionCols
+                + ") select * from " + MERGE_VIEW);
+        }
+    }
+
+    private static List<String> getPrimaryKeys(DatasourceConfig target) {
+
+        try (Connection connection = JdbcMetaUtils.getConnection(target)) {
+            return JdbcMetaUtils.getPrimaryKeys(connection, target.getDbTable());
+        } catch (SQLException e) {
+            throw new RuntimeException("获取去向表主键异常: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean containsIgnoreCase(List<String> list, String value) {
+
+        return list.stream().anyMatch(e -> e.equalsIgnoreCase(value));
+    }
+
+    /**
+     * 每个分区一个连接，按批提交.
+     */
+    private static class JdbcUpsertFunction implements ForeachPartitionFunction<Row> {
+
+        private static final int BATCH_SIZE = 1000;
+
+        private final String driver;
+
+        private final String url;
+
+        private final String user;
+
+        private final String password;
+
+        private final String sql;
+
+        private JdbcUpsertFunction(DatasourceConfig target, String sql) {
+
+            this.driver = target.getDriver();
+            this.url = target.getUrl();
+            this.user = target.getUser();
+            this.password = target.getPassword();
+            this.sql = sql;
+        }
+
+        @Override
+        public void call(Iterator<Row> rows) throws Exception {
+
+            DatasourceConfig target =
+                DatasourceConfig.builder().driver(driver).url(url).user(user).password(password).build();
+            try (Connection connection = JdbcMetaUtils.getConnection(target);
+                PreparedStatement statement = connection.prepareStatement(sql)) {
+                connection.setAutoCommit(false);
+
+                int batchCount = 0;
+                while (rows.hasNext()) {
+                    Row row = rows.next();
+                    for (int i = 0; i < row.length(); i++) {
+                        statement.setObject(i + 1, row.get(i));
+                    }
+                    statement.addBatch();
+                    if (++batchCount >= BATCH_SIZE) {
+                        statement.executeBatch();
+                        connection.commit();
+                        batchCount = 0;
+                    }
+                }
+                if (batchCount > 0) {
+                    statement.executeBatch();
+                    connection.commit();
+                }
+            }
+        }
+    }
+}
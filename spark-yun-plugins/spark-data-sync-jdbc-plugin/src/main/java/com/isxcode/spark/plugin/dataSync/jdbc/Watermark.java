@@ -0,0 +1,135 @@
+package com.isxcode.spark.plugin.dataSync.jdbc;
+
+import com.alibaba.fastjson.JSON;
+import com.isxcode.spark.api.agent.req.spark.PluginReq;
+import com.isxcode.spark.api.work.constants.SyncMode;
+import org.apache.logging.log4j.util.Strings;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SparkSession;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 增量同步的水位线.
+ *
+ * <p>
+ * 同步前查询一次水位线字段的最大值，只同步上次水位线到最大值之间的数据，同步成功后通过日志返回最大值，由服务端保存.
+ * </p>
+ */
+public class Watermark {
+
+    private final boolean enabled;
+
+    private final String column;
+
+    private final String lastValue;
+
+    private String value;
+
+    public Watermark(PluginReq conf) {
+
+        this.enabled = SyncMode.INCREMENTAL.equals(conf.getSyncRule().getSyncMode())
+            && Strings.isNotEmpty(conf.getSyncRule().getWatermarkColumn());
+        this.column = conf.getSyncRule().getWatermarkColumn();
+        this.lastValue = Boolean.TRUE.equals(conf.getSyncRule().getFullResync()) ? null : conf.getLastWatermark();
+        this.value = lastValue;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * 断点续跑时沿用上次运行查到的水位线.
+     */
+    public void restore(String value) {
+        this.value = value;
+    }
+
+    /**
+     * 生成jdbc来源的增量条件.
+     *
+     * @param dbTable 来源表，可能是带查询条件的子查询
+     */
+    public String genJdbcCondition(PluginReq conf, String dbTable) {
+
+        String dbType = conf.getSyncWorkConfig().getSourceDBType();
+        String quoteColumn = JdbcMetaUtils.quoteColumn(dbType, column);
+
+        try (Connection connection = JdbcMetaUtils.getConnection(conf.getSyncWorkConfig().getSourceDatabase());
+            Statement statement = connection.createStatement();
+            ResultSet resultSet = statement.executeQuery("select max(" + quoteColumn + ") from " + dbTable)) {
+            resultSet.next();
+
+            ColumnKind kind = ColumnKind.of(resultSet.getMetaData().getColumnType(1));
+            if (kind == null) {
+                throw new RuntimeException("水位线字段" + column + "只支持数值、日期和时间类型");
+            }
+
+            // 没有新数据
+            BigDecimal max = kind.read(resultSet, 1);
+            BigDecimal last = lastValue == null ? null : kind.parse(lastValue);
+            if (max == null || last != null && max.compareTo(last) <= 0) {
+                return "1 = 0";
+            }
+
+            value = kind.toText(max);
+            String condition = quoteColumn + " <= " + kind.format(dbType, max);
+            return last == null ? condition : quoteColumn + " > " + kind.format(dbType, last) + " and " + condition;
+        } catch (SQLException e) {
+            throw new RuntimeException("查询水位线异常: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 生成hive来源的增量条件.
+     */
+    public String genHiveCondition(SparkSession sparkSession, String table, String queryCondition) {
+
+        String quoteColumn = "`" + column + "`";
+        Row row = sparkSession.sql("select max(" + quoteColumn + ") from " + table
+            + (Strings.isEmpty(queryCondition) ? "" : " where " + queryCondition)).first();
+        if (row.isNullAt(0)) {
+            return "1 = 0";
+        }
+
+        value = String.valueOf(row.get(0));
+        String condition = quoteColumn + " <= " + toHiveLiteral(row.get(0));
+        return lastValue == null ? condition
+            : quoteColumn + " > " + toHiveLiteral(row.get(0) instanceof Number ? new BigDecimal(lastValue) : lastValue)
+                + " and " + condition;
+    }
+
+    /**
+     * 同步成功后通过日志返回水位线.
+     */
+    public void print() {
+
+        if (!enabled) {
+            return;
+        }
+
+        List<List<String>> result = value == null ? Collections.singletonList(Collections.singletonList("watermark"))
+            : Arrays.asList(Collections.singletonList("watermark"), Collections.singletonList(value));
+        System.out.println("LogType:spark-yun\n" + JSON.toJSONString(result) + "\nEnd of LogType:spark-yun");
+    }
+
+    private static String toHiveLiteral(Object value) {
+
+        if (value instanceof Number) {
+            return value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : String.valueOf(value);
+        }
+        return "'" + String.valueOf(value).replace("'", "\\'") + "'";
+    }
+}
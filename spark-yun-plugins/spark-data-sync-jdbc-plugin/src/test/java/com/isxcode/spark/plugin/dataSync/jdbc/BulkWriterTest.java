@@ -0,0 +1,194 @@
+package com.isxcode.spark.plugin.dataSync.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alibaba.fastjson.JSONObject;
+import com.isxcode.spark.api.agent.req.spark.PluginReq;
+import com.isxcode.spark.api.datasource.constants.DatasourceType;
+import com.isxcode.spark.api.work.constants.SyncWriter;
+import com.isxcode.spark.api.work.dto.DatasourceConfig;
+import com.isxcode.spark.api.work.dto.SyncRule;
+import com.isxcode.spark.api.work.dto.SyncWorkConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SparkSession;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 批量写入测试，jdbc批量写入使用h2，stream load使用本地http服务模拟doris.
+ */
+class BulkWriterTest {
+
+    private static final String URL = "jdbc:h2:mem:bulk_writer;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private static final int ROWS = 1000;
+
+    /**
+     * 已经导入的label和行数.
+     */
+    private static final Map<String, Integer> LOADED = new ConcurrentHashMap<>();
+
+    private static final AtomicBoolean FAILED = new AtomicBoolean();
+
+    private static Connection connection;
+
+    private static SparkSession sparkSession;
+
+    private static HttpServer httpServer;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+
+        connection = DriverManager.getConnection(URL, "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table sync_target (id int, name varchar(100))");
+        }
+
+        // 第0个分区的第2批首次导入失败，task重试后整个分区重新发送
+        httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        httpServer.createContext("/api/demo/sync_target/_stream_load", BulkWriterTest::streamLoad);
+        httpServer.start();
+
+        // 每个task最多失败3次
+        sparkSession = SparkSession.builder().master("local[2,3]").appName("bulk-writer-test")
+            .config("spark.ui.enabled", "false").getOrCreate();
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+
+        if (sparkSession != null) {
+            sparkSession.close();
+        }
+        httpServer.stop(0);
+        connection.close();
+    }
+
+    @BeforeEach
+    void clean() {
+
+        LOADED.clear();
+        FAILED.set(false);
+    }
+
+    @Test
+    void testJdbcBatchOverwrite() throws Exception {
+
+        PluginReq conf = newConf(DatasourceType.H2, URL, SyncWriter.JDBC_BATCH);
+
+        BulkWriter.write(conf, SyncWriter.JDBC_BATCH, newRows(), false);
+        assertEquals(ROWS, countTarget());
+
+        // 覆写先清空去向表
+        BulkWriter.write(conf, SyncWriter.JDBC_BATCH, newRows(), true);
+        assertEquals(ROWS, countTarget());
+    }
+
+    @Test
+    void testStreamLoadRetryIsIdempotent() {
+
+        PluginReq conf = newConf(DatasourceType.DORIS, "jdbc:mysql://127.0.0.1:9030/demo", SyncWriter.STREAM_LOAD);
+        conf.getSyncRule().setLoadUrl("http://127.0.0.1:" + httpServer.getAddress().getPort());
+
+        BulkWriter.write(conf, SyncWriter.STREAM_LOAD, newRows(), false);
+
+        // 2个分区，每个分区5批，重试时已经导入的批次跳过
+        assertTrue(FAILED.get());
+        assertEquals(10, LOADED.size());
+        assertEquals(ROWS, LOADED.values().stream().mapToInt(Integer::intValue).sum());
+        for (String label : LOADED.keySet()) {
+            assertTrue(label.matches("zhiqingyun_sy_bulk_writer_local-\\d+_\\d+_[01]_[0-4]"), label);
+        }
+    }
+
+    @Test
+    void testLabelPrefixChangesPerWrite() {
+
+        PluginReq conf = newConf(DatasourceType.DORIS, "jdbc:mysql://127.0.0.1:9030/demo", SyncWriter.STREAM_LOAD);
+
+        String first = BulkWriter.getLabelPrefix(conf, "application_1700000000000_0001");
+        String second = BulkWriter.getLabelPrefix(conf, "application_1700000000000_0001");
+
+        assertTrue(first.startsWith("zhiqingyun_sy_bulk_writer_application_1700000000000_0001_"));
+        assertNotEquals(first, second);
+    }
+
+    private static void streamLoad(HttpExchange exchange) throws IOException {
+
+        String label = exchange.getRequestHeaders().getFirst("label");
+        int rows = 0;
+        try (InputStream inputStream = exchange.getRequestBody()) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int length;
+            while ((length = inputStream.read(buffer)) != -1) {
+                body.write(buffer, 0, length);
+            }
+            for (String line : new String(body.toByteArray(), StandardCharsets.UTF_8).split("\n")) {
+                rows += line.isEmpty() ? 0 : 1;
+            }
+        }
+
+        JSONObject result = new JSONObject();
+        if (label.endsWith("_0_2") && FAILED.compareAndSet(false, true)) {
+            result.put("Status", "Fail");
+            result.put("Message", "injected failure");
+        } else if (LOADED.putIfAbsent(label, rows) != null) {
+            result.put("Status", "Label Already Exists");
+            result.put("ExistingJobStatus", "FINISHED");
+        } else {
+            result.put("Status", "Success");
+        }
+
+        byte[] response = result.toJSONString().getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(response);
+        }
+    }
+
+    private PluginReq newConf(String dbType, String url, String writer) {
+
+        SyncWorkConfig syncWorkConfig = new SyncWorkConfig();
+        syncWorkConfig.setTargetDBType(dbType);
+        syncWorkConfig.setTargetDatabase(DatasourceConfig.builder().driver("org.h2.Driver").url(url)
+            .dbTable("sync_target").user("sa").password("").build());
+
+        return PluginReq.builder().syncWorkConfig(syncWorkConfig).workInstanceId("sy_bulk_writer")
+            .syncRule(SyncRule.builder().writer(writer).batchSize(100).build()).build();
+    }
+
+    private Dataset<Row> newRows() {
+
+        return sparkSession.range(0, ROWS, 1, 2).selectExpr("cast(id as int) as id", "concat('name_', id) as name");
+    }
+
+    private long countTarget() throws Exception {
+
+        try (Statement statement = connection.createStatement();
+            ResultSet resultSet = statement.executeQuery("select count(*) from sync_target")) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+}
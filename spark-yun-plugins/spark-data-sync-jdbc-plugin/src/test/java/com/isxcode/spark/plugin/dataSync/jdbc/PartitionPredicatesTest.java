@@ -0,0 +1,201 @@
+package com.isxcode.spark.plugin.dataSync.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.isxcode.spark.api.agent.req.spark.PluginReq;
+import com.isxcode.spark.api.datasource.constants.DatasourceType;
+import com.isxcode.spark.api.work.constants.PartitionStrategy;
+import com.isxcode.spark.api.work.dto.DatasourceConfig;
+import com.isxcode.spark.api.work.dto.SyncRule;
+import com.isxcode.spark.api.work.dto.SyncWorkConfig;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Properties;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SparkSession;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 来源表分区条件测试，使用本地spark读取h2.
+ */
+class PartitionPredicatesTest {
+
+    private static final String URL =
+        "jdbc:h2:mem:partition_predicates;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private static final int ROWS = 1000;
+
+    private static final int NULL_ROWS = 50;
+
+    private static Connection connection;
+
+    private static SparkSession sparkSession;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+
+        connection = DriverManager.getConnection(URL, "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table sync_user (id bigint primary key, name varchar(100), "
+                + "create_time timestamp)");
+            statement.execute("create table sync_event (event_id bigint, event_name varchar(100))");
+        }
+
+        // 主键不连续，事件表的分区键有空值
+        try (PreparedStatement userStatement = connection.prepareStatement("insert into sync_user values (?, ?, ?)");
+            PreparedStatement eventStatement = connection.prepareStatement("insert into sync_event values (?, ?)")) {
+            LocalDateTime startTime = LocalDateTime.of(2024, 1, 1, 0, 0);
+            for (int i = 0; i < ROWS; i++) {
+                userStatement.setLong(1, i * 7L + 3);
+                userStatement.setString(2, "user_" + i);
+                userStatement.setTimestamp(3, Timestamp.valueOf(startTime.plusMinutes(i * 13L)));
+                userStatement.addBatch();
+                eventStatement.setObject(1, i < NULL_ROWS ? null : (long) i);
+                eventStatement.setString(2, "event_" + i);
+                eventStatement.addBatch();
+            }
+            userStatement.executeBatch();
+            eventStatement.executeBatch();
+        }
+
+        sparkSession = SparkSession.builder().master("local[2]").appName("partition-predicates-test")
+            .config("spark.ui.enabled", "false").getOrCreate();
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+
+        if (sparkSession != null) {
+            sparkSession.close();
+        }
+        connection.close();
+    }
+
+    @Test
+    void testAutoUsesRangeForNumericPrimaryKey() {
+
+        PluginReq conf = newConf("sync_user", PartitionStrategy.AUTO, 4);
+
+        String[] predicates = PartitionPredicates.getPredicates(conf, "sync_user");
+
+        // 主键范围3到6996，均分成4段
+        assertEquals(4, predicates.length);
+        assertEquals("`id` < 1751 or `id` is null", predicates[0]);
+        assertEquals("`id` >= 1751 and `id` < 3499", predicates[1]);
+        assertEquals("`id` >= 3499 and `id` < 5247", predicates[2]);
+        assertEquals("`id` >= 5247", predicates[3]);
+        assertEquals(ROWS, count("sync_user", predicates));
+    }
+
+    @Test
+    void testRangeKeepsNullKeys() {
+
+        PluginReq conf = newConf("sync_event", PartitionStrategy.RANGE, 5);
+        conf.getSyncRule().setPartitionColumn("event_id");
+
+        String[] predicates = PartitionPredicates.getPredicates(conf, "sync_event");
+
+        assertEquals(5, predicates.length);
+        assertTrue(predicates[0].endsWith("or `event_id` is null"));
+        for (int i = 1; i < predicates.length - 1; i++) {
+            assertTrue(predicates[i].matches("`event_id` >= \\d+ and `event_id` < \\d+"), predicates[i]);
+        }
+        assertTrue(predicates[4].matches("`event_id` >= \\d+"), predicates[4]);
+        assertEquals(ROWS, count("sync_event", predicates));
+    }
+
+    @Test
+    void testRangeOnTimestampWithBounds() {
+
+        PluginReq conf = newConf("sync_user", PartitionStrategy.RANGE, 3);
+        conf.getSyncRule().setPartitionColumn("create_time");
+        conf.getSyncRule().setLowerBound("2024-01-02");
+        conf.getSyncRule().setUpperBound("2024-01-05");
+
+        String[] predicates = PartitionPredicates.getPredicates(conf, "sync_user");
+
+        // 边界外的数据落在首尾分区
+        assertEquals(3, predicates.length);
+        assertEquals("`create_time` < '2024-01-03 00:00:00.000' or `create_time` is null", predicates[0]);
+        assertEquals("`create_time` >= '2024-01-03 00:00:00.000' and `create_time` < '2024-01-04 00:00:00.000'",
+            predicates[1]);
+        assertEquals("`create_time` >= '2024-01-04 00:00:00.000'", predicates[2]);
+        assertEquals(ROWS, count("sync_user", predicates));
+    }
+
+    @Test
+    void testAutoUsesHashWithoutPrimaryKey() {
+
+        PluginReq conf = newConf("sync_event", PartitionStrategy.AUTO, 3);
+        conf.getSyncWorkConfig().setPartitionColumn("event_id");
+
+        String[] predicates = PartitionPredicates.getPredicates(conf, "sync_event");
+
+        assertEquals(3, predicates.length);
+        for (int i = 0; i < predicates.length; i++) {
+            assertEquals(Execute.getHashPredicate(DatasourceType.MYSQL, "event_id", 3, i, i), predicates[i]);
+        }
+    }
+
+    @Test
+    void testAutoFallsBackToHashOnQueryFailure() {
+
+        // 来源表不存在，查询最小最大值失败
+        PluginReq conf = newConf("sync_user", PartitionStrategy.AUTO, 3);
+        conf.getSyncWorkConfig().setPartitionColumn("id");
+
+        String[] predicates = PartitionPredicates.getPredicates(conf, "sync_user_missing");
+
+        assertEquals(3, predicates.length);
+        assertEquals(Execute.getHashPredicate(DatasourceType.MYSQL, "id", 3, 0, 0), predicates[0]);
+
+        // 数据源连接失败
+        conf.getSyncWorkConfig().getSourceDatabase().setPassword("wrong");
+        assertEquals(3, PartitionPredicates.getPredicates(conf, "sync_user").length);
+    }
+
+    @Test
+    void testRangeFailsOnQueryFailure() {
+
+        PluginReq conf = newConf("sync_user", PartitionStrategy.RANGE, 3);
+        conf.getSyncRule().setPartitionColumn("id");
+
+        assertThrows(RuntimeException.class, () -> PartitionPredicates.getPredicates(conf, "sync_user_missing"));
+    }
+
+    private PluginReq newConf(String tableName, String partitionStrategy, int numPartitions) {
+
+        SyncWorkConfig syncWorkConfig = new SyncWorkConfig();
+        syncWorkConfig.setSourceDBType(DatasourceType.MYSQL);
+        syncWorkConfig.setSourceDatabase(DatasourceConfig.builder().driver("org.h2.Driver").url(URL).dbTable(tableName)
+            .user("sa").password("").build());
+
+        return PluginReq.builder().syncWorkConfig(syncWorkConfig)
+            .syncRule(SyncRule.builder().partitionStrategy(partitionStrategy).numPartitions(numPartitions).build())
+            .build();
+    }
+
+    /**
+     * 按分区条件读取，spark每个条件一个分区.
+     */
+    private long count(String tableName, String[] predicates) {
+
+        Properties prop = new Properties();
+        prop.put("user", "sa");
+        prop.put("password", "");
+        prop.put("driver", "org.h2.Driver");
+
+        Dataset<Row> dataset = sparkSession.read().jdbc(URL, tableName, predicates, prop);
+        assertEquals(predicates.length, dataset.rdd().getNumPartitions());
+        return dataset.count();
+    }
+}
@@ -0,0 +1,248 @@
+package com.isxcode.spark.plugin.dataSync.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.alibaba.fastjson.JSON;
+import com.isxcode.spark.api.agent.req.spark.PluginReq;
+import com.isxcode.spark.api.datasource.constants.DatasourceType;
+import com.isxcode.spark.api.plugin.constants.OverModeType;
+import com.isxcode.spark.api.work.constants.PartitionStrategy;
+import com.isxcode.spark.api.work.constants.SyncWriter;
+import com.isxcode.spark.api.work.dto.DatasourceConfig;
+import com.isxcode.spark.api.work.dto.SyncColumnInfo;
+import com.isxcode.spark.api.work.dto.SyncColumnMap;
+import com.isxcode.spark.api.work.dto.SyncPartition;
+import com.isxcode.spark.api.work.dto.SyncRule;
+import com.isxcode.spark.api.work.dto.SyncWorkConfig;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SparkSession;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * 数据同步断点续跑测试，使用本地spark从h2同步到h2.
+ */
+class SyncCheckpointTest {
+
+    private static final String URL =
+        "jdbc:h2:mem:sync_checkpoint;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private static final int ROWS = 1000;
+
+    private static final int NUM_PARTITIONS = 4;
+
+    private static Connection connection;
+
+    private static SparkSession sparkSession;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+
+        connection = DriverManager.getConnection(URL, "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table sync_source (id bigint primary key, name varchar(100))");
+            statement.execute("create table sync_dest (id bigint, name varchar(100))");
+        }
+        try (PreparedStatement statement = connection.prepareStatement("insert into sync_source values (?, ?)")) {
+            for (int i = 1; i <= ROWS; i++) {
+                statement.setLong(1, i);
+                statement.setString(2, "name_" + i);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+
+        sparkSession = SparkSession.builder().master("local[2]").appName("sync-checkpoint-test")
+            .config("spark.ui.enabled", "false").getOrCreate();
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+
+        if (sparkSession != null) {
+            sparkSession.close();
+        }
+        connection.close();
+    }
+
+    @BeforeEach
+    void clean() throws Exception {
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("truncate table sync_dest");
+        }
+    }
+
+    @Test
+    void testFirstRunTruncatesTarget() throws Exception {
+
+        // 去向表的旧数据在首次运行时清空
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("insert into sync_dest values (1, 'stale'), (2000, 'stale')");
+        }
+
+        PluginReq conf = newConf(OverModeType.OVERWRITE, false);
+        AtomicInteger batches = new AtomicInteger();
+        run(conf, rows -> batches.incrementAndGet());
+
+        // 每个分区一批，分区行数只在写入时统计
+        assertEquals(NUM_PARTITIONS, batches.get());
+        assertEquals(ROWS, countTarget("select count(*) from sync_dest"));
+        assertEquals(0, countTarget("select count(*) from sync_dest where name = 'stale'"));
+        assertEquals(ROWS, readPartitions().stream().mapToLong(SyncPartition::getRowCount).sum());
+    }
+
+    @Test
+    void testResumeSkipsCompletedPartitions() throws Exception {
+
+        // 第3批写了一部分后中断
+        PluginReq conf = newConf(OverModeType.OVERWRITE, false);
+        AtomicInteger batches = new AtomicInteger();
+        assertThrows(IllegalStateException.class, () -> run(conf, rows -> {
+            if (batches.incrementAndGet() == 3) {
+                write(conf, rows.limit(10));
+                throw new IllegalStateException("interrupted");
+            }
+        }));
+        List<SyncPartition> completed = readPartitions();
+        assertEquals(2, completed.size());
+        long completedRows = completed.stream().mapToLong(SyncPartition::getRowCount).sum();
+        assertEquals(completedRows + 10, countTarget("select count(*) from sync_dest"));
+
+        // 续跑只同步剩下的分区，先删除中断分区写入的数据
+        PluginReq resumeConf = newConf(OverModeType.OVERWRITE, true);
+        AtomicInteger resumedBatches = new AtomicInteger();
+        run(resumeConf, rows -> resumedBatches.incrementAndGet());
+
+        assertEquals(NUM_PARTITIONS - 2, resumedBatches.get());
+        assertEquals(ROWS, countTarget("select count(*) from sync_dest"));
+        assertEquals(ROWS, countTarget("select count(distinct id) from sync_dest"));
+        assertEquals(NUM_PARTITIONS, readPartitions().size());
+        assertEquals(ROWS, readPartitions().stream().mapToLong(SyncPartition::getRowCount).sum());
+    }
+
+    @Test
+    void testResumeWithoutProgressStartsOver() throws Exception {
+
+        PluginReq conf = newConf(OverModeType.OVERWRITE, true);
+        AtomicInteger batches = new AtomicInteger();
+        run(conf, rows -> batches.incrementAndGet());
+
+        assertEquals(NUM_PARTITIONS, batches.get());
+        assertEquals(ROWS, countTarget("select count(*) from sync_dest"));
+    }
+
+    @Test
+    void testUnsupportedModes() {
+
+        Watermark watermark = new Watermark(newConf(OverModeType.INTO, false));
+
+        assertNull(SyncCheckpoint.of(sparkSession, newConf(OverModeType.INTO, false), watermark));
+
+        PluginReq conf = newConf(OverModeType.OVERWRITE, false);
+        conf.setProgressPath(null);
+        assertNull(SyncCheckpoint.of(sparkSession, conf, watermark));
+
+        // 分区键有转换sql时，覆写模式无法按分区删除去向表
+        conf = newConf(OverModeType.OVERWRITE, false);
+        conf.getSyncWorkConfig().getSourceTableColumn().get(0).setSql("`id` + 1");
+        assertNull(SyncCheckpoint.of(sparkSession, conf, watermark));
+        assertNotNull(SyncCheckpoint.of(sparkSession, newConf(OverModeType.OVERWRITE, false), watermark));
+    }
+
+    private void run(PluginReq conf, Consumer<Dataset<Row>> onBatch) {
+
+        SyncCheckpoint checkpoint = SyncCheckpoint.of(sparkSession, conf, new Watermark(conf));
+        assertNotNull(checkpoint);
+        String sourceTempView = Execute.getSourceTempViewName(conf);
+        checkpoint.run(sparkSession, sourceTempView, "select `id` as `id`, `name` as `name` from " + sourceTempView,
+            rows -> {
+                onBatch.accept(rows);
+                write(conf, rows);
+            });
+    }
+
+    private void write(PluginReq conf, Dataset<Row> rows) {
+
+        BulkWriter.write(conf, SyncWriter.JDBC_BATCH, rows, false);
+    }
+
+    private PluginReq newConf(String overMode, boolean resume) {
+
+        List<SyncColumnInfo> sourceColumns = new ArrayList<>();
+        List<SyncColumnMap> columnMap = new ArrayList<>();
+        for (String column : Arrays.asList("id", "name")) {
+            SyncColumnInfo columnInfo = new SyncColumnInfo();
+            columnInfo.setCode(column);
+            sourceColumns.add(columnInfo);
+            SyncColumnMap syncColumnMap = new SyncColumnMap();
+            syncColumnMap.setSource(column);
+            syncColumnMap.setTarget(column);
+            columnMap.add(syncColumnMap);
+        }
+
+        SyncWorkConfig syncWorkConfig = new SyncWorkConfig();
+        syncWorkConfig.setSourceDBType(DatasourceType.MYSQL);
+        syncWorkConfig.setSourceDatabase(DatasourceConfig.builder().driver("org.h2.Driver").url(URL)
+            .dbTable("sync_source").user("sa").password("").build());
+        syncWorkConfig.setTargetDBType(DatasourceType.H2);
+        syncWorkConfig.setTargetDatabase(DatasourceConfig.builder().driver("org.h2.Driver").url(URL)
+            .dbTable("sync_dest").user("sa").password("").build());
+        syncWorkConfig.setOverMode(overMode);
+        syncWorkConfig.setSourceTableColumn(sourceColumns);
+        syncWorkConfig.setColumnMap(columnMap);
+
+        // 每批同步一个分区
+        return PluginReq.builder().syncWorkConfig(syncWorkConfig).progressPath(tempDir.toString()).resume(resume)
+            .syncRule(SyncRule.builder().partitionStrategy(PartitionStrategy.AUTO).numPartitions(NUM_PARTITIONS)
+                .numConcurrency(1).build())
+            .build();
+    }
+
+    private List<SyncPartition> readPartitions() throws IOException {
+
+        List<SyncPartition> partitions = new ArrayList<>();
+        try (Stream<Path> files = Files.list(tempDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.getFileName().toString().startsWith("partition-")) {
+                    partitions.add(JSON.parseObject(new String(Files.readAllBytes(file), StandardCharsets.UTF_8),
+                        SyncPartition.class));
+                }
+            }
+        }
+        return partitions;
+    }
+
+    private long countTarget(String sql) throws Exception {
+
+        try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+}
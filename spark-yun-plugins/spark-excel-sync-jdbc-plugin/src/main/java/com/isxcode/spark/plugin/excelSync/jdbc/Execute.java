@@ -7,22 +7,44 @@ import com.isxcode.spark.api.datasource.constants.DatasourceType;
 import com.isxcode.spark.api.func.constants.FuncType;
 import com.isxcode.spark.api.plugin.constants.OverModeType;
 import com.isxcode.spark.api.work.constants.SetMode;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
 import org.apache.logging.log4j.util.Strings;
 import org.apache.spark.SparkConf;
 import org.apache.spark.SparkFiles;
+import org.apache.spark.TaskContext;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.sql.Column;
 import org.apache.spark.sql.DataFrameReader;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
 import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.functions;
 import org.apache.spark.sql.types.DataType;
 import org.apache.spark.sql.types.DataTypes;
-
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.util.TaskCompletionListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class Execute {
 
+    /**
+     * 写入jdbc去向表默认的批量大小.
+     */
+    private static final int JDBC_BATCH_SIZE = 10000;
+
+    private static final String XLSX_SUFFIX = ".xlsx";
+
     public static void main(String[] args) {
 
         PluginReq pluginReq = parse(args);
@@ -84,15 +106,6 @@ public class Execute {
 
         String sourceTableName = "zhiqingyun_src_" + conf.getExcelSyncConfig().getSourceFileId();
 
-        Map<String, String> optionsMap = new HashMap<>();
-
-        // 永远都会有表头
-        optionsMap.put("header", "true");
-        optionsMap.put("delimiter", ";");
-        optionsMap.put("encoding", "UTF-8");
-        optionsMap.put("sep", ",");
-        optionsMap.put("quote", "\"");
-
         // 翻译不同平台的地址
         String csvFilePath;
         if (AgentType.K8S.equals(conf.getAgentType())) {
@@ -105,12 +118,146 @@ public class Execute {
             csvFilePath = "file://" + SparkFiles.getRootDirectory() + "/" + conf.getCsvFileName();
         }
 
+        // xlsx在executor中逐行解析，不在driver中加载整个文件
+        if (conf.getCsvFileName() != null && conf.getCsvFileName().toLowerCase().endsWith(XLSX_SUFFIX)) {
+            readXlsx(sparkSession, conf, csvFilePath).createOrReplaceTempView(sourceTableName);
+            return sourceTableName;
+        }
+
+        Map<String, String> optionsMap = new HashMap<>();
+
+        // 永远都会有表头
+        optionsMap.put("header", "true");
+        optionsMap.put("delimiter", ";");
+        optionsMap.put("encoding", "UTF-8");
+        optionsMap.put("sep", ",");
+        optionsMap.put("quote", "\"");
+
+        boolean csvEscaped = Boolean.TRUE.equals(conf.getCsvEscaped());
+        if (csvEscaped) {
+            optionsMap.put("escape", "\"");
+        }
+
         Dataset<Row> source = sparkSession.read().options(optionsMap).csv(csvFilePath);
+
+        // 服务器转换的csv单元格内换行已经转义，每条记录只占一行，不开启multiLine，文件可以按块切分并行读取
+        if (csvEscaped) {
+            source = source.select(Arrays.stream(source.columns()).map(Execute::unescape).toArray(Column[]::new));
+        }
         source.createOrReplaceTempView(sourceTableName);
 
         return sourceTableName;
     }
 
+    /**
+     * 读取xlsx，第一行为表头，所有字段都按String读取.
+     *
+     * <p>
+     * driver只读取表头，数据行在一个task中流式解析，再按分区数打散，写入时每个分区按batchsize分批提交.
+     * </p>
+     */
+    public static Dataset<Row> readXlsx(SparkSession sparkSession, PluginReq conf, String filePath) {
+
+        String agentType = conf.getAgentType();
+        String fileName = conf.getCsvFileName();
+
+        String[] header;
+        try (XlsxReader reader = openXlsx(agentType, filePath, fileName)) {
+            header = reader.hasNext() ? reader.next() : new String[0];
+        } catch (IOException e) {
+            throw new RuntimeException("读取Excel文件失败: " + e.getMessage(), e);
+        }
+
+        // 表头为空或者重复时，和spark读取csv一样重命名
+        List<StructField> fields = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < header.length; i++) {
+            String name = Strings.isBlank(header[i]) ? "_c" + i : header[i];
+            if (!names.add(name.toLowerCase())) {
+                name = name + i;
+                names.add(name.toLowerCase());
+            }
+            fields.add(DataTypes.createStructField(name, DataTypes.StringType, true));
+        }
+        int width = header.length;
+
+        JavaRDD<Row> rows = JavaSparkContext.fromSparkContext(sparkSession.sparkContext())
+            .parallelize(Collections.singletonList(filePath), 1).mapPartitions(paths -> {
+                XlsxReader reader = openXlsx(agentType, paths.next(), fileName);
+                TaskContext.get().addTaskCompletionListener(new TaskCompletionListener() {
+
+                    @Override
+                    public void onTaskCompletion(TaskContext context) {
+                        try {
+                            reader.close();
+                        } catch (IOException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                });
+
+                // 跳过表头，行宽按表头补齐或截断
+                if (reader.hasNext()) {
+                    reader.next();
+                }
+                return new Iterator<Row>() {
+
+                    @Override
+                    public boolean hasNext() {
+                        return reader.hasNext();
+                    }
+
+                    @Override
+                    public Row next() {
+                        String[] values = reader.next();
+                        Object[] row = new Object[width];
+                        for (int i = 0; i < width && i < values.length; i++) {
+                            row[i] = values[i].isEmpty() ? null : values[i];
+                        }
+                        return RowFactory.create(row);
+                    }
+                };
+            });
+
+        int numPartitions = conf.getSyncRule() == null || conf.getSyncRule().getNumPartitions() == null
+            ? sparkSession.sparkContext().defaultParallelism() : conf.getSyncRule().getNumPartitions();
+        return sparkSession.createDataFrame(rows.repartition(numPartitions), DataTypes.createStructType(fields));
+    }
+
+    /**
+     * 打开xlsx，yarn上的文件在hdfs中，zip需要随机读取，先复制到本地.
+     */
+    private static XlsxReader openXlsx(String agentType, String filePath, String fileName) throws IOException {
+
+        if (AgentType.YARN.equals(agentType)) {
+            File localFile = File.createTempFile("zhiqingyun_", XLSX_SUFFIX);
+            Path path = new Path(filePath);
+            try (InputStream inputStream = path.getFileSystem(new Configuration()).open(path)) {
+                Files.copy(inputStream, localFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                Files.deleteIfExists(localFile.toPath());
+                throw e;
+            }
+            return new XlsxReader(localFile, true);
+        }
+        if (AgentType.K8S.equals(agentType)) {
+            return new XlsxReader(new File(filePath.substring("file://".length())), false);
+        }
+        return new XlsxReader(new File(SparkFiles.get(fileName)), false);
+    }
+
+    /**
+     * 还原单元格内转义的换行和反斜杠，所有字段都按String读取.
+     */
+    private static Column unescape(String column) {
+
+        Column value = functions.col("`" + column + "`");
+        value = functions.regexp_replace(value, "\\\\\\\\", "\u0000");
+        value = functions.regexp_replace(value, "\\\\n", "\n");
+        value = functions.regexp_replace(value, "\\\\r", "\r");
+        return functions.regexp_replace(value, "\u0000", "\\\\").as(column);
+    }
+
     public static String genTargetTempView(SparkSession sparkSession, PluginReq conf) {
 
         String targetTableName = "zhiqingyun_dist_" + conf.getExcelSyncConfig().getTargetDatabase().getDbTable();
@@ -126,7 +273,8 @@ public class Execute {
                 .option("dbtable", conf.getExcelSyncConfig().getTargetDatabase().getDbTable())
                 .option("user", conf.getExcelSyncConfig().getTargetDatabase().getUser())
                 .option("password", conf.getExcelSyncConfig().getTargetDatabase().getPassword())
-                .option("truncate", "true");
+                .option("truncate", "true").option("batchsize", String.valueOf(
+                    conf.getSyncRule().getBatchSize() == null ? JDBC_BATCH_SIZE : conf.getSyncRule().getBatchSize()));
 
             if (SetMode.ADVANCE.equals(conf.getSyncRule().getSetMode())) {
                 conf.getSyncRule().getSqlConfig().forEach(frameReader::option);
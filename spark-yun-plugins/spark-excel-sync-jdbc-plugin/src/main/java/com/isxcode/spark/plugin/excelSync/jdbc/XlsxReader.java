@@ -0,0 +1,394 @@
+package com.isxcode.spark.plugin.excelSync.jdbc;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * xlsx事件模式读取.
+ *
+ * <p>
+ * 使用StAX逐行解析第一个sheet，内存中只保留共享字符串和当前行. 空单元格为空字符串，空行跳过，日期格式的单元格转成yyyy-MM-dd HH:mm:ss，
+ * 和服务器转换的csv一致.
+ * </p>
+ */
+class XlsxReader implements Iterator<String[]>, Closeable {
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = newXmlInputFactory();
+
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * excel日期序号的起点，1900年3月1日之后的日期准确.
+     */
+    private static final LocalDateTime EXCEL_EPOCH = LocalDateTime.of(1899, 12, 30, 0, 0);
+
+    private final ZipFile zipFile;
+
+    /**
+     * 从hdfs复制到本地的临时文件，关闭时删除.
+     */
+    private final File tmpFile;
+
+    private final List<String> sharedStrings;
+
+    /**
+     * 日期格式的单元格样式序号.
+     */
+    private final BitSet dateStyles;
+
+    private final XMLStreamReader sheetReader;
+
+    private String[] next;
+
+    XlsxReader(File file, boolean deleteOnClose) throws IOException {
+
+        tmpFile = deleteOnClose ? file : null;
+        try {
+            zipFile = new ZipFile(file);
+        } catch (IOException e) {
+            deleteTmpFile();
+            throw e;
+        }
+        try {
+            sharedStrings = readSharedStrings();
+            dateStyles = readDateStyles();
+            sheetReader = XML_INPUT_FACTORY.createXMLStreamReader(zipFile.getInputStream(getEntry(getFirstSheet())));
+            next = readRow();
+        } catch (IOException | XMLStreamException | RuntimeException e) {
+            zipFile.close();
+            deleteTmpFile();
+            throw e instanceof IOException ? (IOException) e : new IOException("解析xlsx失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+
+        return next != null;
+    }
+
+    @Override
+    public String[] next() {
+
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+        String[] row = next;
+        try {
+            next = readRow();
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException("解析xlsx失败: " + e.getMessage(), e);
+        }
+        return row;
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        try {
+            sheetReader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        } finally {
+            zipFile.close();
+            deleteTmpFile();
+        }
+    }
+
+    private void deleteTmpFile() throws IOException {
+
+        if (tmpFile != null) {
+            Files.deleteIfExists(tmpFile.toPath());
+        }
+    }
+
+    /**
+     * 读取下一个非空行，读完时返回null.
+     */
+    private String[] readRow() throws XMLStreamException {
+
+        List<String> row = null;
+        String cellRef = null;
+        String cellType = null;
+        String cellStyle = null;
+        StringBuilder cellValue = null;
+        while (sheetReader.hasNext()) {
+            int event = sheetReader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                switch (sheetReader.getLocalName()) {
+                    case "row":
+                        row = new ArrayList<>();
+                        break;
+                    case "c":
+                        cellRef = sheetReader.getAttributeValue(null, "r");
+                        cellType = sheetReader.getAttributeValue(null, "t");
+                        cellStyle = sheetReader.getAttributeValue(null, "s");
+                        cellValue = new StringBuilder();
+                        break;
+                    case "v":
+                    case "t":
+                        if (cellValue != null) {
+                            cellValue.append(sheetReader.getElementText());
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                String name = sheetReader.getLocalName();
+                if ("c".equals(name) && row != null && cellValue != null) {
+                    int index = cellRef == null ? row.size() : getColumnIndex(cellRef);
+                    while (row.size() < index) {
+                        row.add("");
+                    }
+                    String value = formatCell(cellValue.toString(), cellType, cellStyle);
+                    if (index < row.size()) {
+                        row.set(index, value);
+                    } else {
+                        row.add(value);
+                    }
+                    cellValue = null;
+                } else if ("row".equals(name) && row != null) {
+                    if (row.stream().anyMatch(e -> !e.isEmpty())) {
+                        return row.toArray(new String[0]);
+                    }
+                    row = null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private String formatCell(String value, String type, String style) {
+
+        if (value.isEmpty()) {
+            return "";
+        }
+        if (type == null || "n".equals(type)) {
+            if (style != null && dateStyles.get(Integer.parseInt(style))) {
+                return toDateTime(Double.parseDouble(value));
+            }
+            return formatNumber(value);
+        }
+        switch (type) {
+            case "s":
+                return sharedStrings.get(Integer.parseInt(value.trim()));
+            case "b":
+                return "1".equals(value) ? "true" : "false";
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * 整数去掉小数点，其他按原样输出，不使用科学计数法.
+     */
+    private static String formatNumber(String value) {
+
+        try {
+            BigDecimal number = new BigDecimal(value);
+            if (number.signum() == 0) {
+                return "0";
+            }
+            return number.stripTrailingZeros().toPlainString();
+        } catch (NumberFormatException e) {
+            return value;
+        }
+    }
+
+    private static String toDateTime(double serial) {
+
+        long millis = Math.round(serial * 24 * 60 * 60 * 1000);
+        return EXCEL_EPOCH.plusNanos(millis * 1_000_000L).format(DATE_TIME_FORMATTER);
+    }
+
+    /**
+     * 单元格位置转成列序号，比如AB12为27.
+     */
+    static int getColumnIndex(String cellRef) {
+
+        int index = 0;
+        for (int i = 0; i < cellRef.length(); i++) {
+            char c = Character.toUpperCase(cellRef.charAt(i));
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            index = index * 26 + (c - 'A' + 1);
+        }
+        return index - 1;
+    }
+
+    private List<String> readSharedStrings() throws IOException, XMLStreamException {
+
+        List<String> strings = new ArrayList<>();
+        ZipEntry entry = zipFile.getEntry("xl/sharedStrings.xml");
+        if (entry == null) {
+            return strings;
+        }
+        try (InputStream inputStream = zipFile.getInputStream(entry)) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+            StringBuilder text = null;
+            int phoneticDepth = 0;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    if ("si".equals(name)) {
+                        text = new StringBuilder();
+                    } else if ("rPh".equals(name)) {
+                        phoneticDepth++;
+                    } else if ("t".equals(name) && text != null && phoneticDepth == 0) {
+                        text.append(reader.getElementText());
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    String name = reader.getLocalName();
+                    if ("si".equals(name) && text != null) {
+                        strings.add(text.toString());
+                        text = null;
+                    } else if ("rPh".equals(name)) {
+                        phoneticDepth--;
+                    }
+                }
+            }
+            reader.close();
+        }
+        return strings;
+    }
+
+    /**
+     * 读取cellXfs中使用日期格式的样式.
+     */
+    private BitSet readDateStyles() throws IOException, XMLStreamException {
+
+        BitSet styles = new BitSet();
+        ZipEntry entry = zipFile.getEntry("xl/styles.xml");
+        if (entry == null) {
+            return styles;
+        }
+        try (InputStream inputStream = zipFile.getInputStream(entry)) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+            Map<Integer, String> formats = new HashMap<>();
+            boolean inCellXfs = false;
+            int xfIndex = 0;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    if ("numFmt".equals(name)) {
+                        formats.put(Integer.parseInt(reader.getAttributeValue(null, "numFmtId")),
+                            reader.getAttributeValue(null, "formatCode"));
+                    } else if ("cellXfs".equals(name)) {
+                        inCellXfs = true;
+                    } else if ("xf".equals(name) && inCellXfs) {
+                        String numFmtId = reader.getAttributeValue(null, "numFmtId");
+                        if (numFmtId != null) {
+                            int formatId = Integer.parseInt(numFmtId);
+                            if (isDateFormat(formatId, formats.get(formatId))) {
+                                styles.set(xfIndex);
+                            }
+                        }
+                        xfIndex++;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && "cellXfs".equals(reader.getLocalName())) {
+                    inCellXfs = false;
+                }
+            }
+            reader.close();
+        }
+        return styles;
+    }
+
+    /**
+     * 内置的日期格式，或者去掉引号、方括号和转义字符后包含年月日时分秒的自定义格式.
+     */
+    static boolean isDateFormat(int formatId, String formatCode) {
+
+        if (formatId >= 14 && formatId <= 22 || formatId >= 45 && formatId <= 47) {
+            return true;
+        }
+        if (formatCode == null) {
+            return false;
+        }
+        String code = formatCode.split(";")[0].replaceAll("\"[^\"]*\"", "").replaceAll("\\[[^]]*]", "")
+            .replaceAll("\\\\.", "").toLowerCase();
+        return !code.contains("general") && code.matches(".*[ymdhs].*");
+    }
+
+    /**
+     * 按workbook.xml中的第一个sheet找到对应的文件.
+     */
+    private String getFirstSheet() throws IOException, XMLStreamException {
+
+        String relationId = null;
+        ZipEntry workbook = zipFile.getEntry("xl/workbook.xml");
+        if (workbook != null) {
+            try (InputStream inputStream = zipFile.getInputStream(workbook)) {
+                XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+                while (relationId == null && reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && "sheet".equals(reader.getLocalName())) {
+                        for (int i = 0; i < reader.getAttributeCount(); i++) {
+                            if ("id".equals(reader.getAttributeLocalName(i))) {
+                                relationId = reader.getAttributeValue(i);
+                            }
+                        }
+                    }
+                }
+                reader.close();
+            }
+        }
+
+        ZipEntry relations = zipFile.getEntry("xl/_rels/workbook.xml.rels");
+        if (relationId != null && relations != null) {
+            try (InputStream inputStream = zipFile.getInputStream(relations)) {
+                XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT
+                        && "Relationship".equals(reader.getLocalName())
+                        && relationId.equals(reader.getAttributeValue(null, "Id"))) {
+                        String target = reader.getAttributeValue(null, "Target");
+                        reader.close();
+                        return target.startsWith("/") ? target.substring(1) : "xl/" + target;
+                    }
+                }
+                reader.close();
+            }
+        }
+        return "xl/worksheets/sheet1.xml";
+    }
+
+    private ZipEntry getEntry(String name) throws IOException {
+
+        ZipEntry entry = zipFile.getEntry(name);
+        if (entry == null) {
+            throw new IOException("xlsx中没有sheet: " + name);
+        }
+        return entry;
+    }
+
+    private static XMLInputFactory newXmlInputFactory() {
+
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+}
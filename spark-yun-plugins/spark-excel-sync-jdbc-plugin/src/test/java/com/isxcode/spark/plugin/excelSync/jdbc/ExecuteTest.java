@@ -0,0 +1,186 @@
+package com.isxcode.spark.plugin.excelSync.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.isxcode.spark.api.agent.constants.AgentType;
+import com.isxcode.spark.api.agent.req.spark.PluginReq;
+import com.isxcode.spark.api.work.dto.ExcelSyncConfig;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SparkSession;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Excel同步来源读取测试，xlsx按事件模式解析，csv只在服务器转换时还原转义.
+ */
+class ExecuteTest {
+
+    private static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+
+    private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    private static SparkSession sparkSession;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    static void setUp() {
+
+        sparkSession = SparkSession.builder().master("local[2]").appName("excel-sync-test")
+            .config("spark.ui.enabled", "false").getOrCreate();
+    }
+
+    @AfterAll
+    static void tearDown() {
+
+        if (sparkSession != null) {
+            sparkSession.close();
+        }
+    }
+
+    @Test
+    void testXlsxReader() throws Exception {
+
+        List<String[]> rows = new ArrayList<>();
+        try (XlsxReader reader = new XlsxReader(writeXlsx().toFile(), false)) {
+            reader.forEachRemaining(rows::add);
+        }
+
+        // 空行跳过，缺少的单元格为空字符串，行尾缺少的单元格不补齐
+        assertEquals(3, rows.size());
+        assertArrayEquals(new String[] {"id", "name", "birthday", "note"}, rows.get(0));
+        assertArrayEquals(new String[] {"1", "line1\nline2", "2024-01-01 00:00:00"}, rows.get(1));
+        assertArrayEquals(new String[] {"2.5", "a\\b", "2024-01-01 12:00:00", "true"}, rows.get(2));
+    }
+
+    @Test
+    void testTmpFileDeletedOnClose() throws Exception {
+
+        File tmpFile = Files.copy(writeXlsx(), tempDir.resolve("tmp.xlsx")).toFile();
+        try (XlsxReader reader = new XlsxReader(tmpFile, true)) {
+            assertTrue(reader.hasNext());
+        }
+        assertFalse(tmpFile.exists());
+    }
+
+    @Test
+    void testDateFormat() {
+
+        assertTrue(XlsxReader.isDateFormat(14, null));
+        assertTrue(XlsxReader.isDateFormat(164, "yyyy/m/d h:mm"));
+        assertFalse(XlsxReader.isDateFormat(164, "0.00"));
+        assertFalse(XlsxReader.isDateFormat(164, "[Red]0.00;\"days\""));
+        assertEquals(27, XlsxReader.getColumnIndex("AB12"));
+    }
+
+    @Test
+    void testReadXlsxSourceView() throws Exception {
+
+        PluginReq conf = newConf(writeXlsx(), "data.xlsx", null);
+
+        String sourceTempView = Execute.genSourceTempView(sparkSession, conf);
+
+        List<Row> rows = sparkSession.sql("select * from " + sourceTempView + " order by id").collectAsList();
+        assertArrayEquals(new String[] {"id", "name", "birthday", "note"},
+            sparkSession.table(sourceTempView).columns());
+        assertEquals(2, rows.size());
+        assertEquals("line1\nline2", rows.get(0).getString(1));
+        assertNull(rows.get(0).get(3));
+        assertEquals("2024-01-01 12:00:00", rows.get(1).getString(2));
+    }
+
+    @Test
+    void testCsvKeepsBackslashesByDefault() throws Exception {
+
+        Path csvFile = tempDir.resolve("data.csv");
+        Files.write(csvFile, "id,path\n1,C:\\new\n".getBytes(StandardCharsets.UTF_8));
+
+        // 不是服务器转换的csv，反斜杠按原样读取
+        String sourceTempView = Execute.genSourceTempView(sparkSession, newConf(csvFile, "data.csv", null));
+
+        assertEquals("C:\\new", sparkSession.table(sourceTempView).first().getString(1));
+    }
+
+    @Test
+    void testCsvUnescapesConvertedFile() throws Exception {
+
+        Path csvFile = tempDir.resolve("data.csv");
+        Files.write(csvFile,
+            "id,value\n1,line1\\nline2\n2,\"say \"\"hi\"\"\"\n3,C:\\\\new\n".getBytes(StandardCharsets.UTF_8));
+
+        String sourceTempView = Execute.genSourceTempView(sparkSession, newConf(csvFile, "data.csv", true));
+
+        List<Row> rows = sparkSession.sql("select * from " + sourceTempView + " order by id").collectAsList();
+        assertEquals("line1\nline2", rows.get(0).getString(1));
+        assertEquals("say \"hi\"", rows.get(1).getString(1));
+        assertEquals("C:\\new", rows.get(2).getString(1));
+    }
+
+    private PluginReq newConf(Path file, String fileName, Boolean csvEscaped) {
+
+        ExcelSyncConfig excelSyncConfig = new ExcelSyncConfig();
+        excelSyncConfig.setSourceFileId(fileName.replace('.', '_'));
+        return PluginReq.builder().excelSyncConfig(excelSyncConfig).agentType(AgentType.K8S)
+            .csvFilePath(file.toAbsolutePath().toString()).csvFileName(fileName).csvEscaped(csvEscaped).build();
+    }
+
+    /**
+     * 手写最小的xlsx，包含共享字符串、行内字符串、日期样式、布尔值、缺少的单元格和空行.
+     */
+    private Path writeXlsx() throws IOException {
+
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("xl/workbook.xml", "<workbook xmlns=\"" + MAIN_NS + "\" xmlns:r=\"" + REL_NS + "\"><sheets>"
+            + "<sheet name=\"data\" sheetId=\"1\" r:id=\"rId3\"/></sheets></workbook>");
+        entries.put("xl/_rels/workbook.xml.rels",
+            "<Relationships><Relationship Id=\"rId1\" Target=\"styles.xml\"/>"
+                + "<Relationship Id=\"rId3\" Target=\"worksheets/data.xml\"/></Relationships>");
+        entries.put("xl/styles.xml",
+            "<styleSheet xmlns=\"" + MAIN_NS + "\"><numFmts><numFmt numFmtId=\"164\" formatCode=\"yyyy/m/d h:mm\"/>"
+                + "</numFmts><cellStyleXfs><xf numFmtId=\"14\"/></cellStyleXfs><cellXfs><xf numFmtId=\"0\"/>"
+                + "<xf numFmtId=\"14\"/><xf numFmtId=\"164\"/></cellXfs></styleSheet>");
+        entries.put("xl/worksheets/data.xml", "<worksheet xmlns=\"" + MAIN_NS + "\"><sheetData>"
+            + "<row r=\"1\"><c r=\"A1\" t=\"s\"><v>0</v></c><c r=\"B1\" t=\"s\"><v>1</v></c>"
+            + "<c r=\"C1\" t=\"s\"><v>2</v></c><c r=\"D1\" t=\"inlineStr\"><is><t>note</t></is></c></row>"
+            + "<row r=\"2\"><c r=\"A2\"><v>1</v></c><c r=\"B2\" t=\"s\"><v>3</v></c>"
+            + "<c r=\"C2\" s=\"1\"><v>45292</v></c></row>" + "<row r=\"3\"/>"
+            + "<row r=\"4\"><c r=\"A4\"><v>2.50</v></c><c r=\"B4\" t=\"s\"><v>4</v></c>"
+            + "<c r=\"C4\" s=\"2\"><v>45292.5</v></c><c r=\"D4\" t=\"b\"><v>1</v></c></row>"
+            + "</sheetData></worksheet>");
+        // 共享字符串在sheet之后，需要随机读取
+        entries.put("xl/sharedStrings.xml",
+            "<sst xmlns=\"" + MAIN_NS + "\"><si><t>id</t></si><si><t>name</t></si><si><t>birthday</t></si>"
+                + "<si><r><t>line1</t></r><r><t xml:space=\"preserve\">\nline2</t></r><rPh><t>ignored</t></rPh></si>"
+                + "<si><t>a\\b</t></si></sst>");
+
+        Path xlsxFile = tempDir.resolve("data.xlsx");
+        try (OutputStream outputStream = Files.newOutputStream(xlsxFile);
+            ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zipOutputStream.putNextEntry(new ZipEntry(entry.getKey()));
+                zipOutputStream.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                zipOutputStream.closeEntry();
+            }
+        }
+        return xlsxFile;
+    }
+}
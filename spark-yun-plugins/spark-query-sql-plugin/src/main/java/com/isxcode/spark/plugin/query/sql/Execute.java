@@ -3,19 +3,30 @@ package com.isxcode.spark.plugin.query.sql;
 import com.alibaba.fastjson.JSON;
 import com.isxcode.spark.api.agent.req.spark.PluginReq;
 import com.isxcode.spark.api.func.constants.FuncType;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.apache.logging.log4j.util.Strings;
 import org.apache.spark.SparkConf;
+import org.apache.spark.api.java.function.MapFunction;
 import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Encoders;
 import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SaveMode;
 import org.apache.spark.sql.SparkSession;
 import org.apache.spark.sql.types.DataType;
 import org.apache.spark.sql.types.DataTypes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.stream.Collectors;
 
 public class Execute {
 
+    private static final Logger LOG = LoggerFactory.getLogger(Execute.class);
+
     public static void main(String[] args) {
 
         // 解析插件请求体
@@ -59,6 +70,16 @@ public class Execute {
                 Dataset<Row> rowDataset =
                     pluginReq.getLimit() == null ? sparkSession.sql(executeSql.get(executeSql.size() - 1))
                         : sparkSession.sql(executeSql.get(executeSql.size() - 1)).limit(pluginReq.getLimit());
+
+                // 配置了结果目录，优先写文件，失败再通过日志返回
+                if (!Strings.isEmpty(pluginReq.getResultPath())) {
+                    try {
+                        exportResultFile(sparkSession, rowDataset, pluginReq.getResultPath());
+                        return;
+                    } catch (Exception e) {
+                        LOG.warn("写入结果文件失败，通过日志返回结果: {}", e.getMessage(), e);
+                    }
+                }
                 exportResult(rowDataset);
             }
         }
@@ -111,6 +132,22 @@ public class Execute {
         }
     }
 
+    /**
+     * 每行数据转成json数组写入gzip文本，由代理按行分页读取，表头最后写入_columns，表示结果写入完成.
+     */
+    public static void exportResultFile(SparkSession sparkSession, Dataset<Row> rowDataset, String resultPath)
+        throws Exception {
+
+        rowDataset.map((MapFunction<Row, String>) e -> JSON.toJSONString(toRowData(e)), Encoders.STRING()).write()
+            .mode(SaveMode.Overwrite).option("compression", "gzip").text(resultPath);
+
+        Path columnsPath = new Path(resultPath, "_columns");
+        FileSystem fileSystem = columnsPath.getFileSystem(sparkSession.sparkContext().hadoopConfiguration());
+        try (FSDataOutputStream outputStream = fileSystem.create(columnsPath, true)) {
+            outputStream.write(JSON.toJSONString(Arrays.asList(rowDataset.columns())).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
     public static void exportResult(Dataset<Row> rowDataset) {
 
         List<List<String>> result = new ArrayList<>();
@@ -124,14 +161,20 @@ public class Execute {
         result.add(Arrays.asList(rowDataset.columns()));
 
         // 数据
-        rowDataset.collectAsList().forEach(e -> {
-            List<String> metaData = new ArrayList<>();
-            for (int i = 0; i < e.size(); i++) {
-                metaData.add(String.valueOf(e.get(i)));
-            }
-            result.add(metaData);
-        });
+        rowDataset.collectAsList().forEach(e -> result.add(toRowData(e)));
 
         System.out.println("LogType:spark-yun\n" + JSON.toJSONString(result) + "\nEnd of LogType:spark-yun");
     }
+
+    /**
+     * 一行数据转成字符串列表，空值保留为null，不写成"null"字符串.
+     */
+    private static List<String> toRowData(Row row) {
+
+        List<String> metaData = new ArrayList<>();
+        for (int i = 0; i < row.size(); i++) {
+            metaData.add(row.isNullAt(i) ? null : String.valueOf(row.get(i)));
+        }
+        return metaData;
+    }
 }